@@ -37,9 +37,10 @@ public class TransactionProxyControllerV1 {
     @PostMapping("/{type}/confirm")
     public Mono<TransactionConfirmResponse> confirmTransaction(
             @PathVariable String type,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody Mono<ConfirmRequest> requestMono
     ) {
-        return proxyService.confirm(type, requestMono);
+        return proxyService.confirm(type, idempotencyKey, requestMono);
     }
 
     @Timed
@@ -65,4 +66,20 @@ public class TransactionProxyControllerV1 {
         return proxyService.searchTransactions(jwt, walletUid, type, status, dateFrom, dateTo, page, size);
     }
 
+    @Timed
+    @WithSpan
+    @GetMapping("/scroll")
+    public Mono<TransactionPageResponse> scrollTransactions(
+            @RequestParam(required = false) String walletUid,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "10") Integer size,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return proxyService.scrollTransactions(jwt, walletUid, type, status, dateFrom, dateTo, cursor, size);
+    }
+
 }
@@ -24,8 +24,8 @@ public class TransactionProxyService {
         return requestMono.flatMap(req -> transactionClient.init(type, req));
     }
 
-    public Mono<TransactionConfirmResponse> confirm(String type, Mono<ConfirmRequest> requestMono) {
-        return requestMono.flatMap(req -> transactionClient.confirm(type, req));
+    public Mono<TransactionConfirmResponse> confirm(String type, String idempotencyKey, Mono<ConfirmRequest> requestMono) {
+        return requestMono.flatMap(req -> transactionClient.confirm(type, req, idempotencyKey));
     }
 
     public Mono<TransactionStatusResponse> getTransactionStatus(String transactionId) {
@@ -55,4 +55,27 @@ public class TransactionProxyService {
                 ));
     }
 
+    public Mono<TransactionPageResponse> scrollTransactions(
+            Jwt jwt,
+            String walletUid,
+            String type,
+            String status,
+            OffsetDateTime dateFrom,
+            OffsetDateTime dateTo,
+            String cursor,
+            Integer size
+    ) {
+        return jwtUtil.extractUserUid(jwt)
+                .flatMap(userUid -> transactionClient.scrollTransactions(
+                        userUid.toString(),
+                        walletUid,
+                        type,
+                        status,
+                        dateFrom,
+                        dateTo,
+                        cursor,
+                        size
+                ));
+    }
+
 }
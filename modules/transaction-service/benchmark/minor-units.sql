@@ -0,0 +1,103 @@
+-- Сравнение DECIMAL-сумм и копеек в BIGINT (V12): агрегаты, UPDATE балансов с триггером и без,
+-- скорость дозаполнения порциями как в MinorUnitsBackfill.
+--
+-- Только для пустой тестовой базы шарда, промигрированной целиком (flyway migrate): скрипт вставляет
+-- 100k кошельков и 1M транзакций и на время замеров отключает триггеры V12.
+--   psql -h localhost -U postgres -d bench -f benchmark/minor-units.sql
+-- Каждый запрос выполняется несколько раз, в результатах медиана в миллисекундах.
+-- "До V12" - тот же UPDATE при отключенном триггере: колонки копеек есть, но не пересчитываются.
+
+CREATE TEMP TABLE bench_results (step TEXT PRIMARY KEY, ms NUMERIC(10, 1));
+
+CREATE FUNCTION pg_temp.bench(step TEXT, query TEXT, runs INT) RETURNS VOID
+    LANGUAGE plpgsql AS $$
+DECLARE
+    started TIMESTAMPTZ;
+    times DOUBLE PRECISION[] := '{}';
+BEGIN
+    FOR i IN 1..runs LOOP
+        started := clock_timestamp();
+        EXECUTE query;
+        times := times || extract(EPOCH FROM clock_timestamp() - started) * 1000;
+    END LOOP;
+    INSERT INTO bench_results
+    SELECT step, percentile_cont(0.5) WITHIN GROUP (ORDER BY t) FROM unnest(times) t;
+END
+$$;
+
+-- Данные без копеек, как строки, записанные до V12
+ALTER TABLE wallets DISABLE TRIGGER trg_wallets_minor_units;
+ALTER TABLE transactions DISABLE TRIGGER trg_transactions_minor_units;
+
+CREATE TEMP TABLE bench_wallets AS
+SELECT n, gen_random_uuid() AS uid, gen_random_uuid() AS user_uid
+FROM generate_series(1, 100000) n;
+
+INSERT INTO wallets (uid, name, wallet_type_uid, user_uid, status, balance)
+SELECT w.uid, 'bench', (SELECT uid FROM wallet_types ORDER BY uid LIMIT 1), w.user_uid, 'ACTIVE', round((random() * 100000)::NUMERIC, 2)
+FROM bench_wallets w;
+
+-- Текущий месяц: его секция есть всегда
+INSERT INTO transactions (uid, created_at, user_uid, wallet_uid, amount, fee, currency, type, status)
+SELECT gen_random_uuid(), date_trunc('month', now()) + random() * INTERVAL '27 days', w.user_uid, w.uid,
+       round((random() * 1000)::NUMERIC, 2), round((random() * 10)::NUMERIC, 2), 'RUB', 'DEPOSIT', 'COMPLETED'
+FROM generate_series(1, 1000000) g
+JOIN bench_wallets w ON w.n = 1 + g % 100000;
+
+ALTER TABLE wallets ENABLE TRIGGER trg_wallets_minor_units;
+ALTER TABLE transactions ENABLE TRIGGER trg_transactions_minor_units;
+
+-- Дозаполнение тем же запросом, что и MinorUnitsBackfill, порциями по 1000 строк. EXECUTE, а не статический
+-- запрос: закешированный plpgsql общий план по позиции читает таблицу с начала и замедляет проход в разы
+DO $$
+DECLARE
+    started TIMESTAMPTZ := clock_timestamp();
+    position UUID := '00000000-0000-0000-0000-000000000000';
+    last_uid UUID;
+    filled BIGINT := 0;
+    chunk_filled BIGINT;
+BEGIN
+    LOOP
+        EXECUTE $sql$
+            WITH chunk AS (
+                SELECT uid FROM transactions WHERE uid > $1 ORDER BY uid LIMIT 1000
+            ), updated AS (
+                UPDATE transactions t SET amount_minor = round(t.amount * 100), fee_minor = round(t.fee * 100)
+                FROM chunk WHERE t.uid = chunk.uid AND t.amount_minor IS NULL
+                RETURNING 1
+            )
+            SELECT (SELECT uid FROM chunk ORDER BY uid DESC LIMIT 1), (SELECT count(*) FROM updated)
+            $sql$
+        INTO last_uid, chunk_filled USING position;
+        EXIT WHEN last_uid IS NULL;
+        filled := filled + chunk_filled;
+        position := last_uid;
+    END LOOP;
+    INSERT INTO bench_results VALUES ('backfill transactions, rows/s',
+        filled / extract(EPOCH FROM clock_timestamp() - started));
+END
+$$;
+
+UPDATE wallets SET balance_minor = round(balance * 100) WHERE balance_minor IS NULL;
+
+VACUUM ANALYZE wallets;
+VACUUM ANALYZE transactions;
+
+SELECT pg_temp.bench('SUM(amount)', 'SELECT sum(amount) FROM transactions', 5);
+SELECT pg_temp.bench('SUM(amount_minor)', 'SELECT sum(amount_minor) FROM transactions', 5);
+SELECT pg_temp.bench('GROUP BY wallet SUM(amount)',
+    'SELECT wallet_uid, sum(amount) FROM transactions GROUP BY wallet_uid', 3);
+SELECT pg_temp.bench('GROUP BY wallet SUM(amount_minor)',
+    'SELECT wallet_uid, sum(amount_minor) FROM transactions GROUP BY wallet_uid', 3);
+
+-- UPDATE по одному разу, с VACUUM между ними: повторы в одной транзакции замерили бы рост мертвых строк
+ALTER TABLE wallets DISABLE TRIGGER trg_wallets_minor_units;
+SELECT pg_temp.bench('UPDATE balance, before V12', 'UPDATE wallets SET balance = balance + 1', 1);
+VACUUM wallets;
+SELECT pg_temp.bench('UPDATE balance_minor, without trigger', 'UPDATE wallets SET balance_minor = balance_minor + 100', 1);
+VACUUM wallets;
+ALTER TABLE wallets ENABLE TRIGGER trg_wallets_minor_units;
+SELECT pg_temp.bench('UPDATE balance, with trigger', 'UPDATE wallets SET balance = balance + 1', 1);
+VACUUM wallets;
+
+SELECT * FROM bench_results ORDER BY step;
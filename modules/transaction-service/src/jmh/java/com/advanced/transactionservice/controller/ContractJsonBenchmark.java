@@ -0,0 +1,109 @@
+package com.advanced.transactionservice.controller;
+
+import com.advanced.contract.model.TransactionInitResponse;
+import com.advanced.contract.model.TransactionStatusResponse;
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cost of the JSON (de)serialization of the contract DTOs by an {@link ObjectMapper} configured as
+ * the application's one ({@code spring.jackson.property-naming-strategy: SNAKE_CASE}): reading a
+ * confirm request, writing an init response and a page of status responses.
+ */
+@State(Scope.Benchmark)
+public class ContractJsonBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    private static final int PAGE_SIZE = 20;
+
+    private ObjectReader confirmReader;
+
+    private ObjectWriter writer;
+
+    private byte[][] confirmRequests;
+
+    private TransactionInitResponse[] initResponses;
+
+    private List<TransactionStatusResponse> page;
+
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+                .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .build();
+        confirmReader = mapper.readerFor(TransferConfirmRequest.class);
+        writer = mapper.writer();
+
+        confirmRequests = new byte[OPERATIONS][];
+        initResponses = new TransactionInitResponse[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            BigDecimal amount = BigDecimal.valueOf(i * 731L % 500_000 + 100, 2);
+            BigDecimal fee = new BigDecimal("0.75");
+
+            TransferConfirmRequest request = new TransferConfirmRequest();
+            request.setWalletUid(UUID.randomUUID());
+            request.setTargetWalletUid(UUID.randomUUID());
+            request.setAmount(amount);
+            request.setFee(fee);
+            request.setCurrency("USD");
+            request.setQuoteUid(UUID.randomUUID());
+            request.setComment("benchmark");
+            confirmRequests[i] = writer.writeValueAsBytes(request);
+
+            TransactionInitResponse response = new TransactionInitResponse();
+            response.setQuoteUid(UUID.randomUUID());
+            response.setExpiresAt(OffsetDateTime.now().plusMinutes(2));
+            response.setAmount(amount);
+            response.setFee(fee);
+            response.setTotalAmount(amount.add(fee));
+            initResponses[i] = response;
+        }
+
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            TransactionStatusResponse response = new TransactionStatusResponse();
+            response.setTransactionUid(UUID.randomUUID());
+            response.setWalletUid(UUID.randomUUID());
+            response.setType("transfer");
+            response.setStatus("completed");
+            response.setAmount(BigDecimal.valueOf(i * 731L + 100, 2));
+            response.setComment("benchmark");
+            page.add(response);
+        }
+    }
+
+    @Benchmark
+    public TransferConfirmRequest readConfirmRequest() throws IOException {
+        return confirmReader.readValue(confirmRequests[nextOperation()]);
+    }
+
+    @Benchmark
+    public byte[] writeInitResponse() throws IOException {
+        return writer.writeValueAsBytes(initResponses[nextOperation()]);
+    }
+
+    @Benchmark
+    public byte[] writeStatusPage() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    private int nextOperation() {
+        next = (next + 1) & (OPERATIONS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,105 @@
+package com.advanced.transactionservice.mapper;
+
+import com.advanced.contract.model.DepositConfirmRequest;
+import com.advanced.contract.model.TransactionStatusResponse;
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.contract.model.WithdrawalConfirmRequest;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Cost of the {@link TransactionMapper} calls on the {@code confirm} and status paths: building the
+ * transaction entity from a confirm request and the status response from a stored transaction.
+ */
+@State(Scope.Benchmark)
+public class TransactionMapperBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    private WalletResponse wallet;
+
+    private UUID targetWalletUid;
+
+    private DepositConfirmRequest[] deposits;
+
+    private WithdrawalConfirmRequest[] withdrawals;
+
+    private TransferConfirmRequest[] transfers;
+
+    private Money[] amounts;
+
+    private Money fee;
+
+    private Transaction[] transactions;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        wallet = new WalletResponse();
+        wallet.setWalletUid(UUID.randomUUID());
+        wallet.setUserUid(UUID.randomUUID());
+        wallet.setWalletTypeUid(UUID.randomUUID());
+        wallet.setCurrency("USD");
+        wallet.setStatus("ACTIVE");
+        wallet.setBalance(new BigDecimal("1000000.00"));
+        targetWalletUid = UUID.randomUUID();
+        fee = Money.of(new BigDecimal("0.75"), "USD");
+
+        deposits = new DepositConfirmRequest[OPERATIONS];
+        withdrawals = new WithdrawalConfirmRequest[OPERATIONS];
+        transfers = new TransferConfirmRequest[OPERATIONS];
+        amounts = new Money[OPERATIONS];
+        transactions = new Transaction[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            amounts[i] = Money.ofMinor(i * 731L % 500_000 + 100, Money.currency("USD"));
+
+            deposits[i] = new DepositConfirmRequest();
+            deposits[i].setComment("benchmark");
+            withdrawals[i] = new WithdrawalConfirmRequest();
+            withdrawals[i].setComment("benchmark");
+            withdrawals[i].setDestination("card");
+            transfers[i] = new TransferConfirmRequest();
+            transfers[i].setComment("benchmark");
+
+            Transaction transaction = TransactionMapper.fromTransfer(transfers[i], wallet, targetWalletUid, amounts[i], fee);
+            transaction.setUid(UUID.randomUUID());
+            transaction.setCreatedAt(OffsetDateTime.now());
+            transactions[i] = transaction;
+        }
+    }
+
+    @Benchmark
+    public Transaction fromDeposit() {
+        int i = nextOperation();
+        return TransactionMapper.fromDeposit(deposits[i], wallet, amounts[i], fee);
+    }
+
+    @Benchmark
+    public Transaction fromWithdrawal() {
+        int i = nextOperation();
+        return TransactionMapper.fromWithdrawal(withdrawals[i], wallet, amounts[i], fee);
+    }
+
+    @Benchmark
+    public Transaction fromTransfer() {
+        int i = nextOperation();
+        return TransactionMapper.fromTransfer(transfers[i], wallet, targetWalletUid, amounts[i], fee);
+    }
+
+    @Benchmark
+    public TransactionStatusResponse toTransactionStatusResponse() {
+        return TransactionMapper.toTransactionStatusResponse(transactions[nextOperation()]);
+    }
+
+    private int nextOperation() {
+        next = (next + 1) & (OPERATIONS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,115 @@
+package com.advanced.transactionservice.service;
+
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.model.FeeRule;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.WalletType;
+import com.advanced.transactionservice.repository.FeeRuleRepository;
+import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.fee.FeeRuleEngine;
+import com.advanced.transactionservice.service.impl.CalculationFeeServiceImpl;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cost of a {@link CalculationFeeService} call as the {@code init} flows make it: the wallet type
+ * lookup, the evaluation against the loaded fee schedule and the {@link Money} result. The rules
+ * are served by in-memory repositories and loaded once in the setup, as the refresh job does.
+ */
+@State(Scope.Benchmark)
+public class CalculationFeeServiceBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "RUB", "GBP"};
+
+    private CalculationFeeService feeService;
+
+    private WalletResponse[] wallets;
+
+    private Money[] amounts;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<WalletType> walletTypes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            WalletType walletType = new WalletType();
+            walletType.setUid(UUID.randomUUID());
+            walletType.setUserType(i % 2 == 0 ? "USER" : "VIP");
+            walletTypes.add(walletType);
+        }
+
+        List<FeeRule> rules = new ArrayList<>();
+        for (PaymentType type : PaymentType.values()) {
+            rules.add(new FeeRule(null, null, null, type + "-default", type, null, null, null, BigDecimal.ZERO,
+                    new BigDecimal("0.15"), new BigDecimal("0.7500"), BigDecimal.ZERO, new BigDecimal("50.00"), 0, true));
+            rules.add(new FeeRule(null, null, null, type + "-vip", type, null, null, "VIP", BigDecimal.ZERO,
+                    BigDecimal.ZERO, new BigDecimal("0.2500"), BigDecimal.ZERO, null, 0, true));
+        }
+
+        FeeRuleRepository feeRuleRepository = repository(FeeRuleRepository.class, rules);
+        WalletTypeRepository walletTypeRepository = repository(WalletTypeRepository.class, walletTypes);
+        FeeRuleEngine engine = new FeeRuleEngine(
+                feeRuleRepository, walletTypeRepository, new TransactionMetricsService(new SimpleMeterRegistry()));
+        engine.reload();
+        feeService = new CalculationFeeServiceImpl(engine);
+
+        wallets = new WalletResponse[OPERATIONS];
+        amounts = new Money[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            WalletResponse wallet = new WalletResponse();
+            wallet.setWalletUid(UUID.randomUUID());
+            wallet.setWalletTypeUid(walletTypes.get(i % walletTypes.size()).getUid());
+            wallet.setCurrency(CURRENCIES[i % CURRENCIES.length]);
+            wallets[i] = wallet;
+            amounts[i] = Money.ofMinor(i * 731L % 500_000 + 100, Currency.getInstance(wallet.getCurrency()));
+        }
+    }
+
+    @Benchmark
+    public Money depositFee() {
+        int i = nextOperation();
+        return feeService.calculationDepositFee(wallets[i], amounts[i]);
+    }
+
+    @Benchmark
+    public Money withdrawalFee() {
+        int i = nextOperation();
+        return feeService.calculationWithdrawalFee(wallets[i], amounts[i]);
+    }
+
+    @Benchmark
+    public Money transferFee() {
+        int i = nextOperation();
+        return feeService.calculationTransferFee(wallets[i], amounts[i]);
+    }
+
+    private int nextOperation() {
+        next = (next + 1) & (OPERATIONS - 1);
+        return next;
+    }
+
+    /**
+     * Repository whose finder methods all return {@code rows}; the engine only calls
+     * {@code findAll} and {@code findAllByActiveTrueOrderByName}.
+     */
+    private static <T> T repository(Class<T> type, List<?> rows) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().startsWith("findAll")) {
+                return rows;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+}
@@ -0,0 +1,160 @@
+package com.advanced.transactionservice.service;
+
+import com.advanced.contract.model.TransactionInitResponse;
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.mapper.TransactionMapper;
+import com.advanced.transactionservice.model.FeeRule;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.service.fee.FeeSchedule;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.validation.WalletValidation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Amount arithmetic of the transfer {@code init} and {@code confirm} flows, without the database:
+ * fee evaluation, total amount and balance check for {@code init}; amounts, the transaction entity
+ * and the ledger amounts of a transfer (source wallet, target wallet, fee) for {@code confirm}.
+ * The {@code decimal} benchmarks repeat the same steps
+ * with the {@link BigDecimal} arithmetic the flows used before {@link Money}. Run with
+ * {@code -Pjmh.profilers=gc} to compare allocations per operation.
+ */
+@State(Scope.Benchmark)
+public class TransactionFlowBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    private static final BigDecimal FIXED_FEE = new BigDecimal("0.10");
+
+    private static final BigDecimal PERCENT = new BigDecimal("0.7500").movePointLeft(2);
+
+    private static final BigDecimal MIN_FEE = new BigDecimal("0.50");
+
+    private static final BigDecimal MAX_FEE = new BigDecimal("50.00");
+
+    private FeeSchedule schedule;
+
+    private WalletResponse fromWallet;
+
+    private UUID toWalletUid;
+
+    private TransferConfirmRequest[] requests;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        FeeRule rule = new FeeRule(null, null, null, "transfer-default", PaymentType.TRANSFER, null, null, null,
+                BigDecimal.ZERO, FIXED_FEE, new BigDecimal("0.7500"), MIN_FEE, MAX_FEE, 0, true);
+        schedule = FeeSchedule.compile(List.of(rule), Map.of(),
+                new TransactionMetricsService(new SimpleMeterRegistry())::feeRuleHits);
+
+        fromWallet = new WalletResponse();
+        fromWallet.setWalletUid(UUID.randomUUID());
+        fromWallet.setUserUid(UUID.randomUUID());
+        fromWallet.setWalletTypeUid(UUID.randomUUID());
+        fromWallet.setCurrency("USD");
+        fromWallet.setStatus("ACTIVE");
+        fromWallet.setBalance(new BigDecimal("1000000.00"));
+        toWalletUid = UUID.randomUUID();
+
+        requests = new TransferConfirmRequest[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            TransferConfirmRequest request = new TransferConfirmRequest();
+            request.setAmount(BigDecimal.valueOf(i * 731L % 500_000 + 100, 2));
+            request.setFee(new BigDecimal("0.75"));
+            request.setCurrency("USD");
+            request.setComment("benchmark");
+            requests[i] = request;
+        }
+    }
+
+    @Benchmark
+    public TransactionInitResponse initTransfer() {
+        TransferConfirmRequest request = nextRequest();
+        Money amount = Money.of(request.getAmount(), request.getCurrency());
+        Money fee = Money.ofMinor(schedule.fee(PaymentType.TRANSFER, request.getCurrency(), fromWallet.getWalletTypeUid(),
+                amount.minorUnits()), amount.currency());
+        Money totalAmount = amount.plus(fee);
+        WalletValidation.checkWalletBalance(fromWallet, totalAmount);
+
+        TransactionInitResponse response = new TransactionInitResponse();
+        response.setFee(fee.toBigDecimal());
+        response.setAmount(amount.toBigDecimal());
+        response.setTotalAmount(totalAmount.toBigDecimal());
+        return response;
+    }
+
+    @Benchmark
+    public TransactionInitResponse initTransferDecimal() {
+        TransferConfirmRequest request = nextRequest();
+        BigDecimal fee = request.getAmount().multiply(PERCENT).add(FIXED_FEE);
+        fee = (fee.compareTo(MIN_FEE) < 0 ? MIN_FEE : fee.compareTo(MAX_FEE) > 0 ? MAX_FEE : fee)
+                .setScale(2, RoundingMode.HALF_EVEN);
+        BigDecimal totalAmount = request.getAmount().add(fee).setScale(2, RoundingMode.HALF_EVEN);
+        if (fromWallet.getBalance().compareTo(totalAmount) < 0) {
+            throw new IllegalStateException();
+        }
+
+        TransactionInitResponse response = new TransactionInitResponse();
+        response.setFee(fee);
+        response.setAmount(request.getAmount());
+        response.setTotalAmount(totalAmount);
+        return response;
+    }
+
+    @Benchmark
+    public void confirmTransfer(Blackhole blackhole) {
+        TransferConfirmRequest request = nextRequest();
+        Money amount = Money.of(request.getAmount(), request.getCurrency());
+        Money fee = Money.of(request.getFee(), amount.currency());
+        Transaction transaction = TransactionMapper.fromTransfer(request, fromWallet, toWalletUid, amount, fee);
+        Money debit = amount.plus(fee);
+        WalletValidation.checkWalletBalance(fromWallet, debit);
+
+        blackhole.consume(transaction);
+        blackhole.consume(debit.negate().toBigDecimal());
+        blackhole.consume(amount.toBigDecimal());
+        blackhole.consume(fee.toBigDecimal());
+    }
+
+    @Benchmark
+    public void confirmTransferDecimal(Blackhole blackhole) {
+        TransferConfirmRequest request = nextRequest();
+        Transaction transaction = new Transaction();
+        transaction.setAmount(request.getAmount());
+        transaction.setFee(request.getFee());
+        transaction.setWalletUid(fromWallet.getWalletUid());
+        transaction.setUserUid(fromWallet.getUserUid());
+        transaction.setTargetWalletUid(toWalletUid);
+        transaction.setCurrency(Currency.getInstance(request.getCurrency()));
+        transaction.setType(PaymentType.TRANSFER);
+        transaction.setComment(request.getComment());
+        BigDecimal debit = request.getAmount().add(request.getFee()).setScale(2, RoundingMode.HALF_EVEN);
+        if (fromWallet.getBalance().compareTo(debit) < 0) {
+            throw new IllegalStateException();
+        }
+        BigDecimal credit = request.getAmount().setScale(2, RoundingMode.HALF_EVEN);
+
+        blackhole.consume(transaction);
+        blackhole.consume(debit.negate());
+        blackhole.consume(credit);
+        blackhole.consume(debit.subtract(credit));
+    }
+
+    private TransferConfirmRequest nextRequest() {
+        next = (next + 1) & (OPERATIONS - 1);
+        return requests[next];
+    }
+}
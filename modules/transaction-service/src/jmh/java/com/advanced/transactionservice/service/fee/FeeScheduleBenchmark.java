@@ -0,0 +1,100 @@
+package com.advanced.transactionservice.service.fee;
+
+import com.advanced.transactionservice.model.FeeRule;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cost of one fee evaluation against a compiled {@link FeeSchedule}: a fixed fee and a percent fee
+ * with bounds, over rules for several currencies, wallet types, segments and amount tiers.
+ */
+@State(Scope.Benchmark)
+public class FeeScheduleBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "RUB", "GBP"};
+
+    @Param({"16", "256"})
+    private int ruleCount;
+
+    private FeeSchedule schedule;
+
+    private UUID[] walletTypes;
+
+    private String[] currencies;
+
+    private long[] amounts;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        Map<UUID, String> segments = new HashMap<>();
+        List<UUID> types = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            UUID walletType = UUID.randomUUID();
+            types.add(walletType);
+            segments.put(walletType, i % 2 == 0 ? "USER" : "VIP");
+        }
+
+        List<FeeRule> rules = new ArrayList<>();
+        for (PaymentType type : PaymentType.values()) {
+            rules.add(rule(type + "-default", type, null, null, null, BigDecimal.ZERO, type == PaymentType.TRANSFER));
+        }
+        for (int i = 0; rules.size() < ruleCount; i++) {
+            PaymentType type = PaymentType.values()[i % PaymentType.values().length];
+            rules.add(rule("rule-" + i, type,
+                    CURRENCIES[i % CURRENCIES.length],
+                    i % 3 == 0 ? types.get(i % types.size()) : null,
+                    i % 5 == 0 ? "VIP" : null,
+                    BigDecimal.valueOf((i % 4) * 1000L),
+                    i % 2 == 0));
+        }
+        schedule = FeeSchedule.compile(rules, segments, new TransactionMetricsService(new SimpleMeterRegistry())::feeRuleHits);
+
+        walletTypes = new UUID[OPERATIONS];
+        currencies = new String[OPERATIONS];
+        amounts = new long[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            walletTypes[i] = types.get(i % types.size());
+            currencies[i] = CURRENCIES[i % CURRENCIES.length];
+            amounts[i] = i * 731L % 500_000;
+        }
+    }
+
+    @Benchmark
+    public long withdrawalFee() {
+        int i = nextOperation();
+        return schedule.fee(PaymentType.WITHDRAWAL, currencies[i], walletTypes[i], amounts[i]);
+    }
+
+    @Benchmark
+    public long transferFee() {
+        int i = nextOperation();
+        return schedule.fee(PaymentType.TRANSFER, currencies[i], walletTypes[i], amounts[i]);
+    }
+
+    private int nextOperation() {
+        next = (next + 1) & (OPERATIONS - 1);
+        return next;
+    }
+
+    private static FeeRule rule(String name, PaymentType type, String currency, UUID walletType, String segment,
+                                BigDecimal minAmount, boolean percent) {
+        return new FeeRule(null, null, null, name, type,
+                currency == null ? null : Currency.getInstance(currency), walletType, segment, minAmount,
+                new BigDecimal("0.15"), percent ? new BigDecimal("0.7500") : BigDecimal.ZERO,
+                BigDecimal.ZERO, percent ? new BigDecimal("50.00") : null, 0, true);
+    }
+}
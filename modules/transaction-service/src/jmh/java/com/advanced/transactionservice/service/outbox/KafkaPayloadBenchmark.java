@@ -0,0 +1,81 @@
+package com.advanced.transactionservice.service.outbox;
+
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.kafkacontracts.DepositRequested;
+import com.advanced.kafkacontracts.WithdrawalRequested;
+import com.advanced.transactionservice.mapper.KafkaPayloadMapper;
+import com.advanced.transactionservice.mapper.TransactionMapper;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.Transaction;
+import org.apache.avro.specific.SpecificRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Cost of turning a transaction into a Kafka event: the {@link KafkaPayloadMapper} record and its
+ * binary Avro encoding into the outbox and back by {@link AvroPayloadCodec}.
+ */
+@State(Scope.Benchmark)
+public class KafkaPayloadBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    private Transaction[] transactions;
+
+    private WithdrawalRequested[] payloads;
+
+    private byte[][] encoded;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        WalletResponse wallet = new WalletResponse();
+        wallet.setWalletUid(UUID.randomUUID());
+        wallet.setUserUid(UUID.randomUUID());
+        Money fee = Money.of(new BigDecimal("0.75"), "USD");
+
+        transactions = new Transaction[OPERATIONS];
+        payloads = new WithdrawalRequested[OPERATIONS];
+        encoded = new byte[OPERATIONS][];
+        for (int i = 0; i < OPERATIONS; i++) {
+            Money amount = Money.ofMinor(i * 731L % 500_000 + 100, Money.currency("USD"));
+            Transaction transaction = TransactionMapper.fromTransfer(
+                    new TransferConfirmRequest(), wallet, UUID.randomUUID(), amount, fee);
+            transaction.setUid(UUID.randomUUID());
+            transaction.setCreatedAt(OffsetDateTime.now());
+            transactions[i] = transaction;
+            payloads[i] = KafkaPayloadMapper.toWithdrawalRequestedPayload(transaction, "card");
+            encoded[i] = AvroPayloadCodec.encode(payloads[i]);
+        }
+    }
+
+    @Benchmark
+    public DepositRequested toDepositRequestedPayload() {
+        return KafkaPayloadMapper.toDepositRequestedPayload(transactions[nextOperation()]);
+    }
+
+    @Benchmark
+    public WithdrawalRequested toWithdrawalRequestedPayload() {
+        return KafkaPayloadMapper.toWithdrawalRequestedPayload(transactions[nextOperation()], "card");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return AvroPayloadCodec.encode(payloads[nextOperation()]);
+    }
+
+    @Benchmark
+    public SpecificRecord decode() {
+        return AvroPayloadCodec.decode(WithdrawalRequested.class.getName(), encoded[nextOperation()]);
+    }
+
+    private int nextOperation() {
+        next = (next + 1) & (OPERATIONS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,75 @@
+package com.advanced.transactionservice.service.validation;
+
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.model.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Cost of the {@link WalletValidation} checks run on every {@code init} and {@code confirm} call,
+ * on wallets that pass them.
+ */
+@State(Scope.Benchmark)
+public class WalletValidationBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    private WalletResponse[] wallets;
+
+    private WalletResponse[] targetWallets;
+
+    private Money[] amounts;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        wallets = new WalletResponse[OPERATIONS];
+        targetWallets = new WalletResponse[OPERATIONS];
+        amounts = new Money[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            wallets[i] = wallet(BigDecimal.valueOf(i * 7919L % 1_000_000 + 1_000_000, 2));
+            targetWallets[i] = wallet(BigDecimal.ZERO);
+            amounts[i] = Money.ofMinor(i * 731L % 500_000 + 100, Money.currency("USD"));
+        }
+    }
+
+    @Benchmark
+    public WalletResponse validateDeposit() {
+        WalletResponse wallet = wallets[nextOperation()];
+        WalletValidation.validateDeposit(wallet);
+        return wallet;
+    }
+
+    @Benchmark
+    public WalletResponse validateWithdrawal() {
+        int i = nextOperation();
+        WalletValidation.validateWithdrawal(wallets[i], amounts[i]);
+        return wallets[i];
+    }
+
+    @Benchmark
+    public WalletResponse validateTransfer() {
+        int i = nextOperation();
+        WalletValidation.validateTransfer(wallets[i], targetWallets[i], amounts[i]);
+        return wallets[i];
+    }
+
+    private int nextOperation() {
+        next = (next + 1) & (OPERATIONS - 1);
+        return next;
+    }
+
+    private static WalletResponse wallet(BigDecimal balance) {
+        WalletResponse wallet = new WalletResponse();
+        wallet.setWalletUid(UUID.randomUUID());
+        wallet.setUserUid(UUID.randomUUID());
+        wallet.setWalletTypeUid(UUID.randomUUID());
+        wallet.setCurrency("USD");
+        wallet.setStatus("ACTIVE");
+        wallet.setBalance(balance);
+        return wallet;
+    }
+}
@@ -0,0 +1,72 @@
+package com.advanced.transactionservice.sharding;
+
+import org.apache.shardingsphere.infra.datanode.DataNodeInfo;
+import org.apache.shardingsphere.infra.spi.type.typed.TypedSPILoader;
+import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.StandardShardingAlgorithm;
+import org.apache.shardingsphere.sharding.spi.ShardingAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Routing cost of one precise {@code user_uid} condition: the former INLINE expression against
+ * {@link UserUidShardingAlgorithm}.
+ */
+@State(Scope.Benchmark)
+public class ShardingAlgorithmBenchmark {
+
+    private static final int VALUES = 1024;
+
+    @Param({"2", "8"})
+    private int shardCount;
+
+    private List<String> targets;
+
+    private StandardShardingAlgorithm<Comparable<?>> inline;
+
+    private StandardShardingAlgorithm<Comparable<?>> userUid;
+
+    private PreciseShardingValue<Comparable<?>>[] values;
+
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        targets = IntStream.range(0, shardCount).mapToObj(i -> "ds_" + i).toList();
+
+        Properties inlineProps = new Properties();
+        inlineProps.setProperty("algorithm-expression",
+                "ds_${(user_uid.hashCode() % " + shardCount + " + " + shardCount + ") % " + shardCount + "}");
+        inline = (StandardShardingAlgorithm<Comparable<?>>) TypedSPILoader.getService(ShardingAlgorithm.class, "INLINE", inlineProps);
+
+        Properties props = new Properties();
+        props.setProperty(UserUidShardingAlgorithm.SHARD_COUNT, String.valueOf(shardCount));
+        userUid = (StandardShardingAlgorithm<Comparable<?>>) TypedSPILoader.getService(ShardingAlgorithm.class, UserUidShardingAlgorithm.TYPE, props);
+
+        DataNodeInfo dataNodeInfo = new DataNodeInfo("ds_", 1, '0');
+        values = new PreciseShardingValue[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = new PreciseShardingValue<>("transactions", "user_uid", dataNodeInfo, UUID.randomUUID());
+        }
+    }
+
+    @Benchmark
+    public String inlineExpression() {
+        return inline.doSharding(targets, nextValue());
+    }
+
+    @Benchmark
+    public String userUidHash() {
+        return userUid.doSharding(targets, nextValue());
+    }
+
+    private PreciseShardingValue<Comparable<?>> nextValue() {
+        next = (next + 1) & (VALUES - 1);
+        return values[next];
+    }
+}
@@ -0,0 +1,36 @@
+package com.advanced.transactionservice.configuration;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors of background jobs that work on all shards at once: the outbox relay, the
+ * ledger compaction, bucket migrations and the pool warm-up.
+ * <p>
+ * With {@code spring.threads.virtual.enabled} every task runs on its own virtual thread, like the
+ * web server, the Kafka listener containers and the scheduler then do; otherwise tasks share a fixed
+ * pool of platform threads. Threads are named after the job either way.
+ */
+@Component
+public class BackgroundExecutors {
+
+    private final boolean virtual;
+
+    public BackgroundExecutors(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+    }
+
+    /**
+     * @param platformThreads pool size when virtual threads are off
+     */
+    public ExecutorService newExecutor(String name, int platformThreads) {
+        if (virtual) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), Thread.ofPlatform().name(name + "-", 0).factory());
+    }
+}
@@ -0,0 +1,80 @@
+package com.advanced.transactionservice.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Data;
+
+/**
+ * Connection pool settings of a shard datasource. Unset values fall back to the settings of the
+ * enclosing level (replica -> shard -> all shards) and finally to the Hikari and driver defaults.
+ * Timeouts are in milliseconds.
+ */
+@Data
+public class PoolSettings {
+    private Integer maximumPoolSize;
+    private Integer minimumIdle;
+    private Long connectionTimeout;
+    private Long idleTimeout;
+    private Long maxLifetime;
+    private Long keepaliveTime;
+
+    /**
+     * Executions of a statement before the driver switches to a server-side prepared statement.
+     */
+    private Integer prepareThreshold;
+
+    private Integer preparedStatementCacheQueries;
+    private Integer preparedStatementCacheSizeMiB;
+
+    public PoolSettings withDefaults(PoolSettings defaults) {
+        if (defaults == null) {
+            return this;
+        }
+        PoolSettings merged = new PoolSettings();
+        merged.setMaximumPoolSize(or(maximumPoolSize, defaults.getMaximumPoolSize()));
+        merged.setMinimumIdle(or(minimumIdle, defaults.getMinimumIdle()));
+        merged.setConnectionTimeout(or(connectionTimeout, defaults.getConnectionTimeout()));
+        merged.setIdleTimeout(or(idleTimeout, defaults.getIdleTimeout()));
+        merged.setMaxLifetime(or(maxLifetime, defaults.getMaxLifetime()));
+        merged.setKeepaliveTime(or(keepaliveTime, defaults.getKeepaliveTime()));
+        merged.setPrepareThreshold(or(prepareThreshold, defaults.getPrepareThreshold()));
+        merged.setPreparedStatementCacheQueries(
+                or(preparedStatementCacheQueries, defaults.getPreparedStatementCacheQueries()));
+        merged.setPreparedStatementCacheSizeMiB(
+                or(preparedStatementCacheSizeMiB, defaults.getPreparedStatementCacheSizeMiB()));
+        return merged;
+    }
+
+    private static <T> T or(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    void applyTo(HikariDataSource ds) {
+        if (maximumPoolSize != null) {
+            ds.setMaximumPoolSize(maximumPoolSize);
+        }
+        if (minimumIdle != null) {
+            ds.setMinimumIdle(minimumIdle);
+        }
+        if (connectionTimeout != null) {
+            ds.setConnectionTimeout(connectionTimeout);
+        }
+        if (idleTimeout != null) {
+            ds.setIdleTimeout(idleTimeout);
+        }
+        if (maxLifetime != null) {
+            ds.setMaxLifetime(maxLifetime);
+        }
+        if (keepaliveTime != null) {
+            ds.setKeepaliveTime(keepaliveTime);
+        }
+        if (prepareThreshold != null) {
+            ds.addDataSourceProperty("prepareThreshold", String.valueOf(prepareThreshold));
+        }
+        if (preparedStatementCacheQueries != null) {
+            ds.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(preparedStatementCacheQueries));
+        }
+        if (preparedStatementCacheSizeMiB != null) {
+            ds.addDataSourceProperty("preparedStatementCacheSizeMiB", String.valueOf(preparedStatementCacheSizeMiB));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.advanced.transactionservice.configuration;
 
+import com.advanced.transactionservice.sharding.BucketMap;
 import lombok.Data;
 
 import java.util.HashMap;
@@ -8,5 +9,7 @@ import java.util.Map;
 @Data
 public class ShardSettings {
     private int count;
+    private int buckets = BucketMap.DEFAULT_BUCKET_COUNT;
+    private PoolSettings pool = new PoolSettings();
     private Map<String, ShardingSphereConfiguration.DataSourceProperties> datasources = new HashMap<>();
 }
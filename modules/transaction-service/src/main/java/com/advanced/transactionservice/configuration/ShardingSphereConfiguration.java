@@ -1,19 +1,39 @@
 package com.advanced.transactionservice.configuration;
 
+import com.advanced.transactionservice.sharding.ReadWriteRoutingTransactionManager;
+import com.advanced.transactionservice.sharding.ReplicaLoadBalanceAlgorithm;
+import com.advanced.transactionservice.sharding.ReplicaReads;
+import com.advanced.transactionservice.sharding.ShardBucketDirectory;
+import com.advanced.transactionservice.sharding.UidShardingAlgorithm;
+import com.advanced.transactionservice.sharding.UserUidShardingAlgorithm;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTracker;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.shardingsphere.broadcast.config.BroadcastRuleConfiguration;
 import org.apache.shardingsphere.driver.api.ShardingSphereDataSourceFactory;
 import org.apache.shardingsphere.infra.algorithm.core.config.AlgorithmConfiguration;
+import org.apache.shardingsphere.infra.config.rule.RuleConfiguration;
+import org.apache.shardingsphere.readwritesplitting.config.ReadwriteSplittingRuleConfiguration;
+import org.apache.shardingsphere.readwritesplitting.config.rule.ReadwriteSplittingDataSourceGroupRuleConfiguration;
+import org.apache.shardingsphere.readwritesplitting.transaction.TransactionalReadQueryStrategy;
 import org.apache.shardingsphere.sharding.api.config.ShardingRuleConfiguration;
 import org.apache.shardingsphere.sharding.api.config.rule.ShardingTableRuleConfiguration;
+import org.apache.shardingsphere.sharding.api.config.strategy.sharding.ComplexShardingStrategyConfiguration;
 import org.apache.shardingsphere.sharding.api.config.strategy.sharding.StandardShardingStrategyConfiguration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
 import java.io.InputStream;
@@ -26,6 +46,12 @@ import java.util.*;
 @Configuration
 public class ShardingSphereConfiguration {
 
+    private static final String REPLICA_LOAD_BALANCER = "replica_lag_aware";
+
+    private static final String PRIMARY = "primary";
+
+    private static final String REPLICA = "replica";
+
     @Value("${SHARDS_CONFIG:}")
     private String shardsConfigJson;
 
@@ -38,77 +64,240 @@ public class ShardingSphereConfiguration {
     @Getter
     private final Map<String, DataSourceProperties> datasources = new HashMap<>();
 
+    /**
+     * Primary datasource of every shard by its logical name, for direct JDBC access bypassing ShardingSphere.
+     */
+    @Getter
+    private final Map<String, DataSource> shardDataSources = new LinkedHashMap<>();
+
+    /**
+     * Replica datasources of shards that have replicas: shard name -> replica name -> datasource.
+     */
+    @Getter
+    private final Map<String, Map<String, DataSource>> replicaDataSources = new LinkedHashMap<>();
+
+    /**
+     * Every connection pool, primaries and replicas, by pool name.
+     */
+    @Getter
+    private final Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+
+    private final Map<String, Tags> poolTags = new HashMap<>();
+
+    private MetricsTrackerFactory metricsTrackerFactory;
+
+    @Getter
+    private ShardBucketDirectory bucketDirectory;
+
     @Bean
-    public DataSource dataSource() throws SQLException {
+    public DataSource dataSource(MeterRegistry meterRegistry) throws SQLException {
         ShardSettings shardSettings = loadShardSettings();
+        meterRegistry.config().meterFilter(shardPoolTags());
+        metricsTrackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
 
         Map<String, DataSource> dataSourceMap = new HashMap<>();
+        List<ReadwriteSplittingDataSourceGroupRuleConfiguration> readwriteGroups = createShardPools(shardSettings, dataSourceMap);
         int count = shardSettings.getCount();
 
-        for (int i = 0; i < count; i++) {
-            String name = "ds_" + i;
-            DataSourceProperties props = shardSettings.getDatasources().get(name);
-            if (props == null) {
-                log.error("Missing datasource config for {}",  name);
-                throw new IllegalStateException("Missing datasource config for " + name);
-            }
-            datasources.put(name, props);
-            dataSourceMap.put(name, createDataSource(props));
-        }
+        // Карта бакетов должна быть опубликована до первого запроса через ShardingSphere
+        bucketDirectory = new ShardBucketDirectory(
+                shardDataSources.get(ShardBucketDirectory.DIRECTORY_DATA_SOURCE), shardSettings.getBuckets(), count);
+        bucketDirectory.load();
 
         ShardingRuleConfiguration shardingRuleConfig = new ShardingRuleConfiguration();
 
         String actualDataNodesExpr = "ds_${0.." + (count - 1) + "}";
 
-        ShardingTableRuleConfiguration transactionsRule = new ShardingTableRuleConfiguration(
-                "transactions", actualDataNodesExpr + ".transactions");
-        transactionsRule.setDatabaseShardingStrategy(
-                new StandardShardingStrategyConfiguration("user_uid", "database_inline"));
-
-        ShardingTableRuleConfiguration walletsRule = new ShardingTableRuleConfiguration(
-                "wallets", actualDataNodesExpr + ".wallets");
-        walletsRule.setDatabaseShardingStrategy(
-                new StandardShardingStrategyConfiguration("user_uid", "database_inline"));
-
-        shardingRuleConfig.getTables().add(transactionsRule);
-        shardingRuleConfig.getTables().add(walletsRule);
+        shardingRuleConfig.getTables().add(uidRoutedTable("transactions", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(uidRoutedTable("wallets", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(shardedTable("transfer_legs", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(shardedTable("outbox_events", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(walletRoutedTable("idempotency_keys", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(shardedTable("ledger_entries", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(shardedTable("wallet_balance_snapshots", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(shardedTable("wallet_balance_slots", actualDataNodesExpr));
+        shardingRuleConfig.getTables().add(uidRoutedTable("transaction_quotes", actualDataNodesExpr));
 
         Properties algorithmProps = new Properties();
-        algorithmProps.setProperty("algorithm-expression", "ds_${(user_uid.hashCode() % " + count + " + " + count + ") % " + count + "}");
+        algorithmProps.setProperty(UserUidShardingAlgorithm.SHARD_COUNT, String.valueOf(count));
+        algorithmProps.setProperty(UserUidShardingAlgorithm.BUCKET_COUNT, String.valueOf(shardSettings.getBuckets()));
         shardingRuleConfig.getShardingAlgorithms()
-                .put("database_inline", new AlgorithmConfiguration("INLINE", algorithmProps));
+                .put("database_user_uid", new AlgorithmConfiguration(UserUidShardingAlgorithm.TYPE, algorithmProps));
+
+        Properties uidAlgorithmProps = new Properties();
+        uidAlgorithmProps.setProperty(UidShardingAlgorithm.SHARD_COUNT, String.valueOf(count));
+        uidAlgorithmProps.setProperty(UidShardingAlgorithm.BUCKET_COUNT, String.valueOf(shardSettings.getBuckets()));
+        shardingRuleConfig.getShardingAlgorithms()
+                .put("database_uid", new AlgorithmConfiguration(UidShardingAlgorithm.TYPE, uidAlgorithmProps));
 
         shardingRuleConfig.setDefaultDatabaseShardingStrategy(
-                new StandardShardingStrategyConfiguration("user_uid", "database_inline"));
+                new StandardShardingStrategyConfiguration("user_uid", "database_user_uid"));
 
         BroadcastRuleConfiguration broadcastRuleConfig = new BroadcastRuleConfiguration(
-                Collections.singletonList("wallet_types"));
+                List.of("wallet_types", "fee_rules"));
+
+        List<RuleConfiguration> rules = new ArrayList<>(List.of(shardingRuleConfig, broadcastRuleConfig));
+        if (!readwriteGroups.isEmpty()) {
+            rules.add(new ReadwriteSplittingRuleConfiguration(readwriteGroups, Map.of(
+                    REPLICA_LOAD_BALANCER, new AlgorithmConfiguration(ReplicaLoadBalanceAlgorithm.TYPE, new Properties()))));
+        }
 
         Properties props = new Properties();
         props.setProperty("sql-show", String.valueOf(sqlShow));
 
         return ShardingSphereDataSourceFactory.createDataSource(
                 dataSourceMap,
-                Arrays.asList(shardingRuleConfig, broadcastRuleConfig),
+                rules,
                 props
         );
     }
 
-    private DataSource createDataSource(DataSourceProperties props) {
-        HikariDataSource ds = new HikariDataSource();
-        ds.setDriverClassName("org.postgresql.Driver");
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new ReadWriteRoutingTransactionManager(entityManagerFactory);
+    }
+
+    /**
+     * Creates the pools of every shard and its replicas and puts the datasources ShardingSphere routes
+     * to into {@code dataSourceMap}. Pools are not started: Hikari opens connections on first use.
+     *
+     * @return read-write splitting groups of the shards that have replicas
+     */
+    List<ReadwriteSplittingDataSourceGroupRuleConfiguration> createShardPools(
+            ShardSettings shardSettings,
+            Map<String, DataSource> dataSourceMap
+    ) {
+        List<ReadwriteSplittingDataSourceGroupRuleConfiguration> readwriteGroups = new ArrayList<>();
+        for (int i = 0; i < shardSettings.getCount(); i++) {
+            String name = "ds_" + i;
+            DataSourceProperties props = shardSettings.getDatasources().get(name);
+            if (props == null) {
+                log.error("Missing datasource config for {}",  name);
+                throw new IllegalStateException("Missing datasource config for " + name);
+            }
+            datasources.put(name, props);
+            PoolSettings pool = poolSettings(props, shardSettings.getPool());
+            DataSource primary = createDataSource(name, props, pool);
+            shardDataSources.put(name, primary);
+
+            if (props.getReplicas().isEmpty()) {
+                dataSourceMap.put(name, primary);
+            } else {
+                readwriteGroups.add(readwriteGroup(name, primary, props, pool, dataSourceMap));
+            }
+        }
+        return readwriteGroups;
+    }
+
+    // Шард с репликами становится группой ds_N: запись на primary, чтение по ReplicaLoadBalanceAlgorithm.
+    // Primary входит в список чтения как запасной вариант, когда все реплики отстают
+    private ReadwriteSplittingDataSourceGroupRuleConfiguration readwriteGroup(
+            String name,
+            DataSource primary,
+            DataSourceProperties props,
+            PoolSettings pool,
+            Map<String, DataSource> dataSourceMap
+    ) {
+        String primaryName = ReplicaReads.primaryName(name);
+        dataSourceMap.put(primaryName, primary);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < props.getReplicas().size(); i++) {
+            String replicaName = ReplicaReads.replicaName(name, i);
+            DataSourceProperties replica = props.getReplicas().get(i);
+            replicas.put(replicaName, createReplicaDataSource(name, replicaName, props, replica, poolSettings(replica, pool)));
+        }
+        dataSourceMap.putAll(replicas);
+        replicaDataSources.put(name, replicas);
+        log.info("Шард {}: чтение из read-only транзакций распределяется по {} репликам", name, replicas.size());
+
+        List<String> readNames = new ArrayList<>(replicas.keySet());
+        readNames.add(primaryName);
+        return new ReadwriteSplittingDataSourceGroupRuleConfiguration(
+                name, primaryName, readNames, TransactionalReadQueryStrategy.FIXED, REPLICA_LOAD_BALANCER);
+    }
+
+    private static ShardingTableRuleConfiguration shardedTable(String table, String actualDataNodesExpr) {
+        ShardingTableRuleConfiguration rule = new ShardingTableRuleConfiguration(table, actualDataNodesExpr + "." + table);
+        rule.setDatabaseShardingStrategy(new StandardShardingStrategyConfiguration("user_uid", "database_user_uid"));
+        return rule;
+    }
+
+    // Таблицы с ключами из ShardedUids: маршрутизация по user_uid или по uid строки
+    private static ShardingTableRuleConfiguration uidRoutedTable(String table, String actualDataNodesExpr) {
+        ShardingTableRuleConfiguration rule = new ShardingTableRuleConfiguration(table, actualDataNodesExpr + "." + table);
+        rule.setDatabaseShardingStrategy(new ComplexShardingStrategyConfiguration("user_uid,uid", "database_uid"));
+        return rule;
+    }
+
+    // Строки, которые ищут по кошельку до того, как известен пользователь: маршрутизация по user_uid или по wallet_uid
+    private static ShardingTableRuleConfiguration walletRoutedTable(String table, String actualDataNodesExpr) {
+        ShardingTableRuleConfiguration rule = new ShardingTableRuleConfiguration(table, actualDataNodesExpr + "." + table);
+        rule.setDatabaseShardingStrategy(new ComplexShardingStrategyConfiguration("user_uid,wallet_uid", "database_uid"));
+        return rule;
+    }
+
+    private DataSource createDataSource(String name, DataSourceProperties props, PoolSettings pool) {
+        HikariDataSource ds = createPool(name, name, PRIMARY, pool);
         ds.setJdbcUrl(props.getJdbcUrl());
         ds.setUsername(props.getUsername());
         ds.setPassword(props.getPassword());
         return ds;
     }
 
+    // Учетные данные реплики по умолчанию совпадают с primary
+    private DataSource createReplicaDataSource(
+            String shard,
+            String name,
+            DataSourceProperties primary,
+            DataSourceProperties replica,
+            PoolSettings pool
+    ) {
+        HikariDataSource ds = createPool(name, shard, REPLICA, pool);
+        ds.setJdbcUrl(replica.getJdbcUrl());
+        ds.setUsername(Objects.requireNonNullElse(replica.getUsername(), primary.getUsername()));
+        ds.setPassword(Objects.requireNonNullElse(replica.getPassword(), primary.getPassword()));
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    private HikariDataSource createPool(String name, String shard, String role, PoolSettings pool) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName(name);
+        ds.setDriverClassName("org.postgresql.Driver");
+        pool.applyTo(ds);
+        ds.setMetricsTrackerFactory(metricsTrackerFactory);
+        poolTags.put(name, Tags.of("shard", shard, "role", role));
+        pools.put(name, ds);
+        return ds;
+    }
+
+    private static PoolSettings poolSettings(DataSourceProperties props, PoolSettings defaults) {
+        return props.getPool() == null ? defaults : props.getPool().withDefaults(defaults);
+    }
+
+    // Метрики Hikari помечены только именем пула, добавляем шард и роль
+    private MeterFilter shardPoolTags() {
+        return new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                if (!id.getName().startsWith(MicrometerMetricsTracker.HIKARI_METRIC_NAME_PREFIX)) {
+                    return id;
+                }
+                Tags tags = poolTags.get(id.getTag("pool"));
+                return tags == null ? id : id.withTags(tags);
+            }
+        };
+    }
+
     @Setter
     @Getter
     public static class DataSourceProperties {
         private String jdbcUrl;
         private String username;
         private String password;
+        private PoolSettings pool;
+        private List<DataSourceProperties> replicas = new ArrayList<>();
     }
 
     private ShardSettings loadShardSettings() {
@@ -7,6 +7,9 @@ import com.advanced.transactionservice.service.TransactionService;
 import io.micrometer.core.annotation.Timed;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
@@ -19,6 +22,8 @@ import java.util.List;
 @RequestMapping("api/v1/transactions")
 public class TransactionRestControllerV1 {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final TransactionService transactionService;
 
     @Timed
@@ -45,22 +50,31 @@ public class TransactionRestControllerV1 {
     @Timed
     @WithSpan
     @PostMapping("/deposit/confirm")
-    public TransactionConfirmResponse confirm(@Valid @RequestBody DepositConfirmRequest request) {
-        return transactionService.confirmDeposit(request);
+    public TransactionConfirmResponse confirm(
+            @Valid @RequestBody DepositConfirmRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) @Size(max = 128) String idempotencyKey
+    ) {
+        return transactionService.confirmDeposit(request, idempotencyKey);
     }
 
     @Timed
     @WithSpan
     @PostMapping("/withdrawal/confirm")
-    public TransactionConfirmResponse confirm(@Valid @RequestBody WithdrawalConfirmRequest request) {
-        return transactionService.confirmWithdrawal(request);
+    public TransactionConfirmResponse confirm(
+            @Valid @RequestBody WithdrawalConfirmRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) @Size(max = 128) String idempotencyKey
+    ) {
+        return transactionService.confirmWithdrawal(request, idempotencyKey);
     }
 
     @Timed
     @WithSpan
     @PostMapping("/transfer/confirm")
-    public TransactionConfirmResponse confirm(@Valid @RequestBody TransferConfirmRequest request) {
-        return transactionService.confirmTransfer(request);
+    public TransactionConfirmResponse confirm(
+            @Valid @RequestBody TransferConfirmRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) @Size(max = 128) String idempotencyKey
+    ) {
+        return transactionService.confirmTransfer(request, idempotencyKey);
     }
 
     @Timed
@@ -86,4 +100,20 @@ public class TransactionRestControllerV1 {
         return transactionService.searchTransactions(userUid, walletUid, type, status, dateFrom, dateTo, page, size);
     }
 
+    @Timed
+    @WithSpan
+    @GetMapping("/scroll")
+    public TransactionPageResponse scrollTransactions(
+            @RequestParam(required = false) String userUid,
+            @RequestParam(required = false) String walletUid,
+            @RequestParam(required = false) PaymentType type,
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size
+    ) {
+        return transactionService.scrollTransactions(userUid, walletUid, type, status, dateFrom, dateTo, cursor, size);
+    }
+
 }
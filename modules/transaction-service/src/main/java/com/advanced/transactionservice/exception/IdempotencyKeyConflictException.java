@@ -0,0 +1,15 @@
+package com.advanced.transactionservice.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@Setter
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyKeyConflictException extends TransactionException {
+    public IdempotencyKeyConflictException() {
+        super("Idempotency key was already used for another operation", HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,13 @@
+package com.advanced.transactionservice.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+@Setter
+public class IdempotencyKeyMismatchException extends TransactionException {
+    public IdempotencyKeyMismatchException() {
+        super("Idempotency key was already used for a different request", HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+}
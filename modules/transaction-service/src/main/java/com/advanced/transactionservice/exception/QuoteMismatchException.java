@@ -0,0 +1,18 @@
+package com.advanced.transactionservice.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.http.HttpStatus;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+public class QuoteMismatchException extends TransactionException {
+    private final UUID quoteUid;
+
+    public QuoteMismatchException(UUID quoteUid) {
+        super("Request does not match quote with uid=" + quoteUid, HttpStatus.CONFLICT);
+        this.quoteUid = quoteUid;
+    }
+}
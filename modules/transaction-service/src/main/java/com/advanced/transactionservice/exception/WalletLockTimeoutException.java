@@ -0,0 +1,18 @@
+package com.advanced.transactionservice.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.http.HttpStatus;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+public class WalletLockTimeoutException extends TransactionException {
+    private final UUID walletUid;
+
+    public WalletLockTimeoutException(UUID walletUid) {
+        super("Wallet with uid=" + walletUid + " is busy, try again later", HttpStatus.SERVICE_UNAVAILABLE);
+        this.walletUid = walletUid;
+    }
+}
@@ -0,0 +1,62 @@
+package com.advanced.transactionservice.mapper;
+
+import com.advanced.transactionservice.model.Transaction;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Converts keyset positions of the transaction search to opaque cursor tokens and back.
+ * The position is the {@code (created_at, uid)} of the last returned row.
+ */
+public class TransactionCursorMapper {
+
+    public static final Sort SORT = Sort.by(Sort.Direction.DESC, "createdAt", "uid");
+
+    private static final String CREATED_AT = "createdAt";
+
+    private static final String UID = "uid";
+
+    private static final String SEPARATOR = "|";
+
+    public static KeysetScrollPosition toPosition(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        int separator = decoded.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            keys.put(CREATED_AT, OffsetDateTime.ofInstant(Instant.parse(decoded.substring(0, separator)), ZoneOffset.UTC));
+            keys.put(UID, UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    public static String toCursor(Transaction last) {
+        String position = last.getCreatedAt().toInstant() + SEPARATOR + last.getUid();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,25 +1,27 @@
 package com.advanced.transactionservice.mapper;
 
 import com.advanced.contract.model.*;
+import com.advanced.transactionservice.model.Money;
 import com.advanced.transactionservice.model.PaymentStatus;
 import com.advanced.transactionservice.model.PaymentType;
 import com.advanced.transactionservice.model.Transaction;
 
-import java.util.Currency;
 import java.util.UUID;
 
 public class TransactionMapper {
 
     public static Transaction fromDeposit(
             DepositConfirmRequest request,
-            WalletResponse wallet
+            WalletResponse wallet,
+            Money amount,
+            Money fee
     ) {
         Transaction transaction = new Transaction();
-        transaction.setAmount(request.getAmount());
-        transaction.setFee(request.getFee());
+        transaction.setAmount(amount.toBigDecimal());
+        transaction.setFee(fee.toBigDecimal());
         transaction.setWalletUid(wallet.getWalletUid());
         transaction.setUserUid(wallet.getUserUid());
-        transaction.setCurrency(Currency.getInstance(request.getCurrency()));
+        transaction.setCurrency(amount.currency());
         transaction.setType(PaymentType.DEPOSIT);
         transaction.setStatus(PaymentStatus.PENDING);
         transaction.setComment(request.getComment());
@@ -28,14 +30,16 @@ public class TransactionMapper {
 
     public static Transaction fromWithdrawal(
             WithdrawalConfirmRequest request,
-            WalletResponse wallet
+            WalletResponse wallet,
+            Money amount,
+            Money fee
     ) {
         Transaction transaction = new Transaction();
-        transaction.setAmount(request.getAmount());
-        transaction.setFee(request.getFee());
+        transaction.setAmount(amount.toBigDecimal());
+        transaction.setFee(fee.toBigDecimal());
         transaction.setWalletUid(wallet.getWalletUid());
         transaction.setUserUid(wallet.getUserUid());
-        transaction.setCurrency(Currency.getInstance(request.getCurrency()));
+        transaction.setCurrency(amount.currency());
         transaction.setType(PaymentType.WITHDRAWAL);
         transaction.setStatus(PaymentStatus.PENDING);
         transaction.setComment(request.getComment());
@@ -45,21 +49,31 @@ public class TransactionMapper {
     public static Transaction fromTransfer(
             TransferConfirmRequest request,
             WalletResponse wallet,
-            UUID targetWalletUid
+            UUID targetWalletUid,
+            Money amount,
+            Money fee
     ) {
         Transaction transaction = new Transaction();
-        transaction.setAmount(request.getAmount());
-        transaction.setFee(request.getFee());
+        transaction.setAmount(amount.toBigDecimal());
+        transaction.setFee(fee.toBigDecimal());
         transaction.setWalletUid(wallet.getWalletUid());
         transaction.setUserUid(wallet.getUserUid());
         transaction.setTargetWalletUid(targetWalletUid);
-        transaction.setCurrency(Currency.getInstance(request.getCurrency()));
+        transaction.setCurrency(amount.currency());
         transaction.setType(PaymentType.TRANSFER);
         transaction.setStatus(PaymentStatus.COMPLETED);
         transaction.setComment(request.getComment());
         return transaction;
     }
 
+    public static Money amount(Transaction transaction) {
+        return Money.of(transaction.getAmount(), transaction.getCurrency());
+    }
+
+    public static Money fee(Transaction transaction) {
+        return Money.of(transaction.getFee(), transaction.getCurrency());
+    }
+
     public static TransactionStatusResponse toTransactionStatusResponse(Transaction transaction) {
         TransactionStatusResponse response = new TransactionStatusResponse();
         response.setTransactionUid(transaction.getUid());
@@ -0,0 +1,64 @@
+package com.advanced.transactionservice.mapper;
+
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.TransactionQuote;
+import com.advanced.transactionservice.model.WalletStatus;
+
+import java.time.OffsetDateTime;
+
+public class TransactionQuoteMapper {
+
+    public static TransactionQuote toQuote(
+            PaymentType operation,
+            WalletResponse wallet,
+            WalletResponse targetWallet,
+            Money amount,
+            Money fee,
+            OffsetDateTime expiresAt
+    ) {
+        TransactionQuote quote = new TransactionQuote();
+        quote.setExpiresAt(expiresAt);
+        quote.setUserUid(wallet.getUserUid());
+        quote.setOperation(operation);
+        quote.setWalletUid(wallet.getWalletUid());
+        quote.setWalletTypeUid(wallet.getWalletTypeUid());
+        quote.setCurrency(amount.currency().getCurrencyCode());
+        quote.setAmountMinor(amount.minorUnits());
+        quote.setFeeMinor(fee.minorUnits());
+        if (targetWallet != null) {
+            quote.setTargetWalletUid(targetWallet.getWalletUid());
+            quote.setTargetUserUid(targetWallet.getUserUid());
+        }
+        return quote;
+    }
+
+    public static Money amount(TransactionQuote quote) {
+        return Money.ofMinor(quote.getAmountMinor(), Money.currency(quote.getCurrency()));
+    }
+
+    public static Money fee(TransactionQuote quote) {
+        return Money.ofMinor(quote.getFeeMinor(), Money.currency(quote.getCurrency()));
+    }
+
+    // Снимок кошелька на момент init: баланса в нем нет, его проверяет списание под блокировкой
+    public static WalletResponse toWallet(TransactionQuote quote) {
+        WalletResponse wallet = new WalletResponse();
+        wallet.setWalletUid(quote.getWalletUid());
+        wallet.setWalletTypeUid(quote.getWalletTypeUid());
+        wallet.setUserUid(quote.getUserUid());
+        wallet.setCurrency(quote.getCurrency());
+        wallet.setStatus(WalletStatus.ACTIVE.getValue());
+        return wallet;
+    }
+
+    public static WalletResponse toTargetWallet(TransactionQuote quote) {
+        WalletResponse wallet = new WalletResponse();
+        wallet.setWalletUid(quote.getTargetWalletUid());
+        wallet.setUserUid(quote.getTargetUserUid());
+        wallet.setCurrency(quote.getCurrency());
+        wallet.setStatus(WalletStatus.ACTIVE.getValue());
+        return wallet;
+    }
+}
@@ -0,0 +1,70 @@
+package com.advanced.transactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Currency;
+import java.util.UUID;
+
+/**
+ * Fee rule of one payment type. Empty {@code currency}, {@code walletTypeUid} and
+ * {@code userSegment} match any value; {@code minAmount} is the lower bound of the amount tier.
+ * The fee is {@code fixedFee + amount * percentFee / 100}, kept within {@code minFee} and {@code maxFee}.
+ */
+@Entity
+@Table(name = "fee_rules")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"uid"})
+public class FeeRule {
+
+    @Id
+    @GeneratedValue
+    private UUID uid;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @UpdateTimestamp
+    private OffsetDateTime modifiedAt;
+
+    @Column(nullable = false, length = 64)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private PaymentType paymentType;
+
+    @Column(length = 3)
+    private Currency currency;
+
+    private UUID walletTypeUid;
+
+    @Column(length = 15)
+    private String userSegment;
+
+    @Column(nullable = false)
+    private BigDecimal minAmount;
+
+    @Column(nullable = false)
+    private BigDecimal fixedFee;
+
+    @Column(nullable = false)
+    private BigDecimal percentFee;
+
+    @Column(nullable = false)
+    private BigDecimal minFee;
+
+    private BigDecimal maxFee;
+
+    private int priority;
+
+    private boolean active;
+}
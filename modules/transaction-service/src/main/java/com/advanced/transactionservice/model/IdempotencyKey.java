@@ -0,0 +1,56 @@
+package com.advanced.transactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Result of a confirm request sent with an {@code Idempotency-Key} header. Stored on the
+ * user's shard in the same transaction as the {@link Transaction} it points to.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"uid"})
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue
+    private UUID uid;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(nullable = false, updatable = false)
+    private UUID userUid;
+
+    // Кошелек-источник: по нему ключ ищется до чтения кошелька
+    @Column(updatable = false)
+    private UUID walletUid;
+
+    @Column(name = "idempotency_key", nullable = false, updatable = false, length = 128)
+    private String key;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 20)
+    private PaymentType operation;
+
+    @Column(nullable = false, updatable = false)
+    private UUID transactionUid;
+
+    // Статус на момент записи; повтор незавершенной операции берет текущий статус транзакции
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 20)
+    private PaymentStatus status;
+
+    @Column(updatable = false, length = 64)
+    private String requestHash;
+
+}
@@ -0,0 +1,25 @@
+package com.advanced.transactionservice.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Account a ledger entry is posted to. Every posting balances a wallet against another wallet or
+ * one of the system accounts, which stand for money outside the wallets of a shard.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum LedgerAccount {
+    WALLET("WALLET"),
+    EXTERNAL("EXTERNAL"),
+    TRANSIT("TRANSIT"),
+    FEES("FEES");
+
+    private final String value;
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.advanced.transactionservice.model;
+
+import com.advanced.transactionservice.sharding.ShardedUid;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Append-only balance change of an account, stored on the shard of the user it belongs to.
+ * Entries of one posting sum to zero. {@code createdAt} is set by the database, so entries and
+ * balance snapshots are ordered by the same clock.
+ */
+@Entity
+@Table(name = "ledger_entries")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"uid"})
+public class LedgerEntry {
+
+    @Id
+    @ShardedUid(timeOrdered = true)
+    private UUID uid;
+
+    @Column(nullable = false, insertable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(nullable = false, updatable = false)
+    private UUID transactionUid;
+
+    @Column(nullable = false, updatable = false)
+    private UUID userUid;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 16)
+    private LedgerAccount account;
+
+    @Column(updatable = false)
+    private UUID walletUid;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    // Слот баланса кошелька (WalletBalanceSlot), 0 у обычных кошельков и системных счетов
+    @Column(nullable = false, updatable = false)
+    private int slot;
+
+    public static LedgerEntry wallet(UUID transactionUid, UUID walletUid, UUID userUid, BigDecimal amount) {
+        return wallet(transactionUid, walletUid, userUid, 0, amount);
+    }
+
+    public static LedgerEntry wallet(UUID transactionUid, UUID walletUid, UUID userUid, int slot, BigDecimal amount) {
+        return new LedgerEntry(null, null, transactionUid, userUid, LedgerAccount.WALLET, walletUid, amount, slot);
+    }
+
+    public static LedgerEntry wallet(UUID transactionUid, UUID walletUid, UUID userUid, int slot, Money amount) {
+        return wallet(transactionUid, walletUid, userUid, slot, amount.toBigDecimal());
+    }
+
+    public static LedgerEntry system(UUID transactionUid, LedgerAccount account, UUID userUid, BigDecimal amount) {
+        return new LedgerEntry(null, null, transactionUid, userUid, account, null, amount, 0);
+    }
+
+    public static LedgerEntry system(UUID transactionUid, LedgerAccount account, UUID userUid, Money amount) {
+        return system(transactionUid, account, userUid, amount.toBigDecimal());
+    }
+}
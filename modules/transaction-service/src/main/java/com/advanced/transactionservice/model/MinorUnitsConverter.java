@@ -0,0 +1,24 @@
+package com.advanced.transactionservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores a decimal amount in a {@code BIGINT} column of {@link Money} minor units. Applied by
+ * {@code META-INF/orm-minor-units.xml} when {@code money.storage} is {@code minor-units}.
+ */
+@Converter
+public class MinorUnitsConverter implements AttributeConverter<BigDecimal, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(BigDecimal amount) {
+        return amount == null ? null : Money.toMinorUnits(amount);
+    }
+
+    @Override
+    public BigDecimal convertToEntityAttribute(Long minorUnits) {
+        return minorUnits == null ? null : BigDecimal.valueOf(minorUnits, Money.SCALE);
+    }
+}
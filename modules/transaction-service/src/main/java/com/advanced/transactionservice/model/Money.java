@@ -0,0 +1,152 @@
+package com.advanced.transactionservice.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Amount of money as a {@code long} of minor units (hundredths, the scale of every amount column)
+ * and its currency. Arithmetic and comparisons work on the {@code long}, so the service, validation
+ * and mapper layers pass amounts around without creating {@link BigDecimal}s; amounts are converted
+ * with {@link #of} and {@link #toBigDecimal()} where they enter or leave the service: the REST API,
+ * Kafka payloads and the database.
+ * <p>
+ * The decimal form is created once per instance: the same amount written to the transaction and to
+ * its ledger entries is converted once, and an amount read at {@link #SCALE}, e.g. from a request,
+ * is not converted at all. Equality and ordering depend only on the minor units and currency.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    private static final Map<String, Currency> CURRENCIES = new ConcurrentHashMap<>();
+
+    private final long minorUnits;
+
+    private final Currency currency;
+
+    // Кеш toBigDecimal(); гонка безопасна, как у String.hash: BigDecimal неизменяем
+    private BigDecimal decimal;
+
+    public Money(long minorUnits, Currency currency) {
+        this(minorUnits, currency, null);
+    }
+
+    private Money(long minorUnits, Currency currency, BigDecimal decimal) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+        this.decimal = decimal;
+    }
+
+    /**
+     * Rounds the amount to {@link #SCALE} digits, half to even, as amounts were always stored.
+     *
+     * @throws ArithmeticException if the amount does not fit into a {@code long} of minor units
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        long minorUnits = toMinorUnits(amount);
+        // Сумма уже в копейках - она и пойдет в сущности вместо новой
+        return new Money(minorUnits, currency, amount.scale() == SCALE ? amount : null);
+    }
+
+    public static Money of(BigDecimal amount, String currencyCode) {
+        return of(amount, currency(currencyCode));
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    /**
+     * Currency by its ISO 4217 code, resolved once per code.
+     *
+     * @throws IllegalArgumentException if the code is not a supported ISO 4217 code
+     */
+    public static Currency currency(String currencyCode) {
+        Currency currency = CURRENCIES.get(currencyCode);
+        return currency != null ? currency : CURRENCIES.computeIfAbsent(currencyCode, Currency::getInstance);
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    /**
+     * Whether a decimal amount, e.g. a wallet balance, is lower than this one. Currencies are not
+     * compared: wallets are not converted between currencies.
+     */
+    public boolean exceeds(BigDecimal amount) {
+        return toMinorUnits(amount) < minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, sameCurrency(other).minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        BigDecimal decimal = this.decimal;
+        if (decimal == null) {
+            decimal = BigDecimal.valueOf(minorUnits, SCALE);
+            this.decimal = decimal;
+        }
+        return decimal;
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public Currency currency() {
+        return currency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    private Money sameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+        return other;
+    }
+}
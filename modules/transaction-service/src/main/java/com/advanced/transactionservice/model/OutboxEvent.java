@@ -0,0 +1,44 @@
+package com.advanced.transactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "outbox_events")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"uid"})
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue
+    private UUID uid;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    private OffsetDateTime sentAt;
+
+    @Column(nullable = false, updatable = false)
+    private UUID userUid;
+
+    @Column(nullable = false, updatable = false, length = 128)
+    private String topic;
+
+    @Column(nullable = false, updatable = false, length = 128)
+    private String messageKey;
+
+    @Column(nullable = false, updatable = false, length = 256)
+    private String payloadType;
+
+    @Column(nullable = false, updatable = false)
+    private byte[] payload;
+
+}
@@ -1,5 +1,6 @@
 package com.advanced.transactionservice.model;
 
+import com.advanced.transactionservice.sharding.ShardedUid;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -20,7 +21,7 @@ import java.util.UUID;
 public class Transaction {
 
     @Id
-    @GeneratedValue
+    @ShardedUid(timeOrdered = true)
     private UUID uid;
 
     @Column(name = "wallet_uid", nullable = false)
@@ -0,0 +1,64 @@
+package com.advanced.transactionservice.model;
+
+import com.advanced.transactionservice.sharding.ShardedUid;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Amount, fee and wallet snapshot computed by an init call, which the matching confirm call uses
+ * instead of reading the wallets and computing the fee again. Stored on the user's shard; the UID
+ * is sharded by the user, so a quote is found by its UID alone.
+ */
+@Entity
+@Table(name = "transaction_quotes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"uid"})
+public class TransactionQuote {
+
+    @Id
+    @ShardedUid
+    private UUID uid;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime expiresAt;
+
+    @Column(nullable = false, updatable = false)
+    private UUID userUid;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 20)
+    private PaymentType operation;
+
+    @Column(nullable = false, updatable = false)
+    private UUID walletUid;
+
+    @Column(updatable = false)
+    private UUID walletTypeUid;
+
+    @Column(nullable = false, updatable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false, updatable = false)
+    private long amountMinor;
+
+    @Column(nullable = false, updatable = false)
+    private long feeMinor;
+
+    @Column(updatable = false)
+    private UUID targetWalletUid;
+
+    @Column(updatable = false)
+    private UUID targetUserUid;
+
+}
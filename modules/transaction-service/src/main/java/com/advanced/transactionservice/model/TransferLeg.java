@@ -0,0 +1,63 @@
+package com.advanced.transactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * One side of a cross-shard transfer, stored on the shard of the wallet it touches.
+ * The DEBIT leg holds the money on the source shard, the CREDIT leg records on the
+ * target shard that the money has been applied (or will never be).
+ */
+@Entity
+@Table(name = "transfer_legs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"uid"})
+public class TransferLeg {
+
+    @Id
+    @GeneratedValue
+    private UUID uid;
+
+    @Column(nullable = false, updatable = false)
+    private UUID transactionUid;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 16)
+    private TransferLegType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TransferLegStatus status;
+
+    @Column(nullable = false, updatable = false)
+    private UUID walletUid;
+
+    @Column(nullable = false, updatable = false)
+    private UUID userUid;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    @Column(updatable = false)
+    private UUID counterpartyWalletUid;
+
+    @Column(updatable = false)
+    private UUID counterpartyUserUid;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @UpdateTimestamp
+    private OffsetDateTime modifiedAt;
+
+}
@@ -0,0 +1,22 @@
+package com.advanced.transactionservice.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum TransferLegStatus {
+    HELD("HELD"),
+    SETTLED("SETTLED"),
+    RELEASED("RELEASED"),
+    APPLIED("APPLIED"),
+    CANCELLED("CANCELLED");
+
+    private final String value;
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.advanced.transactionservice.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum TransferLegType {
+    DEBIT("DEBIT"),
+    CREDIT("CREDIT");
+
+    private final String value;
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.advanced.transactionservice.model;
 
+import com.advanced.transactionservice.sharding.ShardedUid;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -19,7 +20,7 @@ import java.util.UUID;
 public class Wallet {
 
     @Id
-    @GeneratedValue
+    @ShardedUid
     private UUID uid;
 
     @CreationTimestamp
@@ -43,7 +44,8 @@ public class Wallet {
     @Column(nullable = false)
     private WalletStatus status;
 
-    @Column(nullable = false)
+    // Баланс последнего снимка; меняется только при свертке проводок (LedgerCompactor)
+    @Column(nullable = false, updatable = false)
     private BigDecimal balance;
 
     private OffsetDateTime archivedAt;
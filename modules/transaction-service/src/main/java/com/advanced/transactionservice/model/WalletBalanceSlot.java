@@ -0,0 +1,40 @@
+package com.advanced.transactionservice.model;
+
+import com.advanced.transactionservice.sharding.ShardedUid;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Snapshot balance of one slot of a hot wallet. Each slot is locked on its own, so debits of the
+ * wallet drawing from different slots do not wait for each other. Slot balances add up to
+ * {@link Wallet#getBalance()}.
+ */
+@Entity
+@Table(name = "wallet_balance_slots")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"uid"})
+public class WalletBalanceSlot {
+
+    @Id
+    @ShardedUid
+    private UUID uid;
+
+    @Column(nullable = false, updatable = false)
+    private UUID walletUid;
+
+    @Column(nullable = false, updatable = false)
+    private UUID userUid;
+
+    @Column(nullable = false, updatable = false)
+    private int slot;
+
+    // Меняется только при свертке проводок (LedgerCompactor)
+    @Column(nullable = false, updatable = false)
+    private BigDecimal balance;
+}
@@ -0,0 +1,12 @@
+package com.advanced.transactionservice.repository;
+
+import com.advanced.transactionservice.model.FeeRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface FeeRuleRepository extends JpaRepository<FeeRule, UUID> {
+
+    List<FeeRule> findAllByActiveTrueOrderByName();
+}
@@ -0,0 +1,20 @@
+package com.advanced.transactionservice.repository;
+
+import com.advanced.transactionservice.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, UUID> {
+
+    Optional<IdempotencyKey> findByWalletUidAndKey(UUID walletUid, String key);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :threshold")
+    int deleteCreatedBefore(@Param("threshold") OffsetDateTime threshold);
+}
@@ -0,0 +1,109 @@
+package com.advanced.transactionservice.repository;
+
+import com.advanced.transactionservice.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
+
+    /**
+     * Sum of the wallet's entries not yet rolled into its balance snapshot.
+     */
+    @Query(value = """
+            SELECT coalesce(sum(amount), 0) FROM ledger_entries
+            WHERE wallet_uid = :walletUid AND user_uid = :userUid AND snapshot_version IS NULL
+            """, nativeQuery = true)
+    BigDecimal sumPending(@Param("walletUid") UUID walletUid, @Param("userUid") UUID userUid);
+
+    /**
+     * Sum of the entries of one balance slot of the wallet not yet rolled into the slot snapshot.
+     */
+    @Query(value = """
+            SELECT coalesce(sum(amount), 0) FROM ledger_entries
+            WHERE wallet_uid = :walletUid AND user_uid = :userUid AND slot = :slot AND snapshot_version IS NULL
+            """, nativeQuery = true)
+    BigDecimal sumPendingInSlot(@Param("walletUid") UUID walletUid, @Param("userUid") UUID userUid, @Param("slot") int slot);
+
+    @Query(value = """
+            SELECT slot, sum(amount) AS amount FROM ledger_entries
+            WHERE wallet_uid = :walletUid AND user_uid = :userUid AND snapshot_version IS NULL
+            GROUP BY slot
+            """, nativeQuery = true)
+    List<SlotAmount> sumPendingBySlot(@Param("walletUid") UUID walletUid, @Param("userUid") UUID userUid);
+
+    @Query(value = """
+            SELECT wallet_uid AS walletUid, sum(amount) AS amount FROM ledger_entries
+            WHERE wallet_uid IS NOT NULL AND user_uid = :userUid AND snapshot_version IS NULL
+            GROUP BY wallet_uid
+            """, nativeQuery = true)
+    List<WalletAmount> sumPendingByWallet(@Param("userUid") UUID userUid);
+
+    /**
+     * Latest balance snapshot of the wallet taken at or before the given time.
+     */
+    @Query(value = """
+            SELECT version, balance FROM wallet_balance_snapshots
+            WHERE wallet_uid = :walletUid AND user_uid = :userUid AND created_at <= :at
+            ORDER BY version DESC
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<BalanceSnapshot> findSnapshotAt(
+            @Param("walletUid") UUID walletUid,
+            @Param("userUid") UUID userUid,
+            @Param("at") OffsetDateTime at
+    );
+
+    /**
+     * Balance the wallet was created with, while no snapshot has been taken yet.
+     */
+    @Query(value = """
+            SELECT CAST(0 AS BIGINT) AS version, balance FROM wallets
+            WHERE uid = :walletUid AND user_uid = :userUid AND balance_version = 0 AND created_at <= :at
+            """, nativeQuery = true)
+    Optional<BalanceSnapshot> findOpeningBalance(
+            @Param("walletUid") UUID walletUid,
+            @Param("userUid") UUID userUid,
+            @Param("at") OffsetDateTime at
+    );
+
+    /**
+     * Sum of the wallet's entries made at or before the given time that are not part of the
+     * snapshot with the given version or any earlier one.
+     */
+    @Query(value = """
+            SELECT coalesce(sum(amount), 0) FROM ledger_entries
+            WHERE wallet_uid = :walletUid AND user_uid = :userUid AND created_at <= :at
+              AND (snapshot_version IS NULL OR snapshot_version > :version)
+            """, nativeQuery = true)
+    BigDecimal sumAfterSnapshot(
+            @Param("walletUid") UUID walletUid,
+            @Param("userUid") UUID userUid,
+            @Param("version") long version,
+            @Param("at") OffsetDateTime at
+    );
+
+    interface WalletAmount {
+        UUID getWalletUid();
+
+        BigDecimal getAmount();
+    }
+
+    interface SlotAmount {
+        int getSlot();
+
+        BigDecimal getAmount();
+    }
+
+    interface BalanceSnapshot {
+        long getVersion();
+
+        BigDecimal getBalance();
+    }
+}
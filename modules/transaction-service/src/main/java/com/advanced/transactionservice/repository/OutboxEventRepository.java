@@ -0,0 +1,9 @@
+package com.advanced.transactionservice.repository;
+
+import com.advanced.transactionservice.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+}
@@ -0,0 +1,17 @@
+package com.advanced.transactionservice.repository;
+
+import com.advanced.transactionservice.model.TransactionQuote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public interface TransactionQuoteRepository extends JpaRepository<TransactionQuote, UUID> {
+
+    @Modifying
+    @Query("delete from TransactionQuote q where q.expiresAt < :threshold")
+    int deleteExpiredBefore(@Param("threshold") OffsetDateTime threshold);
+}
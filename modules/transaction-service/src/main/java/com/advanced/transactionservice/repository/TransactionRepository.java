@@ -4,9 +4,13 @@ import com.advanced.transactionservice.model.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface TransactionRepository extends JpaRepository<Transaction, UUID>, JpaSpecificationExecutor<Transaction> {
     Optional<Transaction> findByUidAndUserUid(UUID uid, UUID userUid);
+
+    List<Transaction> findByUidInAndUserUidIn(Collection<UUID> uids, Collection<UUID> userUids);
 }
@@ -0,0 +1,40 @@
+package com.advanced.transactionservice.repository;
+
+import com.advanced.transactionservice.model.TransferLeg;
+import com.advanced.transactionservice.model.TransferLegStatus;
+import com.advanced.transactionservice.model.TransferLegType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TransferLegRepository extends JpaRepository<TransferLeg, UUID> {
+
+    Optional<TransferLeg> findByTransactionUidAndTypeAndUserUid(UUID transactionUid, TransferLegType type, UUID userUid);
+
+    List<TransferLeg> findByTypeAndStatusAndCreatedAtBeforeOrderByCreatedAt(
+            TransferLegType type,
+            TransferLegStatus status,
+            OffsetDateTime createdBefore,
+            Limit limit
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE TransferLeg l SET l.status = :to, l.modifiedAt = offset datetime
+            WHERE l.transactionUid = :transactionUid AND l.type = :type AND l.userUid = :userUid AND l.status = :from
+            """)
+    int changeStatus(
+            @Param("transactionUid") UUID transactionUid,
+            @Param("type") TransferLegType type,
+            @Param("userUid") UUID userUid,
+            @Param("from") TransferLegStatus from,
+            @Param("to") TransferLegStatus to
+    );
+}
@@ -0,0 +1,32 @@
+package com.advanced.transactionservice.repository;
+
+import com.advanced.transactionservice.model.WalletBalanceSlot;
+import com.advanced.transactionservice.repository.LedgerEntryRepository.SlotAmount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface WalletBalanceSlotRepository extends JpaRepository<WalletBalanceSlot, UUID> {
+
+    @Query(value = """
+            SELECT slot, balance AS amount FROM wallet_balance_slots
+            WHERE wallet_uid = :walletUid AND user_uid = :userUid
+            ORDER BY slot
+            """, nativeQuery = true)
+    List<SlotAmount> findBalances(@Param("walletUid") UUID walletUid, @Param("userUid") UUID userUid);
+
+    /**
+     * Locks every slot of the wallet in slot order, waiting for other debits, and returns their
+     * snapshot balances.
+     */
+    @Query(value = """
+            SELECT slot, balance AS amount FROM wallet_balance_slots
+            WHERE wallet_uid = :walletUid AND user_uid = :userUid
+            ORDER BY slot
+            FOR NO KEY UPDATE
+            """, nativeQuery = true)
+    List<SlotAmount> lockBalances(@Param("walletUid") UUID walletUid, @Param("userUid") UUID userUid);
+}
@@ -1,12 +1,12 @@
 package com.advanced.transactionservice.repository;
 
 import com.advanced.transactionservice.model.Wallet;
-import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,7 +16,49 @@ public interface WalletRepository extends JpaRepository<Wallet, UUID> {
 
     Optional<Wallet> findByUidAndUserUid(UUID uid, UUID userUid);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT w FROM Wallet w WHERE w.uid = :id AND w.userUid = :userUid")
-    Optional<Wallet> findForUpdate(@Param("id") UUID id, @Param("userUid") UUID userUid);
+    boolean existsByUidAndUserUid(UUID uid, UUID userUid);
+
+    /**
+     * Locks an active wallet against other debits and returns its snapshot balance, {@code null} if
+     * there is no such active wallet or its balance is split into slots. The lock does not conflict
+     * with the key-share locks taken by ledger entries referencing the wallet, so credits are not blocked.
+     */
+    @Query(value = """
+            SELECT balance FROM wallets
+            WHERE uid = :id AND user_uid = :userUid AND status = 'ACTIVE' AND balance_slots = 1
+            FOR NO KEY UPDATE
+            """, nativeQuery = true)
+    BigDecimal lockSnapshotBalance(@Param("id") UUID id, @Param("userUid") UUID userUid);
+
+    /**
+     * Number of balance slots of the wallet, {@code null} if there is no such wallet.
+     */
+    @Query(value = "SELECT balance_slots FROM wallets WHERE uid = :id AND user_uid = :userUid", nativeQuery = true)
+    Integer findBalanceSlots(@Param("id") UUID id, @Param("userUid") UUID userUid);
+
+    @Query(value = """
+            SELECT balance_slots FROM wallets
+            WHERE uid = :id AND user_uid = :userUid AND status = 'ACTIVE'
+            """, nativeQuery = true)
+    Integer findActiveBalanceSlots(@Param("id") UUID id, @Param("userUid") UUID userUid);
+
+    /**
+     * Locks the wallet the way the ledger compactor does and returns its snapshot balance and slot count.
+     */
+    @Query(value = """
+            SELECT balance, balance_slots AS balanceSlots FROM wallets
+            WHERE uid = :id AND user_uid = :userUid
+            FOR NO KEY UPDATE
+            """, nativeQuery = true)
+    Optional<SlotState> lockSlotState(@Param("id") UUID id, @Param("userUid") UUID userUid);
+
+    @Modifying
+    @Query(value = "UPDATE wallets SET balance_slots = :slots WHERE uid = :id AND user_uid = :userUid", nativeQuery = true)
+    void updateBalanceSlots(@Param("id") UUID id, @Param("userUid") UUID userUid, @Param("slots") int slots);
+
+    interface SlotState {
+        BigDecimal getBalance();
+
+        int getBalanceSlots();
+    }
 }
@@ -1,13 +1,14 @@
 package com.advanced.transactionservice.service;
 
-import java.math.BigDecimal;
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.model.Money;
 
 public interface CalculationFeeService {
 
-    BigDecimal calculationDepositFee(String currency);
+    Money calculationDepositFee(WalletResponse wallet, Money amount);
 
-    BigDecimal calculationWithdrawalFee();
+    Money calculationWithdrawalFee(WalletResponse wallet, Money amount);
 
-    BigDecimal calculationTransferFee();
+    Money calculationTransferFee(WalletResponse wallet, Money amount);
 
 }
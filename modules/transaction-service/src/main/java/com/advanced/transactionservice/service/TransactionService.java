@@ -17,11 +17,11 @@ public interface TransactionService {
 
     TransactionInitResponse initTransfer(@Valid TransferInitRequest request);
 
-    TransactionConfirmResponse confirmDeposit(@Valid DepositConfirmRequest request);
+    TransactionConfirmResponse confirmDeposit(@Valid DepositConfirmRequest request, String idempotencyKey);
 
-    TransactionConfirmResponse confirmWithdrawal(@Valid WithdrawalConfirmRequest request);
+    TransactionConfirmResponse confirmWithdrawal(@Valid WithdrawalConfirmRequest request, String idempotencyKey);
 
-    TransactionConfirmResponse confirmTransfer(@Valid TransferConfirmRequest request);
+    TransactionConfirmResponse confirmTransfer(@Valid TransferConfirmRequest request, String idempotencyKey);
 
     TransactionStatusResponse getTransactionStatus(String transactionId);
 
@@ -31,4 +31,11 @@ public interface TransactionService {
             OffsetDateTime dateFrom, OffsetDateTime dateTo,
             int page, int size
     );
+
+    TransactionPageResponse scrollTransactions(
+            String userUid, String walletUid,
+            PaymentType type, PaymentStatus status,
+            OffsetDateTime dateFrom, OffsetDateTime dateTo,
+            String cursor, int size
+    );
 }
@@ -3,9 +3,12 @@ package com.advanced.transactionservice.service;
 
 import com.advanced.contract.model.CreateWalletRequest;
 import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.model.LedgerAccount;
+import com.advanced.transactionservice.model.Money;
 import jakarta.validation.Valid;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -18,16 +21,31 @@ public interface WalletService {
 
     List<WalletResponse> getWalletsByUser(UUID userUid);
 
+    /**
+     * Balance of the wallet as of the given time, counting every ledger entry made at or before it.
+     */
+    BigDecimal getBalanceAt(UUID walletUid, UUID userUid, OffsetDateTime at);
+
+    /**
+     * Debits the amount and the fee from the source wallet, credits the amount to the target wallet
+     * and books the fee to FEES.
+     */
     void transfer(
+            UUID transactionUid,
             UUID fromWalletUid,
             UUID fromUserUid,
             UUID toWalletUid,
             UUID toUserUid,
-            BigDecimal debitAmount,
-            BigDecimal creditAmount
+            Money amount,
+            Money fee
     );
 
-    void credit(UUID walletUid, UUID userUid, BigDecimal creditAmount);
+    void credit(UUID transactionUid, UUID walletUid, UUID userUid, Money creditAmount, LedgerAccount source);
+
+    void debit(UUID transactionUid, UUID walletUid, UUID userUid, Money debitAmount, LedgerAccount destination);
 
-    void debit(UUID walletUid, UUID userUid, BigDecimal debitAmount);
+    /**
+     * Moves the fee of a transfer from the system account that holds it to FEES.
+     */
+    void collectFee(UUID transactionUid, UUID userUid, Money fee, LedgerAccount source);
 }
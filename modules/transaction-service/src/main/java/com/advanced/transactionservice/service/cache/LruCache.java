@@ -0,0 +1,55 @@
+package com.advanced.transactionservice.service.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory cache that evicts the least recently used entry.
+ * <p>
+ * Guarded by a {@link ReentrantLock} rather than a monitor: on Java 21 a virtual thread that waits
+ * for a monitor keeps its carrier thread, so a contended {@code synchronized} cache on the request
+ * path would pin carriers under load.
+ */
+public class LruCache<K, V> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<K, V> entries;
+
+    public LruCache(int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            entries.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
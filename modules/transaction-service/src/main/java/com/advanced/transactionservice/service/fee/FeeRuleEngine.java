@@ -0,0 +1,91 @@
+package com.advanced.transactionservice.service.fee;
+
+import com.advanced.transactionservice.model.FeeRule;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.WalletType;
+import com.advanced.transactionservice.repository.FeeRuleRepository;
+import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates fees against the {@link FeeSchedule} compiled from the {@code fee_rules} broadcast
+ * table, so the {@code init*} path does not query the database. The rules are re-read every
+ * {@code fees.rules.refresh-interval}; a changed rule set is compiled into a new schedule that
+ * replaces the previous one in a single write, so an evaluation always sees one consistent set.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FeeRuleEngine {
+
+    private final FeeRuleRepository feeRuleRepository;
+
+    private final WalletTypeRepository walletTypeRepository;
+
+    private final TransactionMetricsService metricsService;
+
+    // Чтение правил идет под блокировкой, а монитор на время JDBC-запроса занимал бы поток-носитель виртуального потока
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Loaded loaded;
+
+    /**
+     * Fee of an operation in the currency of its amount.
+     */
+    public Money fee(PaymentType type, UUID walletTypeUid, Money amount) {
+        Loaded current = loaded;
+        if (current == null) {
+            current = refresh();
+        }
+        long fee = current.schedule().fee(type, amount.currency().getCurrencyCode(), walletTypeUid, amount.minorUnits());
+        return Money.ofMinor(fee, amount.currency());
+    }
+
+    @Scheduled(fixedDelayString = "${fees.rules.refresh-interval:PT5S}")
+    public void reload() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить правила комиссий", e);
+        }
+    }
+
+    Loaded refresh() {
+        refreshLock.lock();
+        try {
+            List<FeeRule> rules = feeRuleRepository.findAllByActiveTrueOrderByName();
+            Map<UUID, String> segments = new HashMap<>();
+            for (WalletType walletType : walletTypeRepository.findAll()) {
+                if (walletType.getUserType() != null) {
+                    segments.put(walletType.getUid(), walletType.getUserType());
+                }
+            }
+
+            Loaded current = loaded;
+            if (current != null && current.rules().equals(rules) && current.segments().equals(segments)) {
+                return current;
+            }
+            FeeSchedule schedule = FeeSchedule.compile(rules, segments, metricsService::feeRuleHits);
+            current = new Loaded(rules, segments, schedule);
+            loaded = current;
+            log.info("Загружены правила комиссий: {}", schedule.size());
+            return current;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    record Loaded(List<FeeRule> rules, Map<UUID, String> segments, FeeSchedule schedule) {
+    }
+}
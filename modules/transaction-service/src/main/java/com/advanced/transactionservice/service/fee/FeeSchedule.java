@@ -0,0 +1,198 @@
+package com.advanced.transactionservice.service.fee;
+
+import com.advanced.transactionservice.model.FeeRule;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Immutable fee lookup compiled from {@link FeeRule}s. For every payment type, currency and wallet
+ * type the rules that can apply are resolved in advance, with rules for any currency, any wallet
+ * type and the wallet type's segment merged in, and ordered so that the first matching rule wins:
+ * higher {@code priority} first, then rules with more conditions, then higher amount tiers.
+ * Evaluating a fee is two map lookups and a scan of the amount tiers in {@link Money} minor units;
+ * fixed fees are computed once at compile time.
+ */
+public final class FeeSchedule {
+
+    private static final String ANY_CURRENCY = "";
+
+    // Процент хранится в миллионных долях: 1.5000% = 15 000
+    private static final long RATE_UNIT = 1_000_000;
+
+    private static final Comparator<FeeRule> FIRST_MATCH = Comparator
+            .comparingInt(FeeRule::getPriority).reversed()
+            .thenComparing(Comparator.comparingInt(FeeSchedule::specificity).reversed())
+            .thenComparing(FeeRule::getMinAmount, Comparator.reverseOrder())
+            .thenComparing(FeeRule::getName);
+
+    // Счетчик "none" - операции, для которых не нашлось правила
+    private static final String UNMATCHED = "none";
+
+    private final Map<PaymentType, RuleGroup> rules;
+
+    private final int size;
+
+    private FeeSchedule(Map<PaymentType, RuleGroup> rules, int size) {
+        this.rules = rules;
+        this.size = size;
+    }
+
+    /**
+     * @param segments user segment ({@code wallet_types.user_type}) of every wallet type
+     * @param hits     hit counter of a rule by its name and payment type
+     */
+    public static FeeSchedule compile(
+            Collection<FeeRule> feeRules,
+            Map<UUID, String> segments,
+            BiFunction<String, PaymentType, Counter> hits
+    ) {
+        Set<UUID> walletTypes = new HashSet<>(segments.keySet());
+        feeRules.stream().map(FeeRule::getWalletTypeUid).filter(Objects::nonNull).forEach(walletTypes::add);
+
+        Map<PaymentType, RuleGroup> rules = new EnumMap<>(PaymentType.class);
+        for (PaymentType type : PaymentType.values()) {
+            Map<FeeRule, CompiledRule> ofType = new LinkedHashMap<>();
+            feeRules.stream()
+                    .filter(rule -> rule.getPaymentType() == type)
+                    .sorted(FIRST_MATCH)
+                    .forEach(rule -> ofType.put(rule, new CompiledRule(rule, hits.apply(rule.getName(), type))));
+
+            Set<String> currencies = new HashSet<>();
+            currencies.add(ANY_CURRENCY);
+            ofType.keySet().forEach(rule -> currencies.add(currencyCode(rule)));
+
+            Map<String, Candidates> byCurrency = new HashMap<>();
+            for (String currency : currencies) {
+                Predicate<FeeRule> ofCurrency = rule -> rule.getCurrency() == null || currencyCode(rule).equals(currency);
+                Map<UUID, CompiledRule[]> byWalletType = new HashMap<>();
+                for (UUID walletType : walletTypes) {
+                    String segment = segments.get(walletType);
+                    byWalletType.put(walletType, select(ofType, ofCurrency.and(rule ->
+                            (rule.getWalletTypeUid() == null || rule.getWalletTypeUid().equals(walletType))
+                                    && (rule.getUserSegment() == null || rule.getUserSegment().equals(segment)))));
+                }
+                CompiledRule[] other = select(ofType, ofCurrency.and(rule ->
+                        rule.getWalletTypeUid() == null && rule.getUserSegment() == null));
+                byCurrency.put(currency, new Candidates(Map.copyOf(byWalletType), other));
+            }
+            rules.put(type, new RuleGroup(Map.copyOf(byCurrency), hits.apply(UNMATCHED, type)));
+        }
+        return new FeeSchedule(rules, feeRules.size());
+    }
+
+    /**
+     * Fee of an operation in minor units; zero if no rule matches.
+     */
+    public long fee(PaymentType type, String currency, UUID walletTypeUid, long amount) {
+        RuleGroup group = rules.get(type);
+        Candidates candidates = currency == null ? null : group.byCurrency().get(currency);
+        if (candidates == null) {
+            candidates = group.byCurrency().get(ANY_CURRENCY);
+        }
+
+        for (CompiledRule rule : candidates.of(walletTypeUid)) {
+            if (amount >= rule.minAmount) {
+                rule.hits.increment();
+                return rule.fee(amount);
+            }
+        }
+        group.unmatched().increment();
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static CompiledRule[] select(Map<FeeRule, CompiledRule> rules, Predicate<FeeRule> filter) {
+        return rules.entrySet().stream()
+                .filter(rule -> filter.test(rule.getKey()))
+                .map(Map.Entry::getValue)
+                .toArray(CompiledRule[]::new);
+    }
+
+    private static int specificity(FeeRule rule) {
+        return (rule.getWalletTypeUid() != null ? 4 : 0)
+                + (rule.getUserSegment() != null ? 2 : 0)
+                + (rule.getCurrency() != null ? 1 : 0);
+    }
+
+    private static String currencyCode(FeeRule rule) {
+        return rule.getCurrency() == null ? ANY_CURRENCY : rule.getCurrency().getCurrencyCode();
+    }
+
+    private record RuleGroup(Map<String, Candidates> byCurrency, Counter unmatched) {
+    }
+
+    // other - правила без условий на тип кошелька и сегмент, для неизвестных типов кошельков
+    private record Candidates(Map<UUID, CompiledRule[]> byWalletType, CompiledRule[] other) {
+
+        CompiledRule[] of(UUID walletTypeUid) {
+            CompiledRule[] rules = walletTypeUid == null ? null : byWalletType.get(walletTypeUid);
+            return rules != null ? rules : other;
+        }
+    }
+
+    private static final class CompiledRule {
+
+        private final long minAmount;
+
+        private final long fixedFee;
+
+        // 0 - комиссия только фиксированная, считается один раз при компиляции
+        private final long rate;
+
+        private final long minFee;
+
+        // Long.MAX_VALUE - без ограничения сверху
+        private final long maxFee;
+
+        // Границы в единицах точного значения процентной комиссии
+        private final long minExact;
+
+        private final long maxExact;
+
+        private final Counter hits;
+
+        private CompiledRule(FeeRule rule, Counter hits) {
+            this.minAmount = Money.toMinorUnits(rule.getMinAmount());
+            this.minFee = Money.toMinorUnits(rule.getMinFee());
+            this.maxFee = rule.getMaxFee() == null ? Long.MAX_VALUE : Money.toMinorUnits(rule.getMaxFee());
+            this.hits = hits;
+            this.rate = rule.getPercentFee().movePointRight(4).longValueExact();
+            long fixed = Money.toMinorUnits(rule.getFixedFee());
+            this.fixedFee = rate == 0 ? Math.max(minFee, Math.min(fixed, maxFee)) : fixed;
+            this.minExact = Math.multiplyExact(minFee, RATE_UNIT);
+            this.maxExact = maxFee == Long.MAX_VALUE ? Long.MAX_VALUE : Math.multiplyExact(maxFee, RATE_UNIT);
+        }
+
+        private long fee(long amount) {
+            if (rate == 0) {
+                return fixedFee;
+            }
+            // Границы применяются к точному значению, округление - последним, как и раньше
+            long exact = Math.addExact(Math.multiplyExact(amount, rate), Math.multiplyExact(fixedFee, RATE_UNIT));
+            if (exact < minExact) {
+                return minFee;
+            }
+            if (exact > maxExact) {
+                return maxFee;
+            }
+            return roundHalfEven(exact);
+        }
+
+        private static long roundHalfEven(long value) {
+            long quotient = Math.floorDiv(value, RATE_UNIT);
+            long twice = Math.floorMod(value, RATE_UNIT) * 2;
+            if (twice > RATE_UNIT || twice == RATE_UNIT && (quotient & 1) != 0) {
+                quotient++;
+            }
+            return quotient;
+        }
+    }
+}
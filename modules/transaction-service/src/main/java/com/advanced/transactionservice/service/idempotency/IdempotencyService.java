@@ -0,0 +1,207 @@
+package com.advanced.transactionservice.service.idempotency;
+
+import com.advanced.contract.model.TransactionConfirmResponse;
+import com.advanced.transactionservice.exception.IdempotencyKeyConflictException;
+import com.advanced.transactionservice.exception.IdempotencyKeyMismatchException;
+import com.advanced.transactionservice.model.IdempotencyKey;
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.repository.IdempotencyKeyRepository;
+import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.service.cache.LruCache;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates confirm requests by the client's {@code Idempotency-Key}.
+ * <p>
+ * The key is written on the user's shard in the same local transaction that creates the
+ * {@link Transaction}, so it is committed exactly when the money moves. A unique constraint on
+ * (user_uid, idempotency_key) rejects a concurrent duplicate, which then replays the winner's
+ * result. Recent results are also kept in a bounded in-memory cache, so most retries are answered
+ * without a database round trip.
+ * <p>
+ * A key is looked up by the source wallet before the wallet itself is read: the wallet UID carries
+ * the owner's routing key, so the lookup goes to one shard. A stored key only answers a retry with
+ * the same {@link IdempotentRequest#fingerprint() request fingerprint}. A result recorded while the
+ * transaction was still pending is replayed with the transaction's current status.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final TransactionMetricsService metricsService;
+
+    private final LruCache<String, IdempotencyKey> recent;
+
+    @Value("${idempotency.retention:1d}")
+    private Duration retention;
+
+    public IdempotencyService(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            TransactionRepository transactionRepository,
+            TransactionMetricsService metricsService,
+            @Value("${idempotency.cache.max-size:10000}") int cacheMaxSize
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRepository = transactionRepository;
+        this.metricsService = metricsService;
+        this.recent = new LruCache<>(cacheMaxSize);
+    }
+
+    /**
+     * Runs {@code action} unless a result for the key is already stored, in which case the stored
+     * response is returned. The action must call {@link #record} in the transaction that creates
+     * the transaction. Without a key ({@code request == null}) the action just runs.
+     *
+     * @throws IdempotencyKeyConflictException the key was used for another operation
+     * @throws IdempotencyKeyMismatchException the key was used for a request with another body
+     */
+    public TransactionConfirmResponse execute(
+            IdempotentRequest request,
+            PaymentType operation,
+            Supplier<TransactionConfirmResponse> action
+    ) {
+        if (request == null) {
+            return action.get();
+        }
+
+        Optional<IdempotencyKey> stored = find(request, operation);
+        if (stored.isPresent()) {
+            return replay(stored.get());
+        }
+
+        try {
+            return action.get();
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный запрос с тем же ключом закоммитился первым
+            return find(request, operation)
+                    .map(this::replay)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(IdempotentRequest request, PaymentType operation, Transaction transaction) {
+        if (request == null) {
+            return;
+        }
+
+        IdempotencyKey idempotencyKey = new IdempotencyKey();
+        idempotencyKey.setUserUid(transaction.getUserUid());
+        idempotencyKey.setWalletUid(request.walletUid());
+        idempotencyKey.setKey(request.key());
+        idempotencyKey.setOperation(operation);
+        idempotencyKey.setTransactionUid(transaction.getUid());
+        idempotencyKey.setStatus(transaction.getStatus());
+        idempotencyKey.setRequestHash(request.fingerprint());
+        idempotencyKeyRepository.saveAndFlush(idempotencyKey);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recent.put(cacheKey(request), idempotencyKey);
+            }
+        });
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${idempotency.cleanup.interval:PT10M}")
+    public void cleanup() {
+        int deleted = idempotencyKeyRepository.deleteCreatedBefore(OffsetDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Удалено {} устаревших ключей идемпотентности", deleted);
+        }
+    }
+
+    private Optional<IdempotencyKey> find(IdempotentRequest request, PaymentType operation) {
+        String cacheKey = cacheKey(request);
+        IdempotencyKey stored = recent.get(cacheKey);
+        String source = "cache";
+        if (stored == null) {
+            stored = idempotencyKeyRepository.findByWalletUidAndKey(request.walletUid(), request.key()).orElse(null);
+            source = "db";
+        }
+        if (stored == null) {
+            return Optional.empty();
+        }
+
+        if (stored.getOperation() != operation) {
+            throw new IdempotencyKeyConflictException();
+        }
+        // У ключей, записанных до отпечатков, сверять нечего
+        if (stored.getRequestHash() != null && !stored.getRequestHash().equals(request.fingerprint())) {
+            throw new IdempotencyKeyMismatchException();
+        }
+        recent.put(cacheKey, stored);
+        metricsService.incrementIdempotentReplay(source, operation);
+        return Optional.of(stored);
+    }
+
+    /**
+     * Answers a retry. While the stored result is pending the transaction's current status is read,
+     * e.g. a cross-shard transfer is recorded at hold time and settles afterwards. A final status
+     * replaces the cached entry, so later retries do not read the transaction again.
+     */
+    private TransactionConfirmResponse replay(IdempotencyKey stored) {
+        IdempotencyKey result = stored;
+        if (stored.getStatus() == PaymentStatus.PENDING) {
+            PaymentStatus current = transactionRepository.findByUidAndUserUid(stored.getTransactionUid(), stored.getUserUid())
+                    .map(Transaction::getStatus)
+                    .orElse(PaymentStatus.PENDING);
+            if (current != PaymentStatus.PENDING) {
+                result = withStatus(stored, current);
+                recent.put(cacheKey(result.getWalletUid(), result.getKey()), result);
+            }
+        }
+
+        TransactionConfirmResponse response = new TransactionConfirmResponse();
+        response.setTransactionUid(result.getTransactionUid());
+        response.setStatus(result.getStatus() == PaymentStatus.COMPLETED
+                ? TransactionConfirmResponse.StatusEnum.COMPLETED
+                : TransactionConfirmResponse.StatusEnum.PENDING);
+        return response;
+    }
+
+    // Копия, а не изменение: закешированный объект читают другие потоки
+    private static IdempotencyKey withStatus(IdempotencyKey stored, PaymentStatus status) {
+        IdempotencyKey copy = new IdempotencyKey();
+        copy.setUid(stored.getUid());
+        copy.setCreatedAt(stored.getCreatedAt());
+        copy.setUserUid(stored.getUserUid());
+        copy.setWalletUid(stored.getWalletUid());
+        copy.setKey(stored.getKey());
+        copy.setOperation(stored.getOperation());
+        copy.setTransactionUid(stored.getTransactionUid());
+        copy.setStatus(status);
+        copy.setRequestHash(stored.getRequestHash());
+        return copy;
+    }
+
+    private static String cacheKey(IdempotentRequest request) {
+        return cacheKey(request.walletUid(), request.key());
+    }
+
+    private static String cacheKey(UUID walletUid, String key) {
+        return walletUid + ":" + key;
+    }
+}
@@ -0,0 +1,53 @@
+package com.advanced.transactionservice.service.idempotency;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * {@code Idempotency-Key} of a confirm request, the source wallet it is looked up by and a
+ * fingerprint of the request body. A retry must repeat the body; the same key with another body is
+ * rejected rather than answered with the first request's result.
+ *
+ * @param fingerprint SHA-256 of the wallets, amount, fee, currency and quote of the request as sent
+ */
+public record IdempotentRequest(String key, UUID walletUid, String fingerprint) {
+
+    /**
+     * @return {@code null} without a key, so the request is not deduplicated
+     */
+    public static IdempotentRequest of(
+            String key,
+            UUID walletUid,
+            UUID targetWalletUid,
+            BigDecimal amount,
+            BigDecimal fee,
+            String currency,
+            UUID quoteUid
+    ) {
+        if (key == null) {
+            return null;
+        }
+        // Сумма без хвостовых нулей: 100.0 и 100.00 - один и тот же запрос, как и при сверке с котировкой
+        String body = String.join("|",
+                String.valueOf(walletUid),
+                String.valueOf(targetWalletUid),
+                amount != null ? amount.stripTrailingZeros().toPlainString() : "null",
+                fee != null ? fee.stripTrailingZeros().toPlainString() : "null",
+                String.valueOf(currency),
+                String.valueOf(quoteUid));
+        return new IdempotentRequest(key, walletUid, sha256(body));
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
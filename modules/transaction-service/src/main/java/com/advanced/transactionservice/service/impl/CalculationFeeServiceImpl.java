@@ -1,29 +1,36 @@
 package com.advanced.transactionservice.service.impl;
 
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
 import com.advanced.transactionservice.service.CalculationFeeService;
+import com.advanced.transactionservice.service.fee.FeeRuleEngine;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-
 @Service
+@RequiredArgsConstructor
 public class CalculationFeeServiceImpl implements CalculationFeeService {
 
+    private final FeeRuleEngine feeRuleEngine;
+
     @Override
-    public BigDecimal calculationDepositFee(String currency) {
-        //Тут какая-нибудь бизнес логика расчета комиссии
-        return BigDecimal.ZERO;
+    public Money calculationDepositFee(WalletResponse wallet, Money amount) {
+        return fee(PaymentType.DEPOSIT, wallet, amount);
     }
 
     @Override
-    public BigDecimal calculationWithdrawalFee() {
-        //Тут какая-нибудь бизнес логика расчета комиссии
-        return BigDecimal.valueOf(0.15);
+    public Money calculationWithdrawalFee(WalletResponse wallet, Money amount) {
+        return fee(PaymentType.WITHDRAWAL, wallet, amount);
     }
 
     @Override
-    public BigDecimal calculationTransferFee() {
-        //Тут какая-нибудь бизнес логика расчета комиссии
-        return BigDecimal.valueOf(0.10);
+    public Money calculationTransferFee(WalletResponse wallet, Money amount) {
+        return fee(PaymentType.TRANSFER, wallet, amount);
+    }
+
+    private Money fee(PaymentType type, WalletResponse wallet, Money amount) {
+        return feeRuleEngine.fee(type, wallet.getWalletTypeUid(), amount);
     }
 
 }
@@ -2,31 +2,48 @@ package com.advanced.transactionservice.service.impl;
 
 import com.advanced.contract.model.*;
 import com.advanced.transactionservice.mapper.KafkaPayloadMapper;
+import com.advanced.transactionservice.mapper.TransactionCursorMapper;
 import com.advanced.transactionservice.mapper.TransactionMapper;
+import com.advanced.transactionservice.mapper.TransactionQuoteMapper;
+import com.advanced.transactionservice.model.LedgerAccount;
+import com.advanced.transactionservice.model.Money;
 import com.advanced.transactionservice.model.PaymentStatus;
 import com.advanced.transactionservice.model.PaymentType;
 import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.model.TransactionQuote;
 import com.advanced.transactionservice.repository.TransactionRepository;
 import com.advanced.transactionservice.repository.specification.TransactionSpecifications;
 import com.advanced.transactionservice.service.CalculationFeeService;
 import com.advanced.transactionservice.service.TransactionService;
 import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.service.idempotency.IdempotencyService;
+import com.advanced.transactionservice.service.idempotency.IdempotentRequest;
 import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.partition.TransactionColdStorage;
+import com.advanced.transactionservice.service.quote.TransactionQuoteService;
 import com.advanced.transactionservice.service.producer.DepositRequestedProducer;
 import com.advanced.transactionservice.service.producer.WithdrawalRequestedProducer;
+import com.advanced.transactionservice.service.transfer.TransferEngine;
 import com.advanced.transactionservice.service.validation.TransactionValidation;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static com.advanced.contract.model.TransactionConfirmResponse.StatusEnum.PENDING;
@@ -49,107 +66,138 @@ public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionMetricsService metricsService;
 
+    private final TransferEngine transferEngine;
+
+    private final IdempotencyService idempotencyService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionColdStorage coldStorage;
+
+    private final TransactionQuoteService quoteService;
+
+    @Value("${transactions.partitions.retention-months:24}")
+    private int retentionMonths;
+
     @Override
-    @Transactional(readOnly = true)
     public TransactionInitResponse initDeposit(DepositInitRequest request) {
         WalletResponse wallet = walletService.getWalletByUid(request.getWalletUid());
 
-        BigDecimal fee = calculationFeeService.calculationDepositFee(request.getCurrency());
-        BigDecimal totalAmount = request.getAmount().add(fee).setScale(2, RoundingMode.HALF_EVEN);
+        Money amount = amount(request.getAmount(), request.getCurrency(), wallet);
+        Money fee = calculationFeeService.calculationDepositFee(wallet, amount);
+        Money totalAmount = amount.plus(fee);
 
         transactionValidation.validateDeposit(wallet);
 
         return getTransactionInitResponse(
+                quoteService.issue(PaymentType.DEPOSIT, wallet, null, amount, fee),
                 fee,
-                request.getAmount(),
+                amount,
                 totalAmount
         );
     }
 
     @Override
-    @Transactional(readOnly = true)
     public TransactionInitResponse initWithdrawal(WithdrawalInitRequest request) {
         WalletResponse wallet = walletService.getWalletByUid(request.getWalletUid());
 
-        BigDecimal fee = calculationFeeService.calculationWithdrawalFee();
-        BigDecimal totalAmount = request.getAmount().add(fee).setScale(2, RoundingMode.HALF_EVEN);
+        Money amount = amount(request.getAmount(), request.getCurrency(), wallet);
+        Money fee = calculationFeeService.calculationWithdrawalFee(wallet, amount);
+        Money totalAmount = amount.plus(fee);
 
         transactionValidation.validateWithdrawal(wallet, totalAmount);
 
         return getTransactionInitResponse(
+                quoteService.issue(PaymentType.WITHDRAWAL, wallet, null, amount, fee),
                 fee,
-                request.getAmount(),
+                amount,
                 totalAmount
         );
     }
 
     @Override
-    @Transactional(readOnly = true)
     public TransactionInitResponse initTransfer(TransferInitRequest request) {
         WalletResponse fromWalletUid = walletService.getWalletByUid(request.getFromWalletUid());
         WalletResponse toWalletUid = walletService.getWalletByUid(request.getToWalletUid());
 
-        BigDecimal fee = calculationFeeService.calculationTransferFee();
-        BigDecimal totalAmount = request.getAmount().add(fee).setScale(2, RoundingMode.HALF_EVEN);
+        Money amount = amount(request.getAmount(), request.getCurrency(), fromWalletUid);
+        Money fee = calculationFeeService.calculationTransferFee(fromWalletUid, amount);
+        Money totalAmount = amount.plus(fee);
 
         transactionValidation.validateTransfer(fromWalletUid, toWalletUid, totalAmount);
 
         return getTransactionInitResponse(
+                quoteService.issue(PaymentType.TRANSFER, fromWalletUid, toWalletUid, amount, fee),
                 fee,
-                request.getAmount(),
+                amount,
                 totalAmount
         );
     }
 
     @Override
-    @Transactional
-    public TransactionConfirmResponse confirmDeposit(DepositConfirmRequest request) {
-        WalletResponse wallet = walletService.getWalletByUid(request.getWalletUid());
-
-        Transaction transaction = TransactionMapper.fromDeposit(request, wallet);
-
-        transactionRepository.saveAndFlush(transaction);
-        depositRequestedProducer.send(KafkaPayloadMapper.toDepositRequestedPayload(transaction));
-
-        metricsService.writeMetrics(PaymentStatus.PENDING, PaymentType.DEPOSIT);
-        return getConfirmResponse(transaction.getUid());
+    public TransactionConfirmResponse confirmDeposit(DepositConfirmRequest request, String idempotencyKey) {
+        IdempotentRequest idempotent = IdempotentRequest.of(idempotencyKey, request.getWalletUid(), null,
+                request.getAmount(), request.getFee(), request.getCurrency(), request.getQuoteUid());
+
+        // Ключ ищется до котировки и чтения кошелька, повтор их не читает
+        return idempotencyService.execute(idempotent, PaymentType.DEPOSIT, () -> {
+            Optional<TransactionQuote> quote = quoteService.find(request.getQuoteUid(), PaymentType.DEPOSIT);
+            quote.ifPresent(q -> quoteService.checkRequest(
+                    q, request.getWalletUid(), null, request.getAmount(), request.getFee(), request.getCurrency()));
+
+            WalletResponse wallet = quote.map(TransactionQuoteMapper::toWallet)
+                    .orElseGet(() -> walletService.getWalletByUid(request.getWalletUid()));
+            Money amount = quote.map(TransactionQuoteMapper::amount)
+                    .orElseGet(() -> Money.of(request.getAmount(), request.getCurrency()));
+            Money fee = quote.map(TransactionQuoteMapper::fee)
+                    .orElseGet(() -> Money.of(request.getFee(), amount.currency()));
+
+            return transactionTemplate.execute(status -> deposit(request, wallet, amount, fee, idempotent));
+        });
     }
 
     @Override
-    @Transactional
-    public TransactionConfirmResponse confirmWithdrawal(WithdrawalConfirmRequest request) {
-        WalletResponse wallet = walletService.getWalletByUid(request.getWalletUid());
-
-        transactionValidation.validateWithdrawal(wallet, request.getAmount());
-
-        walletService.debit(wallet.getWalletUid(), wallet.getUserUid(), request.getAmount());
-
-        Transaction transaction = TransactionMapper.fromWithdrawal(request, wallet);
-        transactionRepository.saveAndFlush(transaction);
-
-        withdrawalRequestedProducer.send(KafkaPayloadMapper.toWithdrawalRequestedPayload(transaction, request.getDestination()));
-
-        metricsService.writeMetrics(PaymentStatus.PENDING, PaymentType.WITHDRAWAL);
-        return getConfirmResponse(transaction.getUid());
+    public TransactionConfirmResponse confirmWithdrawal(WithdrawalConfirmRequest request, String idempotencyKey) {
+        IdempotentRequest idempotent = IdempotentRequest.of(idempotencyKey, request.getWalletUid(), null,
+                request.getAmount(), request.getFee(), request.getCurrency(), request.getQuoteUid());
+
+        return idempotencyService.execute(idempotent, PaymentType.WITHDRAWAL, () -> {
+            Optional<TransactionQuote> quote = quoteService.find(request.getQuoteUid(), PaymentType.WITHDRAWAL);
+            quote.ifPresent(q -> quoteService.checkRequest(
+                    q, request.getWalletUid(), null, request.getAmount(), request.getFee(), request.getCurrency()));
+
+            WalletResponse wallet = quote.map(TransactionQuoteMapper::toWallet)
+                    .orElseGet(() -> walletService.getWalletByUid(request.getWalletUid()));
+            Money amount = quote.map(TransactionQuoteMapper::amount)
+                    .orElseGet(() -> Money.of(request.getAmount(), request.getCurrency()));
+            Money fee = quote.map(TransactionQuoteMapper::fee)
+                    .orElseGet(() -> Money.of(request.getFee(), amount.currency()));
+
+            return transactionTemplate.execute(status -> withdraw(request, wallet, amount, fee, quote.isEmpty(), idempotent));
+        });
     }
 
     @Override
-    @Transactional
-    public TransactionConfirmResponse confirmTransfer(TransferConfirmRequest request) {
-        WalletResponse fromWallet = walletService.getWalletByUid(request.getWalletUid());
-        WalletResponse toWallet = walletService.getWalletByUid(request.getTargetWalletUid());
-
-        walletService.transfer(fromWallet.getWalletUid(), fromWallet.getUserUid(), toWallet.getWalletUid(), toWallet.getUserUid(), request.getAmount().add(request.getFee()), request.getAmount());
-
-        Transaction transaction = TransactionMapper.fromTransfer(
-                request,
-                fromWallet,
-                toWallet.getWalletUid()
-        );
-        transactionRepository.save(transaction);
-
-        metricsService.writeMetrics(PaymentStatus.COMPLETED, PaymentType.TRANSFER);
-        return getConfirmResponse(transaction.getUid(), TransactionConfirmResponse.StatusEnum.COMPLETED);
+    public TransactionConfirmResponse confirmTransfer(TransferConfirmRequest request, String idempotencyKey) {
+        IdempotentRequest idempotent = IdempotentRequest.of(idempotencyKey, request.getWalletUid(), request.getTargetWalletUid(),
+                request.getAmount(), request.getFee(), request.getCurrency(), request.getQuoteUid());
+
+        return idempotencyService.execute(idempotent, PaymentType.TRANSFER, () -> {
+            Optional<TransactionQuote> quote = quoteService.find(request.getQuoteUid(), PaymentType.TRANSFER);
+            quote.ifPresent(q -> quoteService.checkRequest(
+                    q, request.getWalletUid(), request.getTargetWalletUid(), request.getAmount(), request.getFee(), request.getCurrency()));
+
+            WalletResponse fromWallet = quote.map(TransactionQuoteMapper::toWallet)
+                    .orElseGet(() -> walletService.getWalletByUid(request.getWalletUid()));
+            WalletResponse toWallet = quote.map(TransactionQuoteMapper::toTargetWallet)
+                    .orElseGet(() -> walletService.getWalletByUid(request.getTargetWalletUid()));
+            Money amount = quote.map(TransactionQuoteMapper::amount)
+                    .orElseGet(() -> Money.of(request.getAmount(), request.getCurrency()));
+            Money fee = quote.map(TransactionQuoteMapper::fee)
+                    .orElseGet(() -> Money.of(request.getFee(), amount.currency()));
+
+            return transfer(request, fromWallet, toWallet, amount, fee, idempotent);
+        });
     }
 
     @Override
@@ -176,18 +224,132 @@ public class TransactionServiceImpl implements TransactionService {
             int size
     ) {
         Specification<Transaction> spec = TransactionSpecifications.withFilters(userUid, walletUid, type, status, dateFrom, dateTo);
-        return transactionRepository
-                .findAll(spec, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt")))
-                .stream()
+        Page<Transaction> hot = transactionRepository.findAll(spec, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        List<Transaction> transactions = new ArrayList<>(hot.getContent());
+        if (transactions.size() < size && reachesColdStorage(dateFrom)) {
+            // Архивные строки старше любой строки горячей таблицы, поэтому страница продолжается ими
+            long skip = Math.max(0, (long) page * size - hot.getTotalElements());
+            int limit = Math.toIntExact(skip + size - transactions.size());
+            coldStorage.search(userUid, walletUid, type, status, dateFrom, dateTo, limit).stream()
+                    .skip(skip)
+                    .forEach(transactions::add);
+        }
+
+        return transactions.stream()
                 .map(TransactionMapper::toTransactionStatusResponse)
                 .toList();
     }
 
-    private TransactionInitResponse getTransactionInitResponse(BigDecimal fee, BigDecimal amount, BigDecimal totalAmount) {
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionPageResponse scrollTransactions(
+            String userUid,
+            String walletUid,
+            PaymentType type,
+            PaymentStatus status,
+            OffsetDateTime dateFrom,
+            OffsetDateTime dateTo,
+            String cursor,
+            int size
+    ) {
+        Specification<Transaction> spec = TransactionSpecifications.withFilters(userUid, walletUid, type, status, dateFrom, dateTo);
+        Window<Transaction> window = transactionRepository.findBy(spec, query -> query
+                .sortBy(TransactionCursorMapper.SORT)
+                .limit(size)
+                .scroll(TransactionCursorMapper.toPosition(cursor)));
+
+        TransactionPageResponse response = new TransactionPageResponse();
+        response.setItems(window.stream().map(TransactionMapper::toTransactionStatusResponse).toList());
+        if (window.hasNext()) {
+            response.setNextCursor(TransactionCursorMapper.toCursor(window.getContent().getLast()));
+        }
+        return response;
+    }
+
+    // Секции старше срока хранения выгружены в холодное хранилище; без dateFrom ищем только в горячей таблице
+    private boolean reachesColdStorage(OffsetDateTime dateFrom) {
+        if (retentionMonths <= 0 || dateFrom == null) {
+            return false;
+        }
+        OffsetDateTime hotFrom = YearMonth.now().minusMonths(retentionMonths).atDay(1)
+                .atStartOfDay(ZoneId.systemDefault())
+                .toOffsetDateTime();
+        return dateFrom.isBefore(hotFrom);
+    }
+
+    private TransactionConfirmResponse deposit(
+            DepositConfirmRequest request,
+            WalletResponse wallet,
+            Money amount,
+            Money fee,
+            IdempotentRequest idempotent
+    ) {
+        Transaction transaction = TransactionMapper.fromDeposit(request, wallet, amount, fee);
+
+        transactionRepository.saveAndFlush(transaction);
+        idempotencyService.record(idempotent, PaymentType.DEPOSIT, transaction);
+        depositRequestedProducer.send(KafkaPayloadMapper.toDepositRequestedPayload(transaction));
+
+        metricsService.writeMetrics(PaymentStatus.PENDING, PaymentType.DEPOSIT);
+        return getConfirmResponse(transaction.getUid());
+    }
+
+    private TransactionConfirmResponse withdraw(
+            WithdrawalConfirmRequest request,
+            WalletResponse wallet,
+            Money amount,
+            Money fee,
+            boolean validate,
+            IdempotentRequest idempotent
+    ) {
+        // По котировке кошелек уже проверен в init; статус и баланс все равно проверяет списание под блокировкой
+        if (validate) {
+            transactionValidation.validateWithdrawal(wallet, amount);
+        }
+
+        Transaction transaction = TransactionMapper.fromWithdrawal(request, wallet, amount, fee);
+        transactionRepository.saveAndFlush(transaction);
+        walletService.debit(transaction.getUid(), wallet.getWalletUid(), wallet.getUserUid(), amount, LedgerAccount.EXTERNAL);
+        idempotencyService.record(idempotent, PaymentType.WITHDRAWAL, transaction);
+
+        withdrawalRequestedProducer.send(KafkaPayloadMapper.toWithdrawalRequestedPayload(transaction, request.getDestination()));
+
+        metricsService.writeMetrics(PaymentStatus.PENDING, PaymentType.WITHDRAWAL);
+        return getConfirmResponse(transaction.getUid());
+    }
+
+    private TransactionConfirmResponse transfer(
+            TransferConfirmRequest request,
+            WalletResponse fromWallet,
+            WalletResponse toWallet,
+            Money amount,
+            Money fee,
+            IdempotentRequest idempotent
+    ) {
+        Transaction transaction = transferEngine.transfer(request, fromWallet, toWallet, amount, fee, idempotent);
+
+        if (transaction.getStatus() != PaymentStatus.COMPLETED) {
+            metricsService.writeMetrics(PaymentStatus.PENDING, PaymentType.TRANSFER);
+            return getConfirmResponse(transaction.getUid());
+        }
+
+        metricsService.writeMetrics(PaymentStatus.COMPLETED, PaymentType.TRANSFER);
+        return getConfirmResponse(transaction.getUid(), TransactionConfirmResponse.StatusEnum.COMPLETED);
+    }
+
+    // Валюта перевода необязательна, тогда сумма и комиссия считаются в валюте кошелька
+    private static Money amount(BigDecimal amount, String currency, WalletResponse wallet) {
+        return Money.of(amount, currency != null ? currency : wallet.getCurrency());
+    }
+
+    private TransactionInitResponse getTransactionInitResponse(TransactionQuote quote, Money fee, Money amount, Money totalAmount) {
         TransactionInitResponse response = new TransactionInitResponse();
-        response.setFee(fee);
-        response.setAmount(amount);
-        response.setTotalAmount(totalAmount);
+        response.setQuoteUid(quote.getUid());
+        response.setExpiresAt(quote.getExpiresAt());
+        response.setFee(fee.toBigDecimal());
+        response.setAmount(amount.toBigDecimal());
+        response.setTotalAmount(totalAmount.toBigDecimal());
         return response;
     }
 
@@ -2,22 +2,34 @@ package com.advanced.transactionservice.service.impl;
 
 import com.advanced.contract.model.CreateWalletRequest;
 import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.exception.WalletBalanceException;
+import com.advanced.transactionservice.exception.WalletStatusException;
 import com.advanced.transactionservice.mapper.WalletMapper;
+import com.advanced.transactionservice.model.LedgerAccount;
+import com.advanced.transactionservice.model.LedgerEntry;
+import com.advanced.transactionservice.model.Money;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.model.WalletStatus;
 import com.advanced.transactionservice.model.WalletType;
+import com.advanced.transactionservice.repository.LedgerEntryRepository;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.service.WalletService;
 import com.advanced.transactionservice.service.WalletTypeService;
+import com.advanced.transactionservice.service.ledger.BalanceSlots;
+import com.advanced.transactionservice.service.lock.HotWalletDetector;
+import com.advanced.transactionservice.service.lock.WalletLockManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -30,8 +42,16 @@ public class WalletServiceImpl implements WalletService {
 
     private final WalletRepository walletRepository;
 
+    private final LedgerEntryRepository ledgerEntryRepository;
+
     private final WalletMapper walletMapper;
 
+    private final WalletLockManager walletLockManager;
+
+    private final BalanceSlots balanceSlots;
+
+    private final HotWalletDetector hotWalletDetector;
+
     @Override
     @Transactional
     public WalletResponse createWallet(CreateWalletRequest request) {
@@ -46,75 +66,166 @@ public class WalletServiceImpl implements WalletService {
         return walletMapper.toResponse(saved);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public WalletResponse getWalletByUid(UUID walletUid) {
         Wallet wallet = walletRepository.findById(walletUid)
                 .orElseThrow(() -> new EntityNotFoundException("Wallet not found"));
-        return walletMapper.toResponse(wallet);
+        return toResponse(wallet, ledgerEntryRepository.sumPending(walletUid, wallet.getUserUid()));
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public WalletResponse getWalletByUid(UUID walletUid, UUID userUid) {
         Wallet wallet = walletRepository.findByUidAndUserUid(walletUid, userUid)
                 .orElseThrow(() -> new EntityNotFoundException("Wallet not found"));
-        return walletMapper.toResponse(wallet);
+        return toResponse(wallet, ledgerEntryRepository.sumPending(walletUid, userUid));
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public List<WalletResponse> getWalletsByUser(UUID userUid) {
-        return Optional.ofNullable(walletRepository.findByUserUid(userUid))
-                .orElse(Collections.emptyList())
-                .stream()
-                .map(walletMapper::toResponse)
+        List<Wallet> wallets = Optional.ofNullable(walletRepository.findByUserUid(userUid)).orElse(Collections.emptyList());
+        if (wallets.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<UUID, BigDecimal> pending = ledgerEntryRepository.sumPendingByWallet(userUid).stream()
+                .collect(Collectors.toMap(LedgerEntryRepository.WalletAmount::getWalletUid, LedgerEntryRepository.WalletAmount::getAmount));
+        return wallets.stream()
+                .map(wallet -> toResponse(wallet, pending.getOrDefault(wallet.getUid(), BigDecimal.ZERO)))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public BigDecimal getBalanceAt(UUID walletUid, UUID userUid, OffsetDateTime at) {
+        if (!walletRepository.existsByUidAndUserUid(walletUid, userUid)) {
+            throw new EntityNotFoundException("Wallet not found");
+        }
+        // Ни снимка, ни начального баланса на этот момент нет - кошелька тогда еще не было
+        return ledgerEntryRepository.findSnapshotAt(walletUid, userUid, at)
+                .or(() -> ledgerEntryRepository.findOpeningBalance(walletUid, userUid, at))
+                .map(snapshot -> snapshot.getBalance()
+                        .add(ledgerEntryRepository.sumAfterSnapshot(walletUid, userUid, snapshot.getVersion(), at)))
+                .orElse(BigDecimal.ZERO);
+    }
+
     @Override
     @Transactional
-    public synchronized void transfer(
+    public void transfer(
+            UUID transactionUid,
             UUID fromWalletUid,
             UUID fromUserUid,
             UUID toWalletUid,
             UUID toUserUid,
-            BigDecimal debitAmount,
-            BigDecimal creditAmount
+            Money amount,
+            Money fee
     ) {
-        Wallet from = walletRepository.findForUpdate(fromWalletUid, fromUserUid)
-                .orElseThrow(() -> new EntityNotFoundException("Wallet not found"));
-        Wallet to = walletRepository.findForUpdate(toWalletUid, toUserUid)
-                .orElseThrow(() -> new EntityNotFoundException("Wallet not found"));
-
-        debit(from, debitAmount);
-        credit(to, creditAmount);
+        int creditSlot = creditSlot(toWalletUid, toUserUid);
+
+        // Сумма и комиссия те же, что в транзакции, поэтому и BigDecimal у проводок тот же
+        List<LedgerEntry> entries = debitEntries(transactionUid, fromWalletUid, fromUserUid, amount.plus(fee));
+        entries.add(LedgerEntry.wallet(transactionUid, toWalletUid, toUserUid, creditSlot, amount));
+        if (!fee.isZero()) {
+            entries.add(LedgerEntry.system(transactionUid, LedgerAccount.FEES, fromUserUid, fee));
+        }
+        ledgerEntryRepository.saveAll(entries);
     }
 
     @Override
     @Transactional
-    public synchronized void credit(UUID walletUid, UUID userUid, BigDecimal creditAmount) {
-        Wallet wallet = walletRepository.findForUpdate(walletUid, userUid)
-                .orElseThrow(() -> new EntityNotFoundException("Wallet not found"));
+    public void credit(UUID transactionUid, UUID walletUid, UUID userUid, Money creditAmount, LedgerAccount source) {
+        int slot = creditSlot(walletUid, userUid);
+        ledgerEntryRepository.saveAll(List.of(
+                LedgerEntry.wallet(transactionUid, walletUid, userUid, slot, creditAmount),
+                LedgerEntry.system(transactionUid, source, userUid, creditAmount.negate())
+        ));
+    }
 
-        credit(wallet, creditAmount);
+    @Override
+    @Transactional
+    public void debit(UUID transactionUid, UUID walletUid, UUID userUid, Money debitAmount, LedgerAccount destination) {
+        List<LedgerEntry> entries = debitEntries(transactionUid, walletUid, userUid, debitAmount);
+        entries.add(LedgerEntry.system(transactionUid, destination, userUid, debitAmount));
+        ledgerEntryRepository.saveAll(entries);
     }
 
     @Override
     @Transactional
-    public synchronized void debit(UUID walletUid, UUID userUid, BigDecimal debitAmount) {
-        Wallet wallet = walletRepository.findForUpdate(walletUid, userUid)
-                .orElseThrow(() -> new EntityNotFoundException("Wallet not found"));
+    public void collectFee(UUID transactionUid, UUID userUid, Money fee, LedgerAccount source) {
+        ledgerEntryRepository.saveAll(List.of(
+                LedgerEntry.system(transactionUid, source, userUid, fee.negate()),
+                LedgerEntry.system(transactionUid, LedgerAccount.FEES, userUid, fee)
+        ));
+    }
+
+    /**
+     * Locks the wallet against other debits, checks its balance and returns the wallet side of the
+     * debit: one entry, or one per balance slot drawn from.
+     */
+    private List<LedgerEntry> debitEntries(UUID transactionUid, UUID walletUid, UUID userUid, Money amount) {
+        Integer slots = walletRepository.findActiveBalanceSlots(walletUid, userUid);
+        if (slots == null) {
+            throw rejectedDebit(walletUid, userUid);
+        }
+        Map<Integer, BigDecimal> draws;
+        long start = System.nanoTime();
+        try {
+            draws = slots > 1
+                    ? balanceSlots.lockForDebit(walletUid, userUid, amount.toBigDecimal())
+                    : checkDebit(walletUid, userUid, amount);
+        } finally {
+            hotWalletDetector.recordLockWait(walletUid, userUid, slots > 1, System.nanoTime() - start);
+        }
+
+        List<LedgerEntry> entries = new ArrayList<>((draws == null ? 1 : draws.size()) + 2);
+        if (draws == null) {
+            entries.add(LedgerEntry.wallet(transactionUid, walletUid, userUid, 0, amount.negate()));
+        } else {
+            draws.forEach((slot, draw) -> entries.add(LedgerEntry.wallet(transactionUid, walletUid, userUid, slot, draw.negate())));
+        }
+        return entries;
+    }
+
+    // Зачисление - только вставка проводок, а списания по кошельку сериализует блокировка его строки.
+    // null - баланс не разделен на слоты, сумма списывается с него целиком
+    private Map<Integer, BigDecimal> checkDebit(UUID walletUid, UUID userUid, Money amount) {
+        walletLockManager.lock(walletUid);
+        BigDecimal snapshot = walletRepository.lockSnapshotBalance(walletUid, userUid);
+        if (snapshot == null) {
+            // Баланс могли разделить на слоты, пока ждали блокировку
+            Integer slots = walletRepository.findActiveBalanceSlots(walletUid, userUid);
+            if (slots != null && slots > 1) {
+                return balanceSlots.lockForDebit(walletUid, userUid, amount.toBigDecimal());
+            }
+            throw rejectedDebit(walletUid, userUid);
+        }
+        BigDecimal balance = snapshot.add(ledgerEntryRepository.sumPending(walletUid, userUid));
+        if (amount.exceeds(balance)) {
+            throw new WalletBalanceException(balance, amount.toBigDecimal());
+        }
+        return null;
+    }
 
-        debit(wallet, debitAmount);
+    private int creditSlot(UUID walletUid, UUID userUid) {
+        Integer slots = walletRepository.findBalanceSlots(walletUid, userUid);
+        if (slots == null) {
+            throw new EntityNotFoundException("Wallet not found");
+        }
+        return balanceSlots.creditSlot(slots);
     }
 
-    private synchronized void debit(Wallet wallet, BigDecimal amount) {
-        wallet.setBalance(wallet.getBalance().subtract(amount).setScale(2, RoundingMode.HALF_EVEN));
-        walletRepository.save(wallet);
+    // Активный кошелек не найден - перечитываем его, чтобы вернуть понятную причину
+    private RuntimeException rejectedDebit(UUID walletUid, UUID userUid) {
+        Wallet wallet = walletRepository.findByUidAndUserUid(walletUid, userUid).orElse(null);
+        if (wallet == null) {
+            return new EntityNotFoundException("Wallet not found");
+        }
+        return new WalletStatusException(wallet.getStatus(), walletUid);
     }
 
-    private synchronized void credit(Wallet wallet, BigDecimal amount) {
-        wallet.setBalance(wallet.getBalance().add(amount).setScale(2, RoundingMode.HALF_EVEN));
-        walletRepository.save(wallet);
+    private WalletResponse toResponse(Wallet wallet, BigDecimal pending) {
+        WalletResponse response = walletMapper.toResponse(wallet);
+        response.setBalance(wallet.getBalance().add(pending));
+        return response;
     }
 }
@@ -0,0 +1,180 @@
+package com.advanced.transactionservice.service.ledger;
+
+import com.advanced.transactionservice.exception.WalletBalanceException;
+import com.advanced.transactionservice.model.WalletBalanceSlot;
+import com.advanced.transactionservice.repository.LedgerEntryRepository;
+import com.advanced.transactionservice.repository.LedgerEntryRepository.SlotAmount;
+import com.advanced.transactionservice.repository.WalletBalanceSlotRepository;
+import com.advanced.transactionservice.repository.WalletRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Balance slots of hot wallets. A wallet with more than one slot keeps its snapshot balance split
+ * over {@code wallet_balance_slots} rows: each credit is booked to a random slot and a debit locks
+ * only the slots it draws from, so debits of the wallet mostly run in parallel instead of queueing
+ * on the wallet row. The wallet balance is the sum over all slots.
+ * <p>
+ * A debit first tries to take one slot that covers the whole amount, skipping slots held by other
+ * debits. If none does, it gives those locks back and draws across all slots, locking them in slot
+ * order, so two debits never wait for each other in opposite order. ShardingSphere does not parse
+ * {@code SKIP LOCKED}, so a slot is tried with {@code NOWAIT} under a savepoint; the statements go
+ * through the session's JDBC connection, so a refused lock does not mark the transaction rollback-only.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BalanceSlots {
+
+    private static final String TRY_LOCK_SLOT = """
+            SELECT balance FROM wallet_balance_slots
+            WHERE wallet_uid = ? AND user_uid = ? AND slot = ?
+            FOR NO KEY UPDATE NOWAIT
+            """;
+
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    private final WalletRepository walletRepository;
+
+    private final WalletBalanceSlotRepository walletBalanceSlotRepository;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    private final EntityManager entityManager;
+
+    @Value("${wallet.slots.max:32}")
+    private int maxSlots;
+
+    public int creditSlot(int slots) {
+        return slots > 1 ? ThreadLocalRandom.current().nextInt(slots) : 0;
+    }
+
+    /**
+     * Locks slots of the wallet holding at least the given amount and returns how much to draw
+     * from each of them. Must run inside the debiting transaction.
+     */
+    public Map<Integer, BigDecimal> lockForDebit(UUID walletUid, UUID userUid, BigDecimal amount) {
+        List<Integer> candidates = available(walletUid, userUid).entrySet().stream()
+                .filter(slot -> slot.getValue().compareTo(amount) >= 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (!candidates.isEmpty()) {
+            Collections.shuffle(candidates, ThreadLocalRandom.current());
+            Session session = entityManager.unwrap(Session.class);
+            Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+            for (int slot : candidates) {
+                BigDecimal snapshot = session.doReturningWork(connection -> tryLock(connection, walletUid, userUid, slot));
+                // null - слот держит другое списание
+                if (snapshot != null
+                        && snapshot.add(ledgerEntryRepository.sumPendingInSlot(walletUid, userUid, slot)).compareTo(amount) >= 0) {
+                    return Map.of(slot, amount);
+                }
+            }
+            // Отпускаем взятые слоты, иначе ожидание остальных по порядку может привести к взаимной блокировке
+            session.doWork(connection -> connection.rollback(savepoint));
+        }
+        return drawAcross(walletUid, userUid, amount);
+    }
+
+    /**
+     * Splits the wallet balance over the given number of slots. The slot count only grows; the
+     * current snapshot balance stays in slot 0 and new credits spread it over the rest.
+     *
+     * @return the resulting number of slots
+     */
+    @Transactional
+    public int enable(UUID walletUid, UUID userUid, int slots) {
+        if (slots < 2 || slots > maxSlots) {
+            throw new IllegalArgumentException("Slot count must be between 2 and " + maxSlots);
+        }
+        WalletRepository.SlotState state = walletRepository.lockSlotState(walletUid, userUid)
+                .orElseThrow(() -> new EntityNotFoundException("Wallet not found"));
+        int current = state.getBalanceSlots();
+        if (slots <= current) {
+            return current;
+        }
+
+        // У обычного кошелька строк слотов нет, его снимок и несвернутые проводки относятся к слоту 0
+        List<WalletBalanceSlot> added = IntStream.range(current == 1 ? 0 : current, slots)
+                .mapToObj(slot -> new WalletBalanceSlot(null, walletUid, userUid, slot,
+                        slot == 0 ? state.getBalance() : BigDecimal.ZERO))
+                .toList();
+        walletBalanceSlotRepository.saveAll(added);
+        walletRepository.updateBalanceSlots(walletUid, userUid, slots);
+        log.info("Баланс кошелька {} разделен на {} слотов", walletUid, slots);
+        return slots;
+    }
+
+    private Map<Integer, BigDecimal> drawAcross(UUID walletUid, UUID userUid, BigDecimal amount) {
+        List<SlotAmount> snapshots = walletBalanceSlotRepository.lockBalances(walletUid, userUid);
+        Map<Integer, BigDecimal> balances = withPending(snapshots, ledgerEntryRepository.sumPendingBySlot(walletUid, userUid));
+
+        Map<Integer, BigDecimal> draws = new TreeMap<>();
+        BigDecimal remaining = amount;
+        List<Map.Entry<Integer, BigDecimal>> largestFirst = balances.entrySet().stream()
+                .filter(slot -> slot.getValue().signum() > 0)
+                .sorted(Map.Entry.<Integer, BigDecimal>comparingByValue().reversed())
+                .toList();
+        for (Map.Entry<Integer, BigDecimal> slot : largestFirst) {
+            if (remaining.signum() == 0) {
+                break;
+            }
+            BigDecimal draw = slot.getValue().min(remaining);
+            draws.put(slot.getKey(), draw);
+            remaining = remaining.subtract(draw);
+        }
+        if (remaining.signum() > 0) {
+            BigDecimal balance = balances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+            throw new WalletBalanceException(balance, amount);
+        }
+        return draws;
+    }
+
+    // Без блокировок: только чтобы выбрать слоты, баланс выбранного перепроверяется под блокировкой
+    private Map<Integer, BigDecimal> available(UUID walletUid, UUID userUid) {
+        return withPending(walletBalanceSlotRepository.findBalances(walletUid, userUid),
+                ledgerEntryRepository.sumPendingBySlot(walletUid, userUid));
+    }
+
+    private static Map<Integer, BigDecimal> withPending(List<SlotAmount> snapshots, List<SlotAmount> pending) {
+        Map<Integer, BigDecimal> balances = new TreeMap<>();
+        snapshots.forEach(slot -> balances.put(slot.getSlot(), slot.getAmount()));
+        pending.forEach(slot -> balances.computeIfPresent(slot.getSlot(), (key, balance) -> balance.add(slot.getAmount())));
+        return balances;
+    }
+
+    private static BigDecimal tryLock(Connection connection, UUID walletUid, UUID userUid, int slot) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement statement = connection.prepareStatement(TRY_LOCK_SLOT)) {
+            statement.setObject(1, walletUid);
+            statement.setObject(2, userUid);
+            statement.setInt(3, slot);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getBigDecimal(1) : null;
+            }
+        } catch (SQLException e) {
+            if (!LOCK_NOT_AVAILABLE.equals(e.getSQLState())) {
+                throw e;
+            }
+            connection.rollback(savepoint);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.advanced.transactionservice.service.ledger;
+
+import com.advanced.transactionservice.configuration.BackgroundExecutors;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.sharding.ShardedUids;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Rolls ledger entries into wallet balance snapshots. A wallet is compacted once it has
+ * {@code ledger.compaction.min-entries} pending entries or its oldest pending entry is older than
+ * {@code ledger.compaction.max-age}. Each shard is processed directly, bypassing ShardingSphere.
+ * <p>
+ * A wallet is compacted in one transaction under its row lock, the same lock debits take: pending
+ * entries are marked with the next snapshot version, their sum is added to {@code wallets.balance}
+ * and the new snapshot is appended to the history used for point-in-time balances. Entries of
+ * transactions still in flight are not visible yet and stay pending until the next run. For a
+ * wallet split into {@link BalanceSlots balance slots} the slot rows are locked as well and each
+ * slot snapshot gets the sum of its own entries.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+public class LedgerCompactor {
+
+    private static final String SELECT_WALLETS = """
+            SELECT wallet_uid, user_uid
+            FROM ledger_entries
+            WHERE snapshot_version IS NULL AND wallet_uid IS NOT NULL
+            GROUP BY wallet_uid, user_uid
+            HAVING count(*) >= ? OR min(created_at) < ?
+            LIMIT ?
+            """;
+
+    private static final String LOCK_WALLET = """
+            SELECT balance, balance_version, balance_slots, created_at FROM wallets
+            WHERE uid = ? AND user_uid = ?
+            FOR NO KEY UPDATE
+            """;
+
+    // В порядке слотов, как и списание по всем слотам
+    private static final String LOCK_SLOTS = """
+            SELECT slot FROM wallet_balance_slots
+            WHERE wallet_uid = ? AND user_uid = ?
+            ORDER BY slot
+            FOR NO KEY UPDATE
+            """;
+
+    private static final String ROLL_ENTRIES = """
+            WITH rolled AS (
+                UPDATE ledger_entries SET snapshot_version = ?
+                WHERE wallet_uid = ? AND user_uid = ? AND snapshot_version IS NULL
+                RETURNING slot, amount
+            )
+            SELECT slot, count(*) AS entries, sum(amount) AS amount FROM rolled GROUP BY slot
+            """;
+
+    private static final String UPDATE_WALLET = "UPDATE wallets SET balance = ?, balance_version = ? WHERE uid = ? AND user_uid = ?";
+
+    private static final String UPDATE_SLOT = "UPDATE wallet_balance_slots SET balance = balance + ? WHERE wallet_uid = ? AND user_uid = ? AND slot = ?";
+
+    // Время снимка берется после отметки проводок, поэтому не раньше времени любой из них
+    private static final String INSERT_SNAPSHOT = """
+            INSERT INTO wallet_balance_snapshots (uid, created_at, wallet_uid, user_uid, version, balance)
+            VALUES (?, coalesce(CAST(? AS TIMESTAMP), clock_timestamp()), ?, ?, ?, ?)
+            """;
+
+    private final TransactionMetricsService metricsService;
+
+    private final Map<String, Shard> shards;
+
+    private final ExecutorService executor;
+
+    @Value("${ledger.compaction.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ledger.compaction.min-entries:100}")
+    private int minEntries;
+
+    @Value("${ledger.compaction.max-age:1h}")
+    private Duration maxAge;
+
+    public LedgerCompactor(
+            TransactionMetricsService metricsService,
+            ShardingSphereConfiguration shardingSphereConfiguration,
+            BackgroundExecutors backgroundExecutors
+    ) {
+        this.metricsService = metricsService;
+        this.shards = new TreeMap<>();
+        shardingSphereConfiguration.getShardDataSources().forEach((name, shardDataSource) -> shards.put(name, new Shard(
+                name,
+                new JdbcTemplate(shardDataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(shardDataSource))
+        )));
+        this.executor = backgroundExecutors.newExecutor("ledger-compaction", shards.size());
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.compaction.interval:PT10S}")
+    public void compact() {
+        CompletableFuture.allOf(shards.values().stream()
+                .map(shard -> CompletableFuture.runAsync(() -> compactShard(shard), executor))
+                .toArray(CompletableFuture[]::new)
+        ).join();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void compactShard(Shard shard) {
+        List<WalletKey> wallets;
+        try {
+            Timestamp pendingBefore = Timestamp.from(Instant.now().minus(maxAge));
+            wallets = shard.jdbcTemplate().query(SELECT_WALLETS, (rs, rowNum) -> new WalletKey(
+                    rs.getObject("wallet_uid", UUID.class),
+                    rs.getObject("user_uid", UUID.class)
+            ), minEntries, pendingBefore, batchSize);
+        } catch (RuntimeException e) {
+            log.error("Ошибка выбора кошельков для свертки проводок в {}", shard.name(), e);
+            return;
+        }
+
+        int compactedWallets = 0;
+        int compactedEntries = 0;
+        for (WalletKey wallet : wallets) {
+            try {
+                Integer entries = shard.transactionTemplate().execute(status -> compactWallet(shard, wallet));
+                if (entries != null && entries > 0) {
+                    compactedWallets++;
+                    compactedEntries += entries;
+                }
+            } catch (RuntimeException e) {
+                // Например, бакет кошелька сейчас переносится - свернем в следующий раз
+                log.warn("Не удалось свернуть проводки кошелька {} в {}", wallet.walletUid(), shard.name(), e);
+            }
+        }
+        if (compactedWallets > 0) {
+            metricsService.recordLedgerCompaction(shard.name(), compactedWallets, compactedEntries);
+            log.debug("Свернуто {} проводок {} кошельков в {}", compactedEntries, compactedWallets, shard.name());
+        }
+    }
+
+    private int compactWallet(Shard shard, WalletKey wallet) {
+        JdbcTemplate jdbcTemplate = shard.jdbcTemplate();
+        List<WalletState> state = jdbcTemplate.query(LOCK_WALLET, (rs, rowNum) -> new WalletState(
+                rs.getBigDecimal("balance"),
+                rs.getLong("balance_version"),
+                rs.getInt("balance_slots"),
+                rs.getTimestamp("created_at")
+        ), wallet.walletUid(), wallet.userUid());
+        if (state.isEmpty()) {
+            return 0;
+        }
+        WalletState current = state.getFirst();
+        long version = current.version() + 1;
+        if (current.slots() > 1) {
+            jdbcTemplate.queryForList(LOCK_SLOTS, Integer.class, wallet.walletUid(), wallet.userUid());
+        }
+
+        List<Rolled> rolled = jdbcTemplate.query(ROLL_ENTRIES, (rs, rowNum) -> new Rolled(
+                rs.getInt("slot"),
+                rs.getInt("entries"),
+                rs.getBigDecimal("amount")
+        ), version, wallet.walletUid(), wallet.userUid());
+        if (rolled.isEmpty()) {
+            return 0;
+        }
+
+        // Начальный баланс кошелька попадает в историю при первой свертке
+        if (current.version() == 0) {
+            insertSnapshot(jdbcTemplate, wallet, current.createdAt(), 0, current.balance());
+        }
+        BigDecimal balance = current.balance();
+        int entries = 0;
+        for (Rolled slot : rolled) {
+            balance = balance.add(slot.amount());
+            entries += slot.entries();
+            if (current.slots() > 1) {
+                jdbcTemplate.update(UPDATE_SLOT, slot.amount(), wallet.walletUid(), wallet.userUid(), slot.slot());
+            }
+        }
+        jdbcTemplate.update(UPDATE_WALLET, balance, version, wallet.walletUid(), wallet.userUid());
+        insertSnapshot(jdbcTemplate, wallet, null, version, balance);
+        return entries;
+    }
+
+    private static void insertSnapshot(JdbcTemplate jdbcTemplate, WalletKey wallet, Timestamp createdAt, long version, BigDecimal balance) {
+        jdbcTemplate.update(INSERT_SNAPSHOT,
+                ShardedUids.generate(wallet.userUid()), createdAt, wallet.walletUid(), wallet.userUid(), version, balance);
+    }
+
+    private record Shard(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    }
+
+    private record WalletKey(UUID walletUid, UUID userUid) {
+    }
+
+    private record WalletState(BigDecimal balance, long version, int slots, Timestamp createdAt) {
+    }
+
+    private record Rolled(int slot, int entries, BigDecimal amount) {
+    }
+}
@@ -1,50 +1,36 @@
 package com.advanced.transactionservice.service.listener;
 
 import com.advanced.kafkacontracts.DepositCompleted;
-import com.advanced.transactionservice.model.PaymentStatus;
-import com.advanced.transactionservice.model.Transaction;
-import com.advanced.transactionservice.repository.TransactionRepository;
-import com.advanced.transactionservice.service.WalletService;
-import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.CompletionEvent;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.Outcome;
 import io.micrometer.core.annotation.Timed;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
+import java.util.List;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class DepositCompletedListener {
 
-    private final TransactionMetricsService metricsService;
-
-    private final TransactionRepository repository;
-
-    private final WalletService walletService;
+    private final TransactionCompletionProcessor processor;
 
     @Timed
     @WithSpan
-    @KafkaListener(topics = "deposit-completed", groupId = "transaction-service")
-    @Transactional
-    public void handle(DepositCompleted payload) {
-        log.info("Received deposit-completed event: {}", payload);
-
-        UUID transactionUid = payload.getTransactionUid();
-        Transaction transaction = repository.findById(transactionUid)
-                .orElseThrow(() -> new IllegalStateException("Transaction not found: " + transactionUid));
-
-        if (transaction.getStatus() == PaymentStatus.COMPLETED || transaction.getStatus() == PaymentStatus.FAILED) {
-            return;
-        }
-
-        walletService.credit(transaction.getWalletUid(), transaction.getUserUid(), transaction.getAmount().subtract(transaction.getFee()));
-        transaction.setStatus(PaymentStatus.COMPLETED);
-        repository.saveAndFlush(transaction);
-        metricsService.writeMetrics(PaymentStatus.COMPLETED);
+    @KafkaListener(topics = "deposit-completed", groupId = "transaction-service", batch = "true")
+    public void handle(List<DepositCompleted> payloads) {
+        log.info("Received {} deposit-completed events", payloads.size());
+
+        processor.process(
+                "deposit-completed",
+                Outcome.DEPOSIT_COMPLETED,
+                payloads.stream()
+                        .map(payload -> new CompletionEvent(payload.getTransactionUid(), null))
+                        .toList()
+        );
     }
 }
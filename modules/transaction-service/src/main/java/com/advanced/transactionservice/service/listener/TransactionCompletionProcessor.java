@@ -0,0 +1,118 @@
+package com.advanced.transactionservice.service.listener;
+
+import com.advanced.transactionservice.mapper.TransactionMapper;
+import com.advanced.transactionservice.model.LedgerAccount;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.sharding.ShardResolver;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a batch of provider callbacks to pending transactions.
+ * <p>
+ * Transactions are looked up once for the whole batch, then each shard is processed in its own
+ * database transaction: wallet deltas are posted to the ledger as inserts, one posting per
+ * transaction, and status changes are flushed together with them as JDBC batches.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionCompletionProcessor {
+
+    private final TransactionRepository transactionRepository;
+
+    private final WalletService walletService;
+
+    private final ShardResolver shardResolver;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionMetricsService metricsService;
+
+    public void process(String topic, Outcome outcome, List<CompletionEvent> events) {
+        long start = System.nanoTime();
+
+        Map<UUID, CompletionEvent> eventsByUid = events.stream()
+                .collect(Collectors.toMap(CompletionEvent::transactionUid, Function.identity(), (first, second) -> first, LinkedHashMap::new));
+
+        Map<Integer, List<Transaction>> byShard = transactionRepository.findAllById(eventsByUid.keySet()).stream()
+                .collect(Collectors.groupingBy(t -> shardResolver.shardOf(t.getUserUid())));
+
+        int found = byShard.values().stream().mapToInt(List::size).sum();
+        if (found < eventsByUid.size()) {
+            log.warn("Получено {} событий {}, найдено транзакций: {}", eventsByUid.size(), topic, found);
+        }
+
+        byShard.values().forEach(transactions ->
+                transactionTemplate.executeWithoutResult(status -> applyOnShard(outcome, transactions, eventsByUid)));
+
+        metricsService.recordListenerBatch(topic, events.size(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void applyOnShard(Outcome outcome, List<Transaction> found, Map<UUID, CompletionEvent> eventsByUid) {
+        Set<UUID> uids = found.stream().map(Transaction::getUid).collect(Collectors.toSet());
+        Set<UUID> userUids = found.stream().map(Transaction::getUserUid).collect(Collectors.toSet());
+
+        List<Transaction> pending = transactionRepository.findByUidInAndUserUidIn(uids, userUids).stream()
+                .filter(t -> t.getStatus() != PaymentStatus.COMPLETED && t.getStatus() != PaymentStatus.FAILED)
+                .toList();
+
+        for (Transaction transaction : pending) {
+            Money delta = outcome.walletDelta(transaction);
+            if (delta != null) {
+                walletService.credit(transaction.getUid(), transaction.getWalletUid(), transaction.getUserUid(), delta, LedgerAccount.EXTERNAL);
+            }
+            transaction.setStatus(outcome.getStatus());
+            if (outcome.getStatus() == PaymentStatus.FAILED) {
+                transaction.setFailureReason(eventsByUid.get(transaction.getUid()).failureReason());
+            }
+        }
+
+        transactionRepository.saveAllAndFlush(pending);
+
+        pending.forEach(t -> metricsService.writeMetrics(outcome.getStatus()));
+    }
+
+    public record CompletionEvent(UUID transactionUid, String failureReason) {
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Outcome {
+        DEPOSIT_COMPLETED(PaymentStatus.COMPLETED) {
+            @Override
+            Money walletDelta(Transaction transaction) {
+                return TransactionMapper.amount(transaction).minus(TransactionMapper.fee(transaction));
+            }
+        },
+        WITHDRAWAL_COMPLETED(PaymentStatus.COMPLETED) {
+            @Override
+            Money walletDelta(Transaction transaction) {
+                return null;
+            }
+        },
+        WITHDRAWAL_FAILED(PaymentStatus.FAILED) {
+            @Override
+            Money walletDelta(Transaction transaction) {
+                return TransactionMapper.amount(transaction).plus(TransactionMapper.fee(transaction));
+            }
+        };
+
+        private final PaymentStatus status;
+
+        abstract Money walletDelta(Transaction transaction);
+    }
+}
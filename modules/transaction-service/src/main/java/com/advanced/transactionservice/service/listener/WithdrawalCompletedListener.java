@@ -1,48 +1,37 @@
 package com.advanced.transactionservice.service.listener;
 
 import com.advanced.kafkacontracts.WithdrawalCompleted;
-import com.advanced.transactionservice.model.PaymentStatus;
-import com.advanced.transactionservice.model.Transaction;
-import com.advanced.transactionservice.repository.TransactionRepository;
-import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.CompletionEvent;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.Outcome;
 import io.micrometer.core.annotation.Timed;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
-import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
+import java.util.List;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class WithdrawalCompletedListener {
 
-    private final TransactionMetricsService metricsService;
-
-    private final TransactionRepository repository;
+    private final TransactionCompletionProcessor processor;
 
     @Timed
     @WithSpan
-    @KafkaListener(topics = "withdrawal-completed", groupId = "transaction-service")
-    @Transactional
-    public void handle(WithdrawalCompleted payload) {
-        log.info("Received withdrawal-completed event: {}", payload);
-
-        UUID transactionUid = payload.getTransactionUid();
-        Transaction transaction = repository.findById(transactionUid)
-                .orElseThrow(() -> new EntityNotFoundException("Transaction not found: " + transactionUid));
-
-        if (transaction.getStatus() == PaymentStatus.COMPLETED || transaction.getStatus() == PaymentStatus.FAILED) {
-            return;
-        }
-
-        transaction.setStatus(PaymentStatus.COMPLETED);
-        repository.saveAndFlush(transaction);
-        metricsService.writeMetrics(PaymentStatus.COMPLETED);
+    @KafkaListener(topics = "withdrawal-completed", groupId = "transaction-service", batch = "true")
+    public void handle(List<WithdrawalCompleted> payloads) {
+        log.info("Received {} withdrawal-completed events", payloads.size());
+
+        processor.process(
+                "withdrawal-completed",
+                Outcome.WITHDRAWAL_COMPLETED,
+                payloads.stream()
+                        .map(payload -> new CompletionEvent(payload.getTransactionUid(), null))
+                        .toList()
+        );
     }
 
 }
@@ -1,53 +1,37 @@
 package com.advanced.transactionservice.service.listener;
 
 import com.advanced.kafkacontracts.WithdrawalFailed;
-import com.advanced.transactionservice.model.PaymentStatus;
-import com.advanced.transactionservice.model.Transaction;
-import com.advanced.transactionservice.repository.TransactionRepository;
-import com.advanced.transactionservice.service.WalletService;
-import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.CompletionEvent;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.Outcome;
 import io.micrometer.core.annotation.Timed;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
+import java.util.List;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class WithdrawalFailedListener {
 
-    private final TransactionMetricsService metricsService;
-
-    private final TransactionRepository repository;
-
-    private final WalletService walletService;
+    private final TransactionCompletionProcessor processor;
 
     @Timed
     @WithSpan
-    @KafkaListener(topics = "withdrawal-failed", groupId = "transaction-service")
-    @Transactional
-    public void handle(WithdrawalFailed payload) {
-        log.info("Received withdrawal-failed event: {}", payload);
-
-        UUID transactionUid = payload.getTransactionUid();
-        Transaction transaction = repository.findById(transactionUid)
-                .orElseThrow(() -> new IllegalStateException("Transaction not found: " + transactionUid));
-
-        if (transaction.getStatus() == PaymentStatus.COMPLETED || transaction.getStatus() == PaymentStatus.FAILED) {
-            return;
-        }
-
-        walletService.credit(transaction.getWalletUid(), transaction.getUserUid(), transaction.getAmount().add(transaction.getFee()));
-
-        transaction.setStatus(PaymentStatus.FAILED);
-        transaction.setFailureReason(payload.getFailureReason());
-        repository.saveAndFlush(transaction);
-        metricsService.writeMetrics(PaymentStatus.FAILED);
+    @KafkaListener(topics = "withdrawal-failed", groupId = "transaction-service", batch = "true")
+    public void handle(List<WithdrawalFailed> payloads) {
+        log.info("Received {} withdrawal-failed events", payloads.size());
+
+        processor.process(
+                "withdrawal-failed",
+                Outcome.WITHDRAWAL_FAILED,
+                payloads.stream()
+                        .map(payload -> new CompletionEvent(payload.getTransactionUid(), payload.getFailureReason()))
+                        .toList()
+        );
     }
 
 }
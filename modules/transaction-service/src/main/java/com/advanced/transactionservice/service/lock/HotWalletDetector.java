@@ -0,0 +1,100 @@
+package com.advanced.transactionservice.service.lock;
+
+import com.advanced.transactionservice.service.ledger.BalanceSlots;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flags wallets whose debits keep waiting for the wallet lock. Every debit reports how long it
+ * waited for its locks; a wallet with at least {@code wallet.hot.min-slow-waits} waits longer than
+ * {@code wallet.hot.lock-wait-threshold} within one {@code wallet.hot.window} is flagged, and its
+ * balance is split into {@code wallet.hot.auto-slots} slots when that is set above 1.
+ */
+@Slf4j
+@Component
+public class HotWalletDetector {
+
+    private final BalanceSlots balanceSlots;
+
+    private final TransactionMetricsService metricsService;
+
+    private final long thresholdNanos;
+
+    private final int minSlowWaits;
+
+    private final int autoSlots;
+
+    private final Map<WalletKey, LongAdder> slowWaits = new ConcurrentHashMap<>();
+
+    private final Map<UUID, Flag> flagged = new ConcurrentHashMap<>();
+
+    public HotWalletDetector(
+            BalanceSlots balanceSlots,
+            TransactionMetricsService metricsService,
+            @Value("${wallet.hot.lock-wait-threshold:50ms}") Duration threshold,
+            @Value("${wallet.hot.min-slow-waits:20}") int minSlowWaits,
+            @Value("${wallet.hot.auto-slots:0}") int autoSlots
+    ) {
+        this.balanceSlots = balanceSlots;
+        this.metricsService = metricsService;
+        this.thresholdNanos = threshold.toNanos();
+        this.minSlowWaits = minSlowWaits;
+        this.autoSlots = autoSlots;
+    }
+
+    public void recordLockWait(UUID walletUid, UUID userUid, boolean slotted, long nanos) {
+        metricsService.recordDebitLockWait(slotted, nanos);
+        if (nanos >= thresholdNanos) {
+            slowWaits.computeIfAbsent(new WalletKey(walletUid, userUid), key -> new LongAdder()).increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.hot.window:1m}")
+    public void detect() {
+        for (WalletKey wallet : slowWaits.keySet()) {
+            LongAdder waits = slowWaits.remove(wallet);
+            long count = waits != null ? waits.sum() : 0;
+            if (count >= minSlowWaits) {
+                flag(wallet, count);
+            }
+        }
+    }
+
+    /**
+     * Wallets flagged so far by this instance, with the number of slow waits in the latest window
+     * they were flagged for.
+     */
+    public Map<UUID, Flag> flagged() {
+        return Map.copyOf(flagged);
+    }
+
+    private void flag(WalletKey wallet, long count) {
+        flagged.put(wallet.walletUid(), new Flag(wallet.userUid(), count, Instant.now()));
+        metricsService.incrementHotWalletFlagged();
+        log.warn("Горячий кошелек {}: {} ожиданий блокировки дольше {} мс",
+                wallet.walletUid(), count, Duration.ofNanos(thresholdNanos).toMillis());
+        if (autoSlots > 1) {
+            try {
+                balanceSlots.enable(wallet.walletUid(), wallet.userUid(), autoSlots);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось разделить баланс кошелька {} на слоты", wallet.walletUid(), e);
+            }
+        }
+    }
+
+    public record Flag(UUID userUid, long slowWaits, Instant flaggedAt) {
+    }
+
+    private record WalletKey(UUID walletUid, UUID userUid) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.advanced.transactionservice.service.lock;
+
+import com.advanced.transactionservice.service.ledger.BalanceSlots;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@code /actuator/hotwallets}: lists wallets flagged by the {@link HotWalletDetector} and splits a
+ * wallet balance into slots, e.g. {@code POST {"walletUid": "...", "userUid": "...", "slots": 8}}.
+ */
+@Component
+@Endpoint(id = "hotwallets")
+@RequiredArgsConstructor
+public class HotWalletsEndpoint {
+
+    private final HotWalletDetector hotWalletDetector;
+
+    private final BalanceSlots balanceSlots;
+
+    @ReadOperation
+    public Map<UUID, HotWalletDetector.Flag> flagged() {
+        return hotWalletDetector.flagged();
+    }
+
+    @WriteOperation
+    public Map<String, Object> split(UUID walletUid, UUID userUid, int slots) {
+        return Map.of("slots", balanceSlots.enable(walletUid, userUid, slots));
+    }
+}
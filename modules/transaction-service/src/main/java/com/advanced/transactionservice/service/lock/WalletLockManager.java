@@ -0,0 +1,128 @@
+package com.advanced.transactionservice.service.lock;
+
+import com.advanced.transactionservice.exception.WalletLockTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks keyed by wallet UID.
+ * <p>
+ * Locks are always taken in ascending stripe order, so two transfers in opposite
+ * directions cannot deadlock, and they are released when the surrounding
+ * transaction completes, i.e. after the balance update is committed.
+ */
+@Slf4j
+@Component
+public class WalletLockManager {
+
+    private final ReentrantLock[] stripes;
+
+    private final Timer[] waitTimers;
+
+    private final long timeoutNanos;
+
+    public WalletLockManager(
+            MeterRegistry meterRegistry,
+            @Value("${wallet.lock.stripes:64}") int stripeCount,
+            @Value("${wallet.lock.timeout:5s}") Duration timeout
+    ) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("wallet.lock.stripes must be positive");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        this.waitTimers = new Timer[stripeCount];
+        this.timeoutNanos = timeout.toNanos();
+
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+            waitTimers[i] = Timer.builder("wallet_lock_wait")
+                    .description("Time spent waiting for a wallet lock stripe")
+                    .tag("stripe", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Locks the stripes of the given wallets until the current transaction completes.
+     */
+    public void lock(UUID... walletUids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Wallet locks can only be taken inside a transaction");
+        }
+
+        int[] indexes = stripeIndexes(walletUids);
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                acquire(index, walletUids);
+                acquired++;
+            }
+        } finally {
+            if (acquired < indexes.length) {
+                release(indexes, acquired);
+            }
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(indexes, indexes.length);
+            }
+        });
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    int stripeOf(UUID walletUid) {
+        return Math.floorMod(walletUid.hashCode(), stripes.length);
+    }
+
+    private int[] stripeIndexes(UUID... walletUids) {
+        return Arrays.stream(walletUids)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private void acquire(int index, UUID... walletUids) {
+        ReentrantLock lock = stripes[index];
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        waitTimers[index].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!locked) {
+            UUID walletUid = Arrays.stream(walletUids)
+                    .filter(uid -> stripeOf(uid) == index)
+                    .findFirst()
+                    .orElse(null);
+            log.warn("Не удалось получить блокировку кошелька {} (stripe {})", walletUid, index);
+            throw new WalletLockTimeoutException(walletUid);
+        }
+    }
+
+    private void release(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+}
@@ -3,11 +3,18 @@ package com.advanced.transactionservice.service.metric;
 import com.advanced.transactionservice.model.PaymentStatus;
 import com.advanced.transactionservice.model.PaymentType;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class TransactionMetricsService {
@@ -15,6 +22,27 @@ public class TransactionMetricsService {
 
     private final Map<String, Counter> transactionCounters = new ConcurrentHashMap<>();
     private final Map<String, Counter> statusCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> transferRouteCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> transferRecoveryCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outboxSentCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outboxFailedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> outboxLagTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> outboxBatchSummaries = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> listenerBatchSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Timer> listenerRecordTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> idempotentReplayCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> bucketMigrationRowCounters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicReference<Double>> replicaLags = new ConcurrentHashMap<>();
+    private final Map<String, Counter> ledgerCompactedWalletCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> ledgerCompactedEntryCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> debitLockWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> transactionPartitionCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> feeRuleHitCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> minorUnitsBackfillCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> quoteLookupCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> kafkaSendTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> kafkaSendFailedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> kafkaBackpressureTimers = new ConcurrentHashMap<>();
 
     public TransactionMetricsService(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
@@ -40,6 +68,251 @@ public class TransactionMetricsService {
                 ).increment();
     }
 
+    public void incrementTransferRoute(String route) {
+        transferRouteCounters
+                .computeIfAbsent(route, r ->
+                        Counter.builder("transfer_route_total")
+                                .description("Total transfers by shard route")
+                                .tag("route", r)
+                                .register(meterRegistry)
+                ).increment();
+    }
+
+    public void incrementTransferRecovery(String outcome) {
+        transferRecoveryCounters
+                .computeIfAbsent(outcome, o ->
+                        Counter.builder("transfer_recovery_total")
+                                .description("Total recovered cross-shard transfers by outcome")
+                                .tag("outcome", o)
+                                .register(meterRegistry)
+                ).increment();
+    }
+
+    public void recordOutboxBatch(String shard, int size) {
+        outboxBatchSummaries
+                .computeIfAbsent(shard, s ->
+                        DistributionSummary.builder("outbox_batch_size")
+                                .description("Outbox events fetched per relay batch")
+                                .tag("shard", s)
+                                .register(meterRegistry)
+                ).record(size);
+    }
+
+    public void recordOutboxSent(String shard, String topic, Duration lag) {
+        outboxSentCounters
+                .computeIfAbsent(shard + ":" + topic, k ->
+                        Counter.builder("outbox_sent_total")
+                                .description("Total outbox events published to Kafka")
+                                .tag("shard", shard)
+                                .tag("topic", topic)
+                                .register(meterRegistry)
+                ).increment();
+        outboxLagTimers
+                .computeIfAbsent(shard, s ->
+                        Timer.builder("outbox_lag")
+                                .description("Time from outbox write to Kafka acknowledgement")
+                                .tag("shard", s)
+                                .register(meterRegistry)
+                ).record(lag);
+    }
+
+    public void incrementOutboxFailed(String shard, String topic) {
+        outboxFailedCounters
+                .computeIfAbsent(shard + ":" + topic, k ->
+                        Counter.builder("outbox_failed_total")
+                                .description("Total outbox events that failed to publish")
+                                .tag("shard", shard)
+                                .tag("topic", topic)
+                                .register(meterRegistry)
+                ).increment();
+    }
+
+    public void recordKafkaSend(String topic, long nanos) {
+        kafkaSendTimers
+                .computeIfAbsent(topic, t ->
+                        Timer.builder("kafka_send_latency")
+                                .description("Time from handing a record to the producer to the broker acknowledgement")
+                                .tag("topic", t)
+                                .register(meterRegistry)
+                ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementKafkaSendFailed(String topic, String reason) {
+        kafkaSendFailedCounters
+                .computeIfAbsent(topic + ":" + reason, k ->
+                        Counter.builder("kafka_send_failed_total")
+                                .description("Records the producer failed to deliver, by exception")
+                                .tag("topic", topic)
+                                .tag("reason", reason)
+                                .register(meterRegistry)
+                ).increment();
+    }
+
+    public void recordKafkaBackpressure(String topic, long nanos) {
+        kafkaBackpressureTimers
+                .computeIfAbsent(topic, t ->
+                        Timer.builder("kafka_send_backpressure")
+                                .description("Sends that waited for an in-flight slot and how long they waited")
+                                .tag("topic", t)
+                                .register(meterRegistry)
+                ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registerKafkaInFlight(Semaphore permits, int maxInFlight) {
+        Gauge.builder("kafka_send_in_flight", permits, p -> maxInFlight - p.availablePermits())
+                .description("Records sent to Kafka and not yet acknowledged")
+                .register(meterRegistry);
+    }
+
+    public void recordListenerBatch(String topic, int size, Duration elapsed) {
+        listenerBatchSummaries
+                .computeIfAbsent(topic, t ->
+                        DistributionSummary.builder("kafka_listener_batch_size")
+                                .description("Records received per listener batch")
+                                .tag("topic", t)
+                                .register(meterRegistry)
+                ).record(size);
+        if (size > 0) {
+            listenerRecordTimers
+                    .computeIfAbsent(topic, t ->
+                            Timer.builder("kafka_listener_record_time")
+                                    .description("Listener batch processing time per record")
+                                    .tag("topic", t)
+                                    .register(meterRegistry)
+                    ).record(elapsed.dividedBy(size));
+        }
+    }
+
+    public void incrementIdempotentReplay(String source, PaymentType type) {
+        idempotentReplayCounters
+                .computeIfAbsent(source + ":" + type.getValue(), k ->
+                        Counter.builder("idempotent_replay_total")
+                                .description("Total confirm requests answered from a stored idempotent result")
+                                .tag("source", source)
+                                .tag("type", type.getValue())
+                                .register(meterRegistry)
+                ).increment();
+    }
+
+    public void incrementBucketMigrationRows(String phase, String table, int rows) {
+        bucketMigrationRowCounters
+                .computeIfAbsent(phase + ":" + table, k ->
+                        Counter.builder("bucket_migration_rows_total")
+                                .description("Rows copied, replayed or removed while migrating shard buckets")
+                                .tag("phase", phase)
+                                .tag("table", table)
+                                .register(meterRegistry)
+                ).increment(rows);
+    }
+
+    public void recordBucketMigrationFreeze(Duration duration) {
+        Timer.builder("bucket_migration_freeze")
+                .description("Time writes to migrating buckets were rejected before the routing switch")
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    /**
+     * Records the last measured replication lag; {@code NaN} when the replica could not be checked.
+     */
+    public void recordReplicaLag(String replica, double lagSeconds) {
+        replicaLags
+                .computeIfAbsent(replica, r -> {
+                    AtomicReference<Double> lag = new AtomicReference<>(Double.NaN);
+                    Gauge.builder("sharding_replica_lag_seconds", lag, AtomicReference::get)
+                            .description("Replication lag of a shard replica as seen by the lag check")
+                            .tag("replica", r)
+                            .register(meterRegistry);
+                    return lag;
+                }).set(lagSeconds);
+    }
+
+    public void recordLedgerCompaction(String shard, int wallets, int entries) {
+        ledgerCompactedWalletCounters
+                .computeIfAbsent(shard, s ->
+                        Counter.builder("ledger_compacted_wallets_total")
+                                .description("Wallet balance snapshots taken by the ledger compactor")
+                                .tag("shard", s)
+                                .register(meterRegistry)
+                ).increment(wallets);
+        ledgerCompactedEntryCounters
+                .computeIfAbsent(shard, s ->
+                        Counter.builder("ledger_compacted_entries_total")
+                                .description("Ledger entries rolled into wallet balance snapshots")
+                                .tag("shard", s)
+                                .register(meterRegistry)
+                ).increment(entries);
+    }
+
+    public void recordDebitLockWait(boolean slotted, long nanos) {
+        String mode = slotted ? "slots" : "wallet";
+        debitLockWaitTimers
+                .computeIfAbsent(mode, m ->
+                        Timer.builder("wallet_debit_lock_wait")
+                                .description("Time a debit waited for the wallet or balance slot locks")
+                                .tag("mode", m)
+                                .register(meterRegistry)
+                ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementHotWalletFlagged() {
+        Counter.builder("wallet_hot_flagged_total")
+                .description("Wallets flagged for long debit lock waits")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void incrementTransactionPartitions(String shard, String action) {
+        transactionPartitionCounters
+                .computeIfAbsent(shard + ":" + action, k ->
+                        Counter.builder("transaction_partitions_total")
+                                .description("Monthly transactions partitions created, archived or exported to cold storage")
+                                .tag("shard", shard)
+                                .tag("action", action)
+                                .register(meterRegistry)
+                ).increment();
+    }
+
+    public Counter feeRuleHits(String rule, PaymentType type) {
+        return feeRuleHitCounters
+                .computeIfAbsent(rule + ":" + type, k ->
+                        Counter.builder("fee_rule_hits_total")
+                                .description("Fee evaluations by matched fee rule")
+                                .tag("rule", rule)
+                                .tag("payment_type", type.name())
+                                .register(meterRegistry)
+                );
+    }
+
+    public void incrementMinorUnitsBackfill(String shard, String table, int rows) {
+        minorUnitsBackfillCounters
+                .computeIfAbsent(shard + ":" + table, k ->
+                        Counter.builder("minor_units_backfill_rows_total")
+                                .description("Rows whose minor-unit amount columns were filled by the backfill")
+                                .tag("shard", shard)
+                                .tag("table", table)
+                                .register(meterRegistry)
+                ).increment(rows);
+    }
+
+    public void incrementQuoteLookup(String result, PaymentType type) {
+        quoteLookupCounters
+                .computeIfAbsent(result + ":" + type.getValue(), k ->
+                        Counter.builder("transaction_quote_lookups_total")
+                                .description("Quotes looked up by confirm requests by result: cache or table hit, miss, expired")
+                                .tag("result", result)
+                                .tag("type", type.getValue())
+                                .register(meterRegistry)
+                ).increment();
+    }
+
+    public void incrementQuotesExpired(int quotes) {
+        Counter.builder("transaction_quotes_expired_total")
+                .description("Expired quotes removed from the quote table")
+                .register(meterRegistry)
+                .increment(quotes);
+    }
+
     public void writeMetrics(PaymentStatus status, PaymentType type) {
         incrementTransactionStatus(status.getValue());
         incrementTransactionType(type.getValue());
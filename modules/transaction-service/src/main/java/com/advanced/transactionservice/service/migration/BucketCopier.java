@@ -0,0 +1,361 @@
+package com.advanced.transactionservice.service.migration;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC side of a bucket migration between two shards. Statements go to the shard datasources directly,
+ * bypassing ShardingSphere, and the tool's own writes set {@code bucket_migration.bypass}, so the
+ * capture trigger from V7 neither logs nor rejects them.
+ * <p>
+ * Bulk copy never overwrites rows on the target; captured changes are replayed afterwards by reading
+ * the current source row, so a chunk read before a change cannot undo it.
+ */
+final class BucketCopier {
+
+    // Порядок важен: transactions, проводки, снимки и слоты ссылаются на wallets
+    static final List<String> TABLES = List.of(
+            "wallets", "transactions", "transfer_legs", "idempotency_keys", "ledger_entries", "wallet_balance_snapshots",
+            "wallet_balance_slots");
+
+    // Кошелек мог появиться после того, как wallets уже скопированы
+    private static final Map<String, Reference> REFERENCES = Map.of(
+            "transactions", new Reference("wallet_uid", "wallets"),
+            "ledger_entries", new Reference("wallet_uid", "wallets"),
+            "wallet_balance_snapshots", new Reference("wallet_uid", "wallets"),
+            "wallet_balance_slots", new Reference("wallet_uid", "wallets"));
+
+    // Первичный ключ секционированной таблицы включает ключ секционирования
+    private static final Map<String, List<String>> KEYS = Map.of(
+            "transactions", List.of("uid", "created_at"));
+
+    // Секции transactions на новом шарде начинаются с месяца его создания, а у источника могут быть строки старше
+    private static final String PARTITIONED_TABLE = "transactions";
+
+    private static final String CREATE_PARTITION = "SELECT create_transactions_partition(?)";
+
+    private static final UUID MIN_UID = new UUID(0, 0);
+
+    private static final String BYPASS = "SET LOCAL bucket_migration.bypass = 'on'";
+
+    private static final String SELECT_CHUNK = "SELECT * FROM %s WHERE uid > ? AND shard_bucket(user_uid, ?) = ANY (?) ORDER BY uid LIMIT ?";
+
+    private static final String SELECT_BY_UID = "SELECT * FROM %s WHERE uid = ANY (?)";
+
+    private static final String DELETE_BY_UID = "DELETE FROM %s WHERE uid = ANY (?)";
+
+    private static final String DELETE_CHUNK = "DELETE FROM %1$s WHERE uid IN (SELECT uid FROM %1$s WHERE shard_bucket(user_uid, ?) = ANY (?) LIMIT ?)";
+
+    private static final String SELECT_CHANGES = "SELECT id, table_name, row_uid FROM bucket_changes WHERE bucket = ANY (?) ORDER BY id LIMIT ?";
+
+    private static final String DELETE_CHANGES = "DELETE FROM bucket_changes WHERE id = ANY (?)";
+
+    private static final String UPSERT_STATE = """
+            INSERT INTO bucket_migrations (bucket, bucket_count, state) VALUES (?, ?, ?)
+            ON CONFLICT (bucket) DO UPDATE SET state = EXCLUDED.state, modified_at = now()
+            """;
+
+    private static final String DELETE_STATE = "DELETE FROM bucket_migrations WHERE bucket = ANY (?)";
+
+    private static final String DELETE_ALL_CHANGES = "DELETE FROM bucket_changes WHERE bucket = ANY (?)";
+
+    private static final String CURRENT_XID = "SELECT pg_current_xact_id()::text";
+
+    private static final String OLDER_TRANSACTIONS_FINISHED = "SELECT pg_snapshot_xmin(pg_current_snapshot()) > ?::xid8";
+
+    private final Shard source;
+
+    private final Shard target;
+
+    private final int bucketCount;
+
+    private final Integer[] buckets;
+
+    private final int chunkSize;
+
+    private final Set<YearMonth> targetPartitions = new HashSet<>();
+
+    BucketCopier(Shard source, Shard target, int bucketCount, Collection<Integer> buckets, int chunkSize) {
+        this.source = source;
+        this.target = target;
+        this.bucketCount = bucketCount;
+        this.buckets = buckets.toArray(Integer[]::new);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Starts capturing changes of the buckets on the source. Returns the marker transaction id.
+     */
+    String startCapture() {
+        return setState(source, "COPYING");
+    }
+
+    /**
+     * Rejects further writes to the buckets on the source. Returns the marker transaction id.
+     */
+    String freeze() {
+        return setState(source, "FROZEN");
+    }
+
+    void markMoved() {
+        setState(source, "MOVED");
+    }
+
+    /**
+     * Waits until every source transaction older than the marker has finished, so no write made under
+     * the previous state can still commit unnoticed.
+     */
+    void awaitOlderTransactions(String markerXid, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!Boolean.TRUE.equals(source.jdbcTemplate().queryForObject(OLDER_TRANSACTIONS_FINISHED, Boolean.class, markerXid))) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Transactions older than " + markerXid + " are still running on " + source.name());
+            }
+            BucketMigrationService.pause(Duration.ofMillis(100));
+        }
+    }
+
+    /**
+     * Copies the next chunk of a table, keeping rows the target already has.
+     */
+    Chunk copyChunk(String table, UUID after) {
+        Rows rows = source.jdbcTemplate().query(SELECT_CHUNK.formatted(table), ps -> {
+            ps.setObject(1, after == null ? MIN_UID : after);
+            ps.setInt(2, bucketCount);
+            ps.setArray(3, ps.getConnection().createArrayOf("integer", buckets));
+            ps.setInt(4, chunkSize);
+        }, Rows::read);
+
+        if (rows.isEmpty()) {
+            return new Chunk(0, null);
+        }
+        createPartitions(table, rows);
+        target.transactionTemplate().executeWithoutResult(status -> {
+            target.jdbcTemplate().execute(BYPASS);
+            copyReferenced(table, rows);
+            insert(target, table, rows, false);
+        });
+        return new Chunk(rows.size(), rows.lastUid());
+    }
+
+    /**
+     * Applies the oldest captured changes: current source rows are upserted on the target and rows gone
+     * from the source are deleted there. Returns the number of changes applied, per table.
+     */
+    Map<String, Integer> replayChanges() {
+        List<Change> changes = source.jdbcTemplate().query(SELECT_CHANGES, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("integer", buckets));
+            ps.setInt(2, chunkSize);
+        }, (rs, rowNum) -> new Change(rs.getLong("id"), rs.getString("table_name"), rs.getObject("row_uid", UUID.class)));
+        if (changes.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Set<UUID>> byTable = changes.stream().collect(Collectors.groupingBy(
+                Change::table, LinkedHashMap::new, Collectors.mapping(Change::uid, Collectors.toCollection(LinkedHashSet::new))));
+        Map<String, Rows> current = new HashMap<>();
+        byTable.forEach((table, uids) -> current.put(table, selectByUid(source, table, uids)));
+        current.forEach(this::createPartitions);
+
+        target.transactionTemplate().executeWithoutResult(status -> {
+            target.jdbcTemplate().execute(BYPASS);
+            for (String table : TABLES) {
+                Rows rows = current.get(table);
+                if (rows != null && !rows.isEmpty()) {
+                    copyReferenced(table, rows);
+                    insert(target, table, rows, true);
+                }
+            }
+            for (String table : TABLES.reversed()) {
+                Rows rows = current.get(table);
+                if (rows != null) {
+                    Set<UUID> deleted = new HashSet<>(byTable.get(table));
+                    deleted.removeAll(rows.uids());
+                    deleteByUid(target, table, deleted);
+                }
+            }
+        });
+
+        source.jdbcTemplate().update(DELETE_CHANGES, ps ->
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint", changes.stream().map(Change::id).toArray())));
+
+        Map<String, Integer> applied = new LinkedHashMap<>();
+        byTable.forEach((table, uids) -> applied.put(table, uids.size()));
+        return applied;
+    }
+
+    /**
+     * Deletes the next chunk of the buckets' rows from a shard. Returns the number of rows deleted.
+     */
+    int deleteChunk(Shard shard, String table) {
+        Integer deleted = shard.transactionTemplate().execute(status -> {
+            shard.jdbcTemplate().execute(BYPASS);
+            return shard.jdbcTemplate().update(DELETE_CHUNK.formatted(table), ps -> {
+                ps.setInt(1, bucketCount);
+                ps.setArray(2, ps.getConnection().createArrayOf("integer", buckets));
+                ps.setInt(3, chunkSize);
+            });
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * Forgets the buckets' migration state and pending changes on a shard.
+     */
+    void clearState(Shard shard) {
+        shard.transactionTemplate().executeWithoutResult(status -> {
+            shard.jdbcTemplate().update(DELETE_STATE, ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", buckets)));
+            shard.jdbcTemplate().update(DELETE_ALL_CHANGES, ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", buckets)));
+        });
+    }
+
+    private String setState(Shard shard, String state) {
+        return shard.transactionTemplate().execute(status -> {
+            shard.jdbcTemplate().batchUpdate(UPSERT_STATE, Arrays.stream(buckets)
+                    .map(bucket -> new Object[]{bucket, bucketCount, state})
+                    .toList());
+            return shard.jdbcTemplate().queryForObject(CURRENT_XID, String.class);
+        });
+    }
+
+    /**
+     * Creates the target partitions of {@code transactions} for the months of the rows. Each one is
+     * created outside the chunk's transaction: creating a partition locks the whole table on the target
+     * until commit.
+     */
+    private void createPartitions(String table, Rows rows) {
+        if (!PARTITIONED_TABLE.equals(table) || rows.isEmpty()) {
+            return;
+        }
+        int createdAt = rows.columns().indexOf("created_at");
+        Set<YearMonth> months = rows.values().stream()
+                .map(row -> YearMonth.from(((Timestamp) row[createdAt]).toLocalDateTime()))
+                .collect(Collectors.toCollection(TreeSet::new));
+        for (YearMonth month : months) {
+            if (!targetPartitions.contains(month)) {
+                target.jdbcTemplate().queryForObject(CREATE_PARTITION, String.class, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+                targetPartitions.add(month);
+            }
+        }
+    }
+
+    private void copyReferenced(String table, Rows rows) {
+        Reference reference = REFERENCES.get(table);
+        if (reference != null) {
+            Rows parents = selectByUid(source, reference.table(), rows.column(reference.column()));
+            if (!parents.isEmpty()) {
+                insert(target, reference.table(), parents, false);
+            }
+        }
+    }
+
+    private static Rows selectByUid(Shard shard, String table, Collection<UUID> uids) {
+        return shard.jdbcTemplate().query(SELECT_BY_UID.formatted(table), ps ->
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", uids.toArray())), Rows::read);
+    }
+
+    private static void insert(Shard shard, String table, Rows rows, boolean overwrite) {
+        shard.jdbcTemplate().batchUpdate(rows.insertSql(table, overwrite), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Object[] values = rows.values().get(i);
+                for (int column = 0; column < values.length; column++) {
+                    ps.setObject(column + 1, values[column], rows.types()[column]);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private static void deleteByUid(Shard shard, String table, Set<UUID> uids) {
+        if (!uids.isEmpty()) {
+            shard.jdbcTemplate().update(DELETE_BY_UID.formatted(table), ps ->
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", uids.toArray())));
+        }
+    }
+
+    record Shard(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    }
+
+    record Chunk(int rows, UUID lastUid) {
+    }
+
+    private record Change(long id, String table, UUID uid) {
+    }
+
+    private record Reference(String column, String table) {
+    }
+
+    // Строки таблицы в виде, не зависящем от ее схемы
+    private record Rows(List<String> columns, int[] types, List<Object[]> values) {
+
+        static Rows read(ResultSet rs) throws SQLException {
+            ResultSetMetaData meta = rs.getMetaData();
+            List<String> columns = new ArrayList<>(meta.getColumnCount());
+            int[] types = new int[meta.getColumnCount()];
+            for (int i = 0; i < types.length; i++) {
+                columns.add(meta.getColumnName(i + 1));
+                types[i] = meta.getColumnType(i + 1);
+            }
+            List<Object[]> values = new ArrayList<>();
+            while (rs.next()) {
+                Object[] row = new Object[types.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                values.add(row);
+            }
+            return new Rows(columns, types, values);
+        }
+
+        boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        UUID lastUid() {
+            return (UUID) values.getLast()[columns.indexOf("uid")];
+        }
+
+        Set<UUID> uids() {
+            return column("uid");
+        }
+
+        Set<UUID> column(String name) {
+            int index = columns.indexOf(name);
+            return values.stream().map(row -> (UUID) row[index]).collect(Collectors.toSet());
+        }
+
+        String insertSql(String table, boolean overwrite) {
+            List<String> key = KEYS.getOrDefault(table, List.of("uid"));
+            String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                    + String.join(", ", Collections.nCopies(columns.size(), "?")) + ") ON CONFLICT ("
+                    + String.join(", ", key) + ") DO ";
+            if (!overwrite) {
+                return sql + "NOTHING";
+            }
+            return sql + "UPDATE SET " + columns.stream()
+                    .filter(column -> !key.contains(column))
+                    .map(column -> column + " = EXCLUDED." + column)
+                    .collect(Collectors.joining(", "));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.advanced.transactionservice.service.migration;
+
+import com.advanced.transactionservice.configuration.BackgroundExecutors;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.migration.BucketCopier.Chunk;
+import com.advanced.transactionservice.service.migration.BucketCopier.Shard;
+import com.advanced.transactionservice.sharding.ShardBucketDirectory;
+import com.advanced.transactionservice.sharding.ShardBucketDirectory.Assignment;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Moves virtual buckets between datasources while the service keeps running:
+ * <ol>
+ *     <li>capture - the source starts logging every write to the buckets' rows in the writing transaction;</li>
+ *     <li>copy - wallets, transactions, transfer legs and idempotency keys are copied in chunks;</li>
+ *     <li>catch-up - logged changes are replayed on the target until the backlog is below one chunk;</li>
+ *     <li>freeze - the source rejects writes to the buckets and the rest of the log is replayed;</li>
+ *     <li>switch - the directory reassigns all buckets to the target in one statement;</li>
+ *     <li>cleanup - after other instances had time to refresh their map, rows are removed from the source.</li>
+ * </ol>
+ * Writes are only rejected between freeze and switch. A failure before the switch releases the buckets
+ * and removes the copies; running the same migration again resumes it.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+public class BucketMigrationService {
+
+    private static final String COPY = "copy";
+
+    private static final String REPLAY = "replay";
+
+    private static final String CLEANUP = "cleanup";
+
+    private final ShardBucketDirectory directory;
+
+    private final TransactionMetricsService metricsService;
+
+    private final Map<String, Shard> shards;
+
+    private final ExecutorService executor;
+
+    private final AtomicReference<String> running = new AtomicReference<>();
+
+    @Value("${sharding.buckets.migration.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${sharding.buckets.migration.catch-up-timeout:5m}")
+    private Duration catchUpTimeout;
+
+    @Value("${sharding.buckets.migration.settle-timeout:30s}")
+    private Duration settleTimeout;
+
+    @Value("${sharding.buckets.migration.propagation-delay:15s}")
+    private Duration propagationDelay;
+
+    public BucketMigrationService(
+            ShardingSphereConfiguration shardingSphereConfiguration,
+            TransactionMetricsService metricsService,
+            BackgroundExecutors backgroundExecutors
+    ) {
+        this.directory = shardingSphereConfiguration.getBucketDirectory();
+        this.metricsService = metricsService;
+        this.shards = new TreeMap<>();
+        shardingSphereConfiguration.getShardDataSources().forEach((name, shardDataSource) -> shards.put(name, new Shard(
+                name,
+                new JdbcTemplate(shardDataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(shardDataSource))
+        )));
+        // Одновременно идет не больше одного переноса, его не пускает running
+        this.executor = backgroundExecutors.newExecutor("bucket-migration", 1);
+    }
+
+    /**
+     * Starts a migration in the background. Returns false if another one is running on this instance.
+     */
+    public boolean start(Collection<Integer> buckets, String target) {
+        String description = buckets.size() + " buckets to " + target;
+        if (!running.compareAndSet(null, description)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                migrate(buckets, target);
+            } catch (RuntimeException e) {
+                log.error("Перенос бакетов на {} завершился ошибкой", target, e);
+            } finally {
+                running.set(null);
+            }
+        });
+        return true;
+    }
+
+    public Optional<String> running() {
+        return Optional.ofNullable(running.get());
+    }
+
+    public void migrate(Collection<Integer> requested, String target) {
+        List<Integer> buckets = requested.stream().distinct().sorted().toList();
+        Shard targetShard = shard(target);
+        Map<Integer, Assignment> assignments = directory.assignments().stream()
+                .collect(Collectors.toMap(Assignment::bucket, assignment -> assignment));
+        if (buckets.isEmpty() || !assignments.keySet().containsAll(buckets)) {
+            throw new IllegalArgumentException("Buckets must be within 0.." + (directory.bucketCount() - 1));
+        }
+
+        Set<String> owners = buckets.stream().map(bucket -> assignments.get(bucket).dataSource()).collect(Collectors.toSet());
+        if (owners.equals(Set.of(target))) {
+            // Маршрутизация уже переключена, осталось убрать строки с прежнего шарда
+            Set<String> previous = buckets.stream()
+                    .map(bucket -> assignments.get(bucket).previousDataSource())
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            for (String source : previous) {
+                cleanup(new BucketCopier(shard(source), targetShard, directory.bucketCount(), buckets, chunkSize), shard(source), buckets);
+            }
+            return;
+        }
+        if (owners.size() != 1) {
+            throw new IllegalArgumentException("Buckets must belong to a single datasource, found " + owners);
+        }
+
+        Shard source = shard(owners.iterator().next());
+        directory.claim(buckets, source.name(), target);
+        BucketCopier copier = new BucketCopier(source, targetShard, directory.bucketCount(), buckets, chunkSize);
+        log.info("Начат перенос {} бакетов с {} на {}", buckets.size(), source.name(), target);
+
+        try {
+            copier.awaitOlderTransactions(copier.startCapture(), settleTimeout);
+            copy(copier);
+            catchUp(copier);
+
+            long frozenAt = System.nanoTime();
+            copier.awaitOlderTransactions(copier.freeze(), settleTimeout);
+            drain(copier);
+            copier.clearState(targetShard);
+            directory.switchOver(buckets, source.name(), target);
+            metricsService.recordBucketMigrationFreeze(Duration.ofNanos(System.nanoTime() - frozenAt));
+        } catch (RuntimeException e) {
+            rollback(copier, source, targetShard, buckets, e);
+            throw e;
+        }
+
+        log.info("Бакеты переключены с {} на {}", source.name(), target);
+        cleanup(copier, source, buckets);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bucket migration interrupted", e);
+        }
+    }
+
+    private void copy(BucketCopier copier) {
+        for (String table : BucketCopier.TABLES) {
+            UUID after = null;
+            Chunk chunk;
+            do {
+                chunk = copier.copyChunk(table, after);
+                after = chunk.lastUid();
+                metricsService.incrementBucketMigrationRows(COPY, table, chunk.rows());
+            } while (chunk.rows() == chunkSize);
+            log.info("Таблица {} скопирована", table);
+        }
+    }
+
+    // Догоняем журнал, пока запись еще разрешена, чтобы заморозка была короткой
+    private void catchUp(BucketCopier copier) {
+        long deadline = System.nanoTime() + catchUpTimeout.toNanos();
+        while (replay(copier) >= chunkSize) {
+            if (System.nanoTime() > deadline) {
+                log.warn("Журнал изменений не догнан за {}, замораживаю бакеты с отставанием", catchUpTimeout);
+                return;
+            }
+        }
+    }
+
+    private void drain(BucketCopier copier) {
+        int replayed;
+        do {
+            replayed = replay(copier);
+        } while (replayed > 0);
+    }
+
+    private int replay(BucketCopier copier) {
+        Map<String, Integer> applied = copier.replayChanges();
+        applied.forEach((table, rows) -> metricsService.incrementBucketMigrationRows(REPLAY, table, rows));
+        return applied.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private void cleanup(BucketCopier copier, Shard source, List<Integer> buckets) {
+        copier.markMoved();
+        // Экземпляры со старой картой еще читают бакеты с прежнего шарда
+        pause(propagationDelay);
+        for (String table : BucketCopier.TABLES.reversed()) {
+            int deleted;
+            do {
+                deleted = copier.deleteChunk(source, table);
+                metricsService.incrementBucketMigrationRows(CLEANUP, table, deleted);
+            } while (deleted > 0);
+        }
+        directory.completeCleanup(buckets, source.name());
+        log.info("Перенос {} бакетов с {} завершен", buckets.size(), source.name());
+    }
+
+    private void rollback(BucketCopier copier, Shard source, Shard target, List<Integer> buckets, RuntimeException cause) {
+        try {
+            boolean switched = directory.assignments().stream()
+                    .filter(assignment -> buckets.contains(assignment.bucket()))
+                    .allMatch(assignment -> target.name().equals(assignment.dataSource()));
+            if (switched) {
+                log.error("Бакеты уже переключены на {}, очистку {} нужно повторить", target.name(), source.name(), cause);
+                return;
+            }
+            copier.clearState(source);
+            for (String table : BucketCopier.TABLES.reversed()) {
+                int deleted;
+                do {
+                    deleted = copier.deleteChunk(target, table);
+                } while (deleted > 0);
+            }
+            directory.release(buckets, target.name());
+            log.warn("Перенос бакетов с {} на {} отменен", source.name(), target.name(), cause);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+            log.error("Не удалось откатить перенос бакетов с {} на {}", source.name(), target.name(), e);
+        }
+    }
+
+    private Shard shard(String name) {
+        Shard shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown datasource: " + name);
+        }
+        return shard;
+    }
+}
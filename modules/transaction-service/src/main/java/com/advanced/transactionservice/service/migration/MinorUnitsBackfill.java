@@ -0,0 +1,138 @@
+package com.advanced.transactionservice.service.migration;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Fills the minor-unit columns added next to the decimal amount columns of {@code wallets} and
+ * {@code transactions} for rows written before the columns existed. Rows written since then are
+ * filled by the database triggers. Each shard is walked directly, bypassing ShardingSphere, in
+ * chunks of {@code money.backfill.chunk-size} rows ordered by primary key; every chunk is its own
+ * short statement, so row locks are held only for one chunk. A table is re-checked for missing
+ * values after a full pass and is skipped from then on.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+public class MinorUnitsBackfill {
+
+    private static final List<Table> TABLES = List.of(
+            new Table("wallets", "balance_minor IS NULL", "balance_minor = round(t.balance * 100)"),
+            new Table("transactions", "amount_minor IS NULL", "amount_minor = round(t.amount * 100), fee_minor = round(t.fee * 100)")
+    );
+
+    // Порция выбирается по первичному ключу, а не по IS NULL: без индекса по пустым колонкам
+    // поиск незаполненных строк каждый раз читал бы таблицу с начала
+    private static final String FILL_CHUNK = """
+            WITH chunk AS (
+                SELECT uid FROM %1$s WHERE uid > ? ORDER BY uid LIMIT ?
+            ), filled AS (
+                UPDATE %1$s t SET %3$s
+                FROM chunk WHERE t.uid = chunk.uid AND t.%2$s
+                RETURNING 1
+            )
+            SELECT (SELECT uid FROM chunk ORDER BY uid DESC LIMIT 1) AS last_uid, (SELECT count(*) FROM filled) AS filled
+            """;
+
+    private static final String HAS_MISSING = "SELECT EXISTS (SELECT 1 FROM %s WHERE %s)";
+
+    // PostgreSQL сравнивает uuid побайтно, нулевой uuid меньше любого другого
+    private static final UUID START = new UUID(0, 0);
+
+    private final TransactionMetricsService metricsService;
+
+    private final Map<String, JdbcTemplate> shards;
+
+    // Позиция обхода по таблицам шарда; null - таблица заполнена
+    private final Map<String, Map<String, UUID>> positions = new TreeMap<>();
+
+    @Value("${money.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${money.backfill.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${money.backfill.chunks-per-run:100}")
+    private int chunksPerRun;
+
+    public MinorUnitsBackfill(TransactionMetricsService metricsService, ShardingSphereConfiguration shardingSphereConfiguration) {
+        this.metricsService = metricsService;
+        this.shards = new TreeMap<>();
+        shardingSphereConfiguration.getShardDataSources().forEach((name, shardDataSource) -> {
+            shards.put(name, new JdbcTemplate(shardDataSource));
+            Map<String, UUID> tables = new LinkedHashMap<>();
+            TABLES.forEach(table -> tables.put(table.name(), START));
+            positions.put(name, tables);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${money.backfill.interval:PT10S}")
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        shards.forEach((shard, jdbcTemplate) -> {
+            for (Table table : TABLES) {
+                try {
+                    backfill(shard, jdbcTemplate, table);
+                } catch (RuntimeException e) {
+                    // Например, бакет сейчас переносится - продолжим с той же позиции в следующий раз
+                    log.warn("Не удалось заполнить суммы в копейках в {}.{}", shard, table.name(), e);
+                }
+            }
+        });
+    }
+
+    private void backfill(String shard, JdbcTemplate jdbcTemplate, Table table) {
+        Map<String, UUID> tables = positions.get(shard);
+        UUID position = tables.get(table.name());
+        if (position == null) {
+            return;
+        }
+
+        for (int i = 0; i < chunksPerRun; i++) {
+            Chunk chunk = jdbcTemplate.queryForObject(FILL_CHUNK.formatted(table.name(), table.missing(), table.fill()),
+                    (rs, rowNum) -> new Chunk(rs.getObject("last_uid", UUID.class), rs.getInt("filled")),
+                    position, chunkSize);
+            if (chunk.filled() > 0) {
+                metricsService.incrementMinorUnitsBackfill(shard, table.name(), chunk.filled());
+            }
+            if (chunk.lastUid() == null) {
+                finishPass(shard, jdbcTemplate, table);
+                return;
+            }
+            position = chunk.lastUid();
+            tables.put(table.name(), position);
+        }
+    }
+
+    // Строки, вставленные после начала обхода, заполнены триггером; проход повторяется, только если
+    // незаполненные строки все же остались, например после переноса бакета со старой версии
+    private void finishPass(String shard, JdbcTemplate jdbcTemplate, Table table) {
+        Boolean missing = jdbcTemplate.queryForObject(HAS_MISSING.formatted(table.name(), table.missing()), Boolean.class);
+        if (Boolean.TRUE.equals(missing)) {
+            positions.get(shard).put(table.name(), START);
+            return;
+        }
+        positions.get(shard).put(table.name(), null);
+        log.info("Суммы в копейках в {}.{} заполнены", shard, table.name());
+    }
+
+    private record Table(String name, String missing, String fill) {
+    }
+
+    private record Chunk(UUID lastUid, int filled) {
+    }
+}
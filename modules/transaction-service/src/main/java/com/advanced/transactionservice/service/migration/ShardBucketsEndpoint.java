@@ -0,0 +1,68 @@
+package com.advanced.transactionservice.service.migration;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.sharding.ShardBucketDirectory.Assignment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * {@code /actuator/shardbuckets}: shows how buckets are spread over datasources and starts migrations,
+ * e.g. {@code POST {"target": "ds_2", "buckets": "0-63,128"}}.
+ */
+@Component
+@Endpoint(id = "shardbuckets")
+@RequiredArgsConstructor
+public class ShardBucketsEndpoint {
+
+    private final ShardingSphereConfiguration shardingSphereConfiguration;
+
+    private final BucketMigrationService migrationService;
+
+    @ReadOperation
+    public Map<String, Object> buckets() {
+        List<Assignment> assignments = shardingSphereConfiguration.getBucketDirectory().assignments();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bucket_count", assignments.size());
+        result.put("data_sources", assignments.stream()
+                .collect(Collectors.groupingBy(Assignment::dataSource, TreeMap::new, Collectors.counting())));
+        result.put("migrating", assignments.stream()
+                .filter(assignment -> assignment.migrationTarget() != null)
+                .collect(Collectors.groupingBy(Assignment::migrationTarget, TreeMap::new,
+                        Collectors.mapping(Assignment::bucket, Collectors.toList()))));
+        result.put("pending_cleanup", assignments.stream()
+                .filter(assignment -> assignment.previousDataSource() != null)
+                .collect(Collectors.groupingBy(Assignment::previousDataSource, TreeMap::new,
+                        Collectors.mapping(Assignment::bucket, Collectors.toList()))));
+        result.put("running", migrationService.running().orElse(null));
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Object> migrate(String target, String buckets) {
+        boolean started = migrationService.start(parseBuckets(buckets), target);
+        return Map.of("started", started);
+    }
+
+    static SortedSet<Integer> parseBuckets(String value) {
+        SortedSet<Integer> buckets = new TreeSet<>();
+        for (String part : value.split(",")) {
+            String[] range = part.trim().split("-");
+            int from = Integer.parseInt(range[0].trim());
+            int to = range.length > 1 ? Integer.parseInt(range[1].trim()) : from;
+            if (range.length > 2 || from < 0 || to < from) {
+                throw new IllegalArgumentException("Invalid bucket range: " + part);
+            }
+            for (int bucket = from; bucket <= to; bucket++) {
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,62 @@
+package com.advanced.transactionservice.service.outbox;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary Avro encoding of kafka-contracts records for storage in the outbox.
+ * The Kafka serializer re-encodes them with the schema registry on publish.
+ */
+public class AvroPayloadCodec {
+
+    private static final Map<String, Class<? extends SpecificRecord>> TYPES = new ConcurrentHashMap<>();
+
+    public static byte[] encode(SpecificRecord record) {
+        SpecificDatumWriter<SpecificRecord> writer = new SpecificDatumWriter<>(
+                record.getSchema(), SpecificData.getForClass(record.getClass()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        try {
+            writer.write(record, encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка сериализации " + record.getClass().getName(), e);
+        }
+        return out.toByteArray();
+    }
+
+    public static SpecificRecord decode(String type, byte[] payload) {
+        Class<? extends SpecificRecord> recordClass = TYPES.computeIfAbsent(type, AvroPayloadCodec::loadType);
+        SpecificData model = SpecificData.getForClass(recordClass);
+        SpecificDatumReader<SpecificRecord> reader = new SpecificDatumReader<>(
+                model.getSchema(recordClass), model.getSchema(recordClass), model);
+
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(payload, null);
+        try {
+            return reader.read(null, decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка десериализации " + type, e);
+        }
+    }
+
+    private static Class<? extends SpecificRecord> loadType(String type) {
+        try {
+            return Class.forName(type).asSubclass(SpecificRecord.class);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unknown outbox payload type: " + type, e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.advanced.transactionservice.service.outbox;
+
+import com.advanced.transactionservice.configuration.BackgroundExecutors;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.producer.KafkaPublisher;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox events to Kafka. Each shard is polled directly, bypassing ShardingSphere,
+ * in batches locked with {@code FOR UPDATE SKIP LOCKED}, so several instances can relay the
+ * same shard without sending an event twice. A batch is sent through {@link KafkaPublisher} without
+ * waiting for each record, then acknowledged events are marked sent in the same transaction that
+ * locked them.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+public class OutboxRelay {
+
+    private static final String SELECT_BATCH = """
+            SELECT uid, created_at, topic, message_key, payload_type, payload
+            FROM outbox_events
+            WHERE sent_at IS NULL
+            ORDER BY created_at
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String MARK_SENT = "UPDATE outbox_events SET sent_at = now() WHERE uid = ANY (?)";
+
+    private static final String DELETE_SENT = "DELETE FROM outbox_events WHERE sent_at < ?";
+
+    private static final RowMapper<OutboxRecord> ROW_MAPPER = (rs, rowNum) -> new OutboxRecord(
+            rs.getObject("uid", UUID.class),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getString("topic"),
+            rs.getString("message_key"),
+            rs.getString("payload_type"),
+            rs.getBytes("payload")
+    );
+
+    private final KafkaPublisher kafkaPublisher;
+
+    private final TransactionMetricsService metricsService;
+
+    private final Map<String, Shard> shards;
+
+    private final ExecutorService executor;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${outbox.relay.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    @Value("${outbox.retention:1d}")
+    private Duration retention;
+
+    public OutboxRelay(
+            KafkaPublisher kafkaPublisher,
+            TransactionMetricsService metricsService,
+            ShardingSphereConfiguration shardingSphereConfiguration,
+            BackgroundExecutors backgroundExecutors
+    ) {
+        this.kafkaPublisher = kafkaPublisher;
+        this.metricsService = metricsService;
+        this.shards = new TreeMap<>();
+        shardingSphereConfiguration.getShardDataSources().forEach((name, shardDataSource) -> shards.put(name, new Shard(
+                name,
+                new JdbcTemplate(shardDataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(shardDataSource))
+        )));
+        this.executor = backgroundExecutors.newExecutor("outbox-relay", shards.size());
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval:PT0.2S}")
+    public void relay() {
+        CompletableFuture.allOf(shards.values().stream()
+                .map(shard -> CompletableFuture.runAsync(() -> relayShard(shard), executor))
+                .toArray(CompletableFuture[]::new)
+        ).join();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanup.interval:PT10M}")
+    public void cleanup() {
+        Timestamp threshold = Timestamp.from(Instant.now().minus(retention));
+        for (Shard shard : shards.values()) {
+            int deleted = shard.jdbcTemplate().update(DELETE_SENT, threshold);
+            if (deleted > 0) {
+                log.info("Удалено {} отправленных событий outbox из {}", deleted, shard.name());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void relayShard(Shard shard) {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                Integer sent = shard.transactionTemplate().execute(status -> relayBatch(shard));
+                if (sent == null || sent < batchSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка отправки outbox из {}", shard.name(), e);
+        }
+    }
+
+    private int relayBatch(Shard shard) {
+        List<OutboxRecord> batch = shard.jdbcTemplate().query(SELECT_BATCH, ROW_MAPPER, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        metricsService.recordOutboxBatch(shard.name(), batch.size());
+
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(batch.size());
+        for (OutboxRecord record : batch) {
+            futures.add(kafkaPublisher.send(
+                    record.topic(),
+                    record.key(),
+                    AvroPayloadCodec.decode(record.payloadType(), record.payload())
+            ));
+        }
+        // Без flush: продюсер досылает пачку через linger.ms, и пачки разных шардов попадают в общие батчи
+
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<UUID> sent = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxRecord record = batch.get(i);
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(record.uid());
+                metricsService.recordOutboxSent(shard.name(), record.topic(), Duration.between(record.createdAt(), Instant.now()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("Не удалось отправить событие outbox {} в {}", record.uid(), record.topic(), e);
+                metricsService.incrementOutboxFailed(shard.name(), record.topic());
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            shard.jdbcTemplate().update(MARK_SENT, ps ->
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", sent.toArray())));
+        }
+        return sent.size();
+    }
+
+    private record Shard(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    }
+
+    private record OutboxRecord(UUID uid, Instant createdAt, String topic, String key, String payloadType, byte[] payload) {
+    }
+}
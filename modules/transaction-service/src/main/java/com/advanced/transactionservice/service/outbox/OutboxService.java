@@ -0,0 +1,33 @@
+package com.advanced.transactionservice.service.outbox;
+
+import com.advanced.transactionservice.model.OutboxEvent;
+import com.advanced.transactionservice.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.avro.specific.SpecificRecord;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Stores Kafka events in the outbox of the user's shard as part of the caller's transaction.
+ * {@link OutboxRelay} publishes them after commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String topic, String key, UUID userUid, SpecificRecord payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setMessageKey(key);
+        event.setUserUid(userUid);
+        event.setPayloadType(payload.getClass().getName());
+        event.setPayload(AvroPayloadCodec.encode(payload));
+        outboxEventRepository.save(event);
+    }
+}
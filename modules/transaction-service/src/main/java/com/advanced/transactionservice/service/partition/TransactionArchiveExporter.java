@@ -0,0 +1,136 @@
+package com.advanced.transactionservice.service.partition;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Moves partitions archived by the {@link TransactionPartitionMaintainer} from the
+ * {@code transactions_archive} schema of every shard to the {@link TransactionColdStorage}: the
+ * partition is streamed into a Parquet file and dropped once the file is complete. A failed export
+ * leaves the partition in place and is retried on the next run.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+public class TransactionArchiveExporter {
+
+    private static final String SELECT_ARCHIVED = """
+            SELECT table_name FROM information_schema.tables
+            WHERE table_schema = 'transactions_archive' AND table_name ~ '^transactions_\\d{4}_\\d{2}$'
+            ORDER BY table_name
+            """;
+
+    // Сортировка по пользователю сужает статистику групп строк для поиска по user_uid
+    private static final String SELECT_ROWS = "SELECT * FROM transactions_archive.%s ORDER BY user_uid, created_at";
+
+    private static final String DROP_ARCHIVED = "DROP TABLE transactions_archive.%s";
+
+    private static final int FETCH_SIZE = 5_000;
+
+    private final TransactionColdStorage coldStorage;
+
+    private final TransactionMetricsService metricsService;
+
+    private final Map<String, Shard> shards;
+
+    @Value("${transactions.cold-storage.enabled:true}")
+    private boolean enabled;
+
+    public TransactionArchiveExporter(
+            TransactionColdStorage coldStorage,
+            TransactionMetricsService metricsService,
+            ShardingSphereConfiguration shardingSphereConfiguration
+    ) {
+        this.coldStorage = coldStorage;
+        this.metricsService = metricsService;
+        this.shards = new TreeMap<>();
+        shardingSphereConfiguration.getShardDataSources().forEach((name, shardDataSource) -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shardDataSource);
+            // Курсор PostgreSQL отдает строки порциями только внутри транзакции
+            jdbcTemplate.setFetchSize(FETCH_SIZE);
+            TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(shardDataSource));
+            transactionTemplate.setReadOnly(true);
+            shards.put(name, new Shard(name, jdbcTemplate, transactionTemplate));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${transactions.cold-storage.interval:PT1H}")
+    public void export() {
+        if (!enabled) {
+            return;
+        }
+        shards.values().forEach(this::exportShard);
+    }
+
+    private void exportShard(Shard shard) {
+        List<String> partitions;
+        try {
+            partitions = shard.jdbcTemplate().queryForList(SELECT_ARCHIVED, String.class);
+        } catch (RuntimeException e) {
+            log.error("Ошибка чтения архива transactions в {}", shard.name(), e);
+            return;
+        }
+
+        for (String partition : partitions) {
+            try {
+                long rows = coldStorage.write(shard.name(), partition, sink -> shard.transactionTemplate().executeWithoutResult(status ->
+                        shard.jdbcTemplate().query(SELECT_ROWS.formatted(partition), resultSet -> {
+                            sink.accept(toTransaction(resultSet));
+                        })));
+                shard.jdbcTemplate().execute(DROP_ARCHIVED.formatted(partition));
+                metricsService.incrementTransactionPartitions(shard.name(), "exported");
+                log.info("Секция {} из {} выгружена в холодное хранилище: {} строк", partition, shard.name(), rows);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось выгрузить секцию {} из {}", partition, shard.name(), e);
+            }
+        }
+    }
+
+    private static Transaction toTransaction(ResultSet resultSet) throws SQLException {
+        Timestamp modifiedAt = resultSet.getTimestamp("modified_at");
+        return new Transaction(
+                resultSet.getObject("uid", UUID.class),
+                resultSet.getObject("wallet_uid", UUID.class),
+                resultSet.getObject("user_uid", UUID.class),
+                resultSet.getBigDecimal("amount"),
+                resultSet.getBigDecimal("fee"),
+                PaymentType.valueOf(resultSet.getString("type")),
+                PaymentStatus.valueOf(resultSet.getString("status")),
+                resultSet.getObject("target_wallet_uid", UUID.class),
+                Currency.getInstance(resultSet.getString("currency")),
+                resultSet.getString("comment"),
+                resultSet.getString("failure_reason"),
+                toOffset(resultSet.getTimestamp("created_at")),
+                modifiedAt == null ? null : toOffset(modifiedAt)
+        );
+    }
+
+    private static OffsetDateTime toOffset(Timestamp timestamp) {
+        return timestamp.toLocalDateTime().atZone(ZoneId.systemDefault()).toOffsetDateTime();
+    }
+
+    private record Shard(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.advanced.transactionservice.service.partition;
+
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.api.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Parquet files with archived transactions, one file per shard and month:
+ * {@code <directory>/<shard>/transactions_YYYY_MM.parquet}. Rows are written sorted by
+ * {@code (user_uid, created_at)}, so the row group statistics of {@code user_uid} are narrow and a
+ * search for one user reads only the row groups holding that user. Low-cardinality columns
+ * ({@code type}, {@code status}, {@code currency}) are dictionary encoded and {@code wallet_uid}
+ * has a bloom filter.
+ * <p>
+ * {@code created_at} is stored as a local timestamp, like the {@code TIMESTAMP} column it comes from.
+ */
+@Slf4j
+@Component
+public class TransactionColdStorage {
+
+    private static final Schema SCHEMA = new Schema.Parser().parse("""
+            {
+              "type": "record",
+              "name": "ArchivedTransaction",
+              "namespace": "com.advanced.transactionservice.archive",
+              "fields": [
+                {"name": "uid", "type": {"type": "string", "logicalType": "uuid"}},
+                {"name": "created_at", "type": {"type": "long", "logicalType": "local-timestamp-micros"}},
+                {"name": "modified_at", "type": ["null", {"type": "long", "logicalType": "local-timestamp-micros"}], "default": null},
+                {"name": "user_uid", "type": {"type": "string", "logicalType": "uuid"}},
+                {"name": "wallet_uid", "type": {"type": "string", "logicalType": "uuid"}},
+                {"name": "amount", "type": {"type": "bytes", "logicalType": "decimal", "precision": 20, "scale": 2}},
+                {"name": "fee", "type": ["null", {"type": "bytes", "logicalType": "decimal", "precision": 20, "scale": 2}], "default": null},
+                {"name": "currency", "type": "string"},
+                {"name": "type", "type": "string"},
+                {"name": "status", "type": "string"},
+                {"name": "comment", "type": ["null", "string"], "default": null},
+                {"name": "target_wallet_uid", "type": ["null", {"type": "string", "logicalType": "uuid"}], "default": null},
+                {"name": "failure_reason", "type": ["null", "string"], "default": null}
+              ]
+            }
+            """);
+
+    private static final GenericData MODEL = new GenericData();
+
+    static {
+        MODEL.addLogicalTypeConversion(new Conversions.UUIDConversion());
+        MODEL.addLogicalTypeConversion(new Conversions.DecimalConversion());
+        MODEL.addLogicalTypeConversion(new TimeConversions.LocalTimestampMicrosConversion());
+    }
+
+    private static final int AMOUNT_SCALE = 2;
+
+    private static final String EXTENSION = ".parquet";
+
+    private static final Pattern FILE_NAME = Pattern.compile("transactions_(\\d{4})_(\\d{2})\\.parquet");
+
+    // Новые строки сначала, при равном времени - по uid, как в поиске по горячей таблице
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+            .comparing(Transaction::getCreatedAt)
+            .thenComparing(Transaction::getUid)
+            .reversed();
+
+    private final Path directory;
+
+    public TransactionColdStorage(@Value("${transactions.cold-storage.directory:cold-storage}") Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Writes a month of archived transactions of the shard. The file appears under its final name
+     * only once it is complete; an existing file of the same month is replaced.
+     *
+     * @param rows pushes the rows to the given consumer, sorted by {@code (user_uid, created_at)}
+     * @return the number of rows written
+     */
+    public long write(String shard, String partition, Consumer<Consumer<Transaction>> rows) {
+        Path target = directory.resolve(shard).resolve(partition + EXTENSION);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long written;
+        try {
+            Files.createDirectories(target.getParent());
+            try (ParquetWriter<GenericRecord> writer = AvroParquetWriter.<GenericRecord>builder(new LocalOutputFile(temporary))
+                    .withSchema(SCHEMA)
+                    .withDataModel(MODEL)
+                    .withConf(new PlainParquetConfiguration())
+                    .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                    .withCompressionCodec(CompressionCodecName.ZSTD)
+                    .withDictionaryEncoding(true)
+                    .withDictionaryEncoding("uid", false)
+                    .withBloomFilterEnabled("wallet_uid", true)
+                    .build()) {
+                long[] count = {0};
+                rows.accept(transaction -> {
+                    try {
+                        writer.write(toRecord(transaction));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+                written = count[0];
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи " + target, e);
+        } finally {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить {}", temporary, e);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Searches the archived transactions of all shards and returns at most {@code limit} newest
+     * matching ones, newest first. Only files of the months overlapping the date range are read,
+     * and the filters are pushed down to row groups and pages.
+     */
+    public List<Transaction> search(
+            String userUid,
+            String walletUid,
+            PaymentType type,
+            PaymentStatus status,
+            OffsetDateTime dateFrom,
+            OffsetDateTime dateTo,
+            int limit
+    ) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        LocalDateTime from = dateFrom == null ? null : toLocal(dateFrom);
+        LocalDateTime to = dateTo == null ? null : toLocal(dateTo);
+        FilterCompat.Filter filter = filter(userUid, walletUid, type, status, from, to);
+
+        // Куча с самой старой строкой наверху: держим только limit самых новых
+        PriorityQueue<Transaction> newest = new PriorityQueue<>(NEWEST_FIRST.reversed());
+        for (Path file : files(from, to)) {
+            try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(new LocalInputFile(file), new PlainParquetConfiguration())
+                    .withDataModel(MODEL)
+                    .withFilter(filter)
+                    .build()) {
+                GenericRecord record;
+                while ((record = reader.read()) != null) {
+                    newest.add(fromRecord(record));
+                    if (newest.size() > limit) {
+                        newest.poll();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка чтения " + file, e);
+            }
+        }
+
+        List<Transaction> result = new ArrayList<>(newest);
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    private List<Path> files(LocalDateTime from, LocalDateTime to) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            return files
+                    .filter(file -> {
+                        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                        if (!matcher.matches()) {
+                            return false;
+                        }
+                        YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                        return (from == null || month.plusMonths(1).atDay(1).atStartOfDay().isAfter(from))
+                                && (to == null || !month.atDay(1).atStartOfDay().isAfter(to));
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения каталога " + directory, e);
+        }
+    }
+
+    private static FilterCompat.Filter filter(
+            String userUid,
+            String walletUid,
+            PaymentType type,
+            PaymentStatus status,
+            LocalDateTime from,
+            LocalDateTime to
+    ) {
+        List<FilterPredicate> predicates = new ArrayList<>();
+        if (userUid != null) {
+            predicates.add(FilterApi.eq(FilterApi.binaryColumn("user_uid"), Binary.fromString(UUID.fromString(userUid).toString())));
+        }
+        if (walletUid != null) {
+            predicates.add(FilterApi.eq(FilterApi.binaryColumn("wallet_uid"), Binary.fromString(UUID.fromString(walletUid).toString())));
+        }
+        if (type != null) {
+            predicates.add(FilterApi.eq(FilterApi.binaryColumn("type"), Binary.fromString(type.name())));
+        }
+        if (status != null) {
+            predicates.add(FilterApi.eq(FilterApi.binaryColumn("status"), Binary.fromString(status.name())));
+        }
+        if (from != null) {
+            predicates.add(FilterApi.gtEq(FilterApi.longColumn("created_at"), toMicros(from)));
+        }
+        if (to != null) {
+            predicates.add(FilterApi.ltEq(FilterApi.longColumn("created_at"), toMicros(to)));
+        }
+        return predicates.stream().reduce(FilterApi::and).map(FilterCompat::get).orElse(FilterCompat.NOOP);
+    }
+
+    private static GenericRecord toRecord(Transaction transaction) {
+        GenericData.Record record = new GenericData.Record(SCHEMA);
+        record.put("uid", transaction.getUid());
+        record.put("created_at", toLocal(transaction.getCreatedAt()));
+        record.put("modified_at", transaction.getModifiedAt() == null ? null : toLocal(transaction.getModifiedAt()));
+        record.put("user_uid", transaction.getUserUid());
+        record.put("wallet_uid", transaction.getWalletUid());
+        record.put("amount", transaction.getAmount().setScale(AMOUNT_SCALE));
+        record.put("fee", transaction.getFee() == null ? null : transaction.getFee().setScale(AMOUNT_SCALE));
+        record.put("currency", transaction.getCurrency().getCurrencyCode());
+        record.put("type", transaction.getType().name());
+        record.put("status", transaction.getStatus().name());
+        record.put("comment", transaction.getComment());
+        record.put("target_wallet_uid", transaction.getTargetWalletUid());
+        record.put("failure_reason", transaction.getFailureReason());
+        return record;
+    }
+
+    private static Transaction fromRecord(GenericRecord record) {
+        Transaction transaction = new Transaction();
+        transaction.setUid((UUID) record.get("uid"));
+        transaction.setCreatedAt(toOffset((LocalDateTime) record.get("created_at")));
+        transaction.setModifiedAt(record.get("modified_at") == null ? null : toOffset((LocalDateTime) record.get("modified_at")));
+        transaction.setUserUid((UUID) record.get("user_uid"));
+        transaction.setWalletUid((UUID) record.get("wallet_uid"));
+        transaction.setAmount((BigDecimal) record.get("amount"));
+        transaction.setFee((BigDecimal) record.get("fee"));
+        transaction.setCurrency(Currency.getInstance(record.get("currency").toString()));
+        transaction.setType(PaymentType.valueOf(record.get("type").toString()));
+        transaction.setStatus(PaymentStatus.valueOf(record.get("status").toString()));
+        transaction.setComment(record.get("comment") == null ? null : record.get("comment").toString());
+        transaction.setTargetWalletUid((UUID) record.get("target_wallet_uid"));
+        transaction.setFailureReason(record.get("failure_reason") == null ? null : record.get("failure_reason").toString());
+        return transaction;
+    }
+
+    // TIMESTAMP без зоны хранится во времени JVM, как его пишет и читает Hibernate
+    private static LocalDateTime toLocal(OffsetDateTime time) {
+        return time.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    private static OffsetDateTime toOffset(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toOffsetDateTime();
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), time);
+    }
+}
@@ -0,0 +1,170 @@
+package com.advanced.transactionservice.service.partition;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code transactions} on every shard: partitions for the current
+ * month and the next {@code transactions.partitions.months-ahead} months are created in advance, and
+ * partitions that ended more than {@code transactions.partitions.retention-months} months ago are
+ * detached and moved to the {@code transactions_archive} schema. Months are taken from the database
+ * clock, the one {@code created_at} defaults to.
+ * <p>
+ * Creating a partition briefly locks the whole table, so it gives up after
+ * {@code transactions.partitions.lock-timeout} and is retried on the next run. Detaching uses
+ * {@code DETACH PARTITION CONCURRENTLY}, which does not block queries on other partitions.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+public class TransactionPartitionMaintainer {
+
+    private static final String ARCHIVE_SCHEMA = "transactions_archive";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("transactions_(\\d{4})_(\\d{2})");
+
+    private static final DateTimeFormatter NAME_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String CURRENT_MONTH = "SELECT CAST(date_trunc('month', now()) AS DATE)";
+
+    private static final String SELECT_PARTITIONS = """
+            SELECT c.relname, i.inhdetachpending FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'public.transactions'::regclass
+            """;
+
+    private static final String CREATE_PARTITION = "SELECT create_transactions_partition(?)";
+
+    private static final String DETACH_PARTITION = "ALTER TABLE transactions DETACH PARTITION %s CONCURRENTLY";
+
+    // Отсоединение, прерванное на середине, можно только завершить
+    private static final String FINALIZE_DETACH = "ALTER TABLE transactions DETACH PARTITION %s FINALIZE";
+
+    // Архив не должен мешать удалять кошельки, например при переносе бакетов
+    private static final String SELECT_FOREIGN_KEYS = """
+            SELECT conname FROM pg_constraint
+            WHERE conrelid = CAST(? AS regclass) AND contype = 'f'
+            """;
+
+    private static final String DROP_CONSTRAINT = "ALTER TABLE %s DROP CONSTRAINT %s";
+
+    private static final String MOVE_TO_ARCHIVE = "ALTER TABLE %s SET SCHEMA " + ARCHIVE_SCHEMA;
+
+    private final TransactionMetricsService metricsService;
+
+    private final Map<String, Shard> shards;
+
+    @Value("${transactions.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${transactions.partitions.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${transactions.partitions.lock-timeout:5s}")
+    private Duration lockTimeout;
+
+    public TransactionPartitionMaintainer(TransactionMetricsService metricsService, ShardingSphereConfiguration shardingSphereConfiguration) {
+        this.metricsService = metricsService;
+        this.shards = new TreeMap<>();
+        shardingSphereConfiguration.getShardDataSources().forEach((name, shardDataSource) -> shards.put(name, new Shard(
+                name,
+                new JdbcTemplate(shardDataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(shardDataSource))
+        )));
+    }
+
+    @Scheduled(fixedDelayString = "${transactions.partitions.interval:PT1H}")
+    public void maintain() {
+        shards.values().forEach(this::maintainShard);
+    }
+
+    private void maintainShard(Shard shard) {
+        YearMonth currentMonth;
+        Map<String, Boolean> partitions;
+        try {
+            Date monthStart = shard.jdbcTemplate().queryForObject(CURRENT_MONTH, Date.class);
+            currentMonth = YearMonth.from(monthStart.toLocalDate());
+            partitions = new TreeMap<>();
+            shard.jdbcTemplate().query(SELECT_PARTITIONS, rs -> {
+                partitions.put(rs.getString("relname"), rs.getBoolean("inhdetachpending"));
+            });
+        } catch (RuntimeException e) {
+            log.error("Ошибка чтения секций transactions в {}", shard.name(), e);
+            return;
+        }
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            if (!partitions.containsKey(partitionName(month))) {
+                createPartition(shard, month);
+            }
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = currentMonth.minusMonths(retentionMonths);
+            partitions.forEach((partition, detachPending) -> {
+                Matcher matcher = PARTITION_NAME.matcher(partition);
+                if (matcher.matches()
+                        && YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(oldestKept)) {
+                    archivePartition(shard, partition, detachPending);
+                }
+            });
+        }
+    }
+
+    private void createPartition(Shard shard, YearMonth month) {
+        try {
+            shard.transactionTemplate().executeWithoutResult(status -> {
+                shard.jdbcTemplate().execute("SET LOCAL lock_timeout = " + lockTimeout.toMillis());
+                shard.jdbcTemplate().queryForObject(CREATE_PARTITION, String.class, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+            });
+            metricsService.incrementTransactionPartitions(shard.name(), "created");
+            log.info("Создана секция {} в {}", partitionName(month), shard.name());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось создать секцию {} в {}", partitionName(month), shard.name(), e);
+        }
+    }
+
+    private void archivePartition(Shard shard, String partition, boolean detachPending) {
+        JdbcTemplate jdbcTemplate = shard.jdbcTemplate();
+        try {
+            // CONCURRENTLY нельзя выполнять внутри транзакции
+            jdbcTemplate.execute((detachPending ? FINALIZE_DETACH : DETACH_PARTITION).formatted(partition));
+            shard.transactionTemplate().executeWithoutResult(status -> {
+                List<String> foreignKeys = jdbcTemplate.queryForList(SELECT_FOREIGN_KEYS, String.class, partition);
+                foreignKeys.forEach(foreignKey -> jdbcTemplate.execute(DROP_CONSTRAINT.formatted(partition, foreignKey)));
+                jdbcTemplate.execute(MOVE_TO_ARCHIVE.formatted(partition));
+            });
+            metricsService.incrementTransactionPartitions(shard.name(), "archived");
+            log.info("Секция {} в {} отсоединена и перенесена в {}", partition, shard.name(), ARCHIVE_SCHEMA);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось перенести в архив секцию {} в {}", partition, shard.name(), e);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "transactions_" + month.format(NAME_SUFFIX);
+    }
+
+    private record Shard(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.advanced.transactionservice.service.producer;
+
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends records to Kafka with a bounded number of unacknowledged sends. Batching, compression
+ * and idempotent delivery are settings of the producer ({@code spring.kafka.producer}); this class
+ * keeps callers from queueing more than {@code kafka.producer.max-in-flight} records into the
+ * producer buffer and records send latency and failures per topic.
+ * <p>
+ * A send that finds no free slot waits up to {@code kafka.producer.backpressure-timeout}, then
+ * fails without reaching the producer, so the caller can retry it later.
+ */
+@Component
+public class KafkaPublisher {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final TransactionMetricsService metricsService;
+
+    private final Semaphore inFlight;
+
+    private final long backpressureTimeoutNanos;
+
+    public KafkaPublisher(
+            KafkaTemplate<String, Object> kafkaTemplate,
+            TransactionMetricsService metricsService,
+            @Value("${kafka.producer.max-in-flight:10000}") int maxInFlight,
+            @Value("${kafka.producer.backpressure-timeout:5s}") Duration backpressureTimeout
+    ) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("kafka.producer.max-in-flight must be positive");
+        }
+        this.kafkaTemplate = kafkaTemplate;
+        this.metricsService = metricsService;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.backpressureTimeoutNanos = backpressureTimeout.toNanos();
+        metricsService.registerKafkaInFlight(inFlight, maxInFlight);
+    }
+
+    /**
+     * @return future completed when the broker acknowledges the record, or failed with
+     * {@link TimeoutException} if no in-flight slot was freed in time
+     */
+    public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object value) {
+        if (!acquire(topic)) {
+            metricsService.incrementKafkaSendFailed(topic, "backpressure");
+            return CompletableFuture.failedFuture(new TimeoutException("No in-flight slot for " + topic));
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, Object>> future;
+        try {
+            future = kafkaTemplate.send(topic, key, value);
+        } catch (RuntimeException e) {
+            // Ошибка сериализации или переполненный буфер продюсера - запись не отправлена
+            inFlight.release();
+            metricsService.incrementKafkaSendFailed(topic, reason(e));
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return future.whenComplete((result, error) -> {
+            inFlight.release();
+            if (error == null) {
+                metricsService.recordKafkaSend(topic, System.nanoTime() - start);
+            } else {
+                metricsService.incrementKafkaSendFailed(topic, reason(error));
+            }
+        });
+    }
+
+    private boolean acquire(String topic) {
+        if (inFlight.tryAcquire()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            return inFlight.tryAcquire(backpressureTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            metricsService.recordKafkaBackpressure(topic, System.nanoTime() - start);
+        }
+    }
+
+    // Причина - класс исходного исключения Kafka, без обертки Spring
+    private static String reason(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof KafkaProducerException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
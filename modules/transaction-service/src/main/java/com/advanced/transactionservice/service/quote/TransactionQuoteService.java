@@ -0,0 +1,154 @@
+package com.advanced.transactionservice.service.quote;
+
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.exception.QuoteMismatchException;
+import com.advanced.transactionservice.mapper.TransactionQuoteMapper;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.TransactionQuote;
+import com.advanced.transactionservice.repository.TransactionQuoteRepository;
+import com.advanced.transactionservice.service.cache.LruCache;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues quotes on init calls and resolves them on confirm calls.
+ * <p>
+ * A quote is written to the user's shard and, once committed, kept in a bounded in-memory cache,
+ * so a confirm served by the instance that handled the init needs no database round trip, and one
+ * served by another instance reads a single row by its sharded UID. Quotes expire after
+ * {@code quotes.ttl}; an expired or unknown quote is not an error, the confirm then reads the wallets
+ * as before. Within the TTL the wallet snapshot is trusted: debits still check the balance and the
+ * wallet status under the wallet lock, credits do not.
+ */
+@Slf4j
+@Service
+public class TransactionQuoteService {
+
+    private final TransactionQuoteRepository quoteRepository;
+
+    private final TransactionMetricsService metricsService;
+
+    private final LruCache<UUID, TransactionQuote> recent;
+
+    @Value("${quotes.ttl:PT2M}")
+    private Duration ttl;
+
+    public TransactionQuoteService(
+            TransactionQuoteRepository quoteRepository,
+            TransactionMetricsService metricsService,
+            @Value("${quotes.cache.max-size:10000}") int cacheMaxSize
+    ) {
+        this.quoteRepository = quoteRepository;
+        this.metricsService = metricsService;
+        this.recent = new LruCache<>(cacheMaxSize);
+    }
+
+    /**
+     * Stores a quote in its own transaction: init calls read in read-only transactions, possibly
+     * from a replica, while the quote has to be written to the primary.
+     * <p>
+     * Must not be called inside another transaction: the caller would hold a connection of the
+     * shard pool while waiting for a second one, and enough concurrent init calls exhaust the pool.
+     *
+     * @param targetWallet wallet credited by a transfer, {@code null} for other operations
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public TransactionQuote issue(PaymentType operation, WalletResponse wallet, WalletResponse targetWallet, Money amount, Money fee) {
+        TransactionQuote quote = TransactionQuoteMapper.toQuote(
+                operation, wallet, targetWallet, amount, fee, OffsetDateTime.now().plus(ttl));
+        quoteRepository.save(quote);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recent.put(quote.getUid(), quote);
+            }
+        });
+        return quote;
+    }
+
+    /**
+     * Valid quote of the operation by its UID; empty if no UID was passed or the quote is unknown
+     * or expired.
+     *
+     * @throws QuoteMismatchException if the quote was issued for another operation
+     */
+    public Optional<TransactionQuote> find(UUID quoteUid, PaymentType operation) {
+        if (quoteUid == null) {
+            return Optional.empty();
+        }
+
+        TransactionQuote quote = recent.get(quoteUid);
+        String result = "cache";
+        if (quote == null) {
+            quote = quoteRepository.findById(quoteUid).orElse(null);
+            result = "db";
+        }
+        if (quote == null) {
+            metricsService.incrementQuoteLookup("miss", operation);
+            return Optional.empty();
+        }
+        if (!quote.getExpiresAt().isAfter(OffsetDateTime.now())) {
+            recent.remove(quoteUid);
+            metricsService.incrementQuoteLookup("expired", operation);
+            return Optional.empty();
+        }
+
+        if (quote.getOperation() != operation) {
+            throw new QuoteMismatchException(quoteUid);
+        }
+        recent.put(quoteUid, quote);
+        metricsService.incrementQuoteLookup(result, operation);
+        return Optional.of(quote);
+    }
+
+    /**
+     * Checks that a confirm request repeats what was quoted. The currency may be omitted, the quote
+     * then keeps its own.
+     *
+     * @param targetWalletUid wallet credited by a transfer, {@code null} for other operations
+     * @throws QuoteMismatchException if a wallet, the amount, the fee or the currency differ
+     */
+    public void checkRequest(
+            TransactionQuote quote,
+            UUID walletUid,
+            UUID targetWalletUid,
+            BigDecimal amount,
+            BigDecimal fee,
+            String currency
+    ) {
+        boolean matches = quote.getWalletUid().equals(walletUid)
+                && Objects.equals(quote.getTargetWalletUid(), targetWalletUid)
+                && (currency == null || quote.getCurrency().equals(currency))
+                && quote.getAmountMinor() == Money.toMinorUnits(amount)
+                && quote.getFeeMinor() == Money.toMinorUnits(fee);
+        if (!matches) {
+            throw new QuoteMismatchException(quote.getUid());
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${quotes.cleanup.interval:PT1M}")
+    public void cleanup() {
+        int deleted = quoteRepository.deleteExpiredBefore(OffsetDateTime.now());
+        if (deleted > 0) {
+            metricsService.incrementQuotesExpired(deleted);
+            log.debug("Удалено {} истекших котировок", deleted);
+        }
+    }
+}
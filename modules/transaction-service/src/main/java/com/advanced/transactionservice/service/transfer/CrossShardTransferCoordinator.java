@@ -0,0 +1,208 @@
+package com.advanced.transactionservice.service.transfer;
+
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.mapper.TransactionMapper;
+import com.advanced.transactionservice.model.*;
+import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.repository.TransferLegRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.service.idempotency.IdempotencyService;
+import com.advanced.transactionservice.service.idempotency.IdempotentRequest;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Runs a transfer between wallets on different shards as a sequence of local transactions:
+ * <ol>
+ *     <li>hold - debit the source wallet and record a HELD debit leg on the source shard;</li>
+ *     <li>credit - credit the target wallet and record an APPLIED credit leg on the target shard;</li>
+ *     <li>settle - mark the debit leg SETTLED, move the fee left in TRANSIT to FEES and mark the transaction COMPLETED.</li>
+ * </ol>
+ * The credit leg is unique per transaction, so a credit is applied at most once. A transfer is
+ * rolled back by writing a CANCELLED credit leg first, which fences off any later credit attempt,
+ * and then releasing the hold back to the source wallet.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrossShardTransferCoordinator {
+
+    private final WalletService walletService;
+
+    private final TransactionRepository transactionRepository;
+
+    private final TransferLegRepository transferLegRepository;
+
+    private final IdempotencyService idempotencyService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public Transaction execute(
+            TransferConfirmRequest request,
+            WalletResponse fromWallet,
+            WalletResponse toWallet,
+            Money amount,
+            Money fee,
+            IdempotentRequest idempotent
+    ) {
+        Hold hold = transactionTemplate.execute(status -> hold(request, fromWallet, toWallet, amount, fee, idempotent));
+
+        try {
+            return complete(hold.debitLeg(), amount);
+        } catch (EntityNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Перевод {} между шардами не завершен, будет восстановлен позже", hold.transaction().getUid(), e);
+            return hold.transaction();
+        }
+    }
+
+    /**
+     * Drives a HELD transfer to its final state. Safe to call repeatedly and concurrently.
+     */
+    public Transaction resume(TransferLeg debitLeg) {
+        return complete(debitLeg, TransactionMapper.amount(findTransaction(debitLeg)));
+    }
+
+    private Transaction complete(TransferLeg debitLeg, Money creditAmount) {
+        boolean credited;
+        try {
+            credited = transactionTemplate.execute(status -> credit(debitLeg, creditAmount));
+        } catch (EntityNotFoundException e) {
+            // Кошелек получателя не найден - отменяем перевод, если зачисление еще не прошло
+            boolean cancelled = transactionTemplate.execute(status -> cancel(debitLeg, creditAmount));
+            if (!cancelled) {
+                return transactionTemplate.execute(status -> settle(debitLeg));
+            }
+            transactionTemplate.execute(status -> release(debitLeg, e.getMessage()));
+            throw e;
+        }
+
+        if (credited) {
+            return transactionTemplate.execute(status -> settle(debitLeg));
+        }
+        return transactionTemplate.execute(status -> release(debitLeg, "Transfer cancelled"));
+    }
+
+    private Hold hold(
+            TransferConfirmRequest request,
+            WalletResponse fromWallet,
+            WalletResponse toWallet,
+            Money amount,
+            Money fee,
+            IdempotentRequest idempotent
+    ) {
+        Money debitAmount = amount.plus(fee);
+        Transaction transaction = TransactionMapper.fromTransfer(request, fromWallet, toWallet.getWalletUid(), amount, fee);
+        transaction.setStatus(PaymentStatus.PENDING);
+        transactionRepository.saveAndFlush(transaction);
+        walletService.debit(transaction.getUid(), fromWallet.getWalletUid(), fromWallet.getUserUid(), debitAmount, LedgerAccount.TRANSIT);
+        idempotencyService.record(idempotent, PaymentType.TRANSFER, transaction);
+
+        TransferLeg leg = new TransferLeg();
+        leg.setTransactionUid(transaction.getUid());
+        leg.setType(TransferLegType.DEBIT);
+        leg.setStatus(TransferLegStatus.HELD);
+        leg.setWalletUid(fromWallet.getWalletUid());
+        leg.setUserUid(fromWallet.getUserUid());
+        leg.setAmount(debitAmount.toBigDecimal());
+        leg.setCounterpartyWalletUid(toWallet.getWalletUid());
+        leg.setCounterpartyUserUid(toWallet.getUserUid());
+        transferLegRepository.save(leg);
+
+        return new Hold(transaction, leg);
+    }
+
+    // true - деньги зачислены (сейчас или ранее), false - перевод уже отменен
+    private boolean credit(TransferLeg debitLeg, Money amount) {
+        Optional<TransferLeg> existing = findCreditLeg(debitLeg);
+        if (existing.isPresent()) {
+            return existing.get().getStatus() == TransferLegStatus.APPLIED;
+        }
+
+        transferLegRepository.saveAndFlush(creditLeg(debitLeg, amount.toBigDecimal(), TransferLegStatus.APPLIED));
+        walletService.credit(debitLeg.getTransactionUid(), debitLeg.getCounterpartyWalletUid(), debitLeg.getCounterpartyUserUid(),
+                amount, LedgerAccount.TRANSIT);
+        return true;
+    }
+
+    // true - перевод отменен (сейчас или ранее), false - зачисление уже произошло
+    private boolean cancel(TransferLeg debitLeg, Money amount) {
+        Optional<TransferLeg> existing = findCreditLeg(debitLeg);
+        if (existing.isPresent()) {
+            return existing.get().getStatus() == TransferLegStatus.CANCELLED;
+        }
+
+        transferLegRepository.saveAndFlush(creditLeg(debitLeg, amount.toBigDecimal(), TransferLegStatus.CANCELLED));
+        return true;
+    }
+
+    private Transaction settle(TransferLeg debitLeg) {
+        Transaction transaction = findTransaction(debitLeg);
+        int updated = transferLegRepository.changeStatus(
+                debitLeg.getTransactionUid(), TransferLegType.DEBIT, debitLeg.getUserUid(),
+                TransferLegStatus.HELD, TransferLegStatus.SETTLED);
+
+        if (updated == 1) {
+            // Удержание списало сумму вместе с комиссией, а зачисление забрало из TRANSIT только сумму
+            Money fee = Money.of(debitLeg.getAmount(), transaction.getCurrency()).minus(TransactionMapper.amount(transaction));
+            if (!fee.isZero()) {
+                walletService.collectFee(debitLeg.getTransactionUid(), debitLeg.getUserUid(), fee, LedgerAccount.TRANSIT);
+            }
+            transaction.setStatus(PaymentStatus.COMPLETED);
+            transactionRepository.save(transaction);
+        }
+        return transaction;
+    }
+
+    private Transaction release(TransferLeg debitLeg, String reason) {
+        Transaction transaction = findTransaction(debitLeg);
+        int updated = transferLegRepository.changeStatus(
+                debitLeg.getTransactionUid(), TransferLegType.DEBIT, debitLeg.getUserUid(),
+                TransferLegStatus.HELD, TransferLegStatus.RELEASED);
+
+        if (updated == 1) {
+            walletService.credit(debitLeg.getTransactionUid(), debitLeg.getWalletUid(), debitLeg.getUserUid(),
+                    Money.of(debitLeg.getAmount(), transaction.getCurrency()), LedgerAccount.TRANSIT);
+            transaction.setStatus(PaymentStatus.FAILED);
+            transaction.setFailureReason(reason);
+            transactionRepository.save(transaction);
+        }
+        return transaction;
+    }
+
+    private Optional<TransferLeg> findCreditLeg(TransferLeg debitLeg) {
+        return transferLegRepository.findByTransactionUidAndTypeAndUserUid(
+                debitLeg.getTransactionUid(), TransferLegType.CREDIT, debitLeg.getCounterpartyUserUid());
+    }
+
+    private Transaction findTransaction(TransferLeg debitLeg) {
+        UUID transactionUid = debitLeg.getTransactionUid();
+        return transactionRepository.findByUidAndUserUid(transactionUid, debitLeg.getUserUid())
+                .orElseThrow(() -> new IllegalStateException("Transaction not found: " + transactionUid));
+    }
+
+    private static TransferLeg creditLeg(TransferLeg debitLeg, BigDecimal amount, TransferLegStatus status) {
+        TransferLeg leg = new TransferLeg();
+        leg.setTransactionUid(debitLeg.getTransactionUid());
+        leg.setType(TransferLegType.CREDIT);
+        leg.setStatus(status);
+        leg.setWalletUid(debitLeg.getCounterpartyWalletUid());
+        leg.setUserUid(debitLeg.getCounterpartyUserUid());
+        leg.setAmount(amount);
+        leg.setCounterpartyWalletUid(debitLeg.getWalletUid());
+        leg.setCounterpartyUserUid(debitLeg.getUserUid());
+        return leg;
+    }
+
+    private record Hold(Transaction transaction, TransferLeg debitLeg) {
+    }
+}
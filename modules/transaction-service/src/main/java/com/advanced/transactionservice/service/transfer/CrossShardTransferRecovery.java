@@ -0,0 +1,66 @@
+package com.advanced.transactionservice.service.transfer;
+
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.model.TransferLeg;
+import com.advanced.transactionservice.model.TransferLegStatus;
+import com.advanced.transactionservice.model.TransferLegType;
+import com.advanced.transactionservice.repository.TransferLegRepository;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Finishes cross-shard transfers whose hold was not settled or released in the request
+ * that created it, e.g. because the target shard was unavailable or the instance stopped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrossShardTransferRecovery {
+
+    private final TransferLegRepository transferLegRepository;
+
+    private final CrossShardTransferCoordinator coordinator;
+
+    private final TransactionMetricsService metricsService;
+
+    @Value("${transfer.recovery.stale-after:30s}")
+    private Duration staleAfter;
+
+    @Value("${transfer.recovery.batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${transfer.recovery.interval:PT30S}")
+    public void recover() {
+        List<TransferLeg> heldLegs = transferLegRepository.findByTypeAndStatusAndCreatedAtBeforeOrderByCreatedAt(
+                TransferLegType.DEBIT,
+                TransferLegStatus.HELD,
+                OffsetDateTime.now().minus(staleAfter),
+                Limit.of(batchSize)
+        );
+
+        for (TransferLeg leg : heldLegs) {
+            try {
+                Transaction transaction = coordinator.resume(leg);
+                metricsService.incrementTransferRecovery(
+                        transaction.getStatus() == PaymentStatus.COMPLETED ? "settled" : "released");
+            } catch (EntityNotFoundException e) {
+                log.warn("Перевод {} отменен: кошелек получателя не найден", leg.getTransactionUid());
+                metricsService.incrementTransferRecovery("released");
+            } catch (RuntimeException e) {
+                log.error("Не удалось восстановить перевод {}", leg.getTransactionUid(), e);
+                metricsService.incrementTransferRecovery("failed");
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.advanced.transactionservice.service.transfer;
+
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.mapper.TransactionMapper;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.service.idempotency.IdempotencyService;
+import com.advanced.transactionservice.service.idempotency.IdempotentRequest;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.sharding.ShardResolver;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Entry point for wallet-to-wallet transfers. Wallets of users on the same shard are
+ * updated in one local transaction, otherwise the transfer goes through
+ * {@link CrossShardTransferCoordinator}.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransferEngine {
+
+    private final ShardResolver shardResolver;
+
+    private final WalletService walletService;
+
+    private final TransactionRepository transactionRepository;
+
+    private final CrossShardTransferCoordinator crossShardTransferCoordinator;
+
+    private final IdempotencyService idempotencyService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionMetricsService metricsService;
+
+    public Transaction transfer(
+            TransferConfirmRequest request,
+            WalletResponse fromWallet,
+            WalletResponse toWallet,
+            Money amount,
+            Money fee,
+            IdempotentRequest idempotent
+    ) {
+        if (shardResolver.isSameShard(fromWallet.getUserUid(), toWallet.getUserUid())) {
+            metricsService.incrementTransferRoute("local");
+            return transactionTemplate.execute(status -> transferLocal(request, fromWallet, toWallet, amount, fee, idempotent));
+        }
+
+        metricsService.incrementTransferRoute("cross_shard");
+        return crossShardTransferCoordinator.execute(request, fromWallet, toWallet, amount, fee, idempotent);
+    }
+
+    private Transaction transferLocal(
+            TransferConfirmRequest request,
+            WalletResponse fromWallet,
+            WalletResponse toWallet,
+            Money amount,
+            Money fee,
+            IdempotentRequest idempotent
+    ) {
+        Transaction transaction = TransactionMapper.fromTransfer(request, fromWallet, toWallet.getWalletUid(), amount, fee);
+        transactionRepository.save(transaction);
+        walletService.transfer(
+                transaction.getUid(),
+                fromWallet.getWalletUid(),
+                fromWallet.getUserUid(),
+                toWallet.getWalletUid(),
+                toWallet.getUserUid(),
+                amount,
+                fee
+        );
+        idempotencyService.record(idempotent, PaymentType.TRANSFER, transaction);
+        return transaction;
+    }
+}
@@ -2,9 +2,9 @@ package com.advanced.transactionservice.service.validation;
 
 import com.advanced.contract.model.WalletResponse;
 import com.advanced.transactionservice.exception.TransferSameWalletsException;
+import com.advanced.transactionservice.model.Money;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.Objects;
 
 @Component
@@ -14,12 +14,12 @@ public class TransactionValidation {
         WalletValidation.validateDeposit(wallet);
     }
 
-    public void validateWithdrawal(WalletResponse wallet, BigDecimal totalAmount) {
+    public void validateWithdrawal(WalletResponse wallet, Money totalAmount) {
         //Какая-нибудь дополнительная проверка
         WalletValidation.validateWithdrawal(wallet, totalAmount);
     }
 
-    public void validateTransfer(WalletResponse fromWallet, WalletResponse toWallet, BigDecimal totalAmount) {
+    public void validateTransfer(WalletResponse fromWallet, WalletResponse toWallet, Money totalAmount) {
         //Какая-нибудь дополнительная проверка
         WalletValidation.validateTransfer(fromWallet, toWallet, totalAmount);
     }
@@ -4,6 +4,7 @@ import com.advanced.contract.model.WalletResponse;
 import com.advanced.transactionservice.exception.TransferSameWalletsException;
 import com.advanced.transactionservice.exception.WalletBalanceException;
 import com.advanced.transactionservice.exception.WalletStatusException;
+import com.advanced.transactionservice.model.Money;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.model.WalletStatus;
 
@@ -13,11 +14,11 @@ import java.util.UUID;
 
 public class WalletValidation {
 
-    public static void checkWalletBalance(WalletResponse wallet, BigDecimal totalAmount) {
+    public static void checkWalletBalance(WalletResponse wallet, Money totalAmount) {
         checkWalletBalance(Objects.requireNonNull(wallet.getBalance()), totalAmount);
     }
 
-    public static void checkWalletBalance(Wallet wallet, BigDecimal totalAmount) {
+    public static void checkWalletBalance(Wallet wallet, Money totalAmount) {
         checkWalletBalance(wallet.getBalance(), totalAmount);
     }
 
@@ -29,9 +30,9 @@ public class WalletValidation {
         checkWalletStatus(wallet.getStatus().getValue(), wallet.getUid());
     }
 
-    private static void checkWalletBalance(BigDecimal balance, BigDecimal totalAmount) {
-        if (balance.compareTo(totalAmount) < 0) {
-            throw new WalletBalanceException(totalAmount, totalAmount);
+    private static void checkWalletBalance(BigDecimal balance, Money totalAmount) {
+        if (totalAmount.exceeds(balance)) {
+            throw new WalletBalanceException(balance, totalAmount.toBigDecimal());
         }
     }
 
@@ -41,12 +42,12 @@ public class WalletValidation {
         }
     }
 
-    public static void validateWithdrawal(Wallet wallet, BigDecimal amount) {
+    public static void validateWithdrawal(Wallet wallet, Money amount) {
         WalletValidation.checkWalletStatus(wallet);
         WalletValidation.checkWalletBalance(wallet, amount);
     }
 
-    public static void validateWithdrawal(WalletResponse wallet, BigDecimal amount) {
+    public static void validateWithdrawal(WalletResponse wallet, Money amount) {
         WalletValidation.checkWalletStatus(wallet);
         WalletValidation.checkWalletBalance(wallet, amount);
     }
@@ -59,14 +60,14 @@ public class WalletValidation {
         WalletValidation.checkWalletStatus(wallet);
     }
 
-    public static void validateTransfer(Wallet fromWallet, Wallet toWallet, BigDecimal totalAmount) {
+    public static void validateTransfer(Wallet fromWallet, Wallet toWallet, Money totalAmount) {
         checkEqualsWallet(fromWallet, toWallet);
         checkWalletStatus(fromWallet);
         checkWalletStatus(toWallet);
         checkWalletBalance(fromWallet, totalAmount);
     }
 
-    public static void validateTransfer(WalletResponse fromWallet, WalletResponse toWallet, BigDecimal totalAmount) {
+    public static void validateTransfer(WalletResponse fromWallet, WalletResponse toWallet, Money totalAmount) {
         checkEqualsWallet(fromWallet, toWallet);
         checkWalletStatus(fromWallet);
         checkWalletStatus(toWallet);
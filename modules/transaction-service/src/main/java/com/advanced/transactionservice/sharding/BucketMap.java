@@ -0,0 +1,71 @@
+package com.advanced.transactionservice.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable assignment of virtual buckets to datasources. A routing key belongs to bucket
+ * {@code floorMod(routingKey, bucketCount)}; the bucket count never changes, so adding a datasource
+ * only moves the buckets reassigned to it instead of remapping almost every user.
+ * <p>
+ * The initial layout puts bucket {@code b} on {@code ds_<b % shardCount>}, which matches the former
+ * {@code floorMod(routingKey, shardCount)} rule whenever the shard count divides the bucket count.
+ */
+public final class BucketMap {
+
+    public static final int DEFAULT_BUCKET_COUNT = 1024;
+
+    private final int[] shards;
+
+    public BucketMap(int[] shards) {
+        if (shards.length == 0) {
+            throw new IllegalArgumentException("Bucket map must not be empty");
+        }
+        this.shards = shards.clone();
+    }
+
+    public static BucketMap initial(int bucketCount, int shardCount) {
+        int[] shards = new int[bucketCount];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            shards[bucket] = bucket % shardCount;
+        }
+        return new BucketMap(shards);
+    }
+
+    public int bucketCount() {
+        return shards.length;
+    }
+
+    public int bucketOf(int routingKey) {
+        return Math.floorMod(routingKey, shards.length);
+    }
+
+    public int shardOf(int routingKey) {
+        return shards[bucketOf(routingKey)];
+    }
+
+    public int shardOfBucket(int bucket) {
+        return shards[bucket];
+    }
+
+    public List<Integer> bucketsOf(int shard) {
+        List<Integer> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket < shards.length; bucket++) {
+            if (shards[bucket] == shard) {
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BucketMap other && Arrays.equals(shards, other.shards);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(shards);
+    }
+}
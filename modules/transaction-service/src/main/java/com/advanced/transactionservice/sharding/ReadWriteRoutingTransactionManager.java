@@ -0,0 +1,52 @@
+package com.advanced.transactionservice.sharding;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Lets transactions declared {@code @Transactional(readOnly = true)} by the application read from
+ * shard replicas; all other transactions read from the primaries.
+ * <p>
+ * Spring Data wraps single repository calls in implicit read-only transactions. Those stay on the
+ * primary: callers such as the idempotency replay or the completion listener look up rows that were
+ * committed a moment ago and must not miss them on a lagging replica.
+ */
+public class ReadWriteRoutingTransactionManager extends JpaTransactionManager {
+
+    private static final String SPRING_DATA_PREFIX = "org.springframework.data.";
+
+    // Значения флага внешних транзакций, восстанавливаются при завершении вложенных REQUIRES_NEW
+    private final ThreadLocal<Deque<Boolean>> suspended = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public ReadWriteRoutingTransactionManager(EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory);
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        suspended.get().push(ReplicaReads.enter(readsFromReplica(definition)));
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            Deque<Boolean> previous = suspended.get();
+            ReplicaReads.restore(!previous.isEmpty() && previous.pop());
+            if (previous.isEmpty()) {
+                suspended.remove();
+            }
+        }
+    }
+
+    static boolean readsFromReplica(TransactionDefinition definition) {
+        String name = definition.getName();
+        return definition.isReadOnly() && (name == null || !name.startsWith(SPRING_DATA_PREFIX));
+    }
+}
@@ -0,0 +1,109 @@
+package com.advanced.transactionservice.sharding;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Replication-lag guard for read/write splitting. A replica whose replay position has reached the
+ * primary's current WAL position is not lagging, however long ago it replayed its last transaction;
+ * otherwise its lag is the age of the last replayed transaction. Replicas lagging more than
+ * {@code sharding.replicas.max-lag}, or failing the check, get no reads until they catch up.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+public class ReplicaLagMonitor {
+
+    private static final String PRIMARY_LSN = "SELECT pg_current_wal_lsn()::text";
+
+    private static final String REPLICA_LAG = """
+            SELECT NOT pg_is_in_recovery() OR coalesce(pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn), false) AS caught_up,
+                   EXTRACT(EPOCH FROM clock_timestamp() - pg_last_xact_replay_timestamp()) AS lag_seconds
+            """;
+
+    private final TransactionMetricsService metricsService;
+
+    private final Map<String, JdbcTemplate> primaries = new LinkedHashMap<>();
+
+    private final Map<String, Map<String, JdbcTemplate>> replicas = new LinkedHashMap<>();
+
+    private Set<String> lagging = Set.of();
+
+    @Value("${sharding.replicas.max-lag:5s}")
+    private Duration maxLag;
+
+    public ReplicaLagMonitor(ShardingSphereConfiguration shardingSphereConfiguration, TransactionMetricsService metricsService) {
+        this.metricsService = metricsService;
+        shardingSphereConfiguration.getReplicaDataSources().forEach((shard, shardReplicas) -> {
+            primaries.put(shard, new JdbcTemplate(shardingSphereConfiguration.getShardDataSources().get(shard)));
+            Map<String, JdbcTemplate> templates = new LinkedHashMap<>();
+            shardReplicas.forEach((name, dataSource) -> templates.put(name, new JdbcTemplate(dataSource)));
+            replicas.put(shard, templates);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${sharding.replicas.lag-check-interval:PT1S}")
+    public void check() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        Set<String> current = new TreeSet<>();
+        replicas.forEach((shard, shardReplicas) -> {
+            String primaryLsn = primaryLsn(shard);
+            shardReplicas.forEach((name, jdbcTemplate) -> {
+                double lag = lagSeconds(name, jdbcTemplate, primaryLsn);
+                metricsService.recordReplicaLag(name, lag);
+                // NaN тоже считается отставанием
+                if (!(lag <= maxLag.toMillis() / 1000.0)) {
+                    current.add(name);
+                }
+            });
+        });
+
+        if (!current.equals(lagging)) {
+            if (current.isEmpty()) {
+                log.info("Все реплики снова обслуживают чтение");
+            } else {
+                log.warn("Реплики исключены из чтения из-за отставания: {}", current);
+            }
+            lagging = current;
+            ReplicaReads.publishLagging(current);
+        }
+    }
+
+    private String primaryLsn(String shard) {
+        try {
+            return primaries.get(shard).queryForObject(PRIMARY_LSN, String.class);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось получить позицию WAL primary шарда {}", shard, e);
+            return null;
+        }
+    }
+
+    private double lagSeconds(String replica, JdbcTemplate jdbcTemplate, String primaryLsn) {
+        try {
+            return jdbcTemplate.queryForObject(REPLICA_LAG, (rs, rowNum) -> {
+                if (rs.getBoolean("caught_up")) {
+                    return 0.0;
+                }
+                double lag = rs.getDouble("lag_seconds");
+                return rs.wasNull() ? Double.NaN : Math.max(lag, 0.0);
+            }, primaryLsn);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось проверить отставание реплики {}", replica, e);
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.advanced.transactionservice.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.apache.shardingsphere.infra.algorithm.loadbalancer.core.LoadBalanceAlgorithm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the datasource for reads of a read/write-splitting group. Reads go round-robin to replicas
+ * that are not {@link ReplicaReads#isLagging lagging}, but only in transactions that
+ * {@link ReplicaReads#allowed allow replica reads}; everything else, and every read while all
+ * replicas lag, goes to the primary, which is therefore listed among the group's read datasources.
+ * <p>
+ * Algorithms are instantiated by ShardingSphere, so counters go to the global Micrometer registry.
+ */
+public class ReplicaLoadBalanceAlgorithm implements LoadBalanceAlgorithm {
+
+    public static final String TYPE = "REPLICA_LAG_AWARE";
+
+    private final Map<String, AtomicInteger> positions = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> routeCounters = new ConcurrentHashMap<>();
+
+    @Override
+    public String getTargetName(String groupName, List<String> availableTargetNames) {
+        String primary = ReplicaReads.primaryName(groupName);
+        String target = ReplicaReads.allowed() ? nextReplica(groupName, primary, availableTargetNames) : primary;
+        routeCounters.computeIfAbsent(groupName + ":" + target, key -> counter(groupName, target)).increment();
+        return target;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    // Без промежуточного списка: считаем доступные реплики и берем очередную по номеру
+    private String nextReplica(String groupName, String primary, List<String> names) {
+        int healthy = 0;
+        for (String name : names) {
+            if (isServing(name, primary)) {
+                healthy++;
+            }
+        }
+        if (healthy == 0) {
+            return primary;
+        }
+        int position = Math.floorMod(positions.computeIfAbsent(groupName, key -> new AtomicInteger()).getAndIncrement(), healthy);
+        for (String name : names) {
+            if (isServing(name, primary) && position-- == 0) {
+                return name;
+            }
+        }
+        return primary;
+    }
+
+    private static boolean isServing(String name, String primary) {
+        return !name.equals(primary) && !ReplicaReads.isLagging(name);
+    }
+
+    private static Counter counter(String shard, String target) {
+        return Counter.builder("sharding_replica_route_total")
+                .description("Reads routed by the read/write-splitting load balancer")
+                .tag("shard", shard)
+                .tag("target", target)
+                .register(Metrics.globalRegistry);
+    }
+}
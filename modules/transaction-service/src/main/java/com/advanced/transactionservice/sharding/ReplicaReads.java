@@ -0,0 +1,58 @@
+package com.advanced.transactionservice.sharding;
+
+import java.util.Set;
+
+/**
+ * Process-wide state read by {@link ReplicaLoadBalanceAlgorithm}: whether the current thread runs a
+ * transaction that may read from replicas, and which replicas are currently lagging. ShardingSphere
+ * instantiates the algorithm itself, so both are published here rather than injected.
+ * <p>
+ * A shard with replicas is a read/write-splitting group named {@code ds_N}; its primary is
+ * {@code ds_N_primary} and its replicas are {@code ds_N_replica_K}.
+ */
+public final class ReplicaReads {
+
+    private static final ThreadLocal<Boolean> ALLOWED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static volatile Set<String> lagging = Set.of();
+
+    private ReplicaReads() {
+    }
+
+    /**
+     * Sets whether the current thread may read from replicas and returns the previous value.
+     */
+    public static boolean enter(boolean allowed) {
+        boolean previous = ALLOWED.get();
+        ALLOWED.set(allowed);
+        return previous;
+    }
+
+    public static void restore(boolean previous) {
+        if (previous) {
+            ALLOWED.set(Boolean.TRUE);
+        } else {
+            ALLOWED.remove();
+        }
+    }
+
+    public static boolean allowed() {
+        return ALLOWED.get();
+    }
+
+    public static void publishLagging(Set<String> replicas) {
+        lagging = Set.copyOf(replicas);
+    }
+
+    public static boolean isLagging(String replica) {
+        return lagging.contains(replica);
+    }
+
+    public static String primaryName(String shard) {
+        return shard + "_primary";
+    }
+
+    public static String replicaName(String shard, int index) {
+        return shard + "_replica_" + index;
+    }
+}
@@ -0,0 +1,191 @@
+package com.advanced.transactionservice.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Persisted bucket to datasource map. The authoritative copy is {@code shard_buckets} on
+ * {@value #DIRECTORY_DATA_SOURCE}, read directly, bypassing ShardingSphere. Every change is a single
+ * statement, so a set of buckets switches to its new datasource atomically; other instances pick the
+ * change up on the next {@link #refresh()}.
+ * <p>
+ * An empty directory is seeded with {@link BucketMap#initial the initial layout}, which keeps existing
+ * rows where the former {@code floorMod(hashCode, shardCount)} rule put them.
+ */
+@Slf4j
+public class ShardBucketDirectory {
+
+    public static final String DIRECTORY_DATA_SOURCE = "ds_0";
+
+    private static final String SEED = "INSERT INTO shard_buckets (bucket, data_source) VALUES (?, ?) ON CONFLICT (bucket) DO NOTHING";
+
+    private static final String SELECT_ALL = """
+            SELECT bucket, data_source, migration_target, previous_data_source
+            FROM shard_buckets
+            ORDER BY bucket
+            """;
+
+    private static final String CLAIM = """
+            UPDATE shard_buckets SET migration_target = ?, modified_at = now()
+            WHERE data_source = ? AND previous_data_source IS NULL
+              AND (migration_target IS NULL OR migration_target = ?) AND bucket = ANY (?)
+            """;
+
+    private static final String RELEASE = """
+            UPDATE shard_buckets SET migration_target = NULL, modified_at = now()
+            WHERE migration_target = ? AND bucket = ANY (?)
+            """;
+
+    private static final String SWITCH = """
+            UPDATE shard_buckets
+            SET data_source = migration_target, previous_data_source = data_source, migration_target = NULL, modified_at = now()
+            WHERE data_source = ? AND migration_target = ? AND bucket = ANY (?)
+            """;
+
+    private static final String COMPLETE = """
+            UPDATE shard_buckets SET previous_data_source = NULL, modified_at = now()
+            WHERE previous_data_source = ? AND bucket = ANY (?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int bucketCount;
+
+    private final int shardCount;
+
+    private volatile BucketMap current;
+
+    public ShardBucketDirectory(DataSource directoryDataSource, int bucketCount, int shardCount) {
+        if (bucketCount < shardCount) {
+            throw new IllegalArgumentException("Bucket count " + bucketCount + " is less than shard count " + shardCount);
+        }
+        this.jdbcTemplate = new JdbcTemplate(directoryDataSource);
+        this.bucketCount = bucketCount;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Loads the map, seeding an empty directory, and publishes it for the sharding algorithms.
+     */
+    public BucketMap load() {
+        Integer stored = jdbcTemplate.queryForObject("SELECT count(*) FROM shard_buckets", Integer.class);
+        if (stored == null || stored == 0) {
+            seed();
+        }
+        BucketMap map = read();
+        current = map;
+        ShardBuckets.publish(map);
+        log.info("Загружена карта бакетов: {} бакетов на {} шардах", bucketCount, shardCount);
+        return map;
+    }
+
+    public BucketMap refresh() {
+        BucketMap map = read();
+        if (!map.equals(current)) {
+            log.info("Карта бакетов изменилась, применяю новую маршрутизацию");
+            current = map;
+            ShardBuckets.publish(map);
+        }
+        return map;
+    }
+
+    public BucketMap current() {
+        return current;
+    }
+
+    public int bucketCount() {
+        return bucketCount;
+    }
+
+    public List<Assignment> assignments() {
+        return jdbcTemplate.query(SELECT_ALL, (rs, rowNum) -> new Assignment(
+                rs.getInt("bucket"),
+                rs.getString("data_source"),
+                rs.getString("migration_target"),
+                rs.getString("previous_data_source")
+        ));
+    }
+
+    /**
+     * Marks buckets of {@code source} as being migrated to {@code target}. Fails if any of them belongs
+     * to another datasource or is already being moved elsewhere; claiming again for the same target resumes.
+     */
+    public void claim(Collection<Integer> buckets, String source, String target) {
+        int updated = update(CLAIM, buckets, target, source, target);
+        if (updated != buckets.size()) {
+            throw new IllegalStateException("Buckets are not all on " + source + " or are already being migrated");
+        }
+    }
+
+    public void release(Collection<Integer> buckets, String target) {
+        update(RELEASE, buckets, target);
+    }
+
+    /**
+     * Switches claimed buckets to their migration target in one statement and applies the new map locally.
+     */
+    public BucketMap switchOver(Collection<Integer> buckets, String source, String target) {
+        int updated = update(SWITCH, buckets, source, target);
+        if (updated != buckets.size()) {
+            throw new IllegalStateException("Buckets are no longer claimed for " + target);
+        }
+        return refresh();
+    }
+
+    public void completeCleanup(Collection<Integer> buckets, String source) {
+        update(COMPLETE, buckets, source);
+    }
+
+    public static int shardIndex(String dataSource) {
+        if (dataSource == null || !dataSource.startsWith("ds_")) {
+            throw new IllegalArgumentException("Unknown datasource: " + dataSource);
+        }
+        return Integer.parseInt(dataSource.substring(3));
+    }
+
+    private void seed() {
+        if (bucketCount % shardCount != 0) {
+            throw new IllegalStateException("Bucket count " + bucketCount + " must be a multiple of shard count "
+                    + shardCount + " to keep existing rows in place");
+        }
+        BucketMap initial = BucketMap.initial(bucketCount, shardCount);
+        jdbcTemplate.batchUpdate(SEED, IntStream.range(0, bucketCount)
+                .mapToObj(bucket -> new Object[]{bucket, "ds_" + initial.shardOfBucket(bucket)})
+                .toList());
+        log.info("Карта бакетов заполнена начальной раскладкой: {} бакетов на {} шардах", bucketCount, shardCount);
+    }
+
+    private BucketMap read() {
+        List<Assignment> assignments = assignments();
+        if (assignments.size() != bucketCount) {
+            throw new IllegalStateException("shard_buckets holds " + assignments.size() + " buckets, configured " + bucketCount);
+        }
+        int[] shards = new int[bucketCount];
+        for (Assignment assignment : assignments) {
+            int shard = shardIndex(assignment.dataSource());
+            if (assignment.bucket() >= bucketCount || shard >= shardCount) {
+                throw new IllegalStateException("Bucket " + assignment.bucket() + " is assigned to unknown datasource " + assignment.dataSource());
+            }
+            shards[assignment.bucket()] = shard;
+        }
+        return new BucketMap(shards);
+    }
+
+    // Массив бакетов всегда последний параметр запроса
+    private int update(String sql, Collection<Integer> buckets, String... params) {
+        return jdbcTemplate.update(sql, ps -> {
+            for (int i = 0; i < params.length; i++) {
+                ps.setString(i + 1, params[i]);
+            }
+            ps.setArray(params.length + 1, ps.getConnection().createArrayOf("integer", buckets.toArray()));
+        });
+    }
+
+    public record Assignment(int bucket, String dataSource, String migrationTarget, String previousDataSource) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.advanced.transactionservice.sharding;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks up bucket moves made by other instances. Until then this instance keeps routing a moved
+ * bucket to its previous datasource, where writes are rejected and reads still see the final rows.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+@RequiredArgsConstructor
+public class ShardBucketRefresher {
+
+    private final ShardingSphereConfiguration shardingSphereConfiguration;
+
+    @Scheduled(fixedDelayString = "${sharding.buckets.refresh-interval:PT5S}")
+    public void refresh() {
+        try {
+            shardingSphereConfiguration.getBucketDirectory().refresh();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить карту бакетов", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.advanced.transactionservice.sharding;
+
+/**
+ * Process-wide bucket map read by the sharding algorithms. ShardingSphere instantiates algorithms
+ * itself, so the map loaded by {@link ShardBucketDirectory} is published here rather than injected.
+ */
+public final class ShardBuckets {
+
+    private static volatile BucketMap current;
+
+    private ShardBuckets() {
+    }
+
+    public static void publish(BucketMap map) {
+        current = map;
+    }
+
+    static BucketMap currentOr(BucketMap fallback) {
+        BucketMap map = current;
+        return map != null ? map : fallback;
+    }
+}
@@ -0,0 +1,85 @@
+package com.advanced.transactionservice.sharding;
+
+import com.advanced.transactionservice.configuration.BackgroundExecutors;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opens the minimum idle connections of every shard pool, all pools in parallel, before the
+ * application reports readiness: runners complete before the readiness state switches to
+ * accepting traffic, so the first requests do not pay connection setup. A pool that cannot be
+ * filled within {@code sharding.pools.warm-up-timeout} is left to fill in the background.
+ */
+@Slf4j
+@Component
+@DependsOn("dataSource")
+@RequiredArgsConstructor
+public class ShardPoolWarmUp implements ApplicationRunner {
+
+    private final ShardingSphereConfiguration shardingSphereConfiguration;
+
+    private final BackgroundExecutors backgroundExecutors;
+
+    @Value("${sharding.pools.warm-up-timeout:30s}")
+    private Duration timeout;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<String, HikariDataSource> pools = shardingSphereConfiguration.getPools();
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+
+        ExecutorService executor = backgroundExecutors.newExecutor("pool-warm-up", pools.size());
+        try {
+            List<CompletableFuture<Void>> warmUps = pools.entrySet().stream()
+                    .map(pool -> CompletableFuture.runAsync(() -> warmUp(pool.getKey(), pool.getValue(), deadline), executor))
+                    .toList();
+            CompletableFuture.allOf(warmUps.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Пулы соединений {} прогреты за {} мс", pools.keySet(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    // Соединения держим до конца прогрева, иначе пул будет отдавать одно и то же
+    private void warmUp(String name, HikariDataSource pool, long deadline) {
+        int target = Math.min(pool.getMinimumIdle(), pool.getMaximumPoolSize());
+        List<Connection> held = new ArrayList<>(target);
+        try {
+            while (held.size() < target && System.nanoTime() < deadline) {
+                held.add(pool.getConnection());
+            }
+            if (held.size() < target) {
+                log.warn("Пул {} прогрет частично: {} из {} соединений", name, held.size(), target);
+            }
+        } catch (SQLException e) {
+            log.warn("Не удалось прогреть пул {}: открыто {} из {} соединений", name, held.size(), target, e);
+        } finally {
+            held.forEach(ShardPoolWarmUp::close);
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Ошибка при возврате соединения в пул", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.advanced.transactionservice.sharding;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Resolves the datasource a user's wallets and transactions live on,
+ * using the bucket map the sharding algorithms in {@link ShardingSphereConfiguration} route by.
+ */
+@Component
+@RequiredArgsConstructor
+public class ShardResolver {
+
+    private final ShardingSphereConfiguration shardingSphereConfiguration;
+
+    public int shardOf(UUID userUid) {
+        return shardingSphereConfiguration.getBucketDirectory().current().shardOf(ShardedUids.routingKey(userUid));
+    }
+
+    public String dataSourceOf(UUID userUid) {
+        return "ds_" + shardOf(userUid);
+    }
+
+    public boolean isSameShard(UUID firstUserUid, UUID secondUserUid) {
+        return shardOf(firstUserUid) == shardOf(secondUserUid);
+    }
+}
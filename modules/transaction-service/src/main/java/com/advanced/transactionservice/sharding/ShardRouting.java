@@ -0,0 +1,86 @@
+package com.advanced.transactionservice.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shard selection shared by the sharding algorithms: the routing key picks a virtual bucket and the
+ * published {@link BucketMap} picks its datasource. Target names and route counters are prepared once
+ * instead of per statement. Until a map is published, e.g. in unit tests, the initial layout is used.
+ * <p>
+ * Algorithms are instantiated by ShardingSphere, so counters go to the global Micrometer registry.
+ */
+final class ShardRouting {
+
+    static final String SHARD_COUNT = "shard-count";
+
+    static final String BUCKET_COUNT = "bucket-count";
+
+    static final String BROADCAST = "broadcast";
+
+    private final String[] targets;
+
+    private final BucketMap initialMap;
+
+    // route -> table -> счетчики по шардам
+    private final Map<String, Map<String, Counter[]>> shardCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> broadcastCounters = new ConcurrentHashMap<>();
+
+    ShardRouting(Properties props) {
+        int shardCount = Integer.parseInt(props.getProperty(SHARD_COUNT));
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException(SHARD_COUNT + " must be positive");
+        }
+        targets = new String[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            targets[i] = "ds_" + i;
+        }
+        int bucketCount = Integer.parseInt(props.getProperty(BUCKET_COUNT, String.valueOf(BucketMap.DEFAULT_BUCKET_COUNT)));
+        initialMap = BucketMap.initial(bucketCount, shardCount);
+    }
+
+    String target(Collection<String> availableTargetNames, String table, String route, int routingKey) {
+        int shard = ShardBuckets.currentOr(initialMap).shardOf(routingKey);
+        String target = targets[shard];
+        if (!availableTargetNames.contains(target)) {
+            throw new IllegalStateException("Shard " + target + " is not configured for " + table);
+        }
+        shardCounters.computeIfAbsent(route, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(table, key -> shardCounters(table, route))[shard]
+                .increment();
+        return target;
+    }
+
+    Collection<String> broadcast(Collection<String> availableTargetNames, String table) {
+        broadcastCounters.computeIfAbsent(table, key -> counter(table, BROADCAST, "all")).increment();
+        return availableTargetNames;
+    }
+
+    static UUID toUuid(Comparable<?> value) {
+        return value instanceof UUID uuid ? uuid : UUID.fromString(value.toString());
+    }
+
+    private Counter[] shardCounters(String table, String route) {
+        Counter[] counters = new Counter[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            counters[i] = counter(table, route, targets[i]);
+        }
+        return counters;
+    }
+
+    private static Counter counter(String table, String route, String shard) {
+        return Counter.builder("sharding_route_total")
+                .description("Statements routed by the sharding algorithms")
+                .tag("table", table)
+                .tag("route", route)
+                .tag("shard", shard)
+                .register(Metrics.globalRegistry);
+    }
+}
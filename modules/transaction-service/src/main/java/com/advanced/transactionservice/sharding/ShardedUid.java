@@ -0,0 +1,22 @@
+package com.advanced.transactionservice.sharding;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the id as a {@link ShardedUids sharded UID} from the entity's {@code userUid}.
+ */
+@IdGeneratorType(ShardedUidGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ShardedUid {
+
+    /**
+     * Whether to generate time-ordered (version 7) UIDs, for append-heavy tables.
+     */
+    boolean timeOrdered() default false;
+}
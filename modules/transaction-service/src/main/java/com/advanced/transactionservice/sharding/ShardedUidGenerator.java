@@ -0,0 +1,38 @@
+package com.advanced.transactionservice.sharding;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+import java.util.UUID;
+
+public class ShardedUidGenerator implements BeforeExecutionGenerator {
+
+    private static final String USER_UID = "userUid";
+
+    private final boolean timeOrdered;
+
+    public ShardedUidGenerator(ShardedUid config, Member member, CustomIdGeneratorCreationContext context) {
+        this.timeOrdered = config.timeOrdered();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        Object userUid = session.getEntityPersister(null, owner).getPropertyValue(owner, USER_UID);
+        if (userUid == null) {
+            throw new IllegalStateException("userUid must be set before persisting " + owner.getClass().getSimpleName());
+        }
+        return timeOrdered
+                ? ShardedUids.generateTimeOrdered((UUID) userUid)
+                : ShardedUids.generate((UUID) userUid);
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
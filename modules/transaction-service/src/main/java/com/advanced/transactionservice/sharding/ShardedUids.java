@@ -0,0 +1,68 @@
+package com.advanced.transactionservice.sharding;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * UIDs that carry the routing key of their owner, i.e. {@code userUid.hashCode()}, the value the
+ * sharding algorithms map to a {@link BucketMap bucket}. A row can then be routed by its own UID,
+ * without knowing the user and regardless of where its bucket currently lives.
+ * <ul>
+ *     <li>Version 8 (random): the upper 32 bits hold the routing key, the other 90 bits are random.</li>
+ *     <li>Version 7 (time-ordered): the standard 48-bit millisecond timestamp, so new rows are
+ *     appended to the end of the primary key index, followed by 42 random bits with the routing key
+ *     in the 32 bits right after the variant.</li>
+ * </ul>
+ * UIDs of any other version are not routable and are looked up on every shard.
+ */
+public final class ShardedUids {
+
+    private static final int RANDOM = 8;
+
+    private static final int TIME_ORDERED = 7;
+
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private ShardedUids() {
+    }
+
+    public static UUID generate(UUID userUid) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = ((long) routingKey(userUid) << 32)
+                | (random.nextLong() & 0xFFFF0FFFL)
+                | ((long) RANDOM << 12);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | VARIANT;
+        return new UUID(msb, lsb);
+    }
+
+    public static UUID generateTimeOrdered(UUID userUid) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (System.currentTimeMillis() << 16)
+                | ((long) TIME_ORDERED << 12)
+                | (random.nextLong() & 0xFFFL);
+        long lsb = VARIANT
+                | ((routingKey(userUid) & 0xFFFFFFFFL) << 30)
+                | (random.nextLong() & 0x3FFFFFFFL);
+        return new UUID(msb, lsb);
+    }
+
+    public static boolean isRoutable(UUID uid) {
+        int version = uid.version();
+        return version == RANDOM || version == TIME_ORDERED;
+    }
+
+    /**
+     * Routing key of a sharded UID, equal to {@link #routingKey(UUID)} of its owner.
+     */
+    public static int embeddedRoutingKey(UUID uid) {
+        return switch (uid.version()) {
+            case RANDOM -> (int) (uid.getMostSignificantBits() >>> 32);
+            case TIME_ORDERED -> (int) (uid.getLeastSignificantBits() >>> 30);
+            default -> throw new IllegalArgumentException("UID is not routable: " + uid);
+        };
+    }
+
+    public static int routingKey(UUID userUid) {
+        return userUid.hashCode();
+    }
+}
@@ -0,0 +1,80 @@
+package com.advanced.transactionservice.sharding;
+
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingAlgorithm;
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Routes rows by {@code user_uid} or, when the query has no user, by a {@link ShardedUids sharded}
+ * {@code uid} of the row, or by the {@code wallet_uid} it belongs to for tables that are looked up by
+ * wallet. Queries by a legacy random UID still go to every shard; they are counted in
+ * {@code sharding_route_total{route="broadcast"}}.
+ */
+public class UidShardingAlgorithm implements ComplexKeysShardingAlgorithm<Comparable<?>> {
+
+    public static final String TYPE = "USER_UID_OR_UID";
+
+    public static final String SHARD_COUNT = ShardRouting.SHARD_COUNT;
+
+    public static final String BUCKET_COUNT = ShardRouting.BUCKET_COUNT;
+
+    static final String USER_UID = "user_uid";
+
+    static final String UID = "uid";
+
+    static final String WALLET_UID = "wallet_uid";
+
+    private ShardRouting routing;
+
+    @Override
+    public void init(Properties props) {
+        routing = new ShardRouting(props);
+    }
+
+    @Override
+    public Collection<String> doSharding(Collection<String> availableTargetNames, ComplexKeysShardingValue<Comparable<?>> shardingValue) {
+        String table = shardingValue.getLogicTableName();
+        Map<String, Collection<Comparable<?>>> values = shardingValue.getColumnNameAndShardingValuesMap();
+
+        Collection<Comparable<?>> userUids = values.get(USER_UID);
+        if (userUids != null && !userUids.isEmpty()) {
+            return route(table, availableTargetNames, userUids, false);
+        }
+
+        Collection<Comparable<?>> uids = values.get(UID);
+        if (uids == null || uids.isEmpty()) {
+            uids = values.get(WALLET_UID);
+        }
+        if (uids != null && !uids.isEmpty()) {
+            return route(table, availableTargetNames, uids, true);
+        }
+
+        // Только диапазонные условия - по UID их не сузить
+        return routing.broadcast(availableTargetNames, table);
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    private Collection<String> route(String table, Collection<String> availableTargetNames, Collection<Comparable<?>> values, boolean embedded) {
+        String route = embedded ? UID : USER_UID;
+        Set<String> targets = new LinkedHashSet<>();
+        for (Comparable<?> value : values) {
+            UUID uuid = ShardRouting.toUuid(value);
+            if (embedded && !ShardedUids.isRoutable(uuid)) {
+                return routing.broadcast(availableTargetNames, table);
+            }
+            int routingKey = embedded ? ShardedUids.embeddedRoutingKey(uuid) : ShardedUids.routingKey(uuid);
+            targets.add(routing.target(availableTargetNames, table, route, routingKey));
+        }
+        return targets;
+    }
+}
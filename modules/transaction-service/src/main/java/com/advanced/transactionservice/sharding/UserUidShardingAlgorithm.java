@@ -0,0 +1,66 @@
+package com.advanced.transactionservice.sharding;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.RangeShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.StandardShardingAlgorithm;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Routes by the {@link BucketMap bucket} of {@code user_uid.hashCode()}. With the initial bucket layout
+ * this is the rule the INLINE expression {@code ds_${(user_uid.hashCode() % N + N) % N}} used, without
+ * evaluating an expression per statement.
+ * Values are always hashed as {@link java.util.UUID}, also when a driver passes them as strings.
+ * A hash cannot narrow a range, so range conditions go to every shard unless they hold a single value.
+ */
+public class UserUidShardingAlgorithm implements StandardShardingAlgorithm<Comparable<?>> {
+
+    public static final String TYPE = "USER_UID_HASH";
+
+    public static final String SHARD_COUNT = ShardRouting.SHARD_COUNT;
+
+    public static final String BUCKET_COUNT = ShardRouting.BUCKET_COUNT;
+
+    private static final String ROUTE = "user_uid";
+
+    private ShardRouting routing;
+
+    @Override
+    public void init(Properties props) {
+        routing = new ShardRouting(props);
+    }
+
+    @Override
+    public String doSharding(Collection<String> availableTargetNames, PreciseShardingValue<Comparable<?>> shardingValue) {
+        return target(availableTargetNames, shardingValue.getLogicTableName(), shardingValue.getValue());
+    }
+
+    @Override
+    public Collection<String> doSharding(Collection<String> availableTargetNames, RangeShardingValue<Comparable<?>> shardingValue) {
+        Range<Comparable<?>> range = shardingValue.getValueRange();
+        if (isSingleValue(range)) {
+            return List.of(target(availableTargetNames, shardingValue.getLogicTableName(), range.lowerEndpoint()));
+        }
+        return routing.broadcast(availableTargetNames, shardingValue.getLogicTableName());
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    private String target(Collection<String> availableTargetNames, String table, Comparable<?> value) {
+        int routingKey = ShardedUids.routingKey(ShardRouting.toUuid(value));
+        return routing.target(availableTargetNames, table, ROUTE, routingKey);
+    }
+
+    private static boolean isSingleValue(Range<Comparable<?>> range) {
+        return range.hasLowerBound() && range.hasUpperBound()
+                && range.lowerBoundType() == BoundType.CLOSED && range.upperBoundType() == BoundType.CLOSED
+                && range.lowerEndpoint().equals(range.upperEndpoint());
+    }
+}
@@ -0,0 +1,90 @@
+-- transactions секционируется помесячно по created_at. Будущие секции создает, а старые отсоединяет
+-- и переносит в схему transactions_archive TransactionPartitionMaintainer. Секции по умолчанию нет:
+-- с ней нельзя отсоединять секции без блокировки записи
+CREATE SCHEMA IF NOT EXISTS transactions_archive;
+
+-- Секция месяца, в который попадает момент at; возвращает имя секции
+CREATE FUNCTION create_transactions_partition(at TIMESTAMP) RETURNS TEXT
+    LANGUAGE plpgsql AS $$
+DECLARE
+    month_start TIMESTAMP := date_trunc('month', at);
+    partition_name TEXT := 'transactions_' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, month_start, month_start + INTERVAL '1 month');
+    RETURN partition_name;
+END
+$$;
+
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+
+CREATE TABLE transactions (LIKE transactions_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (created_at);
+
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+BEGIN
+    SELECT date_trunc('month', coalesce(min(created_at), now())) INTO month_start FROM transactions_unpartitioned;
+    WHILE month_start < date_trunc('month', now()) + INTERVAL '3 months' LOOP
+        PERFORM create_transactions_partition(month_start);
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END
+$$;
+
+INSERT INTO transactions SELECT * FROM transactions_unpartitioned;
+DROP TABLE transactions_unpartitioned;
+
+-- Ключ секционирования обязан входить в первичный ключ, а уникальный индекс только по uid на секционированной
+-- таблице создать нельзя. Уникальность uid теперь обеспечивает только генератор ShardedUid, база ее не проверяет
+ALTER TABLE transactions ADD PRIMARY KEY (uid, created_at);
+ALTER TABLE transactions ADD CONSTRAINT transactions_wallet_uid_fkey FOREIGN KEY (wallet_uid) REFERENCES wallets(uid);
+CREATE INDEX idx_transactions_wallet_uid ON transactions(wallet_uid);
+CREATE INDEX idx_transactions_user_created_uid ON transactions(user_uid, created_at DESC, uid DESC);
+
+-- Триггер секционированной таблицы срабатывает на секциях, и TG_TABLE_NAME - имя секции,
+-- поэтому логическое имя таблицы передается аргументом
+CREATE OR REPLACE FUNCTION capture_bucket_change() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+DECLARE
+    changed RECORD;
+    bucket_total INT;
+    migration RECORD;
+BEGIN
+    IF current_setting('bucket_migration.bypass', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    SELECT bucket_count INTO bucket_total FROM bucket_migrations LIMIT 1;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+
+    SELECT bucket, state INTO migration
+    FROM bucket_migrations
+    WHERE bucket = shard_bucket(changed.user_uid, bucket_total);
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+
+    IF migration.state = 'COPYING' THEN
+        INSERT INTO bucket_changes (bucket, table_name, row_uid)
+        VALUES (migration.bucket, coalesce(TG_ARGV[0], TG_TABLE_NAME), changed.uid);
+        RETURN NULL;
+    END IF;
+
+    RAISE EXCEPTION 'Shard bucket % is being migrated', migration.bucket
+        USING ERRCODE = 'lock_not_available';
+END
+$$;
+
+CREATE TRIGGER trg_transactions_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change('transactions');
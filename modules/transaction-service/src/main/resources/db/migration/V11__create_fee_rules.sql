@@ -0,0 +1,27 @@
+-- Правила комиссий, broadcast-таблица: копия на каждом шарде. Для операции выбирается первое
+-- подходящее правило по priority, затем по числу заданных условий, затем по наибольшему min_amount.
+-- NULL в currency, wallet_type_uid и user_segment означает любое значение
+CREATE TABLE fee_rules (
+    uid UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    modified_at TIMESTAMP,
+    name VARCHAR(64) NOT NULL UNIQUE,
+    payment_type VARCHAR(32) NOT NULL,
+    currency VARCHAR(3),
+    wallet_type_uid UUID REFERENCES wallet_types(uid),
+    user_segment VARCHAR(15),
+    min_amount DECIMAL(20, 2) NOT NULL DEFAULT 0.00,
+    fixed_fee DECIMAL(20, 2) NOT NULL DEFAULT 0.00 CHECK (fixed_fee >= 0),
+    percent_fee DECIMAL(7, 4) NOT NULL DEFAULT 0.0000 CHECK (percent_fee >= 0),
+    min_fee DECIMAL(20, 2) NOT NULL DEFAULT 0.00,
+    max_fee DECIMAL(20, 2),
+    priority INT NOT NULL DEFAULT 0,
+    active BOOLEAN NOT NULL DEFAULT true
+);
+
+-- Прежние фиксированные комиссии
+INSERT INTO fee_rules (uid, name, payment_type, fixed_fee) VALUES
+    ('5b0c6f3e-6a51-4f5e-9a38-0d7f1a3c2b01', 'deposit-default', 'DEPOSIT', 0.00),
+    ('5b0c6f3e-6a51-4f5e-9a38-0d7f1a3c2b02', 'withdrawal-default', 'WITHDRAWAL', 0.15),
+    ('5b0c6f3e-6a51-4f5e-9a38-0d7f1a3c2b03', 'transfer-default', 'TRANSFER', 0.10)
+ON CONFLICT DO NOTHING;
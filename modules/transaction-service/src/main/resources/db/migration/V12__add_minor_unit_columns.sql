@@ -0,0 +1,60 @@
+-- Суммы в копейках (BIGINT) рядом с DECIMAL-колонками. Пока идет переход, обе колонки заполнены:
+-- триггеры пересчитывают ту, которую запрос не менял, так что приложение может читать и писать
+-- любую из них (money.storage). Существующие строки заполняет MinorUnitsBackfill порциями
+ALTER TABLE wallets ADD COLUMN balance_minor BIGINT;
+-- Иначе при вставке только balance_minor не отличить баланс по умолчанию от заданного; ноль
+-- по умолчанию теперь подставляет триггер
+ALTER TABLE wallets ALTER COLUMN balance DROP DEFAULT;
+
+ALTER TABLE transactions
+    ADD COLUMN amount_minor BIGINT,
+    ADD COLUMN fee_minor BIGINT;
+
+CREATE FUNCTION sync_wallet_minor_units() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        IF NEW.balance IS NULL THEN
+            NEW.balance := coalesce(NEW.balance_minor, 0) / 100.0;
+        END IF;
+        IF NEW.balance_minor IS NULL THEN
+            NEW.balance_minor := round(NEW.balance * 100);
+        END IF;
+    ELSIF NEW.balance_minor IS NOT DISTINCT FROM OLD.balance_minor THEN
+        NEW.balance_minor := round(NEW.balance * 100);
+    ELSIF NEW.balance IS NOT DISTINCT FROM OLD.balance THEN
+        NEW.balance := NEW.balance_minor / 100.0;
+    END IF;
+    RETURN NEW;
+END
+$$;
+
+CREATE FUNCTION sync_transaction_minor_units() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        IF NEW.amount IS NULL THEN
+            NEW.amount := NEW.amount_minor / 100.0;
+            NEW.fee := NEW.fee_minor / 100.0;
+        ELSIF NEW.amount_minor IS NULL THEN
+            NEW.amount_minor := round(NEW.amount * 100);
+            NEW.fee_minor := round(NEW.fee * 100);
+        END IF;
+    ELSIF (NEW.amount_minor, NEW.fee_minor) IS NOT DISTINCT FROM (OLD.amount_minor, OLD.fee_minor) THEN
+        NEW.amount_minor := round(NEW.amount * 100);
+        NEW.fee_minor := round(NEW.fee * 100);
+    ELSIF (NEW.amount, NEW.fee) IS NOT DISTINCT FROM (OLD.amount, OLD.fee) THEN
+        NEW.amount := NEW.amount_minor / 100.0;
+        NEW.fee := NEW.fee_minor / 100.0;
+    END IF;
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER trg_wallets_minor_units
+    BEFORE INSERT OR UPDATE ON wallets
+    FOR EACH ROW EXECUTE FUNCTION sync_wallet_minor_units();
+
+CREATE TRIGGER trg_transactions_minor_units
+    BEFORE INSERT OR UPDATE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION sync_transaction_minor_units();
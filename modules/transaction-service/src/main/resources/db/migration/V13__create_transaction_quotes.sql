@@ -0,0 +1,19 @@
+-- Котировки init: сумма, комиссия и снимок кошельков, которые confirm использует вместо повторного
+-- чтения. uid - ShardedUid пользователя, поэтому поиск по uid идет на один шард. Строки живут
+-- несколько минут; при переносе бакета не копируются - confirm тогда просто идет без котировки
+CREATE TABLE transaction_quotes (
+    uid UUID PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    expires_at TIMESTAMP NOT NULL,
+    user_uid UUID NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    wallet_uid UUID NOT NULL,
+    wallet_type_uid UUID,
+    currency VARCHAR(3) NOT NULL,
+    amount_minor BIGINT NOT NULL,
+    fee_minor BIGINT NOT NULL,
+    target_wallet_uid UUID,
+    target_user_uid UUID
+);
+
+CREATE INDEX idx_transaction_quotes_expires_at ON transaction_quotes(expires_at);
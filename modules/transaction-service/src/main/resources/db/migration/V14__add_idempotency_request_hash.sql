@@ -0,0 +1,11 @@
+-- Ключ ищется по кошельку-источнику до чтения кошелька: uid кошелька - ShardedUid владельца, поэтому
+-- поиск идет на один шард. request_hash - отпечаток тела запроса; ключ, повторенный с другим телом,
+-- отклоняется вместо повтора чужого результата. У строк до V14 отпечатка нет, их повтор не проверяется
+ALTER TABLE idempotency_keys ADD COLUMN wallet_uid UUID;
+ALTER TABLE idempotency_keys ADD COLUMN request_hash VARCHAR(64);
+
+UPDATE idempotency_keys k SET wallet_uid = t.wallet_uid
+FROM transactions t
+WHERE t.uid = k.transaction_uid AND t.user_uid = k.user_uid;
+
+CREATE INDEX idx_idempotency_keys_wallet_key ON idempotency_keys(wallet_uid, idempotency_key);
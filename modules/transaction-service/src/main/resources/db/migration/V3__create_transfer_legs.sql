@@ -0,0 +1,16 @@
+CREATE TABLE transfer_legs (
+    uid UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    modified_at TIMESTAMP,
+    transaction_uid UUID NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    wallet_uid UUID NOT NULL,
+    user_uid UUID NOT NULL,
+    amount DECIMAL(20, 2) NOT NULL,
+    counterparty_wallet_uid UUID,
+    counterparty_user_uid UUID,
+    CONSTRAINT uq_transfer_legs_transaction_type UNIQUE (transaction_uid, type)
+);
+
+CREATE INDEX idx_transfer_legs_status_created_at ON transfer_legs(status, created_at);
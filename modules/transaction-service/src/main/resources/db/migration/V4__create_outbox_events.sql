@@ -0,0 +1,13 @@
+CREATE TABLE outbox_events (
+    uid UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    sent_at TIMESTAMP,
+    user_uid UUID NOT NULL,
+    topic VARCHAR(128) NOT NULL,
+    message_key VARCHAR(128) NOT NULL,
+    payload_type VARCHAR(256) NOT NULL,
+    payload BYTEA NOT NULL
+);
+
+CREATE INDEX idx_outbox_events_unsent ON outbox_events(created_at) WHERE sent_at IS NULL;
+CREATE INDEX idx_outbox_events_sent_at ON outbox_events(sent_at) WHERE sent_at IS NOT NULL;
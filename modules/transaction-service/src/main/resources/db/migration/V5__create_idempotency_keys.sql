@@ -0,0 +1,12 @@
+CREATE TABLE idempotency_keys (
+    uid UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    user_uid UUID NOT NULL,
+    idempotency_key VARCHAR(128) NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    transaction_uid UUID NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    CONSTRAINT uq_idempotency_keys_user_key UNIQUE (user_uid, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys(created_at);
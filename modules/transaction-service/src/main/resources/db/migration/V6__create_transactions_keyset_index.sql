@@ -0,0 +1,4 @@
+CREATE INDEX idx_transactions_user_created_uid ON transactions(user_uid, created_at DESC, uid DESC);
+
+-- Покрывается новым индексом по префиксу user_uid
+DROP INDEX IF EXISTS idx_transactions_user_uid;
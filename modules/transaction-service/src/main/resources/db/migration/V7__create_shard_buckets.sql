@@ -0,0 +1,101 @@
+-- Карта виртуальных бакетов; источником истины считается копия на ds_0
+CREATE TABLE shard_buckets (
+    bucket INT PRIMARY KEY,
+    data_source VARCHAR(32) NOT NULL,
+    migration_target VARCHAR(32),
+    previous_data_source VARCHAR(32),
+    modified_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Бакеты, которые переносятся с этого шарда или уже перенесены с него
+CREATE TABLE bucket_migrations (
+    bucket INT PRIMARY KEY,
+    bucket_count INT NOT NULL,
+    state VARCHAR(16) NOT NULL,
+    modified_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Изменения строк переносимых бакетов, которые нужно повторить на целевом шарде
+CREATE TABLE bucket_changes (
+    id BIGSERIAL PRIMARY KEY,
+    bucket INT NOT NULL,
+    table_name VARCHAR(64) NOT NULL,
+    row_uid UUID NOT NULL
+);
+
+CREATE INDEX idx_bucket_changes_bucket_id ON bucket_changes(bucket, id);
+
+-- java.util.UUID.hashCode(): (int) (hilo >> 32) ^ (int) hilo, где hilo = msb ^ lsb
+CREATE FUNCTION java_uuid_hash(u UUID) RETURNS INT
+    LANGUAGE plpgsql IMMUTABLE STRICT PARALLEL SAFE AS $$
+DECLARE
+    hex TEXT := replace(u::text, '-', '');
+    hilo BIGINT := ('x' || substr(hex, 1, 16))::bit(64)::bigint # ('x' || substr(hex, 17, 16))::bit(64)::bigint;
+    hash BIGINT := ((hilo >> 32) # hilo) & 4294967295;
+BEGIN
+    RETURN CASE WHEN hash > 2147483647 THEN hash - 4294967296 ELSE hash END;
+END
+$$;
+
+-- Бакет пользователя, как в ShardRouting: floorMod(userUid.hashCode(), bucketCount)
+CREATE FUNCTION shard_bucket(user_uid UUID, bucket_count INT) RETURNS INT
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE AS $$
+SELECT ((java_uuid_hash(user_uid) % bucket_count) + bucket_count) % bucket_count
+$$;
+
+-- Пока бакет копируется, изменения его строк журналируются в той же транзакции,
+-- после заморозки и переноса запись в бакет на этом шарде запрещена
+CREATE FUNCTION capture_bucket_change() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+DECLARE
+    changed RECORD;
+    bucket_total INT;
+    migration RECORD;
+BEGIN
+    IF current_setting('bucket_migration.bypass', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    SELECT bucket_count INTO bucket_total FROM bucket_migrations LIMIT 1;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+
+    SELECT bucket, state INTO migration
+    FROM bucket_migrations
+    WHERE bucket = shard_bucket(changed.user_uid, bucket_total);
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+
+    IF migration.state = 'COPYING' THEN
+        INSERT INTO bucket_changes (bucket, table_name, row_uid) VALUES (migration.bucket, TG_TABLE_NAME, changed.uid);
+        RETURN NULL;
+    END IF;
+
+    RAISE EXCEPTION 'Shard bucket % is being migrated', migration.bucket
+        USING ERRCODE = 'lock_not_available';
+END
+$$;
+
+CREATE TRIGGER trg_wallets_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON wallets
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change();
+
+CREATE TRIGGER trg_transactions_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change();
+
+CREATE TRIGGER trg_transfer_legs_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON transfer_legs
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change();
+
+CREATE TRIGGER trg_idempotency_keys_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON idempotency_keys
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change();
@@ -0,0 +1,63 @@
+-- Проводки по кошелькам; каждая операция пишет сбалансированный набор строк с нулевой суммой,
+-- встречная сторона - системный счет (wallet_uid у него пустой)
+CREATE TABLE ledger_entries (
+    uid UUID PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    transaction_uid UUID NOT NULL,
+    user_uid UUID NOT NULL,
+    account VARCHAR(16) NOT NULL,
+    wallet_uid UUID REFERENCES wallets(uid),
+    amount DECIMAL(20, 2) NOT NULL,
+    -- Версия снимка баланса, в который свернута проводка; NULL - еще не свернута
+    snapshot_version BIGINT,
+    CONSTRAINT ck_ledger_entries_wallet CHECK ((account = 'WALLET') = (wallet_uid IS NOT NULL))
+);
+
+CREATE INDEX idx_ledger_entries_pending ON ledger_entries(wallet_uid)
+    WHERE snapshot_version IS NULL AND wallet_uid IS NOT NULL;
+CREATE INDEX idx_ledger_entries_wallet_version ON ledger_entries(wallet_uid, snapshot_version);
+
+-- wallets.balance теперь баланс последнего снимка, текущий баланс = снимок + несвернутые проводки
+ALTER TABLE wallets ADD COLUMN balance_version BIGINT NOT NULL DEFAULT 0;
+
+-- История снимков для баланса на момент времени; версия 0 - баланс на момент создания кошелька
+CREATE TABLE wallet_balance_snapshots (
+    uid UUID PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    wallet_uid UUID NOT NULL REFERENCES wallets(uid),
+    user_uid UUID NOT NULL,
+    version BIGINT NOT NULL,
+    balance DECIMAL(20, 2) NOT NULL,
+    CONSTRAINT uq_wallet_balance_snapshots_version UNIQUE (wallet_uid, version)
+);
+
+CREATE INDEX idx_wallet_balance_snapshots_created_at ON wallet_balance_snapshots(wallet_uid, created_at);
+
+-- Проводки не меняются и не удаляются, кроме отметки о свертке и переноса бакетов
+CREATE FUNCTION protect_ledger_entry() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF current_setting('bucket_migration.bypass', true) = 'on' THEN
+        RETURN COALESCE(NEW, OLD);
+    END IF;
+    IF TG_OP = 'DELETE'
+        OR (NEW.uid, NEW.created_at, NEW.transaction_uid, NEW.user_uid, NEW.account, NEW.wallet_uid, NEW.amount)
+            IS DISTINCT FROM (OLD.uid, OLD.created_at, OLD.transaction_uid, OLD.user_uid, OLD.account, OLD.wallet_uid, OLD.amount)
+        OR OLD.snapshot_version IS NOT NULL THEN
+        RAISE EXCEPTION 'Ledger entry % is immutable', OLD.uid;
+    END IF;
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER trg_ledger_entries_immutable
+    BEFORE UPDATE OR DELETE ON ledger_entries
+    FOR EACH ROW EXECUTE FUNCTION protect_ledger_entry();
+
+CREATE TRIGGER trg_ledger_entries_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON ledger_entries
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change();
+
+CREATE TRIGGER trg_wallet_balance_snapshots_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON wallet_balance_snapshots
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change();
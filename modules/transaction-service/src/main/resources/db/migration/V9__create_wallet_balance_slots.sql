@@ -0,0 +1,40 @@
+-- Горячие кошельки: баланс делится на несколько слотов, у каждого свой снимок и своя блокировка.
+-- 1 - обычный кошелек без слотов
+ALTER TABLE wallets ADD COLUMN balance_slots INT NOT NULL DEFAULT 1;
+
+-- Слот, к которому относится проводка; у обычных кошельков и системных счетов всегда 0
+ALTER TABLE ledger_entries ADD COLUMN slot INT NOT NULL DEFAULT 0;
+
+DROP INDEX idx_ledger_entries_pending;
+CREATE INDEX idx_ledger_entries_pending ON ledger_entries(wallet_uid, slot)
+    WHERE snapshot_version IS NULL AND wallet_uid IS NOT NULL;
+
+-- Снимок баланса слота; сумма по слотам равна wallets.balance
+CREATE TABLE wallet_balance_slots (
+    uid UUID PRIMARY KEY,
+    wallet_uid UUID NOT NULL REFERENCES wallets(uid),
+    user_uid UUID NOT NULL,
+    slot INT NOT NULL,
+    balance DECIMAL(20, 2) NOT NULL,
+    CONSTRAINT uq_wallet_balance_slots_slot UNIQUE (wallet_uid, slot)
+);
+
+CREATE OR REPLACE FUNCTION protect_ledger_entry() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF current_setting('bucket_migration.bypass', true) = 'on' THEN
+        RETURN COALESCE(NEW, OLD);
+    END IF;
+    IF TG_OP = 'DELETE'
+        OR (NEW.uid, NEW.created_at, NEW.transaction_uid, NEW.user_uid, NEW.account, NEW.wallet_uid, NEW.amount, NEW.slot)
+            IS DISTINCT FROM (OLD.uid, OLD.created_at, OLD.transaction_uid, OLD.user_uid, OLD.account, OLD.wallet_uid, OLD.amount, OLD.slot)
+        OR OLD.snapshot_version IS NOT NULL THEN
+        RAISE EXCEPTION 'Ledger entry % is immutable', OLD.uid;
+    END IF;
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER trg_wallet_balance_slots_bucket_change
+    AFTER INSERT OR UPDATE OR DELETE ON wallet_balance_slots
+    FOR EACH ROW EXECUTE FUNCTION capture_bucket_change();
@@ -0,0 +1,60 @@
+package com.advanced.transactionservice;
+
+import com.advanced.transactionservice.AbstractIntegrationTest.FlywayMigrateAndPostgreSQLContainer;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import org.mockito.Mockito;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base for tests of components that work on shard databases through plain JDBC, without the
+ * application context: two migrated PostgreSQL databases stand in for {@code ds_0} and {@code ds_1}.
+ * The databases are shared between test classes, so tests clean up the rows they create.
+ */
+@Testcontainers
+public abstract class AbstractShardDatabaseTest {
+
+    @Container
+    public static FlywayMigrateAndPostgreSQLContainer SHARD_0 = new FlywayMigrateAndPostgreSQLContainer("postgres:latest")
+            .withDatabaseName("shard_db_0")
+            .withUsername("postgres")
+            .withPassword("test")
+            .withReuse(true);
+
+    @Container
+    public static FlywayMigrateAndPostgreSQLContainer SHARD_1 = new FlywayMigrateAndPostgreSQLContainer("postgres:latest")
+            .withDatabaseName("shard_db_1")
+            .withUsername("postgres")
+            .withPassword("test")
+            .withReuse(true);
+
+    protected static DataSource shard0() {
+        return dataSource(SHARD_0);
+    }
+
+    protected static DataSource shard1() {
+        return dataSource(SHARD_1);
+    }
+
+    /**
+     * Configuration whose {@link ShardingSphereConfiguration#getShardDataSources()} holds the given shards.
+     */
+    protected static ShardingSphereConfiguration shardingSphereConfiguration(DataSource... shards) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (int i = 0; i < shards.length; i++) {
+            dataSources.put("ds_" + i, shards[i]);
+        }
+        ShardingSphereConfiguration configuration = Mockito.mock(ShardingSphereConfiguration.class);
+        Mockito.when(configuration.getShardDataSources()).thenReturn(dataSources);
+        return configuration;
+    }
+
+    private static DataSource dataSource(FlywayMigrateAndPostgreSQLContainer container) {
+        return new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+    }
+}
@@ -0,0 +1,136 @@
+package com.advanced.transactionservice.configuration;
+
+import com.advanced.transactionservice.sharding.ReplicaReads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardingSphereConfigurationTest {
+
+    private static final String SHARDS_CONFIG = """
+            {
+              "count": 2,
+              "pool": {
+                "maximumPoolSize": 20,
+                "minimumIdle": 5,
+                "connectionTimeout": 3000,
+                "prepareThreshold": 3,
+                "preparedStatementCacheQueries": 512
+              },
+              "datasources": {
+                "ds_0": {
+                  "jdbcUrl": "jdbc:postgresql://shard-0:5432/transactions",
+                  "username": "transaction-service",
+                  "password": "secret",
+                  "pool": { "maximumPoolSize": 40, "preparedStatementCacheSizeMiB": 8 },
+                  "replicas": [
+                    { "jdbcUrl": "jdbc:postgresql://shard-0-replica-0:5432/transactions", "pool": { "minimumIdle": 2, "prepareThreshold": 0 } },
+                    { "jdbcUrl": "jdbc:postgresql://shard-0-replica-1:5432/transactions", "username": "reader" }
+                  ]
+                },
+                "ds_1": {
+                  "jdbcUrl": "jdbc:postgresql://shard-1:5432/transactions",
+                  "username": "transaction-service",
+                  "password": "secret"
+                }
+              }
+            }
+            """;
+
+    private final ShardingSphereConfiguration configuration = new ShardingSphereConfiguration();
+
+    @AfterEach
+    void tearDown() {
+        configuration.getPools().values().forEach(HikariDataSource::close);
+    }
+
+    @Test
+    void createShardPools_shouldFallBackFromReplicaToShardToAllShards() throws Exception {
+        Map<String, DataSource> routed = new HashMap<>();
+
+        assertEquals(1, configuration.createShardPools(settings(SHARDS_CONFIG), routed).size());
+
+        HikariDataSource shard0 = pool("ds_0");
+        assertEquals(40, shard0.getMaximumPoolSize());
+        assertEquals(5, shard0.getMinimumIdle());
+        assertEquals(3000, shard0.getConnectionTimeout());
+        assertFalse(shard0.isReadOnly());
+        assertDriverProperties(shard0, "3", "512", "8");
+
+        HikariDataSource replica0 = pool(ReplicaReads.replicaName("ds_0", 0));
+        assertEquals(40, replica0.getMaximumPoolSize());
+        assertEquals(2, replica0.getMinimumIdle());
+        assertEquals(3000, replica0.getConnectionTimeout());
+        assertTrue(replica0.isReadOnly());
+        assertEquals("transaction-service", replica0.getUsername());
+        assertEquals("secret", replica0.getPassword());
+        assertDriverProperties(replica0, "0", "512", "8");
+
+        HikariDataSource replica1 = pool(ReplicaReads.replicaName("ds_0", 1));
+        assertEquals(40, replica1.getMaximumPoolSize());
+        assertEquals(5, replica1.getMinimumIdle());
+        assertEquals("reader", replica1.getUsername());
+        assertDriverProperties(replica1, "3", "512", "8");
+
+        HikariDataSource shard1 = pool("ds_1");
+        assertEquals(20, shard1.getMaximumPoolSize());
+        assertEquals(5, shard1.getMinimumIdle());
+        assertDriverProperties(shard1, "3", "512", null);
+
+        assertSame(shard0, configuration.getShardDataSources().get("ds_0"));
+        assertSame(shard0, routed.get(ReplicaReads.primaryName("ds_0")));
+        assertSame(shard1, routed.get("ds_1"));
+        assertFalse(routed.containsKey("ds_0"));
+    }
+
+    @Test
+    void createShardPools_shouldKeepHikariAndDriverDefaults_whenNoPoolIsConfigured() throws Exception {
+        configuration.createShardPools(settings("""
+                {
+                  "count": 1,
+                  "datasources": {
+                    "ds_0": { "jdbcUrl": "jdbc:postgresql://shard-0:5432/transactions", "username": "u", "password": "p" }
+                  }
+                }
+                """), new HashMap<>());
+
+        HikariDataSource shard0 = pool("ds_0");
+        assertEquals(10, shard0.getMaximumPoolSize());
+        assertEquals(30_000, shard0.getConnectionTimeout());
+        assertDriverProperties(shard0, null, null, null);
+    }
+
+    @Test
+    void createShardPools_shouldFail_whenShardHasNoDatasource() throws Exception {
+        ShardSettings settings = settings("""
+                { "count": 2, "datasources": { "ds_0": { "jdbcUrl": "jdbc:postgresql://shard-0:5432/transactions" } } }
+                """);
+
+        assertThrows(IllegalStateException.class, () -> configuration.createShardPools(settings, new HashMap<>()));
+    }
+
+    private HikariDataSource pool(String name) {
+        HikariDataSource pool = configuration.getPools().get(name);
+        assertNotNull(pool, name);
+        return pool;
+    }
+
+    private static void assertDriverProperties(HikariDataSource pool, String prepareThreshold, String cacheQueries, String cacheSizeMiB) {
+        Properties properties = pool.getDataSourceProperties();
+        assertEquals(prepareThreshold, properties.getProperty("prepareThreshold"), pool.getPoolName());
+        assertEquals(cacheQueries, properties.getProperty("preparedStatementCacheQueries"), pool.getPoolName());
+        assertEquals(cacheSizeMiB, properties.getProperty("preparedStatementCacheSizeMiB"), pool.getPoolName());
+    }
+
+    private static ShardSettings settings(String json) throws Exception {
+        return new ObjectMapper().readValue(json, ShardSettings.class);
+    }
+}
@@ -1,5 +1,6 @@
 package com.advanced.transactionservice.controller.transaction;
 
+import com.advanced.contract.model.TransactionPageResponse;
 import com.advanced.transactionservice.AbstractIntegrationTest;
 import com.advanced.transactionservice.model.PaymentStatus;
 import com.advanced.transactionservice.model.PaymentType;
@@ -20,9 +21,14 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
 @ActiveProfiles("test")
 @SpringBootTest(
         webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
@@ -74,4 +80,59 @@ public class TransactionRestControllerV1Test extends AbstractIntegrationTest {
                 .jsonPath("$[0].status").isEqualTo("PENDING");
     }
 
+    @Test
+    void shouldScrollTransactionsNewestFirst() {
+        UUID userUid = UUID.randomUUID();
+        Wallet wallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "scroll", BigDecimal.TEN, userUid);
+
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setWalletUid(wallet.getUid());
+            transaction.setAmount(BigDecimal.valueOf(i + 1));
+            transaction.setType(PaymentType.DEPOSIT);
+            transaction.setFee(BigDecimal.ZERO);
+            transaction.setCurrency(Currency.getInstance("RUB"));
+            transaction.setUserUid(userUid);
+            transaction.setStatus(PaymentStatus.COMPLETED);
+            expected.addFirst(transactionRepository.saveAndFlush(transaction).getUid());
+        }
+
+        List<UUID> actual = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromPath("api/v1/transactions/scroll")
+                    .queryParam("userUid", userUid)
+                    .queryParam("size", 2);
+            if (cursor != null) {
+                builder.queryParam("cursor", cursor);
+            }
+
+            TransactionPageResponse page = webTestClient.get()
+                    .uri(builder.build().toUriString())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(TransactionPageResponse.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertNotNull(page);
+            page.getItems().forEach(item -> actual.add(item.getTransactionUid()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() {
+        webTestClient.get()
+                .uri("api/v1/transactions/scroll?cursor=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
 }
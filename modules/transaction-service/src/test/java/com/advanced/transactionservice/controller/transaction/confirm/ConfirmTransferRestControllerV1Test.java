@@ -1,12 +1,20 @@
 package com.advanced.transactionservice.controller.transaction.confirm;
 
+import com.advanced.contract.model.TransactionInitResponse;
 import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.TransferInitRequest;
+import com.advanced.contract.model.WalletResponse;
 import com.advanced.transactionservice.AbstractIntegrationTest;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.model.LedgerAccount;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.model.WalletStatus;
 import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.repository.TransferLegRepository;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.utils.LedgerUtils;
 import com.advanced.transactionservice.utils.WalletUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -32,6 +40,7 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @ActiveProfiles("test")
 @SpringBootTest(
@@ -50,11 +59,22 @@ public class ConfirmTransferRestControllerV1Test extends AbstractIntegrationTest
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
+    @Autowired
+    private WalletService walletService;
+
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransferLegRepository transferLegRepository;
+
     @BeforeEach
     void setup() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
+        transferLegRepository.deleteAll();
         transactionRepository.deleteAll();
         walletRepository.deleteAll();
     }
@@ -81,8 +101,8 @@ public class ConfirmTransferRestControllerV1Test extends AbstractIntegrationTest
                 .exchange()
                 .expectStatus().isOk();
 
-        Wallet updatedFrom = walletRepository.findById(fromWallet.getUid()).orElseThrow();
-        Wallet updatedTo = walletRepository.findById(toWallet.getUid()).orElseThrow();
+        WalletResponse updatedFrom = walletService.getWalletByUid(fromWallet.getUid());
+        WalletResponse updatedTo = walletService.getWalletByUid(toWallet.getUid());
 
         assertEquals(initialBalance.subtract(transferAmount), updatedFrom.getBalance());
         assertEquals(transferAmount, updatedTo.getBalance());
@@ -90,6 +110,125 @@ public class ConfirmTransferRestControllerV1Test extends AbstractIntegrationTest
         assertEquals(1, transactionRepository.count());
     }
 
+    @Test
+    void confirmTransfer_shouldTransferMoneyBetweenWalletsOnDifferentShards() {
+        UUID userInShard0 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID userInShard1 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+        Wallet fromWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "from", new BigDecimal("500.00"), userInShard0);
+        Wallet toWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "to", BigDecimal.ZERO, userInShard1);
+
+        TransferConfirmRequest request = new TransferConfirmRequest();
+        request.setWalletUid(fromWallet.getUid());
+        request.setTargetWalletUid(toWallet.getUid());
+        request.setAmount(new BigDecimal("200.00"));
+        request.setCurrency("RUB");
+        request.setFee(new BigDecimal("10.00"));
+
+        webTestClient.post()
+                .uri("/api/v1/transactions/transfer/confirm")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("completed");
+
+        WalletResponse updatedFrom = walletService.getWalletByUid(fromWallet.getUid(), userInShard0);
+        WalletResponse updatedTo = walletService.getWalletByUid(toWallet.getUid(), userInShard1);
+
+        assertEquals(new BigDecimal("290.00"), updatedFrom.getBalance());
+        assertEquals(new BigDecimal("200.00"), updatedTo.getBalance());
+        assertEquals(2, transferLegRepository.count());
+        assertEquals(0, BigDecimal.ZERO.compareTo(LedgerUtils.sumAccount(shardingSphereConfiguration, LedgerAccount.TRANSIT)));
+        assertEquals(0, new BigDecimal("10.00").compareTo(LedgerUtils.sumAccount(shardingSphereConfiguration, LedgerAccount.FEES)));
+    }
+
+    @Test
+    void confirmTransfer_shouldReplayCompletedStatus_whenCrossShardTransferIsRetried() {
+        UUID userInShard0 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID userInShard1 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        Wallet fromWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "from", new BigDecimal("500.00"), userInShard0);
+        Wallet toWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "to", BigDecimal.ZERO, userInShard1);
+
+        TransferConfirmRequest request = new TransferConfirmRequest();
+        request.setWalletUid(fromWallet.getUid());
+        request.setTargetWalletUid(toWallet.getUid());
+        request.setAmount(new BigDecimal("200.00"));
+        request.setCurrency("RUB");
+        request.setFee(new BigDecimal("10.00"));
+
+        // Ключ записан при удержании, пока перевод еще в PENDING
+        for (int attempt = 0; attempt < 3; attempt++) {
+            webTestClient.post()
+                    .uri("/api/v1/transactions/transfer/confirm")
+                    .header("Idempotency-Key", idempotencyKey)
+                    .bodyValue(request)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.status").isEqualTo("completed");
+        }
+
+        assertEquals(1, transactionRepository.count());
+        assertEquals(new BigDecimal("290.00"), walletService.getWalletByUid(fromWallet.getUid(), userInShard0).getBalance());
+        assertEquals(new BigDecimal("200.00"), walletService.getWalletByUid(toWallet.getUid(), userInShard1).getBalance());
+    }
+
+    @Test
+    void confirmTransfer_shouldUseQuote_whenQuoteUidIsPassed() {
+        Wallet fromWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "from", new BigDecimal("500.00"));
+        Wallet toWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "to", BigDecimal.ZERO);
+
+        TransactionInitResponse quote = initTransfer(fromWallet, toWallet, new BigDecimal("200.00"));
+        assertNotNull(quote.getQuoteUid());
+
+        TransferConfirmRequest request = new TransferConfirmRequest();
+        request.setWalletUid(fromWallet.getUid());
+        request.setTargetWalletUid(toWallet.getUid());
+        request.setAmount(quote.getAmount());
+        request.setFee(quote.getFee());
+        request.setCurrency("RUB");
+        request.setQuoteUid(quote.getQuoteUid());
+
+        webTestClient.post()
+                .uri("/api/v1/transactions/transfer/confirm")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk();
+
+        WalletResponse updatedFrom = walletService.getWalletByUid(fromWallet.getUid());
+        WalletResponse updatedTo = walletService.getWalletByUid(toWallet.getUid());
+
+        assertEquals(new BigDecimal("500.00").subtract(quote.getTotalAmount()), updatedFrom.getBalance());
+        assertEquals(new BigDecimal("200.00"), updatedTo.getBalance());
+    }
+
+    @Test
+    void confirmTransfer_shouldReturnConflict_whenRequestDoesNotMatchQuote() {
+        Wallet fromWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "from", new BigDecimal("500.00"));
+        Wallet toWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "to", BigDecimal.ZERO);
+
+        TransactionInitResponse quote = initTransfer(fromWallet, toWallet, new BigDecimal("200.00"));
+
+        TransferConfirmRequest request = new TransferConfirmRequest();
+        request.setWalletUid(fromWallet.getUid());
+        request.setTargetWalletUid(toWallet.getUid());
+        request.setAmount(new BigDecimal("300.00"));
+        request.setFee(quote.getFee());
+        request.setCurrency("RUB");
+        request.setQuoteUid(quote.getQuoteUid());
+
+        webTestClient.post()
+                .uri("/api/v1/transactions/transfer/confirm")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        assertEquals(0, transactionRepository.count());
+    }
+
     @Test
     void confirmTransfer_shouldReturnNotFound_whenSourceWalletNotFound() {
         TransferConfirmRequest request = new TransferConfirmRequest();
@@ -148,5 +287,20 @@ public class ConfirmTransferRestControllerV1Test extends AbstractIntegrationTest
         }
     }
 
+    private TransactionInitResponse initTransfer(Wallet fromWallet, Wallet toWallet, BigDecimal amount) {
+        TransferInitRequest request = new TransferInitRequest();
+        request.setFromWalletUid(fromWallet.getUid());
+        request.setToWalletUid(toWallet.getUid());
+        request.setAmount(amount);
+        request.setCurrency("RUB");
 
+        return webTestClient.post()
+                .uri("/api/v1/transactions/transfer/init")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionInitResponse.class)
+                .returnResult()
+                .getResponseBody();
+    }
 }
@@ -1,14 +1,19 @@
 package com.advanced.transactionservice.controller.transaction.confirm;
 
+import com.advanced.contract.model.TransactionConfirmResponse;
 import com.advanced.contract.model.WithdrawalConfirmRequest;
 import com.advanced.kafkacontracts.WithdrawalRequested;
 import com.advanced.transactionservice.AbstractIntegrationTest;
 import com.advanced.transactionservice.configuration.KafkaTopicsProperties;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.model.WalletStatus;
+import com.advanced.transactionservice.repository.IdempotencyKeyRepository;
 import com.advanced.transactionservice.repository.TransactionRepository;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.utils.LedgerUtils;
 import com.advanced.transactionservice.utils.WalletUtils;
 import io.confluent.kafka.serializers.KafkaAvroDeserializer;
 import org.apache.kafka.clients.consumer.Consumer;
@@ -56,12 +61,21 @@ public class ConfirmWithdrawalRestControllerV1Test extends AbstractIntegrationTe
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
+    @Autowired
+    private WalletService walletService;
+
     @Autowired
     private TransactionRepository transactionRepository;
 
     @Autowired
     private WalletTypeRepository walletTypeRepository;
 
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
     @Autowired
     private KafkaTopicsProperties kafkaTopicsProperties;
 
@@ -105,6 +119,8 @@ public class ConfirmWithdrawalRestControllerV1Test extends AbstractIntegrationTe
 
     @AfterEach
     void tearDownKafkaConsumer() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
+        idempotencyKeyRepository.deleteAll();
         transactionRepository.deleteAll();
         walletRepository.deleteAll();
         if (kafkaConsumer != null) {
@@ -176,6 +192,52 @@ public class ConfirmWithdrawalRestControllerV1Test extends AbstractIntegrationTe
                 });
     }
 
+    @Test
+    void confirmWithdrawal_shouldDebitOnce_whenRetriedWithSameIdempotencyKey() {
+        Wallet wallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "retry", BigDecimal.valueOf(1000));
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        WithdrawalConfirmRequest request = new WithdrawalConfirmRequest();
+        request.setWalletUid(wallet.getUid());
+        request.setCurrency("RUB");
+        request.setAmount(new BigDecimal("100.00"));
+        request.setComment("retry");
+        request.setFee(new BigDecimal("10.00"));
+
+        TransactionConfirmResponse first = confirmWithdrawal(request, idempotencyKey);
+        TransactionConfirmResponse second = confirmWithdrawal(request, idempotencyKey);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(first.getTransactionUid(), second.getTransactionUid());
+        assertEquals(1, transactionRepository.count());
+        assertEquals(0, new BigDecimal("900.00").compareTo(walletService.getWalletByUid(wallet.getUid()).getBalance()));
+    }
+
+    @Test
+    void confirmWithdrawal_shouldRejectIdempotencyKey_reusedForAnotherAmount() {
+        Wallet wallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "reuse", BigDecimal.valueOf(1000));
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        WithdrawalConfirmRequest request = new WithdrawalConfirmRequest();
+        request.setWalletUid(wallet.getUid());
+        request.setCurrency("RUB");
+        request.setAmount(new BigDecimal("100.00"));
+        request.setFee(new BigDecimal("10.00"));
+        confirmWithdrawal(request, idempotencyKey);
+
+        request.setAmount(new BigDecimal("300.00"));
+        webTestClient.post()
+                .uri("/api/v1/transactions/withdrawal/confirm")
+                .header("Idempotency-Key", idempotencyKey)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        assertEquals(1, transactionRepository.count());
+        assertEquals(0, new BigDecimal("900.00").compareTo(walletService.getWalletByUid(wallet.getUid()).getBalance()));
+    }
+
     @Test
     void confirmWithdrawal_shouldReturnBadRequest_whenWalletIsBlocked() {
         Wallet wallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "blocked", BigDecimal.valueOf(500), WalletStatus.BLOCKED);
@@ -320,6 +382,18 @@ public class ConfirmWithdrawalRestControllerV1Test extends AbstractIntegrationTe
         assertNoKafkaMessagesSent();
     }
 
+    private TransactionConfirmResponse confirmWithdrawal(WithdrawalConfirmRequest request, String idempotencyKey) {
+        return webTestClient.post()
+                .uri("/api/v1/transactions/withdrawal/confirm")
+                .header("Idempotency-Key", idempotencyKey)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionConfirmResponse.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
     private void assertNoKafkaMessagesSent() {
         kafkaConsumer.seekToBeginning(kafkaConsumer.assignment());
 
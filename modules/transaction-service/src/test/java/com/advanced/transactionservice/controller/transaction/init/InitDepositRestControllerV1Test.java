@@ -2,11 +2,13 @@ package com.advanced.transactionservice.controller.transaction.init;
 
 import com.advanced.contract.model.DepositInitRequest;
 import com.advanced.transactionservice.AbstractIntegrationTest;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
 import com.advanced.transactionservice.model.Transaction;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.repository.TransactionRepository;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.utils.LedgerUtils;
 import com.advanced.transactionservice.utils.WalletUtils;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -47,11 +49,15 @@ public class InitDepositRestControllerV1Test extends AbstractIntegrationTest {
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
     @Autowired
     private TransactionRepository requestRepository;
 
     @AfterEach
     void setup() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
         walletRepository.deleteAll();
     }
 
@@ -2,10 +2,12 @@ package com.advanced.transactionservice.controller.transaction.init;
 
 import com.advanced.contract.model.TransferInitRequest;
 import com.advanced.transactionservice.AbstractIntegrationTest;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.model.WalletStatus;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.utils.LedgerUtils;
 import com.advanced.transactionservice.utils.WalletUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -36,8 +38,12 @@ public class InitTransferRestControllerV1Test extends AbstractIntegrationTest {
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
     @AfterEach
     void setup() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
         walletRepository.deleteAll();
     }
 
@@ -2,12 +2,14 @@ package com.advanced.transactionservice.controller.transaction.init;
 
 import com.advanced.contract.model.WithdrawalInitRequest;
 import com.advanced.transactionservice.AbstractIntegrationTest;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
 import com.advanced.transactionservice.model.Transaction;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.model.WalletStatus;
 import com.advanced.transactionservice.repository.TransactionRepository;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.utils.LedgerUtils;
 import com.advanced.transactionservice.utils.WalletUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -50,11 +52,15 @@ public class InitWithdrawalRestControllerV1Test extends AbstractIntegrationTest
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
     @Autowired
     private TransactionRepository requestRepository;
 
     @BeforeEach
     void setup() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
         walletRepository.deleteAll();
     }
 
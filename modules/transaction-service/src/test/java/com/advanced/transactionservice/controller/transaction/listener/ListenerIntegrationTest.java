@@ -5,6 +5,7 @@ import com.advanced.kafkacontracts.WithdrawalCompleted;
 import com.advanced.kafkacontracts.WithdrawalFailed;
 import com.advanced.transactionservice.AbstractIntegrationTest;
 import com.advanced.transactionservice.configuration.KafkaTopicsProperties;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
 import com.advanced.transactionservice.model.PaymentStatus;
 import com.advanced.transactionservice.model.PaymentType;
 import com.advanced.transactionservice.model.Transaction;
@@ -12,6 +13,8 @@ import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.repository.TransactionRepository;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.utils.LedgerUtils;
 import com.advanced.transactionservice.utils.WalletUtils;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -55,6 +58,12 @@ public class ListenerIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
+    @Autowired
+    private WalletService walletService;
+
     @Autowired
     private KafkaTopicsProperties kafkaTopics;
 
@@ -81,6 +90,7 @@ public class ListenerIntegrationTest extends AbstractIntegrationTest {
 
     @AfterEach
     void setup() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
         transactionRepository.deleteAll();
         walletRepository.deleteAll();
     }
@@ -114,7 +124,7 @@ public class ListenerIntegrationTest extends AbstractIntegrationTest {
         await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
             Transaction updated = transactionRepository.findById(transaction.getUid()).orElseThrow();
             assertEquals(PaymentStatus.COMPLETED, updated.getStatus());
-            assertEquals(new BigDecimal("95.00"), walletRepository.findById(wallet.getUid()).orElseThrow().getBalance());
+            assertEquals(new BigDecimal("95.00"), walletService.getWalletByUid(wallet.getUid()).getBalance());
         });
     }
 
@@ -187,7 +197,7 @@ public class ListenerIntegrationTest extends AbstractIntegrationTest {
             Transaction updated = transactionRepository.findByUidAndUserUid(transaction.getUid(), transaction.getUserUid()).orElseThrow();
             assertEquals(PaymentStatus.FAILED, updated.getStatus());
             assertEquals("Insufficient funds", updated.getFailureReason());
-            assertEquals(amount.add(fee), walletRepository.findByUidAndUserUid(wallet.getUid(), wallet.getUserUid()).orElseThrow().getBalance());
+            assertEquals(amount.add(fee), walletService.getWalletByUid(wallet.getUid(), wallet.getUserUid()).getBalance());
         });
     }
 }
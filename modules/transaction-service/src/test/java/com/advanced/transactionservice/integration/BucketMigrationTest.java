@@ -0,0 +1,115 @@
+package com.advanced.transactionservice.integration;
+
+import com.advanced.transactionservice.AbstractIntegrationTest;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.model.Wallet;
+import com.advanced.transactionservice.repository.WalletRepository;
+import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.migration.BucketMigrationService;
+import com.advanced.transactionservice.utils.ShardRowUtils;
+import com.advanced.transactionservice.utils.WalletUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "sharding.buckets.migration.propagation-delay=0s"
+)
+@Testcontainers
+public class BucketMigrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletTypeRepository walletTypeRepository;
+
+    @Autowired
+    private BucketMigrationService migrationService;
+
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
+    @Test
+    void migrate_shouldMoveBucketRowsAndRouting() throws SQLException {
+        UUID userUid = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        int bucket = shardingSphereConfiguration.getBucketDirectory().current().bucketOf(userUid.hashCode());
+        Wallet wallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "migrated", BigDecimal.TEN, userUid);
+
+        assertEquals(1, countWallets("ds_0", wallet.getUid()));
+
+        try {
+            migrationService.migrate(List.of(bucket), "ds_1");
+
+            assertEquals(0, countWallets("ds_0", wallet.getUid()));
+            assertEquals(1, countWallets("ds_1", wallet.getUid()));
+            assertEquals(0, BigDecimal.TEN.compareTo(
+                    walletRepository.findByUidAndUserUid(wallet.getUid(), userUid).orElseThrow().getBalance()));
+        } finally {
+            migrationService.migrate(List.of(bucket), "ds_0");
+        }
+
+        assertEquals(1, countWallets("ds_0", wallet.getUid()));
+        assertEquals(0, countWallets("ds_1", wallet.getUid()));
+    }
+
+    @Test
+    void migrate_shouldCreateTargetPartitions_forTransactionsOlderThanTheFirstOne() {
+        UUID userUid = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        int bucket = shardingSphereConfiguration.getBucketDirectory().current().bucketOf(userUid.hashCode());
+        LocalDateTime createdAt = LocalDateTime.now().minusMonths(6).withDayOfMonth(1).withHour(12);
+        JdbcTemplate source = jdbcTemplate("ds_0");
+        JdbcTemplate target = jdbcTemplate("ds_1");
+        target.execute("DROP TABLE IF EXISTS transactions_" + createdAt.format(DateTimeFormatter.ofPattern("yyyy_MM")));
+        UUID walletUid = ShardRowUtils.insertWallet(source, userUid, BigDecimal.TEN);
+        UUID transactionUid = ShardRowUtils.insertTransaction(source, walletUid, userUid, createdAt, BigDecimal.TEN);
+
+        try {
+            migrationService.migrate(List.of(bucket), "ds_1");
+
+            assertEquals(1, target.queryForObject(
+                    "SELECT count(*) FROM transactions WHERE uid = ?", Integer.class, transactionUid));
+            assertEquals(0, source.queryForObject(
+                    "SELECT count(*) FROM transactions WHERE uid = ?", Integer.class, transactionUid));
+        } finally {
+            migrationService.migrate(List.of(bucket), "ds_0");
+            source.update("DELETE FROM transactions WHERE uid = ?", transactionUid);
+            source.update("DELETE FROM wallets WHERE uid = ?", walletUid);
+        }
+    }
+
+    private JdbcTemplate jdbcTemplate(String shardName) {
+        var props = shardingSphereConfiguration.getDatasources().get(shardName);
+        return new JdbcTemplate(new DriverManagerDataSource(props.getJdbcUrl(), props.getUsername(), props.getPassword()));
+    }
+
+    private int countWallets(String shardName, UUID walletUid) throws SQLException {
+        var props = shardingSphereConfiguration.getDatasources().get(shardName);
+        try (Connection conn = DriverManager.getConnection(props.getJdbcUrl(), props.getUsername(), props.getPassword());
+             PreparedStatement stmt = conn.prepareStatement("SELECT count(*) FROM wallets WHERE uid = ?")) {
+            stmt.setObject(1, walletUid);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.advanced.transactionservice.integration;
+
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.AbstractIntegrationTest;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.mapper.TransactionMapper;
+import com.advanced.transactionservice.model.*;
+import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.repository.TransferLegRepository;
+import com.advanced.transactionservice.repository.WalletRepository;
+import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.service.transfer.CrossShardTransferCoordinator;
+import com.advanced.transactionservice.service.transfer.CrossShardTransferRecovery;
+import com.advanced.transactionservice.utils.LedgerUtils;
+import com.advanced.transactionservice.utils.WalletUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // Плановый запуск не должен вмешиваться: восстановление вызывается из тестов
+        properties = {"transfer.recovery.stale-after=0s", "transfer.recovery.interval=PT1H"}
+)
+@Testcontainers
+public class CrossShardTransferRecoveryTest extends AbstractIntegrationTest {
+
+    private static final UUID USER_IN_SHARD_0 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private static final UUID USER_IN_SHARD_1 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Autowired
+    private WalletTypeRepository walletTypeRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransferLegRepository transferLegRepository;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private CrossShardTransferCoordinator coordinator;
+
+    @Autowired
+    private CrossShardTransferRecovery recovery;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
+    private Wallet fromWallet;
+
+    private Wallet toWallet;
+
+    @BeforeEach
+    void setup() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
+        transferLegRepository.deleteAll();
+        transactionRepository.deleteAll();
+        walletRepository.deleteAll();
+
+        fromWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "from", new BigDecimal("500.00"), USER_IN_SHARD_0);
+        toWallet = WalletUtils.createWallet(walletTypeRepository, walletRepository, "to", BigDecimal.ZERO, USER_IN_SHARD_1);
+    }
+
+    @Test
+    void recover_shouldSettleStaleHeldTransfer() {
+        TransferLeg debitLeg = hold();
+        assertBalances("290.00", "0.00");
+
+        recovery.recover();
+
+        assertBalances("290.00", "200.00");
+        assertEquals(PaymentStatus.COMPLETED, transaction(debitLeg).getStatus());
+        assertEquals(TransferLegStatus.SETTLED, debitLeg(debitLeg).getStatus());
+        assertEquals(TransferLegStatus.APPLIED, creditLeg(debitLeg).getStatus());
+        assertSystemAccounts("0", "10.00");
+
+        // Повторный проход и повторное возобновление уже ничего не меняют
+        recovery.recover();
+        coordinator.resume(debitLeg);
+
+        assertBalances("290.00", "200.00");
+        assertSystemAccounts("0", "10.00");
+    }
+
+    @Test
+    void recover_shouldReleaseHold_whenCreditLegWasCancelled() {
+        TransferLeg debitLeg = hold();
+        cancelCredit(debitLeg);
+
+        recovery.recover();
+
+        assertBalances("500.00", "0.00");
+        Transaction transaction = transaction(debitLeg);
+        assertEquals(PaymentStatus.FAILED, transaction.getStatus());
+        assertEquals("Transfer cancelled", transaction.getFailureReason());
+        assertEquals(TransferLegStatus.RELEASED, debitLeg(debitLeg).getStatus());
+        assertSystemAccounts("0", "0");
+    }
+
+    @Test
+    void resume_shouldFenceOffLateCredit_afterTransferWasCancelled() {
+        TransferLeg debitLeg = hold();
+        cancelCredit(debitLeg);
+        recovery.recover();
+
+        // Исходный запрос добрался до зачисления уже после отмены
+        Transaction transaction = coordinator.resume(debitLeg);
+
+        assertEquals(PaymentStatus.FAILED, transaction.getStatus());
+        assertBalances("500.00", "0.00");
+        assertEquals(TransferLegStatus.CANCELLED, creditLeg(debitLeg).getStatus());
+        assertEquals(2, transferLegRepository.count());
+        assertSystemAccounts("0", "0");
+    }
+
+    @Test
+    void resume_shouldCreditOnce_whenResumedConcurrently() {
+        TransferLeg debitLeg = hold();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<CompletableFuture<Void>> attempts = IntStream.range(0, threads)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        try {
+                            start.await();
+                            coordinator.resume(debitLeg);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (RuntimeException e) {
+                            // Проигравшие гонку упираются в уникальность ноги зачисления
+                        }
+                    }, executor))
+                    .toList();
+            start.countDown();
+            attempts.forEach(CompletableFuture::join);
+        }
+        recovery.recover();
+
+        assertBalances("290.00", "200.00");
+        assertEquals(PaymentStatus.COMPLETED, transaction(debitLeg).getStatus());
+        assertEquals(2, transferLegRepository.count());
+        assertSystemAccounts("0", "10.00");
+    }
+
+    // Удержание, как в CrossShardTransferCoordinator: запрос оборвался до зачисления на шарде получателя
+    private TransferLeg hold() {
+        WalletResponse from = walletService.getWalletByUid(fromWallet.getUid(), USER_IN_SHARD_0);
+        Money amount = Money.of(new BigDecimal("200.00"), "RUB");
+        Money fee = Money.of(new BigDecimal("10.00"), "RUB");
+
+        TransferConfirmRequest request = new TransferConfirmRequest();
+        request.setWalletUid(fromWallet.getUid());
+        request.setTargetWalletUid(toWallet.getUid());
+        request.setAmount(amount.toBigDecimal());
+        request.setFee(fee.toBigDecimal());
+        request.setCurrency("RUB");
+
+        return transactionTemplate.execute(status -> {
+            Transaction transaction = TransactionMapper.fromTransfer(request, from, toWallet.getUid(), amount, fee);
+            transaction.setStatus(PaymentStatus.PENDING);
+            transactionRepository.saveAndFlush(transaction);
+            walletService.debit(transaction.getUid(), fromWallet.getUid(), USER_IN_SHARD_0, amount.plus(fee), LedgerAccount.TRANSIT);
+
+            TransferLeg leg = new TransferLeg();
+            leg.setTransactionUid(transaction.getUid());
+            leg.setType(TransferLegType.DEBIT);
+            leg.setStatus(TransferLegStatus.HELD);
+            leg.setWalletUid(fromWallet.getUid());
+            leg.setUserUid(USER_IN_SHARD_0);
+            leg.setAmount(amount.plus(fee).toBigDecimal());
+            leg.setCounterpartyWalletUid(toWallet.getUid());
+            leg.setCounterpartyUserUid(USER_IN_SHARD_1);
+            return transferLegRepository.save(leg);
+        });
+    }
+
+    // Отмена записывает ногу зачисления CANCELLED на шарде получателя раньше, чем возвращается удержание
+    private void cancelCredit(TransferLeg debitLeg) {
+        TransferLeg leg = new TransferLeg();
+        leg.setTransactionUid(debitLeg.getTransactionUid());
+        leg.setType(TransferLegType.CREDIT);
+        leg.setStatus(TransferLegStatus.CANCELLED);
+        leg.setWalletUid(toWallet.getUid());
+        leg.setUserUid(USER_IN_SHARD_1);
+        leg.setAmount(new BigDecimal("200.00"));
+        leg.setCounterpartyWalletUid(fromWallet.getUid());
+        leg.setCounterpartyUserUid(USER_IN_SHARD_0);
+        transferLegRepository.save(leg);
+    }
+
+    private Transaction transaction(TransferLeg debitLeg) {
+        return transactionRepository.findByUidAndUserUid(debitLeg.getTransactionUid(), USER_IN_SHARD_0).orElseThrow();
+    }
+
+    private TransferLeg debitLeg(TransferLeg debitLeg) {
+        return transferLegRepository.findByTransactionUidAndTypeAndUserUid(
+                debitLeg.getTransactionUid(), TransferLegType.DEBIT, USER_IN_SHARD_0).orElseThrow();
+    }
+
+    private TransferLeg creditLeg(TransferLeg debitLeg) {
+        return transferLegRepository.findByTransactionUidAndTypeAndUserUid(
+                debitLeg.getTransactionUid(), TransferLegType.CREDIT, USER_IN_SHARD_1).orElseThrow();
+    }
+
+    private void assertBalances(String from, String to) {
+        assertEquals(new BigDecimal(from), walletService.getWalletByUid(fromWallet.getUid(), USER_IN_SHARD_0).getBalance());
+        assertEquals(new BigDecimal(to), walletService.getWalletByUid(toWallet.getUid(), USER_IN_SHARD_1).getBalance());
+    }
+
+    private void assertSystemAccounts(String transit, String fees) {
+        assertEquals(0, new BigDecimal(transit).compareTo(LedgerUtils.sumAccount(shardingSphereConfiguration, LedgerAccount.TRANSIT)));
+        assertEquals(0, new BigDecimal(fees).compareTo(LedgerUtils.sumAccount(shardingSphereConfiguration, LedgerAccount.FEES)));
+    }
+}
@@ -7,6 +7,7 @@ import com.advanced.transactionservice.model.WalletStatus;
 import com.advanced.transactionservice.model.WalletType;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.utils.LedgerUtils;
 import com.advanced.transactionservice.utils.WalletUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -43,6 +44,7 @@ public class ShardingTest extends AbstractIntegrationTest {
 
     @Test
     void testShardingDistribution() throws SQLException {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
         walletRepository.deleteAll();
 
         Wallet wallet0 = new Wallet();
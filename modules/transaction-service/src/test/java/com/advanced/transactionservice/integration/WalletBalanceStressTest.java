@@ -0,0 +1,300 @@
+package com.advanced.transactionservice.integration;
+
+import com.advanced.transactionservice.AbstractIntegrationTest;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.exception.WalletBalanceException;
+import com.advanced.transactionservice.exception.WalletLockTimeoutException;
+import com.advanced.transactionservice.model.LedgerAccount;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.Wallet;
+import com.advanced.transactionservice.repository.WalletRepository;
+import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.sharding.ShardResolver;
+import com.advanced.transactionservice.utils.LedgerUtils;
+import com.advanced.transactionservice.utils.WalletUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent transfers, credits and debits over a small pool of hot wallets on both shards.
+ * Checks that the sum of balances moves exactly by the committed credits, debits and fees and
+ * that no balance goes negative, and reports throughput, p50/p99 latency, deadlocks and lock
+ * timeouts to {@code build/reports/stress/wallet-balance-stress.json} for comparison with a
+ * baseline run. With {@code stress.virtual-threads} the operations and the application run on
+ * virtual threads. Tagged {@code stress}: runs with {@code ./gradlew stressTest}, not with {@code test}.
+ */
+@Tag("stress")
+@ActiveProfiles("test")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.threads.virtual.enabled=${stress.virtual-threads:false}"
+)
+@Testcontainers
+public class WalletBalanceStressTest extends AbstractIntegrationTest {
+
+    private static final int OPERATIONS = Integer.getInteger("stress.operations", 5000);
+
+    private static final int THREADS = Integer.getInteger("stress.threads", 32);
+
+    // Перевод идет между двумя разными кошельками одного шарда
+    private static final int WALLETS_PER_SHARD = Math.max(2, Integer.getInteger("stress.wallets-per-shard", 4));
+
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("stress.virtual-threads");
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000.00");
+
+    private static final Currency CURRENCY = Money.currency("RUB");
+
+    private static final Money FEE = Money.ofMinor(10, CURRENCY);
+
+    private static final Path REPORT = Path.of("build", "reports", "stress", "wallet-balance-stress.json");
+
+    private enum Operation { TRANSFER, CREDIT, DEBIT }
+
+    private enum Outcome { COMMITTED, INSUFFICIENT_FUNDS, DEADLOCK, LOCK_TIMEOUT, FAILED }
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletTypeRepository walletTypeRepository;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    @Autowired
+    private ShardingSphereConfiguration shardingSphereConfiguration;
+
+    private final AtomicLong credited = new AtomicLong();
+
+    private final AtomicLong debited = new AtomicLong();
+
+    private final AtomicLong fees = new AtomicLong();
+
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    private final List<Wallet> wallets = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() {
+        LedgerUtils.deleteAll(shardingSphereConfiguration);
+        walletRepository.deleteAll(wallets);
+    }
+
+    @Test
+    void concurrentMutations_shouldConserveBalances() throws Exception {
+        List<List<Wallet>> pools = List.of(hotWallets(0), hotWallets(1));
+        pools.forEach(wallets::addAll);
+        long initialTotal = Money.toMinorUnits(INITIAL_BALANCE) * wallets.size();
+
+        Operation[] operations = new Operation[OPERATIONS];
+        Outcome[] outcomes = new Outcome[OPERATIONS];
+        long[] latencies = new long[OPERATIONS];
+        CountDownLatch start = new CountDownLatch(1);
+        // Одинаковое число одновременных операций в обоих режимах, меняются только потоки
+        ThreadFactory threadFactory = VIRTUAL_THREADS ? Thread.ofVirtual().factory() : Thread.ofPlatform().factory();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, threadFactory);
+        List<Future<?>> futures = new ArrayList<>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                run(operation, pools, operations, outcomes, latencies);
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        long finalTotal = 0;
+        for (Wallet wallet : wallets) {
+            BigDecimal balance = walletService.getWalletByUid(wallet.getUid(), wallet.getUserUid()).getBalance();
+            assertTrue(balance.signum() >= 0, "Отрицательный баланс кошелька " + wallet.getUid() + ": " + balance);
+            finalTotal += Money.toMinorUnits(balance);
+        }
+
+        Map<String, Object> report = report(operations, outcomes, latencies, elapsed);
+        writeReport(report);
+
+        assertNull(firstFailure.get(), () -> "Операция завершилась непредвиденной ошибкой: " + firstFailure.get());
+        assertEquals(initialTotal + credited.get() - debited.get() - fees.get(), finalTotal,
+                "Сумма балансов разошлась с подтвержденными операциями");
+    }
+
+    private void run(int index, List<List<Wallet>> pools, Operation[] operations, Outcome[] outcomes, long[] latencies) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Wallet> pool = pools.get(random.nextInt(pools.size()));
+        Wallet wallet = pool.get(random.nextInt(pool.size()));
+        Money amount = Money.ofMinor(random.nextLong(1, 5_000), CURRENCY);
+        int roll = random.nextInt(10);
+        Operation operation = roll < 8 ? Operation.TRANSFER : roll == 8 ? Operation.CREDIT : Operation.DEBIT;
+
+        long started = System.nanoTime();
+        Outcome outcome;
+        try {
+            switch (operation) {
+                case TRANSFER -> {
+                    Wallet target = pool.get((pool.indexOf(wallet) + 1 + random.nextInt(pool.size() - 1)) % pool.size());
+                    walletService.transfer(UUID.randomUUID(), wallet.getUid(), wallet.getUserUid(),
+                            target.getUid(), target.getUserUid(), amount, FEE);
+                    fees.addAndGet(FEE.minorUnits());
+                }
+                case CREDIT -> {
+                    walletService.credit(UUID.randomUUID(), wallet.getUid(), wallet.getUserUid(), amount, LedgerAccount.EXTERNAL);
+                    credited.addAndGet(amount.minorUnits());
+                }
+                case DEBIT -> {
+                    walletService.debit(UUID.randomUUID(), wallet.getUid(), wallet.getUserUid(), amount, LedgerAccount.EXTERNAL);
+                    debited.addAndGet(amount.minorUnits());
+                }
+            }
+            outcome = Outcome.COMMITTED;
+        } catch (RuntimeException e) {
+            outcome = classify(e);
+            if (outcome == Outcome.FAILED) {
+                firstFailure.compareAndSet(null, e);
+            }
+        }
+        latencies[index] = System.nanoTime() - started;
+        operations[index] = operation;
+        outcomes[index] = outcome;
+    }
+
+    private List<Wallet> hotWallets(int shard) {
+        List<Wallet> wallets = new ArrayList<>(WALLETS_PER_SHARD);
+        while (wallets.size() < WALLETS_PER_SHARD) {
+            UUID userUid = UUID.randomUUID();
+            if (shardResolver.shardOf(userUid) == shard) {
+                wallets.add(WalletUtils.createWallet(walletTypeRepository, walletRepository,
+                        "hot-" + shard + "-" + wallets.size(), INITIAL_BALANCE, userUid));
+            }
+        }
+        return wallets;
+    }
+
+    private static Outcome classify(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WalletBalanceException) {
+                return Outcome.INSUFFICIENT_FUNDS;
+            }
+            if (cause instanceof WalletLockTimeoutException) {
+                return Outcome.LOCK_TIMEOUT;
+            }
+            if (cause instanceof DeadlockLoserDataAccessException) {
+                return Outcome.DEADLOCK;
+            }
+            if (cause instanceof SQLException sqlException) {
+                // 40P01 - deadlock_detected, 55P03 - lock_not_available (lock_timeout)
+                if ("40P01".equals(sqlException.getSQLState())) {
+                    return Outcome.DEADLOCK;
+                }
+                if ("55P03".equals(sqlException.getSQLState())) {
+                    return Outcome.LOCK_TIMEOUT;
+                }
+            }
+        }
+        return Outcome.FAILED;
+    }
+
+    private static Map<String, Object> report(Operation[] operations, Outcome[] outcomes, long[] latencies, long elapsed) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("operations", OPERATIONS);
+        report.put("threads", THREADS);
+        report.put("virtual_threads", VIRTUAL_THREADS);
+        report.put("wallets_per_shard", WALLETS_PER_SHARD);
+        report.put("elapsed_ms", elapsed / 1_000_000);
+        report.put("throughput_ops_per_sec", Math.round(OPERATIONS * 1e9 / elapsed));
+        report.put("latency_ms", latency(latencies));
+
+        Map<String, Object> byOperation = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            long[] selected = new long[OPERATIONS];
+            int count = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (operations[i] == operation) {
+                    selected[count++] = latencies[i];
+                }
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", count);
+            stats.putAll(latency(Arrays.copyOf(selected, count)));
+            byOperation.put(operation.name().toLowerCase(), stats);
+        }
+        report.put("by_operation", byOperation);
+
+        Map<String, Long> byOutcome = new LinkedHashMap<>();
+        for (Outcome outcome : Outcome.values()) {
+            byOutcome.put(outcome.name().toLowerCase(), Arrays.stream(outcomes).filter(outcome::equals).count());
+        }
+        report.put("outcomes", byOutcome);
+        return report;
+    }
+
+    private static Map<String, Object> latency(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("p50", percentile(sorted, 0.50));
+        stats.put("p99", percentile(sorted, 0.99));
+        stats.put("max", percentile(sorted, 1.0));
+        return stats;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return Math.round(sorted[Math.max(index, 0)] / 1_000.0) / 1_000.0;
+    }
+
+    private static void writeReport(Map<String, Object> report) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(REPORT.getParent());
+        mapper.writeValue(REPORT.toFile(), report);
+        System.out.println("Wallet balance stress: " + mapper.writeValueAsString(report));
+    }
+}
@@ -0,0 +1,47 @@
+package com.advanced.transactionservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinorUnitsConverterTest {
+
+    private final MinorUnitsConverter converter = new MinorUnitsConverter();
+
+    @Test
+    void convert_shouldRoundTripAmountsAtScale() {
+        for (String amount : new String[]{"0.00", "0.01", "-0.01", "10.50", "123456789.99", "-999999999999.99"}) {
+            BigDecimal decimal = new BigDecimal(amount);
+
+            Long minorUnits = converter.convertToDatabaseColumn(decimal);
+
+            assertEquals(decimal.unscaledValue().longValueExact(), minorUnits, amount);
+            assertEquals(decimal, converter.convertToEntityAttribute(minorUnits), amount);
+        }
+    }
+
+    @Test
+    void convertToDatabaseColumn_shouldRoundHalfEven() {
+        assertEquals(1050L, converter.convertToDatabaseColumn(new BigDecimal("10.5")));
+        assertEquals(1002L, converter.convertToDatabaseColumn(new BigDecimal("10.025")));
+        assertEquals(1004L, converter.convertToDatabaseColumn(new BigDecimal("10.035")));
+        assertEquals(-1002L, converter.convertToDatabaseColumn(new BigDecimal("-10.025")));
+        assertEquals(100_000L, converter.convertToDatabaseColumn(new BigDecimal("1E+3")));
+        assertThrows(ArithmeticException.class, () -> converter.convertToDatabaseColumn(new BigDecimal("92233720368547758.08")));
+    }
+
+    @Test
+    void convertToEntityAttribute_shouldKeepScale() {
+        assertEquals(new BigDecimal("0.00"), converter.convertToEntityAttribute(0L));
+        assertEquals(new BigDecimal("-0.05"), converter.convertToEntityAttribute(-5L));
+        assertEquals(Money.SCALE, converter.convertToEntityAttribute(100L).scale());
+    }
+
+    @Test
+    void convert_shouldKeepNull() {
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
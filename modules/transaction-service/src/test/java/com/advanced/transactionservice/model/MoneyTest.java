@@ -0,0 +1,53 @@
+package com.advanced.transactionservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @Test
+    void of_shouldRoundToMinorUnitsHalfEven() {
+        assertEquals(1050, Money.of(new BigDecimal("10.5"), USD).minorUnits());
+        assertEquals(1002, Money.of(new BigDecimal("10.025"), USD).minorUnits());
+        assertEquals(1004, Money.of(new BigDecimal("10.035"), USD).minorUnits());
+        assertEquals(-99_999_999_999_999L, Money.of(new BigDecimal("-999999999999.99"), USD).minorUnits());
+        assertEquals(100_000, Money.of(new BigDecimal("1E+3"), USD).minorUnits());
+        assertEquals(Long.MAX_VALUE, Money.of(new BigDecimal("92233720368547758.07"), USD).minorUnits());
+        assertEquals(new BigDecimal("10.50"), Money.of(new BigDecimal("10.5"), "USD").toBigDecimal());
+        assertSame(USD, Money.of(BigDecimal.ONE, "USD").currency());
+    }
+
+    @Test
+    void toBigDecimal_shouldConvertOnce_andReuseDecimalAlreadyAtScale() {
+        BigDecimal requested = new BigDecimal("10.50");
+        Money amount = Money.of(requested, USD);
+        Money fee = Money.ofMinor(15, USD);
+
+        assertSame(requested, amount.toBigDecimal());
+        assertSame(fee.toBigDecimal(), fee.toBigDecimal());
+        assertEquals(new BigDecimal("0.15"), fee.toBigDecimal());
+        assertEquals(Money.ofMinor(1050, USD), amount);
+        assertEquals(Money.ofMinor(1050, USD).hashCode(), amount.hashCode());
+        assertEquals(0, Money.of(new BigDecimal("10.5"), USD).compareTo(amount));
+    }
+
+    @Test
+    void arithmetic_shouldStayInCurrency() {
+        Money amount = Money.of(new BigDecimal("10.00"), USD);
+        Money fee = Money.ofMinor(15, USD);
+
+        assertEquals(Money.ofMinor(1015, USD), amount.plus(fee));
+        assertEquals(Money.ofMinor(985, USD), amount.minus(fee));
+        assertTrue(amount.plus(fee).exceeds(new BigDecimal("10.14")));
+        assertFalse(amount.plus(fee).exceeds(new BigDecimal("10.15")));
+        assertEquals("10.15 USD", amount.plus(fee).toString());
+        assertThrows(IllegalArgumentException.class, () -> amount.plus(Money.zero(Currency.getInstance("EUR"))));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE, USD).plus(fee));
+    }
+}
@@ -0,0 +1,123 @@
+package com.advanced.transactionservice.service;
+
+import com.advanced.transactionservice.model.FeeRule;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.repository.FeeRuleRepository;
+import com.advanced.transactionservice.repository.WalletTypeRepository;
+import com.advanced.transactionservice.service.cache.LruCache;
+import com.advanced.transactionservice.service.fee.FeeRuleEngine;
+import com.advanced.transactionservice.service.lock.WalletLockManager;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.utils.PinningDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs the locks of the request path on contending virtual threads and checks with JFR that none
+ * of them pins a carrier thread.
+ */
+class VirtualThreadPinningTest {
+
+    private static final int THREADS = 64;
+
+    private final Object monitor = new Object();
+
+    @Test
+    void detector_shouldReportParkingInsideMonitor() {
+        try (PinningDetector detector = new PinningDetector()) {
+            onVirtualThreads(4, () -> {
+                synchronized (monitor) {
+                    sleep(10);
+                }
+            });
+
+            assertFalse(detector.stop().isEmpty());
+        }
+    }
+
+    @Test
+    void hotPathLocks_shouldNotPinCarrierThreads() {
+        LruCache<Integer, Integer> cache = new LruCache<>(100);
+        FeeRuleEngine feeRuleEngine = new FeeRuleEngine(
+                slowRepository(FeeRuleRepository.class, List.of(new FeeRule(null, null, null, "transfer-default",
+                        PaymentType.TRANSFER, null, null, null, BigDecimal.ZERO, new BigDecimal("0.10"),
+                        BigDecimal.ZERO, BigDecimal.ZERO, null, 0, true))),
+                slowRepository(WalletTypeRepository.class, List.of()),
+                new TransactionMetricsService(new SimpleMeterRegistry()));
+        WalletLockManager lockManager = new WalletLockManager(new SimpleMeterRegistry(), 4, Duration.ofSeconds(10));
+        UUID walletUid = UUID.randomUUID();
+        Money amount = Money.of(BigDecimal.TEN, "RUB");
+
+        Runnable cacheAccess = () -> {
+            for (int i = 0; i < 1_000; i++) {
+                cache.put(i % 200, i);
+                cache.get((i + 100) % 200);
+            }
+        };
+        Runnable feeEvaluation = () -> {
+            feeRuleEngine.reload();
+            feeRuleEngine.fee(PaymentType.TRANSFER, UUID.randomUUID(), amount);
+        };
+        Runnable walletLock = () -> {
+            TransactionSynchronizationManager.initSynchronization();
+            lockManager.lock(walletUid);
+            sleep(1);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            TransactionSynchronizationManager.clearSynchronization();
+        };
+        List<Runnable> workloads = List.of(cacheAccess, feeEvaluation, walletLock);
+        // Первый прогон загружает классы: загрузчик классов берет монитор, это разовая блокировка
+        workloads.forEach(Runnable::run);
+
+        try (PinningDetector detector = new PinningDetector()) {
+            workloads.forEach(workload -> onVirtualThreads(THREADS, workload));
+
+            assertEquals(List.of(), detector.stop());
+        }
+    }
+
+    private static void onVirtualThreads(int threads, Runnable task) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(task);
+            }
+        }
+    }
+
+    /**
+     * Repository whose finders return {@code rows} after a pause, as a JDBC round trip would.
+     */
+    private static <T> T slowRepository(Class<T> type, List<?> rows) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().startsWith("findAll")) {
+                sleep(5);
+                return rows;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
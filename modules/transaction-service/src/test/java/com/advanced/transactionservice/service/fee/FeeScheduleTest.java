@@ -0,0 +1,88 @@
+package com.advanced.transactionservice.service.fee;
+
+import com.advanced.transactionservice.model.FeeRule;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeScheduleTest {
+
+    private static final UUID BASIC = UUID.randomUUID();
+
+    private static final UUID PREMIUM = UUID.randomUUID();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TransactionMetricsService metricsService = new TransactionMetricsService(meterRegistry);
+
+    @Test
+    void fee_shouldPickMostSpecificRuleAndHighestTier() {
+        FeeRule withdrawal = rule("withdrawal-default", PaymentType.WITHDRAWAL, "0.15");
+        FeeRule usd = rule("withdrawal-usd", PaymentType.WITHDRAWAL, "0.30");
+        usd.setCurrency(Currency.getInstance("USD"));
+        FeeRule usdLarge = rule("withdrawal-usd-large", PaymentType.WITHDRAWAL, "1.00");
+        usdLarge.setCurrency(Currency.getInstance("USD"));
+        usdLarge.setMinAmount(new BigDecimal("1000.00"));
+        FeeRule vip = rule("withdrawal-vip", PaymentType.WITHDRAWAL, "0.00");
+        vip.setUserSegment("VIP");
+        FeeSchedule schedule = FeeSchedule.compile(List.of(withdrawal, usd, usdLarge, vip),
+                Map.of(BASIC, "USER", PREMIUM, "VIP"), metricsService::feeRuleHits);
+
+        assertEquals(15, schedule.fee(PaymentType.WITHDRAWAL, "RUB", BASIC, 1000));
+        assertEquals(30, schedule.fee(PaymentType.WITHDRAWAL, "USD", BASIC, 99999));
+        assertEquals(100, schedule.fee(PaymentType.WITHDRAWAL, "USD", BASIC, 100000));
+        assertEquals(0, schedule.fee(PaymentType.WITHDRAWAL, "RUB", PREMIUM, 1000));
+        assertEquals(4, schedule.size());
+        assertEquals(1.0, meterRegistry.get("fee_rule_hits_total").tag("rule", "withdrawal-usd-large").counter().count());
+    }
+
+    @Test
+    void fee_shouldApplyPercentWithinBounds() {
+        FeeRule transfer = rule("transfer-percent", PaymentType.TRANSFER, "0.10");
+        transfer.setPercentFee(new BigDecimal("1.5000"));
+        transfer.setMinFee(new BigDecimal("0.50"));
+        transfer.setMaxFee(new BigDecimal("20.00"));
+        FeeSchedule schedule = FeeSchedule.compile(List.of(transfer), Map.of(), metricsService::feeRuleHits);
+
+        assertEquals(160, schedule.fee(PaymentType.TRANSFER, "USD", BASIC, 10000));
+        assertEquals(50, schedule.fee(PaymentType.TRANSFER, "USD", BASIC, 1000));
+        assertEquals(2000, schedule.fee(PaymentType.TRANSFER, "USD", BASIC, 500000));
+        // 0.595 и 0.685 - округление к четному
+        assertEquals(60, schedule.fee(PaymentType.TRANSFER, "USD", BASIC, 3300));
+        assertEquals(68, schedule.fee(PaymentType.TRANSFER, "USD", BASIC, 3900));
+    }
+
+    @Test
+    void fee_shouldPreferHigherPriorityAndCountUnmatched() {
+        FeeRule wallet = rule("deposit-basic", PaymentType.DEPOSIT, "2.00");
+        wallet.setWalletTypeUid(BASIC);
+        FeeRule promo = rule("deposit-promo", PaymentType.DEPOSIT, "0.00");
+        promo.setPriority(10);
+        FeeSchedule schedule = FeeSchedule.compile(List.of(wallet, promo), Map.of(), metricsService::feeRuleHits);
+
+        assertEquals(0, schedule.fee(PaymentType.DEPOSIT, "USD", BASIC, 1000));
+        assertEquals(0, schedule.fee(PaymentType.WITHDRAWAL, "USD", BASIC, 1000));
+        assertEquals(1.0, meterRegistry.get("fee_rule_hits_total").tag("rule", "none").tag("payment_type", "WITHDRAWAL").counter().count());
+    }
+
+    static FeeRule rule(String name, PaymentType type, String fixedFee) {
+        FeeRule rule = new FeeRule();
+        rule.setName(name);
+        rule.setPaymentType(type);
+        rule.setMinAmount(BigDecimal.ZERO);
+        rule.setFixedFee(new BigDecimal(fixedFee));
+        rule.setPercentFee(BigDecimal.ZERO);
+        rule.setMinFee(BigDecimal.ZERO);
+        rule.setActive(true);
+        return rule;
+    }
+}
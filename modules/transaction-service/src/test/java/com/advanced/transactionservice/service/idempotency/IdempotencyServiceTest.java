@@ -0,0 +1,179 @@
+package com.advanced.transactionservice.service.idempotency;
+
+import com.advanced.contract.model.TransactionConfirmResponse;
+import com.advanced.transactionservice.exception.IdempotencyKeyConflictException;
+import com.advanced.transactionservice.exception.IdempotencyKeyMismatchException;
+import com.advanced.transactionservice.model.IdempotencyKey;
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.repository.IdempotencyKeyRepository;
+import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final UUID WALLET_UID = UUID.randomUUID();
+
+    private static final UUID TARGET_WALLET_UID = UUID.randomUUID();
+
+    private static final UUID USER_UID = UUID.randomUUID();
+
+    private static final UUID TRANSACTION_UID = UUID.randomUUID();
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionMetricsService metricsService;
+
+    @Mock
+    private Supplier<TransactionConfirmResponse> action;
+
+    private IdempotencyService idempotencyService;
+
+    private final IdempotentRequest request = request("100.00", "1.50");
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, transactionRepository, metricsService, 100);
+    }
+
+    @Test
+    void fingerprint_shouldIgnoreTrailingZeros_andDependOnEveryField() {
+        assertEquals(request.fingerprint(), request("100.0", "1.5").fingerprint());
+        assertEquals(64, request.fingerprint().length());
+
+        assertNotEquals(request.fingerprint(), request("100.01", "1.50").fingerprint());
+        assertNotEquals(request.fingerprint(), request("100.00", "1.49").fingerprint());
+        assertNotEquals(request.fingerprint(), IdempotentRequest.of("key", WALLET_UID, UUID.randomUUID(),
+                new BigDecimal("100.00"), new BigDecimal("1.50"), "RUB", null).fingerprint());
+        assertNotEquals(request.fingerprint(), IdempotentRequest.of("key", WALLET_UID, TARGET_WALLET_UID,
+                new BigDecimal("100.00"), new BigDecimal("1.50"), "USD", null).fingerprint());
+        assertNotEquals(request.fingerprint(), IdempotentRequest.of("key", WALLET_UID, TARGET_WALLET_UID,
+                new BigDecimal("100.00"), new BigDecimal("1.50"), "RUB", UUID.randomUUID()).fingerprint());
+        assertNull(IdempotentRequest.of(null, WALLET_UID, null, BigDecimal.ONE, BigDecimal.ZERO, "RUB", null));
+    }
+
+    @Test
+    void execute_shouldRunAction_withoutKey() {
+        TransactionConfirmResponse response = new TransactionConfirmResponse();
+        Mockito.when(action.get()).thenReturn(response);
+
+        assertSame(response, idempotencyService.execute(null, PaymentType.TRANSFER, action));
+
+        Mockito.verifyNoInteractions(idempotencyKeyRepository, transactionRepository);
+    }
+
+    @Test
+    void execute_shouldReplayStoredResult_withoutRunningAction() {
+        stored(PaymentStatus.COMPLETED, request.fingerprint());
+
+        TransactionConfirmResponse response = idempotencyService.execute(request, PaymentType.TRANSFER, action);
+
+        assertEquals(TRANSACTION_UID, response.getTransactionUid());
+        assertEquals(TransactionConfirmResponse.StatusEnum.COMPLETED, response.getStatus());
+        Mockito.verifyNoInteractions(action, transactionRepository);
+    }
+
+    @Test
+    void execute_shouldReject_whenKeyWasUsedForAnotherRequest() {
+        stored(PaymentStatus.COMPLETED, request.fingerprint());
+
+        IdempotencyKeyMismatchException e = assertThrows(IdempotencyKeyMismatchException.class,
+                () -> idempotencyService.execute(request("200.00", "1.50"), PaymentType.TRANSFER, action));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatus());
+        Mockito.verifyNoInteractions(action);
+    }
+
+    @Test
+    void execute_shouldConflict_whenKeyWasUsedForAnotherOperation() {
+        stored(PaymentStatus.COMPLETED, request.fingerprint());
+
+        assertThrows(IdempotencyKeyConflictException.class,
+                () -> idempotencyService.execute(request, PaymentType.WITHDRAWAL, action));
+
+        Mockito.verifyNoInteractions(action);
+    }
+
+    @Test
+    void execute_shouldReplayKeyWithoutFingerprint() {
+        stored(PaymentStatus.COMPLETED, null);
+
+        assertEquals(TRANSACTION_UID, idempotencyService.execute(request("1.00", "0"), PaymentType.TRANSFER, action).getTransactionUid());
+    }
+
+    @Test
+    void execute_shouldReplayCurrentStatus_whenResultWasRecordedPending() {
+        stored(PaymentStatus.PENDING, request.fingerprint());
+        Transaction transaction = new Transaction();
+        transaction.setStatus(PaymentStatus.PENDING);
+        Mockito.when(transactionRepository.findByUidAndUserUid(TRANSACTION_UID, USER_UID)).thenReturn(Optional.of(transaction));
+
+        assertEquals(TransactionConfirmResponse.StatusEnum.PENDING,
+                idempotencyService.execute(request, PaymentType.TRANSFER, action).getStatus());
+
+        transaction.setStatus(PaymentStatus.COMPLETED);
+        assertEquals(TransactionConfirmResponse.StatusEnum.COMPLETED,
+                idempotencyService.execute(request, PaymentType.TRANSFER, action).getStatus());
+        // Завершенный статус закеширован: следующий повтор не читает ни ключ, ни транзакцию
+        assertEquals(TransactionConfirmResponse.StatusEnum.COMPLETED,
+                idempotencyService.execute(request, PaymentType.TRANSFER, action).getStatus());
+
+        Mockito.verify(idempotencyKeyRepository, Mockito.times(1)).findByWalletUidAndKey(WALLET_UID, "key");
+        Mockito.verify(transactionRepository, Mockito.times(2)).findByUidAndUserUid(TRANSACTION_UID, USER_UID);
+        Mockito.verifyNoInteractions(action);
+    }
+
+    @Test
+    void execute_shouldReplayWinner_whenConcurrentRequestCommittedFirst() {
+        IdempotencyKey winner = key(PaymentStatus.COMPLETED, request.fingerprint());
+        Mockito.when(idempotencyKeyRepository.findByWalletUidAndKey(WALLET_UID, "key"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        Mockito.when(action.get()).thenThrow(new DataIntegrityViolationException("uq_idempotency_keys_user_key"));
+
+        assertEquals(TRANSACTION_UID, idempotencyService.execute(request, PaymentType.TRANSFER, action).getTransactionUid());
+    }
+
+    private void stored(PaymentStatus status, String fingerprint) {
+        Mockito.when(idempotencyKeyRepository.findByWalletUidAndKey(WALLET_UID, "key"))
+                .thenReturn(Optional.of(key(status, fingerprint)));
+    }
+
+    private static IdempotencyKey key(PaymentStatus status, String fingerprint) {
+        IdempotencyKey key = new IdempotencyKey();
+        key.setUserUid(USER_UID);
+        key.setWalletUid(WALLET_UID);
+        key.setKey("key");
+        key.setOperation(PaymentType.TRANSFER);
+        key.setTransactionUid(TRANSACTION_UID);
+        key.setStatus(status);
+        key.setRequestHash(fingerprint);
+        return key;
+    }
+
+    private static IdempotentRequest request(String amount, String fee) {
+        return IdempotentRequest.of("key", WALLET_UID, TARGET_WALLET_UID, new BigDecimal(amount), new BigDecimal(fee), "RUB", null);
+    }
+}
@@ -0,0 +1,90 @@
+package com.advanced.transactionservice.service.impl;
+
+import com.advanced.contract.model.DepositConfirmRequest;
+import com.advanced.contract.model.TransactionConfirmResponse;
+import com.advanced.contract.model.TransferConfirmRequest;
+import com.advanced.contract.model.WithdrawalConfirmRequest;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.service.idempotency.IdempotencyService;
+import com.advanced.transactionservice.service.idempotency.IdempotentRequest;
+import com.advanced.transactionservice.service.quote.TransactionQuoteService;
+import com.advanced.transactionservice.service.transfer.TransferEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceImplTest {
+
+    @Mock
+    private WalletService walletService;
+    @Mock
+    private TransferEngine transferEngine;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private TransactionQuoteService quoteService;
+
+    @InjectMocks
+    private TransactionServiceImpl transactionService;
+
+    @Test
+    void confirmTransfer_shouldReplayStoredResult_withoutReadingWalletsOrQuote() {
+        TransactionConfirmResponse stored = new TransactionConfirmResponse();
+        Mockito.when(idempotencyService.execute(any(), eq(PaymentType.TRANSFER), any())).thenReturn(stored);
+
+        TransferConfirmRequest request = new TransferConfirmRequest();
+        request.setWalletUid(UUID.randomUUID());
+        request.setTargetWalletUid(UUID.randomUUID());
+        request.setAmount(new BigDecimal("100.00"));
+        request.setFee(BigDecimal.ONE);
+        request.setCurrency("RUB");
+
+        assertSame(stored, transactionService.confirmTransfer(request, "key"));
+
+        ArgumentCaptor<IdempotentRequest> idempotent = ArgumentCaptor.forClass(IdempotentRequest.class);
+        Mockito.verify(idempotencyService).execute(idempotent.capture(), eq(PaymentType.TRANSFER), any());
+        assertEquals("key", idempotent.getValue().key());
+        assertEquals(request.getWalletUid(), idempotent.getValue().walletUid());
+        Mockito.verifyNoInteractions(walletService, quoteService, transferEngine, transactionTemplate);
+    }
+
+    @Test
+    void confirmDepositAndWithdrawal_shouldLookUpKeyBySourceWallet_beforeReadingIt() {
+        Mockito.when(idempotencyService.execute(any(), any(), any())).thenReturn(new TransactionConfirmResponse());
+        UUID walletUid = UUID.randomUUID();
+
+        DepositConfirmRequest deposit = new DepositConfirmRequest();
+        deposit.setWalletUid(walletUid);
+        deposit.setAmount(BigDecimal.TEN);
+        deposit.setFee(BigDecimal.ZERO);
+        transactionService.confirmDeposit(deposit, "deposit-key");
+
+        WithdrawalConfirmRequest withdrawal = new WithdrawalConfirmRequest();
+        withdrawal.setWalletUid(walletUid);
+        withdrawal.setAmount(BigDecimal.TEN);
+        withdrawal.setFee(BigDecimal.ZERO);
+        transactionService.confirmWithdrawal(withdrawal, "withdrawal-key");
+
+        ArgumentCaptor<IdempotentRequest> idempotent = ArgumentCaptor.forClass(IdempotentRequest.class);
+        Mockito.verify(idempotencyService, Mockito.times(2)).execute(idempotent.capture(), any(), any());
+        assertEquals(walletUid, idempotent.getAllValues().get(0).walletUid());
+        assertEquals(walletUid, idempotent.getAllValues().get(1).walletUid());
+        Mockito.verifyNoInteractions(walletService, quoteService, transactionTemplate);
+    }
+}
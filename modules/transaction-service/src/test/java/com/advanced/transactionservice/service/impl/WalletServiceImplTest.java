@@ -2,27 +2,44 @@ package com.advanced.transactionservice.service.impl;
 
 import com.advanced.contract.model.CreateWalletRequest;
 import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.exception.WalletBalanceException;
+import com.advanced.transactionservice.exception.WalletStatusException;
 import com.advanced.transactionservice.mapper.WalletMapper;
+import com.advanced.transactionservice.model.LedgerAccount;
+import com.advanced.transactionservice.model.LedgerEntry;
+import com.advanced.transactionservice.model.Money;
 import com.advanced.transactionservice.model.Wallet;
 import com.advanced.transactionservice.model.WalletStatus;
 import com.advanced.transactionservice.model.WalletType;
+import com.advanced.transactionservice.repository.LedgerEntryRepository;
 import com.advanced.transactionservice.repository.WalletRepository;
 import com.advanced.transactionservice.service.WalletTypeService;
+import com.advanced.transactionservice.service.ledger.BalanceSlots;
+import com.advanced.transactionservice.service.lock.HotWalletDetector;
+import com.advanced.transactionservice.service.lock.WalletLockManager;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 
 @ExtendWith(MockitoExtension.class)
 class WalletServiceImplTest {
@@ -30,9 +47,17 @@ class WalletServiceImplTest {
     @Mock
     private WalletRepository walletRepository;
     @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Mock
     private WalletMapper walletMapper;
     @Mock
     private WalletTypeService walletTypeService;
+    @Mock
+    private WalletLockManager walletLockManager;
+    @Mock
+    private BalanceSlots balanceSlots;
+    @Mock
+    private HotWalletDetector hotWalletDetector;
 
     @InjectMocks
     private WalletServiceImpl walletService;
@@ -60,16 +85,20 @@ class WalletServiceImplTest {
     }
 
     @Test
-    void getWalletByUid_shouldReturnWalletUidAndUser() {
+    void getWalletByUid_shouldAddPendingEntriesToSnapshotBalance() {
         UUID walletUid = UUID.randomUUID();
         Wallet wallet = new Wallet();
+        wallet.setUserUid(UUID.randomUUID());
+        wallet.setBalance(new BigDecimal("10.00"));
         WalletResponse response = new WalletResponse();
 
         Mockito.when(walletRepository.findById(walletUid)).thenReturn(Optional.of(wallet));
+        Mockito.when(ledgerEntryRepository.sumPending(walletUid, wallet.getUserUid())).thenReturn(new BigDecimal("5.50"));
         Mockito.when(walletMapper.toResponse(wallet)).thenReturn(response);
 
         WalletResponse result = walletService.getWalletByUid(walletUid);
         assertEquals(response, result);
+        assertEquals(new BigDecimal("15.50"), result.getBalance());
     }
 
     @Test
@@ -82,14 +111,18 @@ class WalletServiceImplTest {
     @Test
     void getWalletsByUser_shouldReturnList() {
         UUID userUid = UUID.randomUUID();
-        List<Wallet> wallets = List.of(new Wallet(), new Wallet());
+        Wallet first = wallet(UUID.randomUUID(), userUid, "10.00", WalletStatus.ACTIVE);
+        Wallet second = wallet(UUID.randomUUID(), userUid, "20.00", WalletStatus.ACTIVE);
         List<WalletResponse> responses = List.of(new WalletResponse(), new WalletResponse());
 
-        Mockito.when(walletRepository.findByUserUid(userUid)).thenReturn(wallets);
+        Mockito.when(walletRepository.findByUserUid(userUid)).thenReturn(List.of(first, second));
+        Mockito.when(ledgerEntryRepository.sumPendingByWallet(userUid)).thenReturn(List.of(pending(second.getUid(), "-5.00")));
         Mockito.when(walletMapper.toResponse(any(Wallet.class))).thenReturn(responses.get(0), responses.get(1));
 
         List<WalletResponse> result = walletService.getWalletsByUser(userUid);
         assertEquals(2, result.size());
+        assertEquals(new BigDecimal("10.00"), result.get(0).getBalance());
+        assertEquals(new BigDecimal("15.00"), result.get(1).getBalance());
     }
 
     @Test
@@ -101,38 +134,245 @@ class WalletServiceImplTest {
     }
 
     @Test
-    void transfer_shouldUpdateBalancesSuccessfully() {
-        UUID fromUid = UUID.randomUUID();
-        UUID toUid = UUID.randomUUID();
+    void getBalanceAt_shouldAddEntriesAfterSnapshot() {
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+        OffsetDateTime at = OffsetDateTime.now().minusDays(1);
+
+        Mockito.when(walletRepository.existsByUidAndUserUid(walletUid, userUid)).thenReturn(true);
+        Mockito.when(ledgerEntryRepository.findSnapshotAt(walletUid, userUid, at)).thenReturn(Optional.of(snapshot(2, "50.00")));
+        Mockito.when(ledgerEntryRepository.sumAfterSnapshot(walletUid, userUid, 2, at)).thenReturn(new BigDecimal("7.00"));
+
+        assertEquals(new BigDecimal("57.00"), walletService.getBalanceAt(walletUid, userUid, at));
+    }
 
-        Wallet from = new Wallet();
-        from.setUid(fromUid);
-        from.setUserUid(UUID.randomUUID());
-        from.setBalance(BigDecimal.valueOf(100));
-        from.setStatus(WalletStatus.ACTIVE);
+    @Test
+    void getBalanceAt_shouldReturnZeroBeforeWalletExisted() {
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+        OffsetDateTime at = OffsetDateTime.now().minusYears(1);
 
-        Wallet to = new Wallet();
-        to.setUid(toUid);
-        to.setUserUid(UUID.randomUUID());
-        to.setBalance(BigDecimal.valueOf(50));
-        to.setStatus(WalletStatus.ACTIVE);
+        Mockito.when(walletRepository.existsByUidAndUserUid(walletUid, userUid)).thenReturn(true);
+        Mockito.when(ledgerEntryRepository.findSnapshotAt(walletUid, userUid, at)).thenReturn(Optional.empty());
+        Mockito.when(ledgerEntryRepository.findOpeningBalance(walletUid, userUid, at)).thenReturn(Optional.empty());
 
-        Mockito.when(walletRepository.findForUpdate(fromUid, from.getUserUid())).thenReturn(Optional.of(from));
-        Mockito.when(walletRepository.findForUpdate(toUid, to.getUserUid())).thenReturn(Optional.of(to));
+        assertEquals(BigDecimal.ZERO, walletService.getBalanceAt(walletUid, userUid, at));
+        Mockito.verify(ledgerEntryRepository, Mockito.never()).sumAfterSnapshot(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void transfer_shouldPostBalancedEntriesWithFee() {
+        UUID transactionUid = UUID.randomUUID();
+        UUID fromUid = UUID.randomUUID();
+        UUID fromUserUid = UUID.randomUUID();
+        UUID toUid = UUID.randomUUID();
+        UUID toUserUid = UUID.randomUUID();
+
+        Mockito.when(walletRepository.findBalanceSlots(toUid, toUserUid)).thenReturn(1);
+        Mockito.when(walletRepository.findActiveBalanceSlots(fromUid, fromUserUid)).thenReturn(1);
+        Mockito.when(walletRepository.lockSnapshotBalance(fromUid, fromUserUid)).thenReturn(new BigDecimal("100.00"));
+        Mockito.when(ledgerEntryRepository.sumPending(fromUid, fromUserUid)).thenReturn(new BigDecimal("-70.00"));
 
         walletService.transfer(
+                transactionUid,
                 fromUid,
-                from.getUserUid(),
+                fromUserUid,
                 toUid,
-                to.getUserUid(),
-                BigDecimal.valueOf(30),
-                BigDecimal.valueOf(25)
+                toUserUid,
+                usd(25),
+                usd(5)
         );
 
-        assertEquals(new BigDecimal("70.00"), from.getBalance());
-        assertEquals(new BigDecimal("75.00"), to.getBalance());
-        Mockito.verify(walletRepository).save(from);
-        Mockito.verify(walletRepository).save(to);
+        Mockito.verify(walletLockManager).lock(fromUid);
+        List<LedgerEntry> entries = savedEntries();
+        assertEquals(List.of(
+                LedgerEntry.wallet(transactionUid, fromUid, fromUserUid, new BigDecimal("-30.00")),
+                LedgerEntry.wallet(transactionUid, toUid, toUserUid, new BigDecimal("25.00")),
+                LedgerEntry.system(transactionUid, LedgerAccount.FEES, fromUserUid, new BigDecimal("5.00"))
+        ), entries);
+        Mockito.verify(walletRepository, Mockito.never()).save(any(Wallet.class));
+    }
+
+    @Test
+    void credit_shouldOnlyInsertEntries() {
+        UUID transactionUid = UUID.randomUUID();
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        Mockito.when(walletRepository.findBalanceSlots(walletUid, userUid)).thenReturn(1);
+
+        walletService.credit(transactionUid, walletUid, userUid, usd(12), LedgerAccount.EXTERNAL);
+
+        assertEquals(List.of(
+                LedgerEntry.wallet(transactionUid, walletUid, userUid, new BigDecimal("12.00")),
+                LedgerEntry.system(transactionUid, LedgerAccount.EXTERNAL, userUid, new BigDecimal("-12.00"))
+        ), savedEntries());
+        Mockito.verifyNoInteractions(walletLockManager);
+        Mockito.verify(walletRepository, Mockito.never()).lockSnapshotBalance(any(), any());
+    }
+
+    @Test
+    void credit_shouldThrowIfWalletNotFound() {
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        Mockito.when(walletRepository.findBalanceSlots(walletUid, userUid)).thenReturn(null);
+
+        assertThrows(EntityNotFoundException.class,
+                () -> walletService.credit(UUID.randomUUID(), walletUid, userUid, usd(10), LedgerAccount.TRANSIT));
+        Mockito.verify(ledgerEntryRepository, Mockito.never()).saveAll(any());
     }
 
-}
\ No newline at end of file
+    @Test
+    void debit_shouldThrowIfBalanceInsufficient() {
+        Wallet wallet = wallet(UUID.randomUUID(), UUID.randomUUID(), "10.00", WalletStatus.ACTIVE);
+
+        Mockito.when(walletRepository.findActiveBalanceSlots(wallet.getUid(), wallet.getUserUid())).thenReturn(1);
+        Mockito.when(walletRepository.lockSnapshotBalance(wallet.getUid(), wallet.getUserUid())).thenReturn(wallet.getBalance());
+        Mockito.when(ledgerEntryRepository.sumPending(wallet.getUid(), wallet.getUserUid())).thenReturn(new BigDecimal("19.99"));
+
+        WalletBalanceException e = assertThrows(WalletBalanceException.class,
+                () -> walletService.debit(UUID.randomUUID(), wallet.getUid(), wallet.getUserUid(), usd(30), LedgerAccount.EXTERNAL));
+        assertEquals(new BigDecimal("29.99"), e.getBalance());
+        Mockito.verify(ledgerEntryRepository, Mockito.never()).saveAll(any());
+    }
+
+    @Test
+    void debit_shouldCountPendingEntries() {
+        UUID transactionUid = UUID.randomUUID();
+        Wallet wallet = wallet(UUID.randomUUID(), UUID.randomUUID(), "10.00", WalletStatus.ACTIVE);
+
+        Mockito.when(walletRepository.findActiveBalanceSlots(wallet.getUid(), wallet.getUserUid())).thenReturn(1);
+        Mockito.when(walletRepository.lockSnapshotBalance(wallet.getUid(), wallet.getUserUid())).thenReturn(wallet.getBalance());
+        Mockito.when(ledgerEntryRepository.sumPending(wallet.getUid(), wallet.getUserUid())).thenReturn(new BigDecimal("20.00"));
+
+        walletService.debit(transactionUid, wallet.getUid(), wallet.getUserUid(), usd(30), LedgerAccount.TRANSIT);
+
+        Mockito.verify(walletLockManager).lock(wallet.getUid());
+        assertEquals(List.of(
+                LedgerEntry.wallet(transactionUid, wallet.getUid(), wallet.getUserUid(), new BigDecimal("-30.00")),
+                LedgerEntry.system(transactionUid, LedgerAccount.TRANSIT, wallet.getUserUid(), new BigDecimal("30.00"))
+        ), savedEntries());
+    }
+
+    @Test
+    void debit_shouldThrowIfWalletBlocked() {
+        Wallet wallet = wallet(UUID.randomUUID(), UUID.randomUUID(), "100.00", WalletStatus.BLOCKED);
+
+        Mockito.when(walletRepository.findActiveBalanceSlots(wallet.getUid(), wallet.getUserUid())).thenReturn(null);
+        Mockito.when(walletRepository.findByUidAndUserUid(wallet.getUid(), wallet.getUserUid())).thenReturn(Optional.of(wallet));
+
+        assertThrows(WalletStatusException.class,
+                () -> walletService.debit(UUID.randomUUID(), wallet.getUid(), wallet.getUserUid(), usd(30), LedgerAccount.EXTERNAL));
+        Mockito.verifyNoInteractions(walletLockManager, balanceSlots);
+    }
+
+    @Test
+    void credit_shouldBookToSlotOfSplitWallet() {
+        UUID transactionUid = UUID.randomUUID();
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        Mockito.when(walletRepository.findBalanceSlots(walletUid, userUid)).thenReturn(4);
+        Mockito.when(balanceSlots.creditSlot(4)).thenReturn(3);
+
+        walletService.credit(transactionUid, walletUid, userUid, usd(12), LedgerAccount.EXTERNAL);
+
+        assertEquals(List.of(
+                LedgerEntry.wallet(transactionUid, walletUid, userUid, 3, new BigDecimal("12.00")),
+                LedgerEntry.system(transactionUid, LedgerAccount.EXTERNAL, userUid, new BigDecimal("-12.00"))
+        ), savedEntries());
+    }
+
+    @Test
+    void debit_shouldDrawAcrossSlotsOfSplitWallet() {
+        UUID transactionUid = UUID.randomUUID();
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        Mockito.when(walletRepository.findActiveBalanceSlots(walletUid, userUid)).thenReturn(4);
+        Mockito.when(balanceSlots.lockForDebit(walletUid, userUid, new BigDecimal("30.00")))
+                .thenReturn(new TreeMap<>(Map.of(1, new BigDecimal("20.00"), 3, new BigDecimal("10.00"))));
+
+        walletService.debit(transactionUid, walletUid, userUid, usd(30), LedgerAccount.EXTERNAL);
+
+        assertEquals(List.of(
+                LedgerEntry.wallet(transactionUid, walletUid, userUid, 1, new BigDecimal("-20.00")),
+                LedgerEntry.wallet(transactionUid, walletUid, userUid, 3, new BigDecimal("-10.00")),
+                LedgerEntry.system(transactionUid, LedgerAccount.EXTERNAL, userUid, new BigDecimal("30.00"))
+        ), savedEntries());
+        Mockito.verifyNoInteractions(walletLockManager);
+        Mockito.verify(walletRepository, Mockito.never()).lockSnapshotBalance(any(), any());
+        Mockito.verify(hotWalletDetector).recordLockWait(eq(walletUid), eq(userUid), eq(true), anyLong());
+    }
+
+    @Test
+    void debit_shouldUseSlotsIfWalletSplitWhileWaitingForLock() {
+        UUID transactionUid = UUID.randomUUID();
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        Mockito.when(walletRepository.findActiveBalanceSlots(walletUid, userUid)).thenReturn(1, 4);
+        Mockito.when(walletRepository.lockSnapshotBalance(walletUid, userUid)).thenReturn(null);
+        Mockito.when(balanceSlots.lockForDebit(walletUid, userUid, new BigDecimal("30.00")))
+                .thenReturn(Map.of(2, new BigDecimal("30.00")));
+
+        walletService.debit(transactionUid, walletUid, userUid, usd(30), LedgerAccount.EXTERNAL);
+
+        assertEquals(List.of(
+                LedgerEntry.wallet(transactionUid, walletUid, userUid, 2, new BigDecimal("-30.00")),
+                LedgerEntry.system(transactionUid, LedgerAccount.EXTERNAL, userUid, new BigDecimal("30.00"))
+        ), savedEntries());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<LedgerEntry> savedEntries() {
+        ArgumentCaptor<Iterable<LedgerEntry>> captor = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(ledgerEntryRepository).saveAll(captor.capture());
+        List<LedgerEntry> entries = new ArrayList<>();
+        captor.getValue().forEach(entries::add);
+        assertEquals(0, entries.stream().map(LedgerEntry::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add).signum());
+        return entries;
+    }
+
+    private static Wallet wallet(UUID walletUid, UUID userUid, String balance, WalletStatus status) {
+        Wallet wallet = new Wallet();
+        wallet.setUid(walletUid);
+        wallet.setUserUid(userUid);
+        wallet.setBalance(new BigDecimal(balance));
+        wallet.setStatus(status);
+        return wallet;
+    }
+
+    private static LedgerEntryRepository.WalletAmount pending(UUID walletUid, String amount) {
+        return new LedgerEntryRepository.WalletAmount() {
+            @Override
+            public UUID getWalletUid() {
+                return walletUid;
+            }
+
+            @Override
+            public BigDecimal getAmount() {
+                return new BigDecimal(amount);
+            }
+        };
+    }
+
+    private static LedgerEntryRepository.BalanceSnapshot snapshot(long version, String balance) {
+        return new LedgerEntryRepository.BalanceSnapshot() {
+            @Override
+            public long getVersion() {
+                return version;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal(balance);
+            }
+        };
+    }
+
+    private static Money usd(long amount) {
+        return Money.of(BigDecimal.valueOf(amount), Currency.getInstance("USD"));
+    }
+}
@@ -0,0 +1,221 @@
+package com.advanced.transactionservice.service.ledger;
+
+import com.advanced.transactionservice.AbstractShardDatabaseTest;
+import com.advanced.transactionservice.configuration.BackgroundExecutors;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.utils.ShardRowUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class LedgerCompactorTest extends AbstractShardDatabaseTest {
+
+    private static final String INSERT_ENTRY = """
+            INSERT INTO ledger_entries (uid, transaction_uid, user_uid, account, wallet_uid, amount, slot)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    // Те же запросы, что и WalletService.getBalanceAt
+    private static final String SNAPSHOT_AT = """
+            SELECT version, balance FROM wallet_balance_snapshots
+            WHERE wallet_uid = ? AND created_at <= ?
+            ORDER BY version DESC
+            LIMIT 1
+            """;
+
+    private static final String OPENING_BALANCE = """
+            SELECT CAST(0 AS BIGINT) AS version, balance FROM wallets
+            WHERE uid = ? AND balance_version = 0 AND created_at <= ?
+            """;
+
+    private static final String SUM_AFTER_SNAPSHOT = """
+            SELECT coalesce(sum(amount), 0) FROM ledger_entries
+            WHERE wallet_uid = ? AND created_at <= ? AND (snapshot_version IS NULL OR snapshot_version > ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(shard0());
+
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(shard0()));
+
+    private final LedgerCompactor compactor = new LedgerCompactor(
+            new TransactionMetricsService(new SimpleMeterRegistry()),
+            shardingSphereConfiguration(shard0()),
+            new BackgroundExecutors(new MockEnvironment())
+    );
+
+    private final UUID userUid = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(compactor, "batchSize", 500);
+        ReflectionTestUtils.setField(compactor, "minEntries", 1);
+        ReflectionTestUtils.setField(compactor, "maxAge", Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        compactor.shutdown();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL bucket_migration.bypass = 'on'");
+            jdbcTemplate.update("DELETE FROM ledger_entries WHERE user_uid = ?", userUid);
+            jdbcTemplate.update("DELETE FROM wallet_balance_snapshots WHERE user_uid = ?", userUid);
+            jdbcTemplate.update("DELETE FROM wallet_balance_slots WHERE user_uid = ?", userUid);
+            jdbcTemplate.update("DELETE FROM wallets WHERE user_uid = ?", userUid);
+        });
+    }
+
+    @Test
+    void compact_shouldStoreOpeningBalance_onFirstRun() {
+        UUID wallet = ShardRowUtils.insertWallet(jdbcTemplate, userUid, new BigDecimal("100.00"));
+        Timestamp createdAt = jdbcTemplate.queryForObject("SELECT created_at FROM wallets WHERE uid = ?", Timestamp.class, wallet);
+        Timestamp beforeCreation = new Timestamp(createdAt.getTime() - 60_000);
+        Timestamp opened = now();
+        post(wallet, 0, "25.00");
+        post(wallet, 0, "25.00");
+        Timestamp credited = now();
+
+        compactor.compact();
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT balance FROM wallet_balance_snapshots WHERE wallet_uid = ? AND version = 0 AND created_at = ?",
+                BigDecimal.class, wallet, createdAt)));
+        assertWallet(wallet, "150.00", 1);
+        assertBalanceAt(wallet, beforeCreation, "0");
+        assertBalanceAt(wallet, opened, "100.00");
+        assertBalanceAt(wallet, credited, "150.00");
+    }
+
+    @Test
+    void compact_shouldKeepLiveAndPastBalances_whileCreditsAreInserted() {
+        UUID wallet = ShardRowUtils.insertWallet(jdbcTemplate, userUid, new BigDecimal("10.00"));
+        // Момент после каждого зачисления и баланс на этот момент
+        Map<Timestamp, BigDecimal> points = new LinkedHashMap<>();
+        points.put(now(), new BigDecimal("10.00"));
+
+        CompletableFuture<Void> credits = CompletableFuture.runAsync(() -> {
+            BigDecimal balance = new BigDecimal("10.00");
+            for (int i = 0; i < 200; i++) {
+                post(wallet, 0, "1.00");
+                balance = balance.add(BigDecimal.ONE);
+                synchronized (points) {
+                    points.put(now(), balance);
+                }
+            }
+        });
+        int runs = 0;
+        while (!credits.isDone()) {
+            compactor.compact();
+            runs++;
+            synchronized (points) {
+                points.forEach((at, balance) -> assertBalanceAt(wallet, at, balance.toPlainString()));
+            }
+        }
+        credits.join();
+        points.forEach((at, balance) -> assertBalanceAt(wallet, at, balance.toPlainString()));
+
+        compactor.compact();
+
+        assertTrue(runs > 1, "runs " + runs);
+        assertWallet(wallet, "210.00", versions(wallet) - 1);
+        assertEquals(0, pending(wallet).signum());
+        points.forEach((at, balance) -> assertBalanceAt(wallet, at, balance.toPlainString()));
+    }
+
+    @Test
+    void compact_shouldRollEachSlotIntoItsOwnBalance() {
+        UUID wallet = ShardRowUtils.insertWallet(jdbcTemplate, userUid, new BigDecimal("90.00"));
+        jdbcTemplate.update("UPDATE wallets SET balance_slots = 3 WHERE uid = ?", wallet);
+        List<String> initial = List.of("90.00", "0.00", "0.00");
+        for (int slot = 0; slot < initial.size(); slot++) {
+            jdbcTemplate.update("INSERT INTO wallet_balance_slots (uid, wallet_uid, user_uid, slot, balance) VALUES (?, ?, ?, ?, ?)",
+                    UUID.randomUUID(), wallet, userUid, slot, new BigDecimal(initial.get(slot)));
+        }
+        post(wallet, 1, "5.00");
+        post(wallet, 2, "7.00");
+        post(wallet, 2, "3.00");
+        post(wallet, 0, "-20.00");
+        Timestamp before = now();
+
+        compactor.compact();
+
+        assertWallet(wallet, "85.00", 1);
+        assertEquals(List.of(new BigDecimal("70.00"), new BigDecimal("5.00"), new BigDecimal("10.00")), jdbcTemplate.queryForList(
+                "SELECT balance FROM wallet_balance_slots WHERE wallet_uid = ? ORDER BY slot", BigDecimal.class, wallet));
+        assertBalanceAt(wallet, before, "85.00");
+
+        post(wallet, 1, "1.00");
+        compactor.compact();
+
+        assertWallet(wallet, "86.00", 2);
+        assertEquals(0, new BigDecimal("86.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT sum(balance) FROM wallet_balance_slots WHERE wallet_uid = ?", BigDecimal.class, wallet)));
+        assertBalanceAt(wallet, before, "85.00");
+    }
+
+    // Пара проводок против внешнего счета; зачисления пишутся так без блокировки кошелька, как в WalletService.credit
+    private void post(UUID wallet, int slot, String amount) {
+        BigDecimal value = new BigDecimal(amount);
+        UUID transactionUid = UUID.randomUUID();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(INSERT_ENTRY, UUID.randomUUID(), transactionUid, userUid, "WALLET", wallet, value, slot);
+            jdbcTemplate.update(INSERT_ENTRY, UUID.randomUUID(), transactionUid, userUid, "EXTERNAL", null, value.negate(), 0);
+        });
+    }
+
+    private Timestamp now() {
+        return jdbcTemplate.queryForObject("SELECT CAST(clock_timestamp() AS TIMESTAMP)", Timestamp.class);
+    }
+
+    private void assertWallet(UUID wallet, String balance, long version) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT balance, balance_version FROM wallets WHERE uid = ?", wallet);
+        assertEquals(0, new BigDecimal(balance).compareTo((BigDecimal) row.get("balance")), row.toString());
+        assertEquals(version, row.get("balance_version"));
+        assertEquals(0, new BigDecimal(balance).compareTo(((BigDecimal) row.get("balance")).add(pending(wallet))));
+    }
+
+    private void assertBalanceAt(UUID wallet, Timestamp at, String balance) {
+        assertEquals(0, new BigDecimal(balance).compareTo(balanceAt(wallet, at)), "balance at " + at);
+    }
+
+    private BigDecimal balanceAt(UUID wallet, Timestamp at) {
+        List<Map<String, Object>> snapshot = jdbcTemplate.queryForList(SNAPSHOT_AT, wallet, at);
+        if (snapshot.isEmpty()) {
+            snapshot = jdbcTemplate.queryForList(OPENING_BALANCE, wallet, at);
+        }
+        if (snapshot.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        Map<String, Object> row = snapshot.getFirst();
+        return ((BigDecimal) row.get("balance"))
+                .add(jdbcTemplate.queryForObject(SUM_AFTER_SNAPSHOT, BigDecimal.class, wallet, at, row.get("version")));
+    }
+
+    private BigDecimal pending(UUID wallet) {
+        return jdbcTemplate.queryForObject(
+                "SELECT coalesce(sum(amount), 0) FROM ledger_entries WHERE wallet_uid = ? AND snapshot_version IS NULL",
+                BigDecimal.class, wallet);
+    }
+
+    private long versions(UUID wallet) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM wallet_balance_snapshots WHERE wallet_uid = ?", Long.class, wallet);
+    }
+}
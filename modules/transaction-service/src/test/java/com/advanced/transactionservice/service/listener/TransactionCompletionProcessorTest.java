@@ -0,0 +1,184 @@
+package com.advanced.transactionservice.service.listener;
+
+import com.advanced.transactionservice.model.LedgerAccount;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import com.advanced.transactionservice.repository.TransactionRepository;
+import com.advanced.transactionservice.service.WalletService;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.CompletionEvent;
+import com.advanced.transactionservice.service.listener.TransactionCompletionProcessor.Outcome;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.sharding.ShardResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+
+class TransactionCompletionProcessorTest {
+
+    private static final String TOPIC = "withdrawal-failed";
+
+    private static final Currency RUB = Currency.getInstance("RUB");
+
+    private final TransactionRepository transactionRepository = Mockito.mock(TransactionRepository.class);
+
+    private final WalletService walletService = Mockito.mock(WalletService.class);
+
+    private final ShardResolver shardResolver = Mockito.mock(ShardResolver.class);
+
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+    private final TransactionCompletionProcessor processor = new TransactionCompletionProcessor(
+            transactionRepository,
+            walletService,
+            shardResolver,
+            new TransactionTemplate(transactionManager),
+            new TransactionMetricsService(new SimpleMeterRegistry())
+    );
+
+    @Test
+    void process_shouldApplyEachShardInItsOwnTransaction() {
+        Transaction onFirstShard = transaction(PaymentType.DEPOSIT, PaymentStatus.PENDING, 0);
+        Transaction onSecondShard = transaction(PaymentType.DEPOSIT, PaymentStatus.PENDING, 1);
+        found(onFirstShard, onSecondShard);
+        pending(onFirstShard);
+        pending(onSecondShard);
+
+        processor.process(TOPIC, Outcome.DEPOSIT_COMPLETED, List.of(
+                new CompletionEvent(onFirstShard.getUid(), null),
+                new CompletionEvent(onSecondShard.getUid(), null)
+        ));
+
+        Mockito.verify(transactionManager, Mockito.times(2)).commit(any());
+        Mockito.verify(transactionRepository).findByUidInAndUserUidIn(Set.of(onFirstShard.getUid()), Set.of(onFirstShard.getUserUid()));
+        Mockito.verify(transactionRepository).findByUidInAndUserUidIn(Set.of(onSecondShard.getUid()), Set.of(onSecondShard.getUserUid()));
+        Mockito.verify(transactionRepository).saveAllAndFlush(List.of(onFirstShard));
+        Mockito.verify(transactionRepository).saveAllAndFlush(List.of(onSecondShard));
+        assertEquals(PaymentStatus.COMPLETED, onFirstShard.getStatus());
+        assertEquals(PaymentStatus.COMPLETED, onSecondShard.getStatus());
+    }
+
+    @Test
+    void process_shouldKeepFirstEvent_whenTransactionIsRepeatedInBatch() {
+        Transaction withdrawal = transaction(PaymentType.WITHDRAWAL, PaymentStatus.PENDING, 0);
+        found(withdrawal);
+        pending(withdrawal);
+
+        processor.process(TOPIC, Outcome.WITHDRAWAL_FAILED, List.of(
+                new CompletionEvent(withdrawal.getUid(), "card declined"),
+                new CompletionEvent(withdrawal.getUid(), "provider timeout")
+        ));
+
+        Mockito.verify(transactionRepository).findAllById(Set.of(withdrawal.getUid()));
+        Mockito.verify(walletService, Mockito.times(1))
+                .credit(any(), any(), any(), any(Money.class), any(LedgerAccount.class));
+        assertEquals(PaymentStatus.FAILED, withdrawal.getStatus());
+        assertEquals("card declined", withdrawal.getFailureReason());
+    }
+
+    @Test
+    void process_shouldSkipTransactionsAlreadyCompletedOrFailed() {
+        Transaction completed = transaction(PaymentType.WITHDRAWAL, PaymentStatus.COMPLETED, 0);
+        Transaction failed = transaction(PaymentType.WITHDRAWAL, PaymentStatus.FAILED, 0);
+        Transaction pending = transaction(PaymentType.WITHDRAWAL, PaymentStatus.PENDING, 0);
+        failed.setFailureReason("card declined");
+        found(completed, failed, pending);
+        Mockito.when(transactionRepository.findByUidInAndUserUidIn(anyCollection(), anyCollection()))
+                .thenReturn(List.of(completed, failed, pending));
+
+        processor.process(TOPIC, Outcome.WITHDRAWAL_FAILED, List.of(
+                new CompletionEvent(completed.getUid(), "redelivered"),
+                new CompletionEvent(failed.getUid(), "redelivered"),
+                new CompletionEvent(pending.getUid(), "limit exceeded")
+        ));
+
+        Mockito.verify(walletService, Mockito.times(1)).credit(
+                Mockito.eq(pending.getUid()), any(), any(), any(Money.class), any(LedgerAccount.class));
+        Mockito.verify(transactionRepository).saveAllAndFlush(List.of(pending));
+        assertEquals(PaymentStatus.COMPLETED, completed.getStatus());
+        assertNull(completed.getFailureReason());
+        assertEquals("card declined", failed.getFailureReason());
+        assertEquals("limit exceeded", pending.getFailureReason());
+    }
+
+    @Test
+    void process_shouldRefundAmountAndFee_whenWithdrawalFailed() {
+        Transaction withdrawal = transaction(PaymentType.WITHDRAWAL, PaymentStatus.PENDING, 0);
+        found(withdrawal);
+        pending(withdrawal);
+
+        processor.process(TOPIC, Outcome.WITHDRAWAL_FAILED, List.of(new CompletionEvent(withdrawal.getUid(), "card declined")));
+
+        ArgumentCaptor<Money> delta = ArgumentCaptor.forClass(Money.class);
+        Mockito.verify(walletService).credit(Mockito.eq(withdrawal.getUid()), Mockito.eq(withdrawal.getWalletUid()),
+                Mockito.eq(withdrawal.getUserUid()), delta.capture(), Mockito.eq(LedgerAccount.EXTERNAL));
+        assertEquals(Money.of(new BigDecimal("101.50"), RUB), delta.getValue());
+        assertEquals(PaymentStatus.FAILED, withdrawal.getStatus());
+        assertEquals("card declined", withdrawal.getFailureReason());
+    }
+
+    @Test
+    void process_shouldCreditAmountLessFee_whenDepositCompleted() {
+        Transaction deposit = transaction(PaymentType.DEPOSIT, PaymentStatus.PENDING, 0);
+        found(deposit);
+        pending(deposit);
+
+        processor.process(TOPIC, Outcome.DEPOSIT_COMPLETED, List.of(new CompletionEvent(deposit.getUid(), null)));
+
+        ArgumentCaptor<Money> delta = ArgumentCaptor.forClass(Money.class);
+        Mockito.verify(walletService).credit(any(), any(), any(), delta.capture(), Mockito.eq(LedgerAccount.EXTERNAL));
+        assertEquals(Money.of(new BigDecimal("98.50"), RUB), delta.getValue());
+        assertNull(deposit.getFailureReason());
+    }
+
+    @Test
+    void process_shouldOnlyChangeStatus_whenWithdrawalCompleted() {
+        Transaction withdrawal = transaction(PaymentType.WITHDRAWAL, PaymentStatus.PENDING, 0);
+        found(withdrawal);
+        pending(withdrawal);
+
+        processor.process(TOPIC, Outcome.WITHDRAWAL_COMPLETED, List.of(new CompletionEvent(withdrawal.getUid(), null)));
+
+        Mockito.verifyNoInteractions(walletService);
+        assertEquals(PaymentStatus.COMPLETED, withdrawal.getStatus());
+    }
+
+    private void found(Transaction... transactions) {
+        Mockito.when(transactionRepository.findAllById(any())).thenReturn(List.of(transactions));
+    }
+
+    private void pending(Transaction transaction) {
+        Mockito.when(transactionRepository.findByUidInAndUserUidIn(
+                Mockito.<Collection<UUID>>argThat(uids -> uids != null && uids.contains(transaction.getUid())), anyCollection()
+        )).thenReturn(List.of(transaction));
+    }
+
+    private Transaction transaction(PaymentType type, PaymentStatus status, int shard) {
+        Transaction transaction = new Transaction();
+        transaction.setUid(UUID.randomUUID());
+        transaction.setWalletUid(UUID.randomUUID());
+        transaction.setUserUid(UUID.randomUUID());
+        transaction.setAmount(new BigDecimal("100.00"));
+        transaction.setFee(new BigDecimal("1.50"));
+        transaction.setCurrency(RUB);
+        transaction.setType(type);
+        transaction.setStatus(status);
+        Mockito.when(shardResolver.shardOf(transaction.getUserUid())).thenReturn(shard);
+        return transaction;
+    }
+}
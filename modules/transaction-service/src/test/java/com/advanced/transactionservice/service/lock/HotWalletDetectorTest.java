@@ -0,0 +1,77 @@
+package com.advanced.transactionservice.service.lock;
+
+import com.advanced.transactionservice.service.ledger.BalanceSlots;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotWalletDetectorTest {
+
+    private static final long SLOW = Duration.ofMillis(80).toNanos();
+
+    private static final long FAST = Duration.ofMillis(5).toNanos();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BalanceSlots balanceSlots = Mockito.mock(BalanceSlots.class);
+
+    @Test
+    void detect_shouldFlagWalletWithEnoughSlowWaits() {
+        HotWalletDetector detector = detector(0);
+        UUID hot = UUID.randomUUID();
+        UUID cold = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) {
+            detector.recordLockWait(hot, userUid, false, SLOW);
+            detector.recordLockWait(cold, userUid, false, FAST);
+        }
+        detector.recordLockWait(cold, userUid, false, SLOW);
+        detector.detect();
+
+        assertEquals(1, detector.flagged().size());
+        assertEquals(3, detector.flagged().get(hot).slowWaits());
+        assertEquals(1.0, meterRegistry.get("wallet_hot_flagged_total").counter().count());
+        assertEquals(7, meterRegistry.get("wallet_debit_lock_wait").tag("mode", "wallet").timer().count());
+        Mockito.verifyNoInteractions(balanceSlots);
+    }
+
+    @Test
+    void detect_shouldCountEachWindowSeparately() {
+        HotWalletDetector detector = detector(0);
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        detector.recordLockWait(walletUid, userUid, false, SLOW);
+        detector.recordLockWait(walletUid, userUid, false, SLOW);
+        detector.detect();
+        detector.recordLockWait(walletUid, userUid, false, SLOW);
+        detector.detect();
+
+        assertTrue(detector.flagged().isEmpty());
+    }
+
+    @Test
+    void detect_shouldSplitFlaggedWalletWhenAutoSlotsSet() {
+        HotWalletDetector detector = detector(8);
+        UUID walletUid = UUID.randomUUID();
+        UUID userUid = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) {
+            detector.recordLockWait(walletUid, userUid, false, SLOW);
+        }
+        detector.detect();
+
+        Mockito.verify(balanceSlots).enable(walletUid, userUid, 8);
+    }
+
+    private HotWalletDetector detector(int autoSlots) {
+        return new HotWalletDetector(balanceSlots, new TransactionMetricsService(meterRegistry), Duration.ofMillis(50), 3, autoSlots);
+    }
+}
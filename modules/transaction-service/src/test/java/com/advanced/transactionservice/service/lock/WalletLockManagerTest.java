@@ -0,0 +1,99 @@
+package com.advanced.transactionservice.service.lock;
+
+import com.advanced.transactionservice.exception.WalletLockTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletLockManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WalletLockManager lockManager = new WalletLockManager(meterRegistry, 16, Duration.ofMillis(200));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void lock_shouldFailOutsideTransaction() {
+        assertThrows(IllegalStateException.class, () -> lockManager.lock(UUID.randomUUID()));
+    }
+
+    @Test
+    void lock_shouldBeReleasedAfterTransactionCompletion() throws Exception {
+        UUID walletUid = UUID.randomUUID();
+
+        TransactionSynchronizationManager.initSynchronization();
+        lockManager.lock(walletUid);
+
+        assertThrows(WalletLockTimeoutException.class, () -> lockInAnotherTransaction(walletUid));
+
+        completeTransaction();
+
+        assertDoesNotThrow(() -> lockInAnotherTransaction(walletUid));
+        assertEquals(16, meterRegistry.find("wallet_lock_wait").timers().size());
+    }
+
+    @Test
+    void lock_shouldNotDeadlockOnOppositeTransfers() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        CountDownLatch start = new CountDownLatch(1);
+
+        CompletableFuture<Void> forward = CompletableFuture.runAsync(() -> transferLocks(start, first, second));
+        CompletableFuture<Void> backward = CompletableFuture.runAsync(() -> transferLocks(start, second, first));
+        start.countDown();
+
+        CompletableFuture.allOf(forward, backward).get(5, TimeUnit.SECONDS);
+    }
+
+    private void transferLocks(CountDownLatch start, UUID from, UUID to) {
+        try {
+            start.await();
+            for (int i = 0; i < 1_000; i++) {
+                TransactionSynchronizationManager.initSynchronization();
+                lockManager.lock(from, to);
+                completeTransaction();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void lockInAnotherTransaction(UUID walletUid) throws Exception {
+        try {
+            CompletableFuture.runAsync(() -> {
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                    lockManager.lock(walletUid);
+                } finally {
+                    completeTransaction();
+                }
+            }).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private static void completeTransaction() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
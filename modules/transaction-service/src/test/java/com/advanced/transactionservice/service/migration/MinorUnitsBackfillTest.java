@@ -0,0 +1,124 @@
+package com.advanced.transactionservice.service.migration;
+
+import com.advanced.transactionservice.AbstractShardDatabaseTest;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.utils.ShardRowUtils;
+import com.advanced.transactionservice.utils.WalletUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class MinorUnitsBackfillTest extends AbstractShardDatabaseTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(shard0());
+
+    private final MinorUnitsBackfill backfill = new MinorUnitsBackfill(
+            new TransactionMetricsService(new SimpleMeterRegistry()), shardingSphereConfiguration(shard0()));
+
+    private final UUID userUid = UUID.randomUUID();
+
+    // Наибольшие uid: обход доходит до них последними и строго по порядку
+    private final List<UUID> wallets = List.of(
+            UUID.fromString("ffffffff-ffff-ffff-ffff-000000000001"),
+            UUID.fromString("ffffffff-ffff-ffff-ffff-000000000002"),
+            UUID.fromString("ffffffff-ffff-ffff-ffff-000000000003"),
+            UUID.fromString("ffffffff-ffff-ffff-ffff-000000000004"),
+            UUID.fromString("ffffffff-ffff-ffff-ffff-000000000005"));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(backfill, "enabled", true);
+        ReflectionTestUtils.setField(backfill, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(backfill, "chunksPerRun", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM wallets WHERE user_uid = ?", userUid);
+    }
+
+    @Test
+    void backfill_shouldResumeFromTheLastChunk_andFinishThePass() {
+        wallets.forEach(this::insertLegacyWallet);
+
+        int runsFillingWallets = 0;
+        int filled = 0;
+        for (int run = 0; filled < wallets.size(); run++) {
+            assertTrue(run < 10_000, "backfill does not advance");
+            backfill.backfill();
+            List<Boolean> isFilled = wallets.stream().map(this::isFilled).toList();
+            int now = isFilled.contains(false) ? isFilled.indexOf(false) : wallets.size();
+            // Заполнен ровно префикс и не больше порции за запуск: каждый запуск продолжает с позиции предыдущего
+            assertFalse(isFilled.subList(now, wallets.size()).contains(true), isFilled.toString());
+            assertTrue(now - filled <= CHUNK_SIZE, isFilled.toString());
+            if (now > filled) {
+                runsFillingWallets++;
+            }
+            filled = now;
+        }
+
+        assertTrue(runsFillingWallets >= 3, "runs " + runsFillingWallets);
+        assertEquals(550L, jdbcTemplate.queryForObject(
+                "SELECT balance_minor FROM wallets WHERE uid = ?", Long.class, wallets.getLast()));
+        runUntilWalletsDone();
+        assertNull(walletPosition());
+    }
+
+    @Test
+    void backfill_shouldRestartThePass_whenRowsBehindThePositionAreStillMissing() {
+        insertLegacyWallet(wallets.get(3));
+        insertLegacyWallet(wallets.get(4));
+        for (int run = 0; !isFilled(wallets.get(3)); run++) {
+            assertTrue(run < 10_000, "backfill does not advance");
+            backfill.backfill();
+        }
+        assertNotNull(walletPosition());
+        // Строка позади позиции, например перенесенная со старой версии во время обхода
+        UUID late = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        insertLegacyWallet(late);
+
+        runUntilWalletsDone();
+
+        assertTrue(isFilled(late));
+        assertTrue(isFilled(wallets.get(4)));
+        assertNull(walletPosition());
+    }
+
+    private void runUntilWalletsDone() {
+        ReflectionTestUtils.setField(backfill, "chunksPerRun", 10_000);
+        for (int i = 0; i < 10 && walletPosition() != null; i++) {
+            backfill.backfill();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private UUID walletPosition() {
+        Map<String, Map<String, UUID>> positions = (Map<String, Map<String, UUID>>) ReflectionTestUtils.getField(backfill, "positions");
+        return positions.get("ds_0").get("wallets");
+    }
+
+    private void insertLegacyWallet(UUID wallet) {
+        ShardRowUtils.updateWithoutTriggers(jdbcTemplate, """
+                        INSERT INTO wallets (uid, name, wallet_type_uid, user_uid, status, balance)
+                        VALUES (?, 'test', ?, ?, 'ACTIVE', 5.50)
+                        """,
+                wallet, WalletUtils.WALLET_TYPE_UID, userUid);
+    }
+
+    private boolean isFilled(UUID wallet) {
+        return jdbcTemplate.queryForObject("SELECT balance_minor IS NOT NULL FROM wallets WHERE uid = ?", Boolean.class, wallet);
+    }
+}
@@ -0,0 +1,161 @@
+package com.advanced.transactionservice.service.migration;
+
+import com.advanced.transactionservice.AbstractShardDatabaseTest;
+import com.advanced.transactionservice.utils.ShardRowUtils;
+import com.advanced.transactionservice.utils.WalletUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Branches of the V12 triggers that keep the decimal and minor-unit columns in sync.
+ */
+@Testcontainers
+class MinorUnitsTriggersTest extends AbstractShardDatabaseTest {
+
+    private static final String INSERT_WALLET = """
+            INSERT INTO wallets (uid, name, wallet_type_uid, user_uid, status, %s)
+            VALUES (?, 'test', ?, ?, 'ACTIVE', ?)
+            """;
+
+    private static final String INSERT_TRANSACTION = """
+            INSERT INTO transactions (uid, created_at, user_uid, wallet_uid, currency, type, status, %s, %s)
+            VALUES (?, ?, ?, ?, 'RUB', 'DEPOSIT', 'COMPLETED', ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(shard0());
+
+    private final UUID userUid = UUID.randomUUID();
+
+    private final Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+
+    private UUID walletUid;
+
+    @BeforeEach
+    void setUp() {
+        walletUid = ShardRowUtils.insertWallet(jdbcTemplate, userUid, BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transactions WHERE user_uid = ?", userUid);
+        jdbcTemplate.update("DELETE FROM wallets WHERE user_uid = ?", userUid);
+    }
+
+    @Test
+    void walletInsert_shouldFillWhicheverColumnIsMissing() {
+        UUID decimal = insertWallet("balance", new BigDecimal("12.35"));
+        UUID minor = insertWallet("balance_minor", 1235L);
+        UUID neither = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO wallets (uid, name, wallet_type_uid, user_uid, status) VALUES (?, 'test', ?, ?, 'ACTIVE')",
+                neither, WalletUtils.WALLET_TYPE_UID, userUid);
+
+        assertWallet(decimal, "12.35", 1235L);
+        assertWallet(minor, "12.35", 1235L);
+        assertWallet(neither, "0.00", 0L);
+    }
+
+    @Test
+    void walletUpdate_shouldRecomputeTheColumnTheStatementDidNotChange() {
+        UUID wallet = insertWallet("balance", new BigDecimal("10.00"));
+
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + 0.01 WHERE uid = ?", wallet);
+        assertWallet(wallet, "10.01", 1001L);
+
+        jdbcTemplate.update("UPDATE wallets SET balance_minor = balance_minor - 2 WHERE uid = ?", wallet);
+        assertWallet(wallet, "9.99", 999L);
+
+        jdbcTemplate.update("UPDATE wallets SET name = 'renamed' WHERE uid = ?", wallet);
+        assertWallet(wallet, "9.99", 999L);
+    }
+
+    @Test
+    void walletUpdate_shouldFillRowWrittenBeforeMinorUnits() {
+        UUID untouched = UUID.randomUUID();
+        UUID updated = UUID.randomUUID();
+        for (UUID wallet : new UUID[]{untouched, updated}) {
+            ShardRowUtils.updateWithoutTriggers(jdbcTemplate, INSERT_WALLET.formatted("balance"),
+                    wallet, WalletUtils.WALLET_TYPE_UID, userUid, new BigDecimal("5.50"));
+            assertWallet(wallet, "5.50", null);
+        }
+
+        jdbcTemplate.update("UPDATE wallets SET name = 'renamed' WHERE uid = ?", untouched);
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + 1 WHERE uid = ?", updated);
+
+        assertWallet(untouched, "5.50", 550L);
+        assertWallet(updated, "6.50", 650L);
+    }
+
+    @Test
+    void transactionInsert_shouldFillWhicheverColumnsAreMissing() {
+        UUID decimal = insertTransaction("amount", "fee", new BigDecimal("100.10"), new BigDecimal("1.05"));
+        UUID minor = insertTransaction("amount_minor", "fee_minor", 10010L, 105L);
+
+        assertTransaction(decimal, "100.10", "1.05", 10010L, 105L);
+        assertTransaction(minor, "100.10", "1.05", 10010L, 105L);
+    }
+
+    @Test
+    void transactionUpdate_shouldRecomputeTheColumnsTheStatementDidNotChange() {
+        UUID transaction = insertTransaction("amount", "fee", new BigDecimal("100.00"), new BigDecimal("1.00"));
+
+        jdbcTemplate.update("UPDATE transactions SET fee = 2.50 WHERE uid = ?", transaction);
+        assertTransaction(transaction, "100.00", "2.50", 10000L, 250L);
+
+        jdbcTemplate.update("UPDATE transactions SET amount_minor = 5005 WHERE uid = ?", transaction);
+        assertTransaction(transaction, "50.05", "2.50", 5005L, 250L);
+
+        jdbcTemplate.update("UPDATE transactions SET status = 'FAILED' WHERE uid = ?", transaction);
+        assertTransaction(transaction, "50.05", "2.50", 5005L, 250L);
+    }
+
+    @Test
+    void transactionUpdate_shouldFillRowWrittenBeforeMinorUnits() {
+        UUID transaction = UUID.randomUUID();
+        ShardRowUtils.updateWithoutTriggers(jdbcTemplate, INSERT_TRANSACTION.formatted("amount", "fee"),
+                transaction, createdAt, userUid, walletUid, new BigDecimal("7.77"), new BigDecimal("0.07"));
+        assertTransaction(transaction, "7.77", "0.07", null, null);
+
+        jdbcTemplate.update("UPDATE transactions SET status = 'FAILED' WHERE uid = ?", transaction);
+
+        assertTransaction(transaction, "7.77", "0.07", 777L, 7L);
+    }
+
+    private UUID insertWallet(String column, Object balance) {
+        UUID wallet = UUID.randomUUID();
+        jdbcTemplate.update(INSERT_WALLET.formatted(column), wallet, WalletUtils.WALLET_TYPE_UID, userUid, balance);
+        return wallet;
+    }
+
+    private UUID insertTransaction(String amountColumn, String feeColumn, Object amount, Object fee) {
+        UUID transaction = UUID.randomUUID();
+        jdbcTemplate.update(INSERT_TRANSACTION.formatted(amountColumn, feeColumn),
+                transaction, createdAt, userUid, walletUid, amount, fee);
+        return transaction;
+    }
+
+    private void assertWallet(UUID wallet, String balance, Long balanceMinor) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT balance, balance_minor FROM wallets WHERE uid = ?", wallet);
+        assertEquals(new BigDecimal(balance), row.get("balance"));
+        assertEquals(balanceMinor, row.get("balance_minor"));
+    }
+
+    private void assertTransaction(UUID transaction, String amount, String fee, Long amountMinor, Long feeMinor) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT amount, fee, amount_minor, fee_minor FROM transactions WHERE uid = ?", transaction);
+        assertEquals(new BigDecimal(amount), row.get("amount"));
+        assertEquals(new BigDecimal(fee), row.get("fee"));
+        assertEquals(amountMinor, row.get("amount_minor"));
+        assertEquals(feeMinor, row.get("fee_minor"));
+    }
+}
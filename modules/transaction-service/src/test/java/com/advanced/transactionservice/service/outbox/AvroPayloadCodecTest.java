@@ -0,0 +1,41 @@
+package com.advanced.transactionservice.service.outbox;
+
+import com.advanced.kafkacontracts.WithdrawalRequested;
+import org.apache.avro.specific.SpecificRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AvroPayloadCodecTest {
+
+    @Test
+    void decode_shouldRestoreEncodedRecord() {
+        WithdrawalRequested payload = new WithdrawalRequested(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                new BigDecimal("150.25"),
+                "RUB",
+                "card",
+                Instant.now().truncatedTo(ChronoUnit.MILLIS)
+        );
+
+        SpecificRecord decoded = AvroPayloadCodec.decode(
+                WithdrawalRequested.class.getName(),
+                AvroPayloadCodec.encode(payload)
+        );
+
+        assertEquals(payload, decoded);
+    }
+
+    @Test
+    void decode_shouldFailOnUnknownType() {
+        assertThrows(IllegalStateException.class, () -> AvroPayloadCodec.decode("com.example.Unknown", new byte[0]));
+    }
+}
@@ -0,0 +1,184 @@
+package com.advanced.transactionservice.service.outbox;
+
+import com.advanced.kafkacontracts.WithdrawalRequested;
+import com.advanced.transactionservice.AbstractShardDatabaseTest;
+import com.advanced.transactionservice.configuration.BackgroundExecutors;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.service.producer.KafkaPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class OutboxRelayTest extends AbstractShardDatabaseTest {
+
+    private static final String TOPIC = "withdrawal-requested";
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(shard0());
+
+    private final KafkaPublisher kafkaPublisher = Mockito.mock(KafkaPublisher.class);
+
+    private final OutboxRelay relay = new OutboxRelay(
+            kafkaPublisher,
+            new TransactionMetricsService(new SimpleMeterRegistry()),
+            shardingSphereConfiguration(shard0()),
+            new BackgroundExecutors(new MockEnvironment())
+    );
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(relay, "retention", Duration.ofDays(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+        jdbcTemplate.update("DELETE FROM outbox_events");
+    }
+
+    @Test
+    void relay_shouldMarkOnlyAcknowledgedEventsSent_andRetryFailedOnNextRun() {
+        UUID acknowledged = insertEvent(1);
+        UUID failed = insertEvent(2);
+        acknowledge(acknowledged);
+        Mockito.when(kafkaPublisher.send(TOPIC, failed.toString(), payload()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        relay.relay();
+
+        assertTrue(isSent(acknowledged));
+        assertFalse(isSent(failed));
+
+        acknowledge(failed);
+        relay.relay();
+
+        assertTrue(isSent(failed));
+        Mockito.verify(kafkaPublisher, Mockito.times(1)).send(TOPIC, acknowledged.toString(), payload());
+        Mockito.verify(kafkaPublisher, Mockito.times(2)).send(TOPIC, failed.toString(), payload());
+    }
+
+    @Test
+    void relay_shouldLeaveEventUnsent_whenSendIsNotAcknowledgedInTime() {
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofMillis(100));
+        UUID acknowledged = insertEvent(1);
+        UUID hanging = insertEvent(2);
+        acknowledge(acknowledged);
+        Mockito.when(kafkaPublisher.send(TOPIC, hanging.toString(), payload())).thenReturn(new CompletableFuture<>());
+
+        relay.relay();
+
+        assertTrue(isSent(acknowledged));
+        assertFalse(isSent(hanging));
+    }
+
+    @Test
+    void relay_shouldDrainFullBatches_andStopOnShortOne() {
+        List<UUID> uids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            uids.add(insertEvent(i));
+        }
+        uids.forEach(this::acknowledge);
+        // Во второй пачке одно событие не отправлено: пачка короткая, и его не пытаются отправить повторно в этом же запуске
+        UUID failed = uids.get(3);
+        Mockito.when(kafkaPublisher.send(TOPIC, failed.toString(), payload()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        relay.relay();
+
+        assertEquals(List.of(true, true, true, false, false), uids.stream().map(this::isSent).toList());
+        Mockito.verify(kafkaPublisher, Mockito.times(4)).send(Mockito.eq(TOPIC), Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    void relay_shouldStopAfterMaxBatchesPerRun() {
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 2);
+        List<UUID> uids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            uids.add(insertEvent(i));
+        }
+        uids.forEach(this::acknowledge);
+
+        relay.relay();
+
+        assertEquals(List.of(true, true, true, true, false), uids.stream().map(this::isSent).toList());
+    }
+
+    @Test
+    void cleanup_shouldDeleteOnlyEventsSentBeforeRetention() {
+        UUID expired = insertEvent(1);
+        UUID recent = insertEvent(2);
+        UUID unsent = insertEvent(3);
+        markSent(expired, Instant.now().minus(2, ChronoUnit.DAYS));
+        markSent(recent, Instant.now().minus(1, ChronoUnit.HOURS));
+
+        relay.cleanup();
+
+        assertEquals(List.of(recent, unsent), jdbcTemplate.queryForList(
+                "SELECT uid FROM outbox_events ORDER BY created_at", UUID.class));
+    }
+
+    // События упорядочены по created_at, как их выбирает relay
+    private UUID insertEvent(int order) {
+        UUID uid = UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO outbox_events (uid, created_at, user_uid, topic, message_key, payload_type, payload)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)
+                        """,
+                uid,
+                Timestamp.from(Instant.now().minus(1, ChronoUnit.HOURS).plusSeconds(order)),
+                UUID.randomUUID(),
+                TOPIC,
+                uid.toString(),
+                WithdrawalRequested.class.getName(),
+                AvroPayloadCodec.encode(payload())
+        );
+        return uid;
+    }
+
+    private void acknowledge(UUID uid) {
+        Mockito.when(kafkaPublisher.send(TOPIC, uid.toString(), payload()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private void markSent(UUID uid, Instant sentAt) {
+        jdbcTemplate.update("UPDATE outbox_events SET sent_at = ? WHERE uid = ?", Timestamp.from(sentAt), uid);
+    }
+
+    private boolean isSent(UUID uid) {
+        return jdbcTemplate.queryForObject("SELECT sent_at IS NOT NULL FROM outbox_events WHERE uid = ?", Boolean.class, uid);
+    }
+
+    private static WithdrawalRequested payload() {
+        return new WithdrawalRequested(
+                UUID.fromString("00000000-0000-0000-0000-000000000001"),
+                UUID.fromString("00000000-0000-0000-0000-000000000002"),
+                UUID.fromString("00000000-0000-0000-0000-000000000003"),
+                new BigDecimal("10.00"),
+                "RUB",
+                "card",
+                Instant.parse("2026-01-01T00:00:00Z")
+        );
+    }
+}
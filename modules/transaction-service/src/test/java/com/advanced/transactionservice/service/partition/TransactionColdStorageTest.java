@@ -0,0 +1,91 @@
+package com.advanced.transactionservice.service.partition;
+
+import com.advanced.transactionservice.model.PaymentStatus;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionColdStorageTest {
+
+    @TempDir
+    private Path directory;
+
+    private final UUID userUid = UUID.randomUUID();
+
+    private final UUID walletUid = UUID.randomUUID();
+
+    @Test
+    void search_shouldReturnNewestMatchingRowsAcrossShards() {
+        TransactionColdStorage storage = new TransactionColdStorage(directory);
+        Transaction first = transaction(userUid, walletUid, at(2023, 1, 10), PaymentStatus.COMPLETED);
+        Transaction second = transaction(userUid, walletUid, at(2023, 1, 20), PaymentStatus.FAILED);
+        Transaction third = transaction(userUid, walletUid, at(2023, 2, 5), PaymentStatus.COMPLETED);
+        Transaction other = transaction(UUID.randomUUID(), UUID.randomUUID(), at(2023, 1, 15), PaymentStatus.COMPLETED);
+
+        assertEquals(3, storage.write("ds_0", "transactions_2023_01", sink -> List.of(first, second, other).forEach(sink)));
+        assertEquals(1, storage.write("ds_1", "transactions_2023_02", sink -> sink.accept(third)));
+
+        List<Transaction> found = storage.search(userUid.toString(), null, null, null, at(2022, 12, 1), null, 10);
+
+        assertEquals(List.of(third.getUid(), second.getUid(), first.getUid()), found.stream().map(Transaction::getUid).toList());
+        Transaction restored = found.getFirst();
+        assertEquals(third.getCreatedAt().toInstant(), restored.getCreatedAt().toInstant());
+        assertEquals(new BigDecimal("10.00"), restored.getAmount());
+        assertEquals(new BigDecimal("0.50"), restored.getFee());
+        assertEquals(Currency.getInstance("USD"), restored.getCurrency());
+        assertEquals(PaymentType.DEPOSIT, restored.getType());
+        assertEquals(walletUid, restored.getWalletUid());
+        assertNull(restored.getTargetWalletUid());
+    }
+
+    @Test
+    void search_shouldApplyFiltersAndLimit() {
+        TransactionColdStorage storage = new TransactionColdStorage(directory);
+        Transaction failed = transaction(userUid, walletUid, at(2023, 1, 20), PaymentStatus.FAILED);
+        storage.write("ds_0", "transactions_2023_01", sink -> List.of(
+                transaction(userUid, walletUid, at(2023, 1, 10), PaymentStatus.COMPLETED),
+                failed,
+                transaction(userUid, walletUid, at(2023, 1, 25), PaymentStatus.COMPLETED)
+        ).forEach(sink));
+
+        assertEquals(List.of(failed.getUid()), storage.search(userUid.toString(), walletUid.toString(), PaymentType.DEPOSIT,
+                PaymentStatus.FAILED, null, null, 10).stream().map(Transaction::getUid).toList());
+        assertEquals(2, storage.search(null, null, null, null, at(2023, 1, 15), at(2023, 1, 31), 10).size());
+        assertEquals(1, storage.search(userUid.toString(), null, null, null, null, null, 1).size());
+        assertTrue(storage.search(userUid.toString(), null, null, null, at(2023, 2, 1), null, 10).isEmpty());
+    }
+
+    @Test
+    void write_shouldReplaceMonthAndLeaveNoTemporaryFile() throws Exception {
+        TransactionColdStorage storage = new TransactionColdStorage(directory);
+        storage.write("ds_0", "transactions_2023_01", sink -> sink.accept(transaction(userUid, walletUid, at(2023, 1, 10), PaymentStatus.COMPLETED)));
+        storage.write("ds_0", "transactions_2023_01", sink -> { });
+
+        assertTrue(storage.search(userUid.toString(), null, null, null, null, null, 10).isEmpty());
+        try (var files = Files.list(directory.resolve("ds_0"))) {
+            assertEquals(List.of("transactions_2023_01.parquet"), files.map(file -> file.getFileName().toString()).toList());
+        }
+    }
+
+    private static Transaction transaction(UUID userUid, UUID walletUid, OffsetDateTime createdAt, PaymentStatus status) {
+        return new Transaction(UUID.randomUUID(), walletUid, userUid, new BigDecimal("10.00"), new BigDecimal("0.50"),
+                PaymentType.DEPOSIT, status, null, Currency.getInstance("USD"), "comment", null, createdAt, null);
+    }
+
+    private static OffsetDateTime at(int year, int month, int day) {
+        return LocalDateTime.of(year, month, day, 12, 0).atZone(ZoneId.systemDefault()).toOffsetDateTime();
+    }
+}
@@ -0,0 +1,173 @@
+package com.advanced.transactionservice.service.partition;
+
+import com.advanced.transactionservice.AbstractShardDatabaseTest;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import com.advanced.transactionservice.utils.ShardRowUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class TransactionPartitionMaintainerTest extends AbstractShardDatabaseTest {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(shard0());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TransactionPartitionMaintainer maintainer = new TransactionPartitionMaintainer(
+            new TransactionMetricsService(meterRegistry), shardingSphereConfiguration(shard0()));
+
+    private final List<String> oldPartitions = new ArrayList<>();
+
+    private final List<UUID> wallets = new ArrayList<>();
+
+    private YearMonth currentMonth;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(maintainer, "monthsAhead", 3);
+        ReflectionTestUtils.setField(maintainer, "retentionMonths", 24);
+        ReflectionTestUtils.setField(maintainer, "lockTimeout", Duration.ofSeconds(5));
+        currentMonth = YearMonth.from(jdbcTemplate.queryForObject(
+                "SELECT CAST(date_trunc('month', now()) AS DATE)", Date.class).toLocalDate());
+    }
+
+    @AfterEach
+    void tearDown() {
+        oldPartitions.forEach(partition -> jdbcTemplate.execute(
+                "DROP TABLE IF EXISTS public.%1$s, transactions_archive.%1$s".formatted(partition)));
+        wallets.forEach(wallet -> jdbcTemplate.update("DELETE FROM transactions WHERE wallet_uid = ?", wallet));
+        wallets.forEach(wallet -> jdbcTemplate.update("DELETE FROM wallets WHERE uid = ?", wallet));
+    }
+
+    @Test
+    void maintain_shouldCreatePartitionsUpToMonthsAhead() {
+        for (int i = 2; i <= 4; i++) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(currentMonth.plusMonths(i)));
+        }
+
+        maintainer.maintain();
+
+        Map<String, Boolean> partitions = attachedPartitions();
+        for (int i = 0; i <= 3; i++) {
+            assertTrue(partitions.containsKey(partitionName(currentMonth.plusMonths(i))), "month +" + i);
+        }
+        assertFalse(partitions.containsKey(partitionName(currentMonth.plusMonths(4))));
+        assertEquals(2.0, meterRegistry.get("transaction_partitions_total").tag("action", "created").counter().count());
+    }
+
+    @Test
+    void maintain_shouldArchivePartitionsPastRetention_withoutForeignKeys() {
+        UUID userUid = UUID.randomUUID();
+        UUID wallet = wallet(userUid);
+        YearMonth expired = currentMonth.minusMonths(30);
+        YearMonth justExpired = currentMonth.minusMonths(25);
+        YearMonth oldestKept = currentMonth.minusMonths(24);
+        transaction(wallet, userUid, expired);
+        transaction(wallet, userUid, justExpired);
+        UUID kept = transaction(wallet, userUid, oldestKept);
+
+        maintainer.maintain();
+
+        Map<String, Boolean> partitions = attachedPartitions();
+        assertTrue(partitions.containsKey(partitionName(oldestKept)));
+        for (YearMonth month : List.of(expired, justExpired)) {
+            String partition = partitionName(month);
+            assertFalse(partitions.containsKey(partition), partition);
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM transactions_archive." + partition + " WHERE wallet_uid = ?", Integer.class, wallet));
+            assertEquals(0, foreignKeys("transactions_archive." + partition), partition);
+        }
+
+        // Архив не ссылается на кошелек: его можно удалить, как только в transactions не осталось строк
+        jdbcTemplate.update("DELETE FROM transactions WHERE uid = ?", kept);
+        assertEquals(1, jdbcTemplate.update("DELETE FROM wallets WHERE uid = ?", wallet));
+    }
+
+    @Test
+    void maintain_shouldFinalizeInterruptedDetach() throws SQLException {
+        UUID userUid = UUID.randomUUID();
+        UUID wallet = wallet(userUid);
+        YearMonth expired = currentMonth.minusMonths(26);
+        String partition = partitionName(expired);
+        transaction(wallet, userUid, expired);
+        interruptDetach(partition);
+        assertTrue(attachedPartitions().get(partition));
+
+        maintainer.maintain();
+
+        assertFalse(attachedPartitions().containsKey(partition));
+        assertEquals(0, foreignKeys("transactions_archive." + partition));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM transactions_archive." + partition, Integer.class));
+    }
+
+    /**
+     * Leaves the partition in the detach pending state: the second phase of a concurrent detach waits
+     * for every transaction that has read the parent table, so an open one makes it hit the statement timeout.
+     */
+    private void interruptDetach(String partition) throws SQLException {
+        try (Connection reader = shard0().getConnection(); Connection detacher = shard0().getConnection()) {
+            reader.setAutoCommit(false);
+            try (Statement read = reader.createStatement(); Statement detach = detacher.createStatement()) {
+                read.execute("SELECT count(*) FROM transactions");
+                detach.execute("SET statement_timeout = 1000");
+                assertThrows(SQLException.class, () -> detach.execute(
+                        "ALTER TABLE transactions DETACH PARTITION " + partition + " CONCURRENTLY"));
+            } finally {
+                reader.rollback();
+            }
+        }
+    }
+
+    private UUID wallet(UUID userUid) {
+        UUID wallet = ShardRowUtils.insertWallet(jdbcTemplate, userUid, BigDecimal.ZERO);
+        wallets.add(wallet);
+        return wallet;
+    }
+
+    private UUID transaction(UUID wallet, UUID userUid, YearMonth month) {
+        oldPartitions.add(partitionName(month));
+        return ShardRowUtils.insertTransaction(jdbcTemplate, wallet, userUid, month.atDay(2).atStartOfDay(), BigDecimal.TEN);
+    }
+
+    private Map<String, Boolean> attachedPartitions() {
+        Map<String, Boolean> partitions = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT c.relname, i.inhdetachpending FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'public.transactions'::regclass
+                """, rs -> {
+            partitions.put(rs.getString("relname"), rs.getBoolean("inhdetachpending"));
+        });
+        return partitions;
+    }
+
+    private int foreignKeys(String table) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_constraint WHERE conrelid = CAST(? AS regclass) AND contype = 'f'", Integer.class, table);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "transactions_" + month.format(DateTimeFormatter.ofPattern("yyyy_MM"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.advanced.transactionservice.service.producer;
+
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaPublisherTest {
+
+    private static final String TOPIC = "deposit-requested";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = Mockito.mock(KafkaTemplate.class);
+
+    private final KafkaPublisher publisher = new KafkaPublisher(
+            kafkaTemplate, new TransactionMetricsService(meterRegistry), 2, Duration.ofMillis(50));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void send_shouldFailWithoutReachingProducer_whenInFlightLimitIsReached() throws Exception {
+        CompletableFuture<SendResult<String, Object>> first = new CompletableFuture<>();
+        CompletableFuture<SendResult<String, Object>> second = new CompletableFuture<>();
+        Mockito.when(kafkaTemplate.send(Mockito.eq(TOPIC), Mockito.anyString(), Mockito.any()))
+                .thenReturn(first, second, CompletableFuture.completedFuture(null));
+
+        publisher.send(TOPIC, "1", "a");
+        publisher.send(TOPIC, "2", "b");
+        assertEquals(2.0, meterRegistry.get("kafka_send_in_flight").gauge().value());
+
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> publisher.send(TOPIC, "3", "c").get());
+        assertInstanceOf(TimeoutException.class, rejected.getCause());
+        assertEquals(1.0, meterRegistry.get("kafka_send_failed_total").tag("reason", "backpressure").counter().count());
+        Mockito.verify(kafkaTemplate, Mockito.times(2)).send(Mockito.eq(TOPIC), Mockito.anyString(), Mockito.any());
+
+        first.complete(null);
+        publisher.send(TOPIC, "3", "c").get();
+        assertEquals(1.0, meterRegistry.get("kafka_send_in_flight").gauge().value());
+        assertEquals(2, meterRegistry.get("kafka_send_latency").tag("topic", TOPIC).timer().count());
+        assertEquals(1, meterRegistry.get("kafka_send_backpressure").tag("topic", TOPIC).timer().count());
+    }
+
+    @Test
+    void send_shouldCountFailuresByKafkaException() {
+        CompletableFuture<SendResult<String, Object>> failed = new CompletableFuture<>();
+        Mockito.when(kafkaTemplate.send(Mockito.eq(TOPIC), Mockito.anyString(), Mockito.any())).thenReturn(failed);
+
+        CompletableFuture<SendResult<String, Object>> result = publisher.send(TOPIC, "1", "a");
+        failed.completeExceptionally(new KafkaProducerException(
+                new ProducerRecord<>(TOPIC, "1", "a"), "Send failed", new RecordTooLargeException("too large")));
+
+        assertThrows(ExecutionException.class, result::get);
+        assertEquals(1.0, meterRegistry.get("kafka_send_failed_total").tag("reason", "RecordTooLargeException").counter().count());
+        assertEquals(0.0, meterRegistry.get("kafka_send_in_flight").gauge().value());
+    }
+}
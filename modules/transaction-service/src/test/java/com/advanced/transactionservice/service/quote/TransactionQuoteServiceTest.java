@@ -0,0 +1,172 @@
+package com.advanced.transactionservice.service.quote;
+
+import com.advanced.contract.model.WalletResponse;
+import com.advanced.transactionservice.exception.QuoteMismatchException;
+import com.advanced.transactionservice.model.Money;
+import com.advanced.transactionservice.model.PaymentType;
+import com.advanced.transactionservice.model.TransactionQuote;
+import com.advanced.transactionservice.repository.TransactionQuoteRepository;
+import com.advanced.transactionservice.service.metric.TransactionMetricsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionQuoteServiceTest {
+
+    private static final UUID WALLET_UID = UUID.randomUUID();
+
+    private static final UUID TARGET_WALLET_UID = UUID.randomUUID();
+
+    @Mock
+    private TransactionQuoteRepository quoteRepository;
+
+    @Mock
+    private TransactionMetricsService metricsService;
+
+    private TransactionQuoteService quoteService;
+
+    @BeforeEach
+    void setUp() {
+        quoteService = new TransactionQuoteService(quoteRepository, metricsService, 100);
+        ReflectionTestUtils.setField(quoteService, "ttl", Duration.ofMinutes(2));
+    }
+
+    @Test
+    void find_shouldReturnEmpty_withoutQuoteUid() {
+        assertTrue(quoteService.find(null, PaymentType.TRANSFER).isEmpty());
+
+        Mockito.verifyNoInteractions(quoteRepository, metricsService);
+    }
+
+    @Test
+    void find_shouldReadDatabaseOnCacheMiss_andServeNextLookupFromCache() {
+        TransactionQuote quote = quote(PaymentType.TRANSFER, OffsetDateTime.now().plusMinutes(1));
+        Mockito.when(quoteRepository.findById(quote.getUid())).thenReturn(Optional.of(quote));
+
+        assertSame(quote, quoteService.find(quote.getUid(), PaymentType.TRANSFER).orElseThrow());
+        assertSame(quote, quoteService.find(quote.getUid(), PaymentType.TRANSFER).orElseThrow());
+
+        Mockito.verify(quoteRepository, Mockito.times(1)).findById(quote.getUid());
+        Mockito.verify(metricsService).incrementQuoteLookup("db", PaymentType.TRANSFER);
+        Mockito.verify(metricsService).incrementQuoteLookup("cache", PaymentType.TRANSFER);
+    }
+
+    @Test
+    void find_shouldReturnEmpty_whenQuoteIsUnknown() {
+        UUID quoteUid = UUID.randomUUID();
+        Mockito.when(quoteRepository.findById(quoteUid)).thenReturn(Optional.empty());
+
+        assertTrue(quoteService.find(quoteUid, PaymentType.DEPOSIT).isEmpty());
+
+        Mockito.verify(metricsService).incrementQuoteLookup("miss", PaymentType.DEPOSIT);
+    }
+
+    @Test
+    void find_shouldReturnEmpty_andNotCache_whenQuoteExpired() {
+        TransactionQuote quote = quote(PaymentType.TRANSFER, OffsetDateTime.now().minusSeconds(1));
+        Mockito.when(quoteRepository.findById(quote.getUid())).thenReturn(Optional.of(quote));
+
+        assertTrue(quoteService.find(quote.getUid(), PaymentType.TRANSFER).isEmpty());
+        assertTrue(quoteService.find(quote.getUid(), PaymentType.TRANSFER).isEmpty());
+
+        Mockito.verify(quoteRepository, Mockito.times(2)).findById(quote.getUid());
+        Mockito.verify(metricsService, Mockito.times(2)).incrementQuoteLookup("expired", PaymentType.TRANSFER);
+    }
+
+    @Test
+    void find_shouldConflict_whenQuoteWasIssuedForAnotherOperation() {
+        TransactionQuote quote = quote(PaymentType.DEPOSIT, OffsetDateTime.now().plusMinutes(1));
+        Mockito.when(quoteRepository.findById(quote.getUid())).thenReturn(Optional.of(quote));
+
+        QuoteMismatchException e = assertThrows(QuoteMismatchException.class,
+                () -> quoteService.find(quote.getUid(), PaymentType.WITHDRAWAL));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatus());
+        assertEquals(quote.getUid(), e.getQuoteUid());
+    }
+
+    @Test
+    void issue_shouldCacheQuoteOnlyAfterCommit() {
+        WalletResponse wallet = new WalletResponse();
+        wallet.setWalletUid(WALLET_UID);
+        wallet.setUserUid(UUID.randomUUID());
+        // UID назначает генератор при сохранении
+        Mockito.when(quoteRepository.save(Mockito.any())).thenAnswer(invocation -> {
+            TransactionQuote saved = invocation.getArgument(0);
+            saved.setUid(UUID.randomUUID());
+            return saved;
+        });
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            TransactionQuote quote = quoteService.issue(PaymentType.WITHDRAWAL, wallet, null,
+                    Money.of(new BigDecimal("10.00"), "RUB"), Money.ofMinor(15, Money.currency("RUB")));
+            Mockito.verify(quoteRepository).save(quote);
+            Mockito.when(quoteRepository.findById(quote.getUid())).thenReturn(Optional.empty());
+
+            assertTrue(quoteService.find(quote.getUid(), PaymentType.WITHDRAWAL).isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertSame(quote, quoteService.find(quote.getUid(), PaymentType.WITHDRAWAL).orElseThrow());
+            Mockito.verify(quoteRepository, Mockito.times(1)).findById(quote.getUid());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void checkRequest_shouldAcceptRequestRepeatingTheQuote() {
+        TransactionQuote quote = quote(PaymentType.TRANSFER, OffsetDateTime.now().plusMinutes(1));
+
+        assertDoesNotThrow(() -> quoteService.checkRequest(
+                quote, WALLET_UID, TARGET_WALLET_UID, new BigDecimal("100.0"), new BigDecimal("1.50"), "RUB"));
+        assertDoesNotThrow(() -> quoteService.checkRequest(
+                quote, WALLET_UID, TARGET_WALLET_UID, new BigDecimal("100.00"), new BigDecimal("1.5"), null));
+    }
+
+    @Test
+    void checkRequest_shouldConflict_whenRequestDiffersFromTheQuote() {
+        TransactionQuote quote = quote(PaymentType.TRANSFER, OffsetDateTime.now().plusMinutes(1));
+        BigDecimal amount = new BigDecimal("100.00");
+        BigDecimal fee = new BigDecimal("1.50");
+
+        assertMismatch(() -> quoteService.checkRequest(quote, UUID.randomUUID(), TARGET_WALLET_UID, amount, fee, "RUB"));
+        assertMismatch(() -> quoteService.checkRequest(quote, WALLET_UID, UUID.randomUUID(), amount, fee, "RUB"));
+        assertMismatch(() -> quoteService.checkRequest(quote, WALLET_UID, null, amount, fee, "RUB"));
+        assertMismatch(() -> quoteService.checkRequest(quote, WALLET_UID, TARGET_WALLET_UID, new BigDecimal("100.01"), fee, "RUB"));
+        assertMismatch(() -> quoteService.checkRequest(quote, WALLET_UID, TARGET_WALLET_UID, amount, new BigDecimal("1.49"), "RUB"));
+        assertMismatch(() -> quoteService.checkRequest(quote, WALLET_UID, TARGET_WALLET_UID, amount, fee, "USD"));
+    }
+
+    private static void assertMismatch(Runnable check) {
+        assertEquals(HttpStatus.CONFLICT, assertThrows(QuoteMismatchException.class, check::run).getStatus());
+    }
+
+    private static TransactionQuote quote(PaymentType operation, OffsetDateTime expiresAt) {
+        TransactionQuote quote = new TransactionQuote();
+        quote.setUid(UUID.randomUUID());
+        quote.setExpiresAt(expiresAt);
+        quote.setOperation(operation);
+        quote.setWalletUid(WALLET_UID);
+        quote.setTargetWalletUid(operation == PaymentType.TRANSFER ? TARGET_WALLET_UID : null);
+        quote.setCurrency("RUB");
+        quote.setAmountMinor(10_000);
+        quote.setFeeMinor(150);
+        return quote;
+    }
+}
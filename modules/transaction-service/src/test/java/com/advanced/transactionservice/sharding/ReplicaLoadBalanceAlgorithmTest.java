@@ -0,0 +1,61 @@
+package com.advanced.transactionservice.sharding;
+
+import org.apache.shardingsphere.infra.algorithm.loadbalancer.core.LoadBalanceAlgorithm;
+import org.apache.shardingsphere.infra.spi.type.typed.TypedSPILoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaLoadBalanceAlgorithmTest {
+
+    private static final String SHARD = "ds_0";
+
+    private static final List<String> READ_NAMES = List.of(
+            ReplicaReads.replicaName(SHARD, 0),
+            ReplicaReads.replicaName(SHARD, 1),
+            ReplicaReads.primaryName(SHARD)
+    );
+
+    private final LoadBalanceAlgorithm algorithm = TypedSPILoader.getService(LoadBalanceAlgorithm.class, ReplicaLoadBalanceAlgorithm.TYPE);
+
+    @AfterEach
+    void reset() {
+        ReplicaReads.restore(false);
+        ReplicaReads.publishLagging(Set.of());
+    }
+
+    @Test
+    void getTargetName_shouldReadFromPrimaryOutsideReplicaTransactions() {
+        assertEquals(ReplicaReads.primaryName(SHARD), algorithm.getTargetName(SHARD, READ_NAMES));
+    }
+
+    @Test
+    void getTargetName_shouldAlternateBetweenReplicas() {
+        ReplicaReads.enter(true);
+
+        Set<String> targets = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            targets.add(algorithm.getTargetName(SHARD, READ_NAMES));
+        }
+
+        assertEquals(Set.of(ReplicaReads.replicaName(SHARD, 0), ReplicaReads.replicaName(SHARD, 1)), targets);
+    }
+
+    @Test
+    void getTargetName_shouldSkipLaggingReplicasAndFallBackToPrimary() {
+        ReplicaReads.enter(true);
+        ReplicaReads.publishLagging(Set.of(ReplicaReads.replicaName(SHARD, 0)));
+
+        assertEquals(ReplicaReads.replicaName(SHARD, 1), algorithm.getTargetName(SHARD, READ_NAMES));
+        assertEquals(ReplicaReads.replicaName(SHARD, 1), algorithm.getTargetName(SHARD, READ_NAMES));
+
+        ReplicaReads.publishLagging(Set.of(ReplicaReads.replicaName(SHARD, 0), ReplicaReads.replicaName(SHARD, 1)));
+
+        assertEquals(ReplicaReads.primaryName(SHARD), algorithm.getTargetName(SHARD, READ_NAMES));
+    }
+}
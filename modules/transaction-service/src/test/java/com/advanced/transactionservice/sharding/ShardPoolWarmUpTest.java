@@ -0,0 +1,99 @@
+package com.advanced.transactionservice.sharding;
+
+import com.advanced.transactionservice.configuration.BackgroundExecutors;
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPoolWarmUpTest {
+
+    private final ShardingSphereConfiguration shardingSphereConfiguration = Mockito.mock(ShardingSphereConfiguration.class);
+
+    private final ShardPoolWarmUp warmUp = new ShardPoolWarmUp(
+            shardingSphereConfiguration, new BackgroundExecutors(new MockEnvironment()));
+
+    private final List<Connection> opened = new CopyOnWriteArrayList<>();
+
+    @Test
+    void run_shouldOpenMinimumIdleConnectionsOfEveryPool_andReturnThem() throws Exception {
+        HikariDataSource primary = pool(4, 10, Duration.ZERO);
+        HikariDataSource replica = pool(6, 3, Duration.ZERO);
+        Mockito.when(shardingSphereConfiguration.getPools()).thenReturn(Map.of("ds_0", primary, "ds_0_replica_0", replica));
+        ReflectionTestUtils.setField(warmUp, "timeout", Duration.ofSeconds(5));
+
+        warmUp.run(null);
+
+        Mockito.verify(primary, Mockito.times(4)).getConnection();
+        Mockito.verify(replica, Mockito.times(3)).getConnection();
+        assertAllReturned(7);
+    }
+
+    @Test
+    void run_shouldGiveUpAtTimeout_andReturnEveryHeldConnection() throws Exception {
+        HikariDataSource slow = pool(50, 50, Duration.ofMillis(40));
+        Mockito.when(shardingSphereConfiguration.getPools()).thenReturn(Map.of("ds_0", slow));
+        ReflectionTestUtils.setField(warmUp, "timeout", Duration.ofMillis(200));
+
+        long start = System.nanoTime();
+        warmUp.run(null);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+        assertTrue(opened.size() < 50, "opened " + opened.size());
+        assertFalse(opened.isEmpty());
+        assertAllReturned(opened.size());
+    }
+
+    @Test
+    void run_shouldReturnHeldConnections_whenPoolFailsToOpenMore() throws Exception {
+        HikariDataSource failing = pool(5, 5, Duration.ZERO);
+        Mockito.doAnswer(invocation -> open())
+                .doAnswer(invocation -> open())
+                .doThrow(new SQLTransientConnectionException("Connection is not available"))
+                .when(failing).getConnection();
+        Mockito.when(shardingSphereConfiguration.getPools()).thenReturn(Map.of("ds_0", failing));
+        ReflectionTestUtils.setField(warmUp, "timeout", Duration.ofSeconds(5));
+
+        warmUp.run(null);
+
+        Mockito.verify(failing, Mockito.times(3)).getConnection();
+        assertAllReturned(2);
+    }
+
+    // Пул, который отдает новое соединение через delay
+    private HikariDataSource pool(int minimumIdle, int maximumPoolSize, Duration delay) throws SQLException {
+        HikariDataSource pool = Mockito.mock(HikariDataSource.class);
+        Mockito.when(pool.getMinimumIdle()).thenReturn(minimumIdle);
+        Mockito.when(pool.getMaximumPoolSize()).thenReturn(maximumPoolSize);
+        Mockito.when(pool.getConnection()).thenAnswer(invocation -> {
+            Thread.sleep(delay);
+            return open();
+        });
+        return pool;
+    }
+
+    private Connection open() {
+        Connection connection = Mockito.mock(Connection.class);
+        opened.add(connection);
+        return connection;
+    }
+
+    private void assertAllReturned(int expected) throws SQLException {
+        assertEquals(expected, opened.size());
+        for (Connection connection : opened) {
+            Mockito.verify(connection).close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.advanced.transactionservice.sharding;
+
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UidShardingAlgorithmTest {
+
+    private static final List<String> SHARDS = List.of("ds_0", "ds_1", "ds_2");
+
+    private final UidShardingAlgorithm algorithm = createAlgorithm();
+
+    @Test
+    void generate_shouldEmbedUserRoutingKey() {
+        UUID userUid = UUID.randomUUID();
+
+        UUID uid = ShardedUids.generate(userUid);
+
+        assertTrue(ShardedUids.isRoutable(uid));
+        assertEquals(2, uid.variant());
+        assertEquals(userUid.hashCode(), ShardedUids.embeddedRoutingKey(uid));
+        assertNotEquals(uid, ShardedUids.generate(userUid));
+    }
+
+    @Test
+    void generateTimeOrdered_shouldEmbedUserRoutingKeyAfterTimestamp() throws InterruptedException {
+        UUID userUid = UUID.randomUUID();
+
+        UUID first = ShardedUids.generateTimeOrdered(userUid);
+        Thread.sleep(2);
+        UUID second = ShardedUids.generateTimeOrdered(userUid);
+
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        assertTrue(ShardedUids.isRoutable(first));
+        assertEquals(userUid.hashCode(), ShardedUids.embeddedRoutingKey(first));
+        assertTrue(Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits()) < 0);
+    }
+
+    @Test
+    void doSharding_shouldRouteTimeOrderedUidToUserShard() {
+        UUID userUid = UUID.randomUUID();
+
+        Collection<String> byUser = doSharding(Map.of(UidShardingAlgorithm.USER_UID, List.of(userUid)));
+        Collection<String> byUid = doSharding(Map.of(UidShardingAlgorithm.UID, List.of(ShardedUids.generateTimeOrdered(userUid))));
+
+        assertEquals(byUser, byUid);
+    }
+
+    @Test
+    void doSharding_shouldRouteByUidToUserShard() {
+        for (int i = 0; i < 100; i++) {
+            UUID userUid = UUID.randomUUID();
+            UUID walletUid = ShardedUids.generate(userUid);
+
+            Collection<String> byUser = doSharding(Map.of(UidShardingAlgorithm.USER_UID, List.of(userUid)));
+            Collection<String> byUid = doSharding(Map.of(UidShardingAlgorithm.UID, List.of(walletUid)));
+
+            assertEquals(1, byUid.size());
+            assertEquals(byUser, byUid);
+            assertEquals(List.of("ds_" + Math.floorMod(userUid.hashCode(), SHARDS.size())), List.copyOf(byUid));
+        }
+    }
+
+    @Test
+    void doSharding_shouldRouteByWalletUidToUserShard_whenRowHasNoUserInQuery() {
+        UUID userUid = UUID.randomUUID();
+
+        Collection<String> byUser = doSharding(Map.of(UidShardingAlgorithm.USER_UID, List.of(userUid)));
+        Collection<String> byWallet = doSharding(Map.of(UidShardingAlgorithm.WALLET_UID, List.of(ShardedUids.generate(userUid))));
+
+        assertEquals(byUser, byWallet);
+    }
+
+    @Test
+    void doSharding_shouldBroadcastLegacyUid() {
+        Collection<String> targets = doSharding(Map.of(UidShardingAlgorithm.UID, List.of(UUID.randomUUID())));
+
+        assertEquals(SHARDS, List.copyOf(targets));
+    }
+
+    private Collection<String> doSharding(Map<String, Collection<Comparable<?>>> values) {
+        return algorithm.doSharding(SHARDS, new ComplexKeysShardingValue<>("wallets", values, Map.of()));
+    }
+
+    private static UidShardingAlgorithm createAlgorithm() {
+        Properties props = new Properties();
+        props.setProperty(UidShardingAlgorithm.SHARD_COUNT, String.valueOf(SHARDS.size()));
+        props.setProperty(UidShardingAlgorithm.BUCKET_COUNT, String.valueOf(SHARDS.size() * 256));
+        UidShardingAlgorithm algorithm = new UidShardingAlgorithm();
+        algorithm.init(props);
+        return algorithm;
+    }
+}
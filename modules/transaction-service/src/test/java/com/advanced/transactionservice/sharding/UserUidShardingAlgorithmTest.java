@@ -0,0 +1,108 @@
+package com.advanced.transactionservice.sharding;
+
+import com.google.common.collect.Range;
+import org.apache.shardingsphere.infra.datanode.DataNodeInfo;
+import org.apache.shardingsphere.infra.spi.type.typed.TypedSPILoader;
+import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.RangeShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.StandardShardingAlgorithm;
+import org.apache.shardingsphere.sharding.spi.ShardingAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserUidShardingAlgorithmTest {
+
+    private static final int SHARD_COUNT = 3;
+
+    // Начальная раскладка совпадает с hashCode % N, только если N делит число бакетов
+    private static final int BUCKET_COUNT = SHARD_COUNT * 256;
+
+    private static final List<String> SHARDS = List.of("ds_0", "ds_1", "ds_2");
+
+    private static final DataNodeInfo DATA_NODE_INFO = new DataNodeInfo("ds_", 1, '0');
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void doSharding_shouldRouteLikeInlineExpression() {
+        Properties inlineProps = new Properties();
+        inlineProps.setProperty("algorithm-expression",
+                "ds_${(user_uid.hashCode() % " + SHARD_COUNT + " + " + SHARD_COUNT + ") % " + SHARD_COUNT + "}");
+        StandardShardingAlgorithm<Comparable<?>> inline =
+                (StandardShardingAlgorithm<Comparable<?>>) TypedSPILoader.getService(ShardingAlgorithm.class, "INLINE", inlineProps);
+        StandardShardingAlgorithm<Comparable<?>> algorithm =
+                (StandardShardingAlgorithm<Comparable<?>>) TypedSPILoader.getService(ShardingAlgorithm.class, UserUidShardingAlgorithm.TYPE, props());
+
+        for (int i = 0; i < 1_000; i++) {
+            PreciseShardingValue<Comparable<?>> value = precise(UUID.randomUUID());
+            assertEquals(inline.doSharding(SHARDS, value), algorithm.doSharding(SHARDS, value));
+        }
+    }
+
+    @Test
+    void doSharding_shouldHashStringValuesAsUuid() {
+        UserUidShardingAlgorithm algorithm = new UserUidShardingAlgorithm();
+        algorithm.init(props());
+        UUID userUid = UUID.randomUUID();
+
+        assertEquals(algorithm.doSharding(SHARDS, precise(userUid)), algorithm.doSharding(SHARDS, precise(userUid.toString())));
+    }
+
+    @Test
+    void doSharding_shouldNarrowOnlySingleValueRanges() {
+        UserUidShardingAlgorithm algorithm = new UserUidShardingAlgorithm();
+        algorithm.init(props());
+        UUID userUid = UUID.randomUUID();
+
+        assertEquals(List.of(algorithm.doSharding(SHARDS, precise(userUid))),
+                List.copyOf(algorithm.doSharding(SHARDS, range(Range.closed(userUid, userUid)))));
+        assertEquals(SHARDS, List.copyOf(algorithm.doSharding(SHARDS, range(Range.atLeast(userUid)))));
+    }
+
+    @Test
+    void doSharding_shouldFollowPublishedBucketMap() {
+        UserUidShardingAlgorithm algorithm = new UserUidShardingAlgorithm();
+        algorithm.init(props());
+        UUID userUid = UUID.randomUUID();
+        int bucket = Math.floorMod(userUid.hashCode(), BUCKET_COUNT);
+
+        int[] shards = new int[BUCKET_COUNT];
+        shards[bucket] = 2;
+        try {
+            ShardBuckets.publish(new BucketMap(shards));
+
+            assertEquals("ds_2", algorithm.doSharding(SHARDS, precise(userUid)));
+            assertEquals("ds_0", algorithm.doSharding(SHARDS, precise(otherBucket(bucket))));
+        } finally {
+            ShardBuckets.publish(null);
+        }
+    }
+
+    private static UUID otherBucket(int bucket) {
+        UUID userUid;
+        do {
+            userUid = UUID.randomUUID();
+        } while (Math.floorMod(userUid.hashCode(), BUCKET_COUNT) == bucket);
+        return userUid;
+    }
+
+    private static PreciseShardingValue<Comparable<?>> precise(Comparable<?> value) {
+        return new PreciseShardingValue<>("transactions", "user_uid", DATA_NODE_INFO, value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RangeShardingValue<Comparable<?>> range(Range range) {
+        return new RangeShardingValue<>("transactions", "user_uid", DATA_NODE_INFO, range);
+    }
+
+    private static Properties props() {
+        Properties props = new Properties();
+        props.setProperty(UserUidShardingAlgorithm.SHARD_COUNT, String.valueOf(SHARD_COUNT));
+        props.setProperty(UserUidShardingAlgorithm.BUCKET_COUNT, String.valueOf(BUCKET_COUNT));
+        return props;
+    }
+}
@@ -0,0 +1,37 @@
+package com.advanced.transactionservice.utils;
+
+import com.advanced.transactionservice.configuration.ShardingSphereConfiguration;
+import com.advanced.transactionservice.model.LedgerAccount;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+public class LedgerUtils {
+
+    /**
+     * Removes ledger entries, balance snapshots and balance slots from every shard, so wallets can be deleted.
+     * Entries are append-only, hence the bucket migration bypass.
+     */
+    public static void deleteAll(ShardingSphereConfiguration shardingSphereConfiguration) {
+        shardingSphereConfiguration.getShardDataSources().values().forEach(dataSource ->
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+                    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+                    jdbcTemplate.execute("SET LOCAL bucket_migration.bypass = 'on'");
+                    jdbcTemplate.update("DELETE FROM wallet_balance_snapshots");
+                    jdbcTemplate.update("DELETE FROM wallet_balance_slots");
+                    jdbcTemplate.update("DELETE FROM ledger_entries");
+                }));
+    }
+
+    /**
+     * Sum of the entries posted to a system account on every shard.
+     */
+    public static BigDecimal sumAccount(ShardingSphereConfiguration shardingSphereConfiguration, LedgerAccount account) {
+        return shardingSphereConfiguration.getShardDataSources().values().stream()
+                .map(dataSource -> new JdbcTemplate(dataSource).queryForObject(
+                        "SELECT COALESCE(sum(amount), 0) FROM ledger_entries WHERE account = ?", BigDecimal.class, account.name()))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,66 @@
+package com.advanced.transactionservice.utils;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records through JFR where virtual threads hold on to their carrier thread: parking inside a
+ * monitor ({@code jdk.VirtualThreadPinned}) and waiting to enter a contended monitor
+ * ({@code jdk.JavaMonitorEnter} on a virtual thread). Only events with a frame of the service's
+ * own code are kept, each as the event name, the top frame and the service's frame.
+ */
+public class PinningDetector implements AutoCloseable {
+
+    private static final String PACKAGE = "com.advanced.transactionservice.";
+
+    private final RecordingStream stream = new RecordingStream();
+
+    private final List<String> pinned = new CopyOnWriteArrayList<>();
+
+    public PinningDetector() {
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+        stream.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ZERO).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::record);
+        stream.onEvent("jdk.JavaMonitorEnter", event -> {
+            if (event.getThread() != null && event.getThread().isVirtual()) {
+                record(event);
+            }
+        });
+        stream.startAsync();
+    }
+
+    /**
+     * Stops recording once all recorded events are consumed and returns them.
+     */
+    public List<String> stop() {
+        stream.stop();
+        return List.copyOf(pinned);
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    private void record(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return;
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName().startsWith(PACKAGE)) {
+                pinned.add(event.getEventType().getName() + " in " + describe(frames.getFirst()) + " from " + describe(frame));
+                return;
+            }
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,67 @@
+package com.advanced.transactionservice.utils;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Inserts rows straight into a shard database, for tests that run without the application context.
+ */
+public class ShardRowUtils {
+
+    public static UUID insertWallet(JdbcTemplate jdbcTemplate, UUID userUid, BigDecimal balance) {
+        UUID walletUid = UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO wallets (uid, name, wallet_type_uid, user_uid, status, balance)
+                        VALUES (?, 'test', ?, ?, 'ACTIVE', ?)
+                        """,
+                walletUid, WalletUtils.WALLET_TYPE_UID, userUid, balance);
+        return walletUid;
+    }
+
+    /**
+     * Inserts a completed deposit, creating the partition of its month if there is none.
+     */
+    public static UUID insertTransaction(
+            JdbcTemplate jdbcTemplate,
+            UUID walletUid,
+            UUID userUid,
+            LocalDateTime createdAt,
+            BigDecimal amount
+    ) {
+        UUID transactionUid = UUID.randomUUID();
+        jdbcTemplate.queryForObject("SELECT create_transactions_partition(?)", String.class, Timestamp.valueOf(createdAt));
+        jdbcTemplate.update("""
+                        INSERT INTO transactions (uid, created_at, user_uid, wallet_uid, amount, fee, currency, type, status)
+                        VALUES (?, ?, ?, ?, ?, 0, 'RUB', 'DEPOSIT', 'COMPLETED')
+                        """,
+                transactionUid, Timestamp.valueOf(createdAt), userUid, walletUid, amount);
+        return transactionUid;
+    }
+
+    /**
+     * Runs a statement with triggers off for its session, e.g. to write a row the way it was written
+     * before the minor-unit columns existed.
+     */
+    public static int updateWithoutTriggers(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET session_replication_role = replica");
+                try (PreparedStatement update = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < args.length; i++) {
+                        update.setObject(i + 1, args[i]);
+                    }
+                    return update.executeUpdate();
+                } finally {
+                    statement.execute("RESET session_replication_role");
+                }
+            }
+        });
+    }
+}